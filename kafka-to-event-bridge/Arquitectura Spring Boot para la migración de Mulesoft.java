@@ -608,9 +608,11 @@ public class JsonTransformer {
 public class MessageTransformer {
 
     private final ObjectMapper objectMapper;
+    private final MappingRegistry mappingRegistry;
     
-    public MessageTransformer(ObjectMapper objectMapper) {
+    public MessageTransformer(ObjectMapper objectMapper, MappingRegistry mappingRegistry) {
         this.objectMapper = objectMapper;
+        this.mappingRegistry = mappingRegistry;
     }
     
     public String replaceIdWithAvroSchema(String message) {
@@ -619,7 +621,10 @@ public class MessageTransformer {
     }
     
     public String setAwsAndOperationId(String jsonPayload) {
-        // Implementar transformación para AWS y operationId (Image 3)
+        // Transformación para AWS y operationId (Image 3) con el mapeo declarativo, si está activo
+        if (mappingRegistry.isEnabled()) {
+            return mappingRegistry.get().apply(MappingInput.ofJson(jsonPayload, null, -1, -1));
+        }
         return jsonPayload;
     }
     
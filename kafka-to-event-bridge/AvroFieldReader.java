@@ -0,0 +1,168 @@
+package com.empresa.connector.util;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a single top-level field of a binary Avro record without decoding the rest.
+ *
+ * Avro binary has no field offsets, so the fields written before the target are
+ * stepped over: strings, bytes and fixed by their length, blocked arrays and maps in
+ * one jump when the writer recorded their size, everything else value by value.
+ * Fields after the target are never touched. Which fields to skip is worked out once
+ * from the writer schema; the schema must be the one the record was written with.
+ *
+ * Thread-safe; each thread reuses its own decoder.
+ */
+public class AvroFieldReader {
+    
+    private static final ThreadLocal<BinaryDecoder> DECODERS = new ThreadLocal<>();
+    
+    private final List<Schema> skipped = new ArrayList<>();
+    private final Schema target;
+    private final int headerLength;
+    
+    /**
+     * @param writerSchema Record schema the data was written with
+     * @param field Name of a top-level field
+     * @param headerLength Bytes before the record, 5 for the Confluent wire format
+     *                     (magic byte and schema id), 0 for plain Avro
+     */
+    public AvroFieldReader(Schema writerSchema, String field, int headerLength) {
+        if (writerSchema.getType() != Schema.Type.RECORD || writerSchema.getField(field) == null) {
+            throw new IllegalArgumentException("Field " + field + " not found in schema " + writerSchema.getFullName());
+        }
+        for (Schema.Field f : writerSchema.getFields()) {
+            if (f.name().equals(field)) {
+                break;
+            }
+            skipped.add(f.schema());
+        }
+        this.target = writerSchema.getField(field).schema();
+        this.headerLength = headerLength;
+    }
+    
+    /**
+     * Value of the field in the record
+     *
+     * @return The value as text (enum symbol, number, boolean), or null for a null value
+     * @throws IOException If the data is truncated or does not match the schema
+     */
+    public String read(byte[] data, int offset, int length) throws IOException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(
+                data, offset + headerLength, length - headerLength, DECODERS.get());
+        DECODERS.set(decoder);
+        
+        for (Schema schema : skipped) {
+            skip(schema, decoder);
+        }
+        return readValue(target, decoder);
+    }
+    
+    public String read(byte[] data) throws IOException {
+        return read(data, 0, data.length);
+    }
+    
+    /**
+     * Value of the field in the remaining bytes of an array-backed buffer
+     */
+    public String read(ByteBuffer data) throws IOException {
+        return read(data.array(), data.arrayOffset() + data.position(), data.remaining());
+    }
+    
+    private static String readValue(Schema schema, BinaryDecoder decoder) throws IOException {
+        switch (schema.getType()) {
+            case NULL:
+                decoder.readNull();
+                return null;
+            case STRING:
+                Utf8 value = decoder.readString(null);
+                return value.toString();
+            case ENUM:
+                return schema.getEnumSymbols().get(decoder.readEnum());
+            case INT:
+                return String.valueOf(decoder.readInt());
+            case LONG:
+                return String.valueOf(decoder.readLong());
+            case BOOLEAN:
+                return String.valueOf(decoder.readBoolean());
+            case FLOAT:
+                return String.valueOf(decoder.readFloat());
+            case DOUBLE:
+                return String.valueOf(decoder.readDouble());
+            case UNION:
+                return readValue(schema.getTypes().get(decoder.readIndex()), decoder);
+            default:
+                throw new IllegalArgumentException("Unsupported field type " + schema.getType());
+        }
+    }
+    
+    private static void skip(Schema schema, BinaryDecoder decoder) throws IOException {
+        switch (schema.getType()) {
+            case NULL:
+                decoder.readNull();
+                break;
+            case BOOLEAN:
+                decoder.readBoolean();
+                break;
+            case INT:
+                decoder.readInt();
+                break;
+            case LONG:
+                decoder.readLong();
+                break;
+            case FLOAT:
+                decoder.skipFixed(4);
+                break;
+            case DOUBLE:
+                decoder.skipFixed(8);
+                break;
+            case STRING:
+                decoder.skipString();
+                break;
+            case BYTES:
+                decoder.skipBytes();
+                break;
+            case FIXED:
+                decoder.skipFixed(schema.getFixedSize());
+                break;
+            case ENUM:
+                decoder.readEnum();
+                break;
+            case UNION:
+                skip(schema.getTypes().get(decoder.readIndex()), decoder);
+                break;
+            case RECORD:
+                for (Schema.Field field : schema.getFields()) {
+                    skip(field.schema(), decoder);
+                }
+                break;
+            case ARRAY:
+                // skipArray jumps over blocks written with their size and returns the
+                // item count of the first block it cannot jump over
+                for (long items = decoder.skipArray(); items != 0; items = decoder.skipArray()) {
+                    for (long i = 0; i < items; i++) {
+                        skip(schema.getElementType(), decoder);
+                    }
+                }
+                break;
+            case MAP:
+                for (long entries = decoder.skipMap(); entries != 0; entries = decoder.skipMap()) {
+                    for (long i = 0; i < entries; i++) {
+                        decoder.skipString();
+                        skip(schema.getValueType(), decoder);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported type " + schema.getType());
+        }
+    }
+}
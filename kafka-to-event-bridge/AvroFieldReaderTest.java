@@ -0,0 +1,115 @@
+package com.empresa.connector.util;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AvroFieldReader
+ */
+public class AvroFieldReaderTest {
+    
+    private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Payment\","
+            + "\"fields\":["
+            + "{\"name\":\"G6181_IDEMPR\",\"type\":\"string\"},"
+            + "{\"name\":\"amount\",\"type\":\"double\"},"
+            + "{\"name\":\"raw\",\"type\":\"bytes\"},"
+            + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+            + "{\"name\":\"attributes\",\"type\":{\"type\":\"map\",\"values\":\"long\"}},"
+            + "{\"name\":\"nested\",\"type\":{\"type\":\"record\",\"name\":\"Nested\",\"fields\":["
+            + "{\"name\":\"flag\",\"type\":\"boolean\"}]}},"
+            + "{\"name\":\"G6181_CODESTA2\",\"type\":[\"null\",\"string\"]},"
+            + "{\"name\":\"status\",\"type\":{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"OK\",\"KO\"]}}"
+            + "]}");
+    
+    @Test
+    void read_fieldAfterVariableLengthFields_returnsValue() throws IOException {
+        byte[] data = encode(record("13"), false);
+        
+        assertEquals("13", new AvroFieldReader(SCHEMA, "G6181_CODESTA2", 0).read(data));
+    }
+    
+    @Test
+    void read_blockedArraysAndMaps_skippedWholesale() throws IOException {
+        byte[] data = encode(record("13"), true);
+        
+        assertEquals("13", new AvroFieldReader(SCHEMA, "G6181_CODESTA2", 0).read(data));
+    }
+    
+    @Test
+    void read_nullUnionBranch_returnsNull() throws IOException {
+        byte[] data = encode(record(null), false);
+        
+        assertNull(new AvroFieldReader(SCHEMA, "G6181_CODESTA2", 0).read(data));
+    }
+    
+    @Test
+    void read_firstFieldAndEnum_returnValues() throws IOException {
+        byte[] data = encode(record("13"), false);
+        
+        assertEquals("0049", new AvroFieldReader(SCHEMA, "G6181_IDEMPR", 0).read(data));
+        assertEquals("KO", new AvroFieldReader(SCHEMA, "status", 0).read(data));
+    }
+    
+    @Test
+    void read_confluentWireFormat_skipsHeader() throws IOException {
+        byte[] record = encode(record("13"), false);
+        byte[] framed = new byte[record.length + 5];
+        framed[0] = 0;
+        ByteBuffer.wrap(framed, 1, 4).putInt(42);
+        System.arraycopy(record, 0, framed, 5, record.length);
+        
+        assertEquals("13", new AvroFieldReader(SCHEMA, "G6181_CODESTA2", 5).read(framed));
+    }
+    
+    @Test
+    void read_truncatedData_throws() throws IOException {
+        byte[] data = encode(record("13"), false);
+        
+        assertThrows(IOException.class,
+                () -> new AvroFieldReader(SCHEMA, "G6181_CODESTA2", 0).read(Arrays.copyOf(data, 8)));
+    }
+    
+    @Test
+    void constructor_unknownField_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new AvroFieldReader(SCHEMA, "G6181_NUMORD", 0));
+    }
+    
+    private static GenericRecord record(String codesta2) {
+        GenericRecord nested = new GenericData.Record(SCHEMA.getField("nested").schema());
+        nested.put("flag", true);
+        GenericRecord record = new GenericData.Record(SCHEMA);
+        record.put("G6181_IDEMPR", "0049");
+        record.put("amount", 125.5);
+        record.put("raw", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        record.put("tags", Arrays.asList("transfer", "sepa", "urgent"));
+        record.put("attributes", Collections.singletonMap("retries", 3L));
+        record.put("nested", nested);
+        record.put("G6181_CODESTA2", codesta2);
+        record.put("status", new GenericData.EnumSymbol(SCHEMA.getField("status").schema(), "KO"));
+        return record;
+    }
+    
+    private static byte[] encode(GenericRecord record, boolean blocking) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // The blocking encoder writes collection blocks with their byte size, so they can be skipped at once
+        BinaryEncoder encoder = blocking
+                ? EncoderFactory.get().blockingBinaryEncoder(out, null)
+                : EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(SCHEMA).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+}
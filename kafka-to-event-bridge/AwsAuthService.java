@@ -1,9 +1,13 @@
 package com.empresa.connector.service;
 
 import com.empresa.connector.model.AwsCredentials;
+import com.empresa.connector.util.AwsSigner;
+import com.empresa.connector.util.SigV4Template;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
 
 /**
  * Service interface for AWS authentication
@@ -53,6 +57,81 @@ public interface AwsAuthService {
                                             String region,
                                             String service,
                                             String operation);
+    
+    /**
+     * Sends an authenticated request to AWS with the given client and signer,
+     * used by destinations that own their connection pool
+     *
+     * @param restTemplate Client to send the request with
+     * @param signer Signer to compute the authorization with
+     * @param url Full URL
+     * @param httpMethod HTTP method
+     * @param body Request body
+     * @param responseType Response type class
+     * @param credentials AWS credentials
+     * @param region AWS region
+     * @param service AWS service name
+     * @param operation AWS operation
+     * @return Response entity
+     */
+    <T> ResponseEntity<T> sendAuthenticatedRequest(RestTemplate restTemplate,
+                                            AwsSigner signer,
+                                            String url,
+                                            HttpMethod httpMethod,
+                                            Object body,
+                                            Class<T> responseType,
+                                            AwsCredentials credentials,
+                                            String region,
+                                            String service,
+                                            String operation);
+    
+    /**
+     * Sends an authenticated request to AWS, handing the raw response to an extractor
+     * instead of binding it through the message converters
+     *
+     * @param restTemplate Client to send the request with
+     * @param signer Signer to compute the authorization with
+     * @param url Full URL
+     * @param httpMethod HTTP method
+     * @param body Request body
+     * @param credentials AWS credentials
+     * @param region AWS region
+     * @param service AWS service name
+     * @param operation AWS operation
+     * @param responseExtractor Reads the result from the response
+     * @return Extracted result
+     */
+    <T> T executeAuthenticatedRequest(RestTemplate restTemplate,
+                                      AwsSigner signer,
+                                      String url,
+                                      HttpMethod httpMethod,
+                                      Object body,
+                                      AwsCredentials credentials,
+                                      String region,
+                                      String service,
+                                      String operation,
+                                      ResponseExtractor<T> responseExtractor);
+    
+    /**
+     * Sends an authenticated request signed with a destination's precomputed template,
+     * handing the raw response to an extractor
+     *
+     * @param restTemplate Client to send the request with
+     * @param signer Signer to compute the authorization with
+     * @param template Precomputed method, host, target and signed headers of the destination
+     * @param url Full URL, its host must be the template's
+     * @param body Request body
+     * @param credentials AWS credentials
+     * @param responseExtractor Reads the result from the response
+     * @return Extracted result
+     */
+    <T> T executeAuthenticatedRequest(RestTemplate restTemplate,
+                                      AwsSigner signer,
+                                      SigV4Template template,
+                                      String url,
+                                      Object body,
+                                      AwsCredentials credentials,
+                                      ResponseExtractor<T> responseExtractor);
 }
 
 package com.empresa.connector.service.impl;
@@ -61,15 +140,20 @@ import com.empresa.connector.config.properties.AwsProperties;
 import com.empresa.connector.model.AwsCredentials;
 import com.empresa.connector.service.AwsAuthService;
 import com.empresa.connector.util.AwsSigner;
+import com.empresa.connector.util.AmzDateClock;
+import com.empresa.connector.util.JsonCodecs;
+import com.empresa.connector.util.RequestBodyBuffer;
+import com.empresa.connector.util.SigV4Template;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -81,6 +165,7 @@ public class AwsAuthServiceImpl implements AwsAuthService {
     private final AwsProperties awsProperties;
     private final AwsSigner awsSigner;
     private final RestTemplate restTemplate;
+    private final JsonCodecs jsonCodecs;
     
     @Override
     public HttpHeaders generateSecureAwsHeaders(String method, 
@@ -91,14 +176,27 @@ public class AwsAuthServiceImpl implements AwsAuthService {
                                           String queryParams, 
                                           String requestBody,
                                           AwsCredentials credentials) {
+        return generateSecureAwsHeaders(awsSigner, method, region, service, operation, uri, queryParams,
+                awsSigner.hashContent(requestBody), credentials);
+    }
+    
+    /**
+     * Signs a request whose payload hash is already known
+     */
+    private HttpHeaders generateSecureAwsHeaders(AwsSigner signer,
+                                          String method,
+                                          String region,
+                                          String service,
+                                          String operation,
+                                          String uri,
+                                          String queryParams,
+                                          String payloadHash,
+                                          AwsCredentials credentials) {
         try {
-            // Get current date in AWS format
-            ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
-            String awsDate = now.format(DateTimeFormatter.ofPattern(awsProperties.getDatetimeFormat()));
-            String dateStamp = now.format(DateTimeFormatter.ofPattern(awsProperties.getDateFormat()));
-            
-            // Calculate payload hash
-            String payloadHash = awsSigner.hashContent(requestBody);
+            // Get current date in AWS format, formatted once per second
+            AmzDateClock.Stamp now = AmzDateClock.now();
+            String awsDate = now.getAmzDate();
+            String dateStamp = now.getDateStamp();
             
             // Create basic headers map
             Map<String, String> headerMap = new HashMap<>();
@@ -117,7 +215,7 @@ public class AwsAuthServiceImpl implements AwsAuthService {
             }
             
             // Calculate AWS authorization
-            String authorization = awsSigner.computeAuthorizationHeader(
+            String authorization = signer.computeAuthorizationHeader(
                 awsDate, 
                 dateStamp, 
                 region, 
@@ -153,36 +251,127 @@ public class AwsAuthServiceImpl implements AwsAuthService {
                                                     String region,
                                                     String service,
                                                     String operation) {
+        return sendAuthenticatedRequest(restTemplate, awsSigner, url, httpMethod, body, responseType,
+                credentials, region, service, operation);
+    }
+    
+    @Override
+    public <T> ResponseEntity<T> sendAuthenticatedRequest(RestTemplate restTemplate,
+                                                    AwsSigner signer,
+                                                    String url,
+                                                    HttpMethod httpMethod,
+                                                    Object body,
+                                                    Class<T> responseType,
+                                                    AwsCredentials credentials,
+                                                    String region,
+                                                    String service,
+                                                    String operation) {
+        RequestCallback acceptHeader = restTemplate.acceptHeaderRequestCallback(responseType);
+        return executeAuthenticatedRequest(restTemplate, signer, url, httpMethod, body, credentials,
+                region, service, operation, acceptHeader, restTemplate.responseEntityExtractor(responseType));
+    }
+    
+    @Override
+    public <T> T executeAuthenticatedRequest(RestTemplate restTemplate,
+                                             AwsSigner signer,
+                                             String url,
+                                             HttpMethod httpMethod,
+                                             Object body,
+                                             AwsCredentials credentials,
+                                             String region,
+                                             String service,
+                                             String operation,
+                                             ResponseExtractor<T> responseExtractor) {
+        return executeAuthenticatedRequest(restTemplate, signer, url, httpMethod, body, credentials,
+                region, service, operation, null, responseExtractor);
+    }
+    
+    @Override
+    public <T> T executeAuthenticatedRequest(RestTemplate restTemplate,
+                                             AwsSigner signer,
+                                             SigV4Template template,
+                                             String url,
+                                             Object body,
+                                             AwsCredentials credentials,
+                                             ResponseExtractor<T> responseExtractor) {
+        try {
+            // Serialize the body a single time, hashing it as it is written
+            RequestBodyBuffer requestBody = serializeBody(body);
+            
+            // Only the date, payload hash and token are signed per request
+            HttpHeaders headers = template.sign(signer, credentials, requestBody.payloadHash())
+                    .applyTo(new HttpHeaders());
+            
+            return execute(restTemplate, url, HttpMethod.POST, requestBody, headers, null, responseExtractor);
+        } catch (Exception e) {
+            log.error("Error sending authenticated request to AWS: {}", e.getMessage(), e);
+            throw new RuntimeException("Error sending authenticated request to AWS", e);
+        }
+    }
+    
+    /**
+     * Serializes the body once, signs the hash of those exact bytes and writes the
+     * same buffer to the request stream, so the signed and sent payloads can never differ
+     */
+    private <T> T executeAuthenticatedRequest(RestTemplate restTemplate,
+                                              AwsSigner signer,
+                                              String url,
+                                              HttpMethod httpMethod,
+                                              Object body,
+                                              AwsCredentials credentials,
+                                              String region,
+                                              String service,
+                                              String operation,
+                                              RequestCallback acceptHeader,
+                                              ResponseExtractor<T> responseExtractor) {
         try {
             // Extract URI and query params
             String uri = extractUri(url);
             String queryParams = extractQueryParams(url);
             
-            // Convert body to string if not null
-            String requestBody = (body != null) ? convertBodyToString(body) : "";
+            // Serialize the body a single time, hashing it as it is written
+            RequestBodyBuffer requestBody = serializeBody(body);
             
-            // Generate AWS signed headers
+            // Generate AWS signed headers over the serialized bytes
             HttpHeaders headers = generateSecureAwsHeaders(
-                httpMethod.name(), 
-                region, 
-                service, 
-                operation, 
-                uri, 
-                queryParams, 
-                requestBody,
+                signer,
+                httpMethod.name(),
+                region,
+                service,
+                operation,
+                uri,
+                queryParams,
+                requestBody.payloadHash(),
                 credentials);
             
-            // Create request entity
-            HttpEntity<?> requestEntity = new HttpEntity<>(body, headers);
-            
-            // Make the request
-            return restTemplate.exchange(url, httpMethod, requestEntity, responseType);
+            return execute(restTemplate, url, httpMethod, requestBody, headers, acceptHeader, responseExtractor);
         } catch (Exception e) {
             log.error("Error sending authenticated request to AWS: {}", e.getMessage(), e);
             throw new RuntimeException("Error sending authenticated request to AWS", e);
         }
     }
     
+    /**
+     * Makes the request, writing the signed bytes as they are
+     */
+    private <T> T execute(RestTemplate restTemplate,
+                          String url,
+                          HttpMethod httpMethod,
+                          RequestBodyBuffer requestBody,
+                          HttpHeaders headers,
+                          RequestCallback acceptHeader,
+                          ResponseExtractor<T> responseExtractor) {
+        RequestCallback requestCallback = request -> {
+            if (acceptHeader != null) {
+                acceptHeader.doWithRequest(request);
+            }
+            request.getHeaders().putAll(headers);
+            request.getHeaders().setContentLength(requestBody.size());
+            requestBody.writeTo(request.getBody());
+        };
+        return restTemplate.execute(url, httpMethod, requestCallback, responseExtractor);
+    }
+    
     /**
      * Helper methods
      */
@@ -208,17 +397,21 @@ public class AwsAuthServiceImpl implements AwsAuthService {
         }
     }
     
-    private String convertBodyToString(Object body) {
+    /**
+     * Writes the body into a digesting buffer; Jackson streams straight into it, so the
+     * payload is never materialized as a String nor read twice
+     */
+    private RequestBodyBuffer serializeBody(Object body) throws IOException {
+        RequestBodyBuffer buffer = new RequestBodyBuffer();
         if (body == null) {
-            return "";
+            return buffer;
+        } else if (body instanceof byte[]) {
+            buffer.write((byte[]) body);
         } else if (body instanceof String) {
-            return (String) body;
+            buffer.write(((String) body).getBytes(StandardCharsets.UTF_8));
         } else {
-            try {
-                return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(body);
-            } catch (Exception e) {
-                return body.toString();
-            }
+            jsonCodecs.writeTo(buffer, body);
         }
+        return buffer;
     }
 }
\ No newline at end of file
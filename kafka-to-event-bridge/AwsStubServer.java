@@ -0,0 +1,629 @@
+package com.empresa.connector.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for EventBridge PutEvents and the IAM Roles Anywhere /sessions
+ * endpoint, used to load-test the sending path without AWS.
+ *
+ * PutEvents requests (X-Amz-Target AWSEvents.PutEvents, application/x-amz-json-1.1)
+ * are SigV4-verified against the credentials registered in the stub or issued by
+ * its /sessions endpoint, whose requests are in turn checked against the X.509
+ * signature of the certificate they carry. Point a destination at the stub with
+ * its {@code endpoint} property set to {@link #getEndpoint()}. Latency, throttling and partial FailedEntryCount
+ * responses are driven by the {@link Settings}.
+ *
+ * Embedded in JUnit: {@code AwsStubServer.start(settings)} and {@code close()}.
+ * Standalone for soak tests: {@code java ... AwsStubServer --port=4566 --latency=uniform:5:50
+ * --throttle=0.01 --partial-failure=0.001}.
+ */
+@Slf4j
+public class AwsStubServer implements AutoCloseable {
+    
+    private static final String PUT_EVENTS_TARGET = "AWSEvents.PutEvents";
+    private static final String AMZ_JSON = "application/x-amz-json-1.1";
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String X509_RSA_ALGORITHM = "AWS4-X509-RSA-SHA256";
+    private static final String X509_ECDSA_ALGORITHM = "AWS4-X509-ECDSA-SHA256";
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> secretsByAccessKey = new ConcurrentHashMap<>();
+    
+    private final AtomicLong putEventsRequests = new AtomicLong();
+    private final AtomicLong putEventsEntries = new AtomicLong();
+    private final AtomicLong failedEntries = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private final AtomicLong rejectedSignatures = new AtomicLong();
+    private final AtomicLong sessionsIssued = new AtomicLong();
+    
+    /**
+     * Stub behaviour
+     */
+    @Data
+    @Builder
+    public static class Settings {
+        
+        /** Port to bind, 0 picks a free one */
+        @Builder.Default
+        private int port = 0;
+        
+        /** Worker threads serving requests */
+        @Builder.Default
+        private int threads = 32;
+        
+        /** Latency added to every response */
+        @Builder.Default
+        private LatencyDistribution latency = LatencyDistribution.none();
+        
+        /** Fraction of PutEvents requests rejected with ThrottlingException */
+        @Builder.Default
+        private double throttleRatio = 0.0;
+        
+        /** Fraction of entries reported as failed in an otherwise successful response */
+        @Builder.Default
+        private double partialFailureRatio = 0.0;
+        
+        /** Verify the SigV4 Authorization header of PutEvents requests */
+        @Builder.Default
+        private boolean verifySignatures = true;
+        
+        /**
+         * Host value used when rebuilding the canonical request. Clients that sign the
+         * real AWS host but connect to the stub (the Host header cannot be overridden)
+         * set it to that host; null uses the Host header received.
+         */
+        private String signingHost;
+        
+        /** Lifetime of the credentials issued by /sessions */
+        @Builder.Default
+        private long sessionDurationSeconds = 3600;
+    }
+    
+    /**
+     * Latency to add to a response, in milliseconds
+     */
+    public interface LatencyDistribution {
+        
+        long nextMillis();
+        
+        static LatencyDistribution none() {
+            return () -> 0L;
+        }
+        
+        static LatencyDistribution fixed(long millis) {
+            return () -> millis;
+        }
+        
+        static LatencyDistribution uniform(long minMillis, long maxMillis) {
+            return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+        }
+        
+        /**
+         * Long-tailed latency around a median, closer to what a remote service shows
+         */
+        static LatencyDistribution logNormal(double medianMillis, double sigma) {
+            double mu = Math.log(medianMillis);
+            return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+        
+        /**
+         * Parses "none", "fixed:10", "uniform:5:50" or "lognormal:20:0.5"
+         */
+        static LatencyDistribution parse(String spec) {
+            String[] parts = spec.split(":");
+            switch (parts[0]) {
+                case "none":
+                    return none();
+                case "fixed":
+                    return fixed(Long.parseLong(parts[1]));
+                case "uniform":
+                    return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                case "lognormal":
+                    return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        }
+    }
+    
+    private AwsStubServer(Settings settings) throws IOException {
+        this.settings = settings;
+        this.executor = Executors.newFixedThreadPool(settings.getThreads());
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.getPort()), 0);
+        this.server.createContext("/sessions", this::handleSession);
+        this.server.createContext("/", this::handlePutEvents);
+        this.server.setExecutor(executor);
+    }
+    
+    /**
+     * Starts a stub server with the given settings
+     */
+    public static AwsStubServer start(Settings settings) {
+        try {
+            AwsStubServer stub = new AwsStubServer(settings);
+            stub.server.start();
+            log.info("AWS stub server listening on {}", stub.getEndpoint());
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException("Error starting AWS stub server", e);
+        }
+    }
+    
+    public static void main(String[] args) {
+        Settings.SettingsBuilder settings = Settings.builder().port(4566);
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            switch (option[0]) {
+                case "port":
+                    settings.port(Integer.parseInt(option[1]));
+                    break;
+                case "threads":
+                    settings.threads(Integer.parseInt(option[1]));
+                    break;
+                case "latency":
+                    settings.latency(LatencyDistribution.parse(option[1]));
+                    break;
+                case "throttle":
+                    settings.throttleRatio(Double.parseDouble(option[1]));
+                    break;
+                case "partial-failure":
+                    settings.partialFailureRatio(Double.parseDouble(option[1]));
+                    break;
+                case "signing-host":
+                    settings.signingHost(option[1]);
+                    break;
+                case "no-verify":
+                    settings.verifySignatures(false);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        AwsStubServer stub = start(settings.build());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.info("AWS stub stats: {}", stub.stats());
+            stub.close();
+        }));
+    }
+    
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Registers credentials accepted by the SigV4 verification
+     */
+    public void registerCredentials(String accessKeyId, String secretAccessKey) {
+        secretsByAccessKey.put(accessKeyId, secretAccessKey);
+    }
+    
+    public long getPutEventsRequests() {
+        return putEventsRequests.get();
+    }
+    
+    public long getPutEventsEntries() {
+        return putEventsEntries.get();
+    }
+    
+    public long getFailedEntries() {
+        return failedEntries.get();
+    }
+    
+    public long getThrottledRequests() {
+        return throttledRequests.get();
+    }
+    
+    public long getRejectedSignatures() {
+        return rejectedSignatures.get();
+    }
+    
+    public long getSessionsIssued() {
+        return sessionsIssued.get();
+    }
+    
+    public String stats() {
+        return String.format("requests=%d entries=%d failedEntries=%d throttled=%d badSignatures=%d sessions=%d",
+                putEventsRequests.get(), putEventsEntries.get(), failedEntries.get(),
+                throttledRequests.get(), rejectedSignatures.get(), sessionsIssued.get());
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    /**
+     * AWSEvents.PutEvents
+     */
+    private void handlePutEvents(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = readBody(exchange);
+            applyLatency();
+            
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            if (!"POST".equals(exchange.getRequestMethod()) || !PUT_EVENTS_TARGET.equals(target)) {
+                sendError(exchange, 400, "UnknownOperationException", "Unsupported operation: " + target);
+                return;
+            }
+            putEventsRequests.incrementAndGet();
+            
+            if (settings.isVerifySignatures()) {
+                String signatureError = verifySignature(exchange, body);
+                if (signatureError != null) {
+                    rejectedSignatures.incrementAndGet();
+                    sendError(exchange, 403, "InvalidSignatureException", signatureError);
+                    return;
+                }
+            }
+            
+            if (ThreadLocalRandom.current().nextDouble() < settings.getThrottleRatio()) {
+                throttledRequests.incrementAndGet();
+                sendError(exchange, 400, "ThrottlingException", "Rate exceeded");
+                return;
+            }
+            
+            JsonNode request = objectMapper.readTree(body);
+            JsonNode entries = request.path("Entries");
+            int entryCount = entries.isArray() ? entries.size() : 1;
+            putEventsEntries.addAndGet(entryCount);
+            
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode resultEntries = response.putArray("Entries");
+            int failed = 0;
+            for (int i = 0; i < entryCount; i++) {
+                ObjectNode entry = resultEntries.addObject();
+                if (ThreadLocalRandom.current().nextDouble() < settings.getPartialFailureRatio()) {
+                    entry.put("ErrorCode", "InternalFailure");
+                    entry.put("ErrorMessage", "Stubbed entry failure");
+                    failed++;
+                } else {
+                    entry.put("EventId", UUID.randomUUID().toString());
+                }
+            }
+            response.put("FailedEntryCount", failed);
+            failedEntries.addAndGet(failed);
+            
+            sendJson(exchange, 200, objectMapper.writeValueAsBytes(response));
+        } catch (Exception e) {
+            log.error("Error in stubbed PutEvents: {}", e.getMessage(), e);
+            sendError(exchange, 500, "InternalException", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * IAM Roles Anywhere CreateSession. The X.509 signature is verified with the
+     * key of the certificate sent in X-Amz-X509 (the chain is not validated against
+     * a trust anchor); the issued credentials are registered for the PutEvents
+     * signature verification.
+     */
+    private void handleSession(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = readBody(exchange);
+            applyLatency();
+            
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "ValidationException", "Method not allowed");
+                return;
+            }
+            
+            if (settings.isVerifySignatures()) {
+                String signatureError = verifyX509Signature(exchange, body);
+                if (signatureError != null) {
+                    rejectedSignatures.incrementAndGet();
+                    sendError(exchange, 403, "AccessDeniedException", signatureError);
+                    return;
+                }
+            }
+            
+            JsonNode request = body.length > 0 ? objectMapper.readTree(body) : objectMapper.createObjectNode();
+            String accessKeyId = "ASIASTUB" + randomToken(12).toUpperCase();
+            String secretAccessKey = randomToken(40);
+            registerCredentials(accessKeyId, secretAccessKey);
+            sessionsIssued.incrementAndGet();
+            
+            ObjectNode response = objectMapper.createObjectNode();
+            ObjectNode session = response.putArray("credentialSet").addObject();
+            ObjectNode credentials = session.putObject("credentials");
+            credentials.put("accessKeyId", accessKeyId);
+            credentials.put("secretAccessKey", secretAccessKey);
+            credentials.put("sessionToken", randomToken(64));
+            credentials.put("expiration",
+                    Instant.now().plusSeconds(settings.getSessionDurationSeconds()).toString());
+            session.put("roleArn", request.path("roleArn").asText(""));
+            session.put("packedPolicySize", 0);
+            response.put("subjectArn", "arn:aws:rolesanywhere:stub:000000000000:subject/" + UUID.randomUUID());
+            
+            sendJson(exchange, 201, objectMapper.writeValueAsBytes(response));
+        } catch (Exception e) {
+            log.error("Error in stubbed CreateSession: {}", e.getMessage(), e);
+            sendError(exchange, 500, "InternalException", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Rebuilds the SigV4 signature from the received request.
+     *
+     * @return null when the signature is valid, otherwise the reason it is not
+     */
+    private String verifySignature(HttpExchange exchange, byte[] body) throws Exception {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith(ALGORITHM + " ")) {
+            return "Missing or unsupported Authorization header";
+        }
+        
+        Map<String, String> fields = authorizationFields(authorization.substring(ALGORITHM.length() + 1));
+        String[] scope = fields.getOrDefault("Credential", "").split("/");
+        if (scope.length != 5) {
+            return "Malformed credential scope";
+        }
+        String secret = secretsByAccessKey.get(scope[0]);
+        if (secret == null) {
+            return "Unknown access key " + scope[0];
+        }
+        
+        String amzDate = exchange.getRequestHeaders().getFirst("X-Amz-Date");
+        if (amzDate == null || !amzDate.startsWith(scope[1])) {
+            return "X-Amz-Date does not match the credential scope";
+        }
+        
+        String payloadHash = hex(MessageDigest.getInstance("SHA-256").digest(body));
+        String declaredHash = exchange.getRequestHeaders().getFirst("X-Amz-Content-Sha256");
+        if (declaredHash != null && !declaredHash.equals(payloadHash)) {
+            return "x-amz-content-sha256 does not match the body";
+        }
+        
+        String canonicalRequest = canonicalRequest(exchange, fields.getOrDefault("SignedHeaders", ""), payloadHash);
+        if (canonicalRequest == null) {
+            return "Signed header not present";
+        }
+        
+        String credentialScope = scope[1] + "/" + scope[2] + "/" + scope[3] + "/" + scope[4];
+        String stringToSign = ALGORITHM + '\n' + amzDate + '\n' + credentialScope + '\n'
+                + hex(MessageDigest.getInstance("SHA-256").digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        
+        byte[] key = hmac(("AWS4" + secret).getBytes(StandardCharsets.UTF_8), scope[1]);
+        key = hmac(key, scope[2]);
+        key = hmac(key, scope[3]);
+        key = hmac(key, scope[4]);
+        String expected = hex(hmac(key, stringToSign));
+        
+        return expected.equals(fields.get("Signature")) ? null : "Signature does not match";
+    }
+    
+    /**
+     * Rebuilds the Roles Anywhere string to sign and checks it against the
+     * certificate sent with the request.
+     *
+     * @return null when the signature is valid, otherwise the reason it is not
+     */
+    private String verifyX509Signature(HttpExchange exchange, byte[] body) throws Exception {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String algorithm = authorization == null ? "" : authorization.split(" ", 2)[0];
+        String signatureAlgorithm;
+        if (X509_RSA_ALGORITHM.equals(algorithm)) {
+            signatureAlgorithm = "SHA256withRSA";
+        } else if (X509_ECDSA_ALGORITHM.equals(algorithm)) {
+            signatureAlgorithm = "SHA256withECDSA";
+        } else {
+            return "Missing or unsupported Authorization header";
+        }
+        
+        Map<String, String> fields = authorizationFields(authorization.substring(algorithm.length() + 1));
+        String[] scope = fields.getOrDefault("Credential", "").split("/");
+        if (scope.length != 5) {
+            return "Malformed credential scope";
+        }
+        
+        String encodedCertificate = exchange.getRequestHeaders().getFirst("X-Amz-X509");
+        if (encodedCertificate == null) {
+            return "Missing X-Amz-X509 certificate";
+        }
+        X509Certificate certificate;
+        try {
+            certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(Base64.getDecoder().decode(encodedCertificate)));
+        } catch (Exception e) {
+            return "Invalid X-Amz-X509 certificate";
+        }
+        if (!certificate.getSerialNumber().toString().equals(scope[0])) {
+            return "Credential does not match the certificate serial number";
+        }
+        
+        String amzDate = exchange.getRequestHeaders().getFirst("X-Amz-Date");
+        if (amzDate == null || !amzDate.startsWith(scope[1])) {
+            return "X-Amz-Date does not match the credential scope";
+        }
+        
+        String payloadHash = hex(MessageDigest.getInstance("SHA-256").digest(body));
+        String canonicalRequest = canonicalRequest(exchange, fields.getOrDefault("SignedHeaders", ""), payloadHash);
+        if (canonicalRequest == null) {
+            return "Signed header not present";
+        }
+        
+        String credentialScope = scope[1] + "/" + scope[2] + "/" + scope[3] + "/" + scope[4];
+        String stringToSign = algorithm + '\n' + amzDate + '\n' + credentialScope + '\n'
+                + hex(MessageDigest.getInstance("SHA-256").digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        
+        byte[] signatureBytes;
+        try {
+            signatureBytes = unhex(fields.getOrDefault("Signature", ""));
+        } catch (IllegalArgumentException e) {
+            return "Malformed signature";
+        }
+        Signature signature = Signature.getInstance(signatureAlgorithm);
+        signature.initVerify(certificate.getPublicKey());
+        signature.update(stringToSign.getBytes(StandardCharsets.UTF_8));
+        return signature.verify(signatureBytes) ? null : "Signature does not match";
+    }
+    
+    /**
+     * Credential, SignedHeaders and Signature of an Authorization header, without the algorithm
+     */
+    private static Map<String, String> authorizationFields(String authorization) {
+        Map<String, String> fields = new TreeMap<>();
+        for (String part : authorization.split(",")) {
+            String[] pair = part.trim().split("=", 2);
+            if (pair.length == 2) {
+                fields.put(pair[0], pair[1]);
+            }
+        }
+        return fields;
+    }
+    
+    /**
+     * Canonical request of the received request, or null if a signed header is missing
+     */
+    private String canonicalRequest(HttpExchange exchange, String signedHeaders, String payloadHash) {
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (String name : signedHeaders.split(";")) {
+            String value = "host".equals(name) && settings.getSigningHost() != null
+                    ? settings.getSigningHost()
+                    : exchange.getRequestHeaders().getFirst(name);
+            if (value == null) {
+                return null;
+            }
+            canonicalHeaders.append(name).append(':').append(value.trim()).append('\n');
+        }
+        
+        String path = exchange.getRequestURI().getRawPath();
+        return exchange.getRequestMethod() + '\n'
+                + (path == null || path.isEmpty() ? "/" : path) + '\n'
+                + canonicalQuery(exchange.getRequestURI().getRawQuery()) + '\n'
+                + canonicalHeaders + '\n'
+                + signedHeaders + '\n'
+                + payloadHash;
+    }
+    
+    private String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> pairs = new ArrayList<>();
+        for (String pair : rawQuery.split("&")) {
+            pairs.add(pair.contains("=") ? pair : pair + "=");
+        }
+        pairs.sort(String::compareTo);
+        return String.join("&", pairs);
+    }
+    
+    private void applyLatency() {
+        long millis = settings.getLatency().nextMillis();
+        if (millis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return is.readAllBytes();
+        }
+    }
+    
+    private void sendError(HttpExchange exchange, int status, String type, String message) throws IOException {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("__type", type);
+        error.put("message", message);
+        sendJson(exchange, status, objectMapper.writeValueAsBytes(error));
+    }
+    
+    private void sendJson(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", AMZ_JSON);
+        exchange.getResponseHeaders().set("x-amzn-RequestId", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+    
+    private static byte[] hmac(byte[] key, String data) throws Exception {
+        Mac mac = Mac.getInstance(HMAC_SHA256);
+        mac.init(new SecretKeySpec(key, HMAC_SHA256));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+    
+    private static byte[] unhex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex digit");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+    
+    private static String randomToken(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(UUID.randomUUID().toString().replace("-", ""));
+        }
+        return sb.substring(0, length);
+    }
+}
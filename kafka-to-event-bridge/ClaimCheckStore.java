@@ -0,0 +1,163 @@
+package com.empresa.connector.service;
+
+/**
+ * Service interface for claim-check storage of oversized EventBridge payloads
+ */
+public interface ClaimCheckStore {
+    
+    /**
+     * Stores a payload and returns the reference that identifies it
+     *
+     * @param payload The payload bytes
+     * @return Reference to retrieve the payload later
+     */
+    String store(byte[] payload);
+    
+    /**
+     * Retrieves a previously stored payload
+     *
+     * @param reference The reference returned by store
+     * @return The payload bytes
+     */
+    byte[] retrieve(String reference);
+    
+    /**
+     * Identifies the kind of store in the claim-check reference sent to consumers
+     *
+     * @return Store type
+     */
+    String type();
+}
+
+package com.empresa.connector.service.impl;
+
+import com.empresa.connector.service.ClaimCheckStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.regex.Pattern;
+
+/**
+ * Claim-check store backed by the local file system, used for tests and local runs.
+ * Payloads are content-addressed, so storing the same payload twice is idempotent.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "aws.eventbridge.claim-check", name = "store", havingValue = "file", matchIfMissing = true)
+public class FileClaimCheckStore implements ClaimCheckStore {
+    
+    private static final String REFERENCE_PREFIX = "file:";
+    // Names are the SHA-256 of the payload, anything else cannot be a reference of this store
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{64}");
+    
+    private final Path directory;
+    
+    public FileClaimCheckStore(
+            @Value("${aws.eventbridge.claim-check.directory:${java.io.tmpdir}/claim-check}") String directory) {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+    }
+    
+    @Override
+    public String store(byte[] payload) {
+        try {
+            Files.createDirectories(directory);
+            String name = sha256Hex(payload);
+            Path target = directory.resolve(name);
+            
+            if (!Files.exists(target)) {
+                // Write to a temporary file first so readers never see a partial payload
+                Path temp = Files.createTempFile(directory, name, ".tmp");
+                Files.write(temp, payload);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            
+            log.debug("Payload of {} bytes stored in claim-check file {}", payload.length, target);
+            return REFERENCE_PREFIX + name;
+        } catch (IOException e) {
+            log.error("Error storing claim-check payload: {}", e.getMessage(), e);
+            throw new RuntimeException("Error storing claim-check payload", e);
+        }
+    }
+    
+    @Override
+    public byte[] retrieve(String reference) {
+        if (reference == null || !reference.startsWith(REFERENCE_PREFIX)
+                || !NAME.matcher(reference.substring(REFERENCE_PREFIX.length())).matches()) {
+            throw new IllegalArgumentException("Invalid claim-check reference: " + reference);
+        }
+        // References come from consumers, never read outside the store directory
+        Path target = directory.resolve(reference.substring(REFERENCE_PREFIX.length())).normalize();
+        if (!target.startsWith(directory)) {
+            throw new IllegalArgumentException("Invalid claim-check reference: " + reference);
+        }
+        try {
+            return Files.readAllBytes(target);
+        } catch (IOException e) {
+            log.error("Error reading claim-check payload {}: {}", reference, e.getMessage(), e);
+            throw new RuntimeException("Error reading claim-check payload", e);
+        }
+    }
+    
+    @Override
+    public String type() {
+        return "file";
+    }
+    
+    private String sha256Hex(byte[] payload) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
+
+package com.empresa.connector.model.eventbridge;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compact detail sent to EventBridge in place of an oversized payload
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimCheckDetail {
+    
+    @JsonProperty("claimCheck")
+    private Reference claimCheck;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Reference {
+        
+        @JsonProperty("store")
+        private String store;
+        
+        @JsonProperty("ref")
+        private String ref;
+        
+        @JsonProperty("size")
+        private Integer size;
+    }
+}
@@ -0,0 +1,138 @@
+package com.empresa.connector.transformer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapping compiled by MappingCompiler: the output document as a tree of fields in
+ * declaration order, each leaf holding the MethodHandle of its expression.
+ *
+ * Immutable and thread-safe; applying it streams the document out with a Jackson
+ * generator, invoking each leaf handle once.
+ *
+ * The leaf handles live in instance fields, so the invokeExact call site is not a
+ * constant to the JIT: each evaluation enters the handle's own compiled form rather
+ * than being inlined into the caller. MappingBenchmark measures the cost against the
+ * same handle held in a static final field and against the equivalent plain Java.
+ */
+public class CompiledMapping {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private final String name;
+    private final Map<String, MethodHandle> outputs;
+    private final OutputNode root = new OutputNode(null);
+    
+    CompiledMapping(String name, Map<String, MethodHandle> outputs) {
+        this.name = name;
+        this.outputs = new LinkedHashMap<>(outputs);
+        outputs.forEach((path, value) -> root.add(path.split("\\."), 0, value, path));
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Output document of the record, as JSON
+     */
+    public String apply(MappingInput input) {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            write(root, input, generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing mapping " + name, e);
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Value of a single output field, or null if the mapping does not define it
+     *
+     * @param path Dotted output path, as written in the mapping
+     */
+    public CharSequence evaluate(String path, MappingInput input) {
+        MethodHandle value = outputs.get(path);
+        return value != null ? invoke(value, input) : null;
+    }
+    
+    /**
+     * Handle of a single output field, or null if the mapping does not define it
+     */
+    MethodHandle handle(String path) {
+        return outputs.get(path);
+    }
+    
+    private void write(OutputNode node, MappingInput input, JsonGenerator generator) throws IOException {
+        if (node.value != null) {
+            CharSequence value = invoke(node.value, input);
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(value.toString());
+            }
+            return;
+        }
+        generator.writeStartObject();
+        for (OutputNode child : node.children) {
+            generator.writeFieldName(child.name);
+            write(child, input, generator);
+        }
+        generator.writeEndObject();
+    }
+    
+    private CharSequence invoke(MethodHandle value, MappingInput input) {
+        try {
+            return (CharSequence) value.invokeExact(input);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error evaluating mapping " + name, e);
+        }
+    }
+    
+    private static final class OutputNode {
+        
+        private final String name;
+        private final List<OutputNode> children = new ArrayList<>();
+        private MethodHandle value;
+        
+        private OutputNode(String name) {
+            this.name = name;
+        }
+        
+        private void add(String[] path, int depth, MethodHandle leaf, String fullPath) {
+            if (value != null) {
+                throw new IllegalArgumentException("output '" + fullPath + "' is inside a value field");
+            }
+            OutputNode child = null;
+            for (OutputNode existing : children) {
+                if (existing.name.equals(path[depth])) {
+                    child = existing;
+                    break;
+                }
+            }
+            boolean last = depth == path.length - 1;
+            if (child == null) {
+                child = new OutputNode(path[depth]);
+                children.add(child);
+            } else if (last) {
+                throw new IllegalArgumentException("output '" + fullPath + "' is also an object");
+            }
+            if (last) {
+                child.value = leaf;
+            } else {
+                child.add(path, depth + 1, leaf, fullPath);
+            }
+        }
+    }
+}
@@ -36,6 +36,11 @@ kafka:
     reconnection:
       frequency: 6000
       attempts: 2
+    # Registro Avro del sobre Mule leído con la clase generada de avro/MIP_INS_HIST_EJ.avsc,
+    # sin pasar por JSON (usar con prefilter.format: avro)
+    typed-records:
+      enabled: false
+      header-length: 5             # 5 = magic byte + id de esquema (Confluent), 0 = Avro plano
   schema-registry:
     username: middle
     password: middleelkk_jaas
@@ -49,6 +54,38 @@ kafka:
 validation:
   codesta2: "13"
 
+# Pre-filtro: descarta registros leyendo solo los campos de las reglas, antes de decodificarlos
+prefilter:
+  enabled: true
+  format: avro                 # avro (registro binario en el campo Message del sobre Mule) | json
+                               # un campo ausente o ilegible deja pasar el registro
+  avro-schema: classpath:avro/MIP_INS_HIST_EJ.avsc
+  avro-header-length: 5        # 5 = magic byte + id de esquema (Confluent), 0 = Avro plano
+  ack-every: 500               # commit de los rechazados cada N registros o cada ack-interval-ms
+  ack-interval-ms: 5000
+  rules:
+    - field: G6181_CODESTA2
+      values: ["${validation.codesta2}"]
+
+# Agrupación de ráfagas: de las modificaciones de una misma orden dentro de la ventana
+# solo se procesa la última; los offsets de las sustituidas se confirman igualmente
+coalesce:
+  enabled: false
+  topic: ${kafka.consumer.topic-pattern}
+  key-fields: [G6181_CCENCONT, G6181_NUMORD, G6181_JNUMDET]
+  window-ms: 200               # la ventana de una clave se cierra window-ms después de su primer registro
+  max-records-per-key: 0       # ... o al recibir N registros de la clave (0 = sin límite)
+  max-keys: 10000              # ventanas abiertas por partición; al superarlo se cierra la más antigua
+  flush-interval-ms: 50
+  max-attempts: 3              # intentos de un registro agrupado antes de enviarlo al topic -dlt
+
+# Mapeo declarativo Kafka -> EventBridge (sustituye al mapper fijo), compilado al cargar
+# y recargado sin reiniciar cuando cambia el fichero
+mapping:
+  enabled: false
+  location: mappings/payment-event.mapping   # ruta del fichero o recurso del classpath
+  reload-interval-ms: 10000
+
 # Configuración de AWS basada en Image 2 y 3
 aws:
   default: aws1
@@ -71,6 +108,7 @@ aws:
     operation: ""
     hash: SHA-256
     session-name: assume_role_session
+    duration-seconds: 3600
     
     # Configuración IAM AWS1 (Image 3)
     aws1:
@@ -115,22 +153,85 @@ aws:
       event-bus-name: dev-us-sss-mb
       region: us-east-1
     
+    # Destinos adicionales: cada uno con su pool de conexiones y concurrencia
+    # destinations:
+    #   aws3:
+    #     host: events.us-east-2.amazonaws.com
+    #     event-bus-name: dev-us-sss-mb3
+    #     region: us-east-2
+    #     max-connections: 20
+    #     max-concurrency: 8
+    #     endpoint: http://127.0.0.1:4566   # opcional: VPC endpoint o AwsStubServer en lugar de https://host
+    
     # Respuesta resultado (Image 2)
     result:
       correct: OK
       incorrect: KO
+  
+  # Caché local de credenciales delante de Redis
+  credentials:
+    local:
+      expiry-skew-seconds: 60    # se descartan antes de caducar
+      default-ttl-seconds: 300   # entradas sin caducidad conocida
+    # Renovación anticipada en segundo plano
+    refresh:
+      enabled: true
+      lifetime-fraction: 0.5     # se renuevan a mitad de su vida
+      check-interval-ms: 5000
+      initial-backoff-ms: 1000
+      max-backoff-ms: 60000
+    # Lease en Redis: una sola instancia genera credenciales a la vez
+    lease:
+      ttl-ms: 15000
+      wait-ms: 10000             # espera máxima a que la instancia con el lease las publique
+      poll-interval-ms: 100
+      stale-margin-seconds: 10   # las anteriores se siguen usando mientras quede al menos esto
+    # Envíos rechazados con 403: espera máxima a las nuevas antes de mandar el registro a reintentos
+    rejected:
+      wait-ms: 1000
+    # Canal pub/sub por el que se avisa a las demás instancias de credenciales revocadas o rotadas
+    invalidation:
+      channel: aws:credentials:invalidation
 
 # Configuración de Redis basada en Image 4
 redis:
   host: redis-11999.redisesb.sys.mx.us.pre.corp
   port: 11999
   password: R3dis_EsB_Pr3
-  connection-timeout: 24000  # MILLISECONDS
+  connection-timeout: 2000   # MILLISECONDS, conexión inicial
+  command-timeout-ms: 500    # por comando
+  pool:
+    max-active: 16
+    max-idle: 8
+    min-idle: 2
+    max-wait-ms: 200
+  # Caché en memoria de claves calientes (credenciales) invalidada por el servidor (RESP3)
+  client-cache:
+    enabled: true            # false: lecturas siempre a Redis
+    tracking: true
+    max-staleness-ms: 60000  # límite aunque se pierda una invalidación
+    fallback-ttl-ms: 1000    # servidores sin client tracking
   expiration-time: 3500      # SECONDS
   partition:
     identifier-aws1: HZMS-007-kafka-session-aws1
     identifier-aws2: HZMS-007-kafka-session-aws2
 
+# Deduplicación de entregas por operationId + revisión (hash de los campos del registro) + destino
+dedup:
+  enabled: true
+  store: redis                     # redis | local
+  ttl-seconds: 86400
+  expected-keys-per-day: 5000000   # dimensiona el filtro Bloom (~6 MB por generación)
+  false-positive-rate: 0.01
+  replay-window: 500               # registros nuevos seguidos antes de fiarse del filtro tras una asignación
+  local:
+    max-entries: 1000000
+
+# Jackson: módulo Blackbird (accesores generados en lugar de reflexión)
+json:
+  blackbird:
+    enabled: false
+
 # Configuración de tópicos basada en Image 5
 topics:
   pattern: SBNA.00002517.MIP_INS_HIST_EJ.MODIFY.AVRO
@@ -312,10 +413,17 @@ package com.empresa.connector.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
-import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -327,23 +435,64 @@ public class RedisConfig {
     @Value("${redis.port}")
     private int redisPort;
 
-    @Value("${redis.password}")
+    @Value("${redis.password:}")
     private String redisPassword;
 
     @Value("${redis.connection-timeout}")
     private int connectionTimeout;
 
+    // Tiempo máximo de cada comando: un Redis lento falla rápido en vez de bloquear los listeners
+    @Value("${redis.command-timeout-ms:500}")
+    private long commandTimeout;
+    
+    @Value("${redis.pool.max-active:16}")
+    private int poolMaxActive;
+    
+    @Value("${redis.pool.max-idle:8}")
+    private int poolMaxIdle;
+    
+    @Value("${redis.pool.min-idle:2}")
+    private int poolMinIdle;
+    
+    @Value("${redis.pool.max-wait-ms:200}")
+    private long poolMaxWait;
+    
+    /**
+     * Lettuce: los comandos simples comparten una conexión multiplexada, donde los
+     * comandos de varios hilos se escriben sin esperar respuesta (auto-pipelining).
+     * El pool solo se usa para comandos que necesitan conexión propia (pipelines
+     * explícitos, transacciones, comandos bloqueantes).
+     */
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
+    public LettuceConnectionFactory redisConnectionFactory() {
         RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration();
         redisConfig.setHostName(redisHost);
         redisConfig.setPort(redisPort);
         redisConfig.setPassword(redisPassword);
 
-        JedisConnectionFactory jedisConnectionFactory = new JedisConnectionFactory(redisConfig);
-        jedisConnectionFactory.getPoolConfig().setMaxWait(Duration.ofMillis(connectionTimeout));
+        GenericObjectPoolConfig<?> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(poolMaxActive);
+        poolConfig.setMaxIdle(poolMaxIdle);
+        poolConfig.setMinIdle(poolMinIdle);
+        poolConfig.setMaxWait(Duration.ofMillis(poolMaxWait));
         
-        return jedisConnectionFactory;
+        ClientOptions clientOptions = ClientOptions.builder()
+                .socketOptions(SocketOptions.builder()
+                        .connectTimeout(Duration.ofMillis(connectionTimeout))
+                        .build())
+                // El timeout aplica también a los comandos asíncronos y reactivos
+                .timeoutOptions(TimeoutOptions.enabled(Duration.ofMillis(commandTimeout)))
+                .build();
+        
+        LettuceClientConfiguration clientConfig = LettucePoolingClientConfiguration.builder()
+                .poolConfig(poolConfig)
+                .clientOptions(clientOptions)
+                .commandTimeout(Duration.ofMillis(commandTimeout))
+                .build();
+        
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(redisConfig, clientConfig);
+        connectionFactory.setShareNativeConnection(true);
+        return connectionFactory;
     }
 
     @Bean
@@ -356,6 +505,20 @@ public class RedisConfig {
         template.setHashValueSerializer(new StringRedisSerializer());
         return template;
     }
+    
+    // Variantes no bloqueantes de RedisService, sobre la misma conexión compartida
+    @Bean
+    public ReactiveStringRedisTemplate reactiveRedisTemplate() {
+        return new ReactiveStringRedisTemplate(redisConnectionFactory());
+    }
+    
+    // Suscripciones pub/sub (invalidación de credenciales entre instancias)
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory());
+        return container;
+    }
 }
 
 /**
@@ -368,6 +531,10 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "aws.iam")
@@ -380,10 +547,30 @@ public class AwsIamProperties {
     private String operation;
     private String hash;
     private String sessionName;
+    // Lifetime requested for Roles Anywhere sessions
+    private Integer durationSeconds = 3600;
     
     private AwsInstanceProperties aws1;
     private AwsInstanceProperties aws2;
     
+    // Additional destinations by name: aws.iam.destinations.<name>.*
+    private Map<String, AwsInstanceProperties> destinations = new LinkedHashMap<>();
+    
+    /**
+     * All IAM destinations by name, the legacy aws1/aws2 keys included
+     */
+    public Map<String, AwsInstanceProperties> resolveDestinations() {
+        Map<String, AwsInstanceProperties> resolved = new LinkedHashMap<>();
+        if (aws1 != null) {
+            resolved.put("aws1", aws1);
+        }
+        if (aws2 != null) {
+            resolved.put("aws2", aws2);
+        }
+        resolved.putAll(destinations);
+        return resolved;
+    }
+    
     @Data
     public static class AwsInstanceProperties {
         private String host;
@@ -393,6 +580,23 @@ public class AwsIamProperties {
         private String region;
         private String certificate;
         private String key;
+        
+        // Optional scheme://host[:port] replacing https://host, e.g. a VPC endpoint or a local stub
+        private String endpoint;
+        
+        /**
+         * Base URL of the Roles Anywhere requests
+         */
+        public String baseUrl() {
+            return endpoint == null || endpoint.isEmpty() ? "https://" + host : endpoint;
+        }
+        
+        /**
+         * Host the requests are signed for, the endpoint's when it is overridden
+         */
+        public String signingHost() {
+            return endpoint == null || endpoint.isEmpty() ? host : URI.create(endpoint).getRawAuthority();
+        }
     }
 }
 
@@ -406,6 +610,10 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "aws.eventbridge")
@@ -424,11 +632,53 @@ public class EventBridgeProperties {
     private EventBridgeInstanceProperties aws2;
     private ResultProperties result;
     
+    // Additional destinations by name: aws.eventbridge.destinations.<name>.*
+    private Map<String, EventBridgeInstanceProperties> destinations = new LinkedHashMap<>();
+    
+    /**
+     * All EventBridge destinations by name, the legacy aws1/aws2 keys included
+     */
+    public Map<String, EventBridgeInstanceProperties> resolveDestinations() {
+        Map<String, EventBridgeInstanceProperties> resolved = new LinkedHashMap<>();
+        if (aws1 != null) {
+            resolved.put("aws1", aws1);
+        }
+        if (aws2 != null) {
+            resolved.put("aws2", aws2);
+        }
+        resolved.putAll(destinations);
+        return resolved;
+    }
+    
     @Data
     public static class EventBridgeInstanceProperties {
         private String host;
         private String eventBusName;
         private String region;
+        
+        // Resources owned by the destination, so a slow bus cannot starve the others
+        private Integer maxConnections = 20;
+        private Integer maxConcurrency = 8;
+        private Integer queueCapacity = 256;
+        private Integer connectTimeout = 5000;
+        private Integer readTimeout = 10000;
+        
+        // Optional scheme://host[:port] replacing https://host, e.g. a VPC endpoint or a local stub
+        private String endpoint;
+        
+        /**
+         * Base URL of the PutEvents requests
+         */
+        public String baseUrl() {
+            return endpoint == null || endpoint.isEmpty() ? "https://" + host : endpoint;
+        }
+        
+        /**
+         * Host the requests are signed for, the endpoint's when it is overridden
+         */
+        public String signingHost() {
+            return endpoint == null || endpoint.isEmpty() ? host : URI.create(endpoint).getRawAuthority();
+        }
     }
     
     @Data
@@ -687,28 +937,82 @@ public class EventBridgeService {
 // src/main/java/com/empresa/connector/service/RedisService.java
 package com.empresa.connector.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Acceso a Redis. Cada comando se mide en el timer redis.command, etiquetado por
+ * comando. Las lecturas con TTL devuelven valor y tiempo de vida restante en una
+ * sola ida y vuelta: con un script Lua para una clave, en pipeline para varias.
+ * Las variantes Async no bloquean el hilo que llama: devuelven un CompletableFuture
+ * que se completa en el hilo de E/S de Lettuce.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RedisService {
+    
+    /** Token devuelto por tryAcquireLease cuando otro proceso tiene el lease */
+    public static final long LEASE_NOT_ACQUIRED = 0;
+    /** Token devuelto por tryAcquireLease cuando Redis no responde: se sigue sin coordinar */
+    public static final long LEASE_UNAVAILABLE = -1;
+    
+    // Borra el lease solo si sigue siendo del token que lo adquirió
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+    
+    // Escribe el valor solo si el lease sigue siendo del token (fencing)
+    private static final RedisScript<Long> SET_IF_LEASE_HELD = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3]) return 1 end return 0",
+            Long.class);
 
+    // Valor y PTTL leídos de forma atómica; lista vacía si la clave no existe
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> GET_WITH_TTL = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) if not v then return {} end "
+                    + "return {v, tostring(redis.call('PTTL', KEYS[1]))}",
+            List.class);
+    
     private final RedisTemplate<String, String> redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<String, Timer> commandTimers = new ConcurrentHashMap<>();
     
     @Value("${redis.expiration-time}")
     private long defaultExpirationTime;
     
+    @Value("${redis.command-timeout-ms:500}")
+    private long commandTimeout;
+    
     public String getCache(String key) {
         try {
             log.info("START GET Redis: {}", key);
-            String value = redisTemplate.opsForValue().get(key);
+            String value = timed("get", () -> redisTemplate.opsForValue().get(key));
             
             if (value != null) {
                 log.info("Datos encontrados en Redis para key: {}", key);
@@ -728,7 +1032,8 @@ public class RedisService {
     public void setCache(String key, String value, long timeout) {
         try {
             log.info("START SET Redis: {}", key);
-            redisTemplate.opsForValue().set(key, value, timeout, TimeUnit.SECONDS);
+            // SET EX: valor y caducidad en un único comando, la clave nunca queda sin TTL
+            timed("set", () -> redisTemplate.opsForValue().set(key, value, timeout, TimeUnit.SECONDS));
             log.info("END SET Redis");
         } catch (Exception e) {
             log.error("Error en SET Redis: {}", e.getMessage(), e);
@@ -740,16 +1045,243 @@ public class RedisService {
         setCache(key, value, defaultExpirationTime);
     }
     
+    /**
+     * GET sin bloquear; se completa con null si la clave no existe, hay error o se
+     * supera el timeout del comando
+     */
+    public CompletableFuture<String> getCacheAsync(String key) {
+        Timer.Sample sample = Timer.start();
+        return reactiveRedisTemplate.opsForValue().get(key)
+                .timeout(Duration.ofMillis(commandTimeout))
+                .toFuture()
+                .handle((value, e) -> {
+                    sample.stop(commandTimer("get_async"));
+                    if (e != null) {
+                        log.error("Error en GET Redis: {}", e.getMessage(), e);
+                        return null;
+                    }
+                    return value;
+                });
+    }
+    
+    /**
+     * SET EX sin bloquear; se completa con false si no se pudo escribir
+     */
+    public CompletableFuture<Boolean> setCacheAsync(String key, String value, long timeout) {
+        Timer.Sample sample = Timer.start();
+        return reactiveRedisTemplate.opsForValue().set(key, value, Duration.ofSeconds(timeout))
+                .timeout(Duration.ofMillis(commandTimeout))
+                .toFuture()
+                .handle((written, e) -> {
+                    sample.stop(commandTimer("set_async"));
+                    if (e != null) {
+                        log.error("Error en SET Redis: {}", e.getMessage(), e);
+                        return false;
+                    }
+                    return Boolean.TRUE.equals(written);
+                });
+    }
+    
     public void deleteCache(String key) {
         try {
             log.info("START DEL Redis: {}", key);
-            redisTemplate.delete(key);
+            timed("del", () -> redisTemplate.delete(key));
             log.info("END DEL Redis");
         } catch (Exception e) {
             log.error("Error en DEL Redis: {}", e.getMessage(), e);
             log.info("END DEL Redis (con error)");
         }
     }
+    
+    /**
+     * Escribe la clave solo si no existe (SET NX EX): comprobación y escritura en un
+     * único comando atómico
+     *
+     * @return true si se escribió, false si ya existía, null si Redis no responde
+     */
+    public Boolean setCacheIfAbsent(String key, String value, long timeout) {
+        try {
+            return timed("set_nx", () -> redisTemplate.opsForValue()
+                    .setIfAbsent(key, value, timeout, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.error("Error en SET NX Redis: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * Intenta adquirir un lease corto (SET NX PX). El token de fencing sale de un INCR,
+     * así que cada adquisición tiene un token mayor que la anterior.
+     *
+     * @return Token del lease, LEASE_NOT_ACQUIRED si lo tiene otro proceso o
+     *         LEASE_UNAVAILABLE si Redis no responde
+     */
+    public long tryAcquireLease(String leaseKey, long ttlMillis) {
+        try {
+            Long token = timed("incr", () -> redisTemplate.opsForValue().increment(leaseKey + ":fence"));
+            if (token == null) {
+                return LEASE_UNAVAILABLE;
+            }
+            Boolean acquired = timed("set_nx", () -> redisTemplate.opsForValue()
+                    .setIfAbsent(leaseKey, String.valueOf(token), ttlMillis, TimeUnit.MILLISECONDS));
+            if (Boolean.TRUE.equals(acquired)) {
+                log.info("Lease {} adquirido con token {}", leaseKey, token);
+                return token;
+            }
+            return LEASE_NOT_ACQUIRED;
+        } catch (Exception e) {
+            log.error("Error adquiriendo lease en Redis: {}", e.getMessage(), e);
+            return LEASE_UNAVAILABLE;
+        }
+    }
+    
+    /**
+     * Libera el lease si sigue siendo del token; si ya caducó y lo tiene otro, no se toca
+     */
+    public void releaseLease(String leaseKey, long token) {
+        if (token <= 0) {
+            return;
+        }
+        try {
+            timed("release_lease", () -> redisTemplate.execute(RELEASE_LEASE,
+                    Collections.singletonList(leaseKey), String.valueOf(token)));
+        } catch (Exception e) {
+            log.error("Error liberando lease en Redis: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Guarda el valor solo si el lease sigue siendo del token. Un proceso cuyo lease
+     * caducó mientras generaba el valor no pisa lo que haya escrito el siguiente.
+     *
+     * @return true si se escribió el valor
+     */
+    public boolean setCacheIfLeaseHeld(String leaseKey, long token, String key, String value, long timeout) {
+        try {
+            log.info("START SET Redis (lease {}): {}", token, key);
+            Long written = timed("set_fenced", () -> redisTemplate.execute(SET_IF_LEASE_HELD,
+                    Arrays.asList(leaseKey, key), String.valueOf(token), value, String.valueOf(timeout)));
+            log.info("END SET Redis");
+            return written != null && written == 1;
+        } catch (Exception e) {
+            log.error("Error en SET Redis: {}", e.getMessage(), e);
+            log.info("END SET Redis (con error)");
+            return false;
+        }
+    }
+    
+    /**
+     * Lee valor y TTL de una clave de forma atómica
+     *
+     * @return Valor con su TTL, o null si la clave no existe o hay error
+     */
+    @SuppressWarnings("unchecked")
+    public CachedValue getWithTtl(String key) {
+        try {
+            log.info("START GET+TTL Redis: {}", key);
+            List<Object> reply = timed("get_ttl",
+                    () -> redisTemplate.execute(GET_WITH_TTL, Collections.singletonList(key)));
+            log.info("END GET+TTL Redis");
+            if (reply == null || reply.size() < 2) {
+                return null;
+            }
+            return new CachedValue((String) reply.get(0), Long.parseLong(reply.get(1).toString()));
+        } catch (Exception e) {
+            log.error("Error en GET+TTL Redis: {}", e.getMessage(), e);
+            log.info("END GET+TTL Redis (con error)");
+            return null;
+        }
+    }
+    
+    /**
+     * Lee valor y TTL de varias claves en una sola ida y vuelta (pipeline GET + PTTL
+     * por clave). Una clave que caduca entre ambos comandos se trata como ausente.
+     *
+     * @return Valores por clave, solo de las claves que existen
+     */
+    public Map<String, CachedValue> getWithTtl(Collection<String> keys) {
+        Map<String, CachedValue> values = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+        try {
+            log.info("START GET+TTL pipeline Redis: {} claves", keys.size());
+            List<Object> replies = timed("pipeline_get_ttl", () -> redisTemplate.executePipelined(
+                    (RedisCallback<Object>) connection -> {
+                        for (String key : keys) {
+                            byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+                            connection.stringCommands().get(rawKey);
+                            connection.keyCommands().pTtl(rawKey);
+                        }
+                        return null;
+                    }));
+            int i = 0;
+            for (String key : keys) {
+                Object value = replies.get(i++);
+                Object ttl = replies.get(i++);
+                if (value != null && ttl instanceof Long && (Long) ttl != -2) {
+                    values.put(key, new CachedValue((String) value, (Long) ttl));
+                }
+            }
+            log.info("END GET+TTL pipeline Redis");
+        } catch (Exception e) {
+            log.error("Error en GET+TTL pipeline Redis: {}", e.getMessage(), e);
+            log.info("END GET+TTL pipeline Redis (con error)");
+        }
+        return values;
+    }
+    
+    /**
+     * Publica un mensaje en un canal pub/sub
+     */
+    public void publish(String channel, String message) {
+        try {
+            log.info("START PUBLISH Redis: {}", channel);
+            timed("publish", () -> redisTemplate.convertAndSend(channel, message));
+            log.info("END PUBLISH Redis");
+        } catch (Exception e) {
+            log.error("Error en PUBLISH Redis: {}", e.getMessage(), e);
+            log.info("END PUBLISH Redis (con error)");
+        }
+    }
+    
+    private <T> T timed(String command, Supplier<T> call) {
+        return commandTimer(command).record(call);
+    }
+    
+    private void timed(String command, Runnable call) {
+        commandTimer(command).record(call);
+    }
+    
+    private Timer commandTimer(String command) {
+        return commandTimers.computeIfAbsent(command, c -> Timer.builder("redis.command")
+                .description("Latencia de los comandos Redis")
+                .tag("command", c)
+                .register(meterRegistry));
+    }
+    
+    /**
+     * Valor de una clave con su tiempo de vida restante
+     */
+    public static final class CachedValue {
+        
+        private final String value;
+        // Milisegundos hasta que caduca, -1 si la clave no tiene TTL
+        private final long ttlMillis;
+        
+        public CachedValue(String value, long ttlMillis) {
+            this.value = value;
+            this.ttlMillis = ttlMillis;
+        }
+        
+        public String getValue() {
+            return value;
+        }
+        
+        public long getTtlMillis() {
+            return ttlMillis;
+        }
+    }
 }
 
 /**
@@ -758,6 +1290,8 @@ public class RedisService {
 // src/main/java/com/empresa/connector/model/AwsCredentials.java
 package com.empresa.connector.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -770,6 +1304,7 @@ import lombok.NoArgsConstructor;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class AwsCredentials {
     
     @JsonProperty("AccessKeyId")
@@ -784,6 +1319,10 @@ public class AwsCredentials {
     @JsonProperty("Region")
     private String region;
     
+    // Caducidad en milisegundos epoch, null si no se conoce
+    @JsonProperty("Expiration")
+    private Long expiration;
+    
     private static final ObjectMapper objectMapper = new ObjectMapper();
     
     /**
@@ -809,6 +1348,7 @@ public class AwsCredentials {
      * Verifica si las credenciales son temporales
      * @return true si las credenciales son temporales (tienen sessionToken), false en caso contrario
      */
+    @JsonIgnore
     public boolean isTemporary() {
         return sessionToken != null && !sessionToken.isEmpty();
     }
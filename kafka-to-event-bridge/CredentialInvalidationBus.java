@@ -0,0 +1,84 @@
+package com.empresa.connector.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub channel announcing that the credentials of a destination were
+ * revoked or replaced, so every instance drops its local copy.
+ *
+ * Messages are "instanceId:destination". An instance ignores its own messages: it
+ * has already applied the change before publishing it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CredentialInvalidationBus implements MessageListener {
+    
+    private final RedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+    
+    @Value("${aws.credentials.invalidation.channel:aws:credentials:invalidation}")
+    private String channel;
+    
+    private final String instanceId = UUID.randomUUID().toString();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+    
+    /**
+     * Registers a callback for invalidations published by other instances
+     *
+     * @param listener Receives the destination name
+     */
+    public void onInvalidation(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Tells the other instances to drop the credentials of a destination
+     */
+    public void publish(String destination) {
+        log.info("Publishing credential invalidation for {}", destination);
+        redisService.publish(channel, instanceId + ":" + destination);
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+        if (separator < 0) {
+            log.warn("Ignoring malformed credential invalidation: {}", body);
+            return;
+        }
+        if (separator == instanceId.length() && body.startsWith(instanceId)) {
+            return;
+        }
+        
+        String destination = body.substring(separator + 1);
+        log.info("Credentials for {} invalidated by another instance", destination);
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(destination);
+            } catch (RuntimeException e) {
+                log.warn("Error handling credential invalidation for {}: {}", destination, e.getMessage());
+            }
+        }
+    }
+}
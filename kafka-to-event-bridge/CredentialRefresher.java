@@ -0,0 +1,150 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.config.properties.AwsIamProperties;
+import com.empresa.connector.model.AwsCredentials;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Refresh-ahead rotation of AWS credentials.
+ *
+ * Each destination's credentials are renewed once a configurable fraction of their
+ * lifetime has elapsed and published to the local and Redis tiers, so senders keep
+ * finding valid credentials in the local cache and never wait on CreateSession.
+ * Failed refreshes are retried with exponential backoff and jitter while the
+ * current credentials are still valid.
+ *
+ * Every instance runs this schedule but only one rotates: the credentials are read
+ * first, and if another instance already rotated them they are not due yet and are
+ * kept; a rotation itself runs under the destination's Redis lease.
+ *
+ * Metrics: aws.credentials.time.to.expiry (seconds), aws.credentials.refresh
+ * (by outcome) and aws.credentials.refresh.consecutive.failures, per destination.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "aws.credentials.refresh", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CredentialRefresher {
+    
+    private final AwsIamService awsIamService;
+    private final AwsIamProperties iamProperties;
+    private final MeterRegistry meterRegistry;
+    
+    // Fraction of the credential lifetime after which they are renewed
+    @Value("${aws.credentials.refresh.lifetime-fraction:0.5}")
+    private double lifetimeFraction;
+    
+    @Value("${aws.credentials.refresh.initial-backoff-ms:1000}")
+    private long initialBackoff;
+    
+    @Value("${aws.credentials.refresh.max-backoff-ms:60000}")
+    private long maxBackoff;
+    
+    private final Map<String, RefreshState> states = new ConcurrentHashMap<>();
+    
+    /**
+     * Renews the credentials of every destination whose refresh time has come
+     */
+    @Scheduled(fixedDelayString = "${aws.credentials.refresh.check-interval-ms:5000}")
+    public void refreshDue() {
+        for (String destination : iamProperties.resolveDestinations().keySet()) {
+            RefreshState state = states.computeIfAbsent(destination, this::register);
+            if (System.currentTimeMillis() >= state.nextAttemptAt) {
+                refresh(destination, state);
+            }
+        }
+    }
+    
+    private void refresh(String destination, RefreshState state) {
+        try {
+            // First pass reuses the shared credentials. Later ones rotate, unless another
+            // instance already did: its credentials are not due yet, so they are adopted
+            AwsCredentials credentials = awsIamService.getAwsCredentials(destination);
+            boolean rotated = false;
+            if (state.initialized && refreshTime(credentials) <= System.currentTimeMillis()) {
+                credentials = awsIamService.rotateCredentials(destination);
+                rotated = true;
+            }
+            state.initialized = true;
+            
+            state.expiration = credentials.getExpiration() != null ? credentials.getExpiration() : -1;
+            state.consecutiveFailures = 0;
+            state.backoff = initialBackoff;
+            state.nextAttemptAt = refreshTime(credentials);
+            if (rotated) {
+                state.successCounter.increment();
+                log.info("Credentials for {} rotated, next refresh in {} s", destination,
+                        (state.nextAttemptAt - System.currentTimeMillis()) / 1000);
+            }
+        } catch (Exception e) {
+            state.failureCounter.increment();
+            state.consecutiveFailures++;
+            // Exponential backoff with jitter, capped
+            long delay = Math.min(state.backoff, maxBackoff);
+            state.backoff = Math.min(state.backoff * 2, maxBackoff);
+            state.nextAttemptAt = System.currentTimeMillis() + delay / 2
+                    + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+            log.warn("Credential refresh for {} failed ({} in a row), retrying in {} ms: {}",
+                    destination, state.consecutiveFailures, delay, e.getMessage());
+        }
+    }
+    
+    /**
+     * Time at which the given fraction of the credentials' lifetime has elapsed
+     */
+    private long refreshTime(AwsCredentials credentials) {
+        if (credentials.getExpiration() == null) {
+            // Unknown lifetime: rotate now to get credentials with an expiration
+            return System.currentTimeMillis();
+        }
+        long lifetime = iamProperties.getDurationSeconds() * 1000L;
+        return credentials.getExpiration() - (long) (lifetime * (1 - lifetimeFraction));
+    }
+    
+    private RefreshState register(String destination) {
+        RefreshState state = new RefreshState();
+        state.backoff = initialBackoff;
+        state.successCounter = Counter.builder("aws.credentials.refresh")
+                .tag("destination", destination)
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        state.failureCounter = Counter.builder("aws.credentials.refresh")
+                .tag("destination", destination)
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        Gauge.builder("aws.credentials.time.to.expiry", state,
+                        s -> s.expiration < 0 ? Double.NaN : (s.expiration - System.currentTimeMillis()) / 1000.0)
+                .tag("destination", destination)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("aws.credentials.refresh.consecutive.failures", state, s -> s.consecutiveFailures)
+                .tag("destination", destination)
+                .register(meterRegistry);
+        return state;
+    }
+    
+    /**
+     * Refresh schedule of one destination, only written by the scheduler thread
+     */
+    private static final class RefreshState {
+        private volatile long nextAttemptAt;
+        private volatile long expiration = -1;
+        private volatile int consecutiveFailures;
+        private boolean initialized;
+        private long backoff;
+        private Counter successCounter;
+        private Counter failureCounter;
+    }
+}
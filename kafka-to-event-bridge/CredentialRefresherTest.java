@@ -0,0 +1,99 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.config.properties.AwsIamProperties;
+import com.empresa.connector.model.AwsCredentials;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CredentialRefresher
+ */
+public class CredentialRefresherTest {
+    
+    private static final long HOUR = 3600_000L;
+    
+    private final AwsIamService awsIamService = mock(AwsIamService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CredentialRefresher refresher;
+    
+    @BeforeEach
+    void setUp() {
+        AwsIamProperties properties = new AwsIamProperties();
+        properties.setAws1(new AwsIamProperties.AwsInstanceProperties());
+        properties.setDurationSeconds(3600);
+        
+        refresher = new CredentialRefresher(awsIamService, properties, meterRegistry);
+        ReflectionTestUtils.setField(refresher, "lifetimeFraction", 0.5);
+        ReflectionTestUtils.setField(refresher, "initialBackoff", 1000L);
+        ReflectionTestUtils.setField(refresher, "maxBackoff", 60000L);
+    }
+    
+    @Test
+    void refreshDue_withFreshCredentials_doesNotRotate() {
+        when(awsIamService.getAwsCredentials("aws1")).thenReturn(credentials(System.currentTimeMillis() + HOUR));
+        
+        refresher.refreshDue();
+        refresher.refreshDue();
+        
+        verify(awsIamService, times(1)).getAwsCredentials("aws1");
+        verify(awsIamService, never()).rotateCredentials(any());
+        double timeToExpiry = meterRegistry.get("aws.credentials.time.to.expiry").tag("destination", "aws1").gauge().value();
+        assertTrue(timeToExpiry > 3500 && timeToExpiry <= 3600);
+    }
+    
+    @Test
+    void refreshDue_pastLifetimeFraction_rotates() {
+        // Issued 40 minutes ago: more than half of the lifetime has elapsed
+        when(awsIamService.getAwsCredentials("aws1")).thenReturn(credentials(System.currentTimeMillis() + HOUR / 3));
+        when(awsIamService.rotateCredentials("aws1")).thenReturn(credentials(System.currentTimeMillis() + HOUR));
+        
+        refresher.refreshDue();
+        refresher.refreshDue();
+        
+        verify(awsIamService).rotateCredentials("aws1");
+        assertEquals(1.0, meterRegistry.get("aws.credentials.refresh").tag("outcome", "success").counter().count());
+    }
+    
+    @Test
+    void refreshDue_rotatedByAnotherInstance_adoptsThem() {
+        when(awsIamService.getAwsCredentials("aws1")).thenReturn(
+                credentials(System.currentTimeMillis() + HOUR / 3),
+                credentials(System.currentTimeMillis() + HOUR));
+        
+        refresher.refreshDue();
+        refresher.refreshDue();
+        
+        verify(awsIamService, never()).rotateCredentials(any());
+        double timeToExpiry = meterRegistry.get("aws.credentials.time.to.expiry").tag("destination", "aws1").gauge().value();
+        assertTrue(timeToExpiry > 3500);
+    }
+    
+    @Test
+    void refreshDue_whenRotationFails_countsFailureAndBacksOff() {
+        when(awsIamService.getAwsCredentials("aws1")).thenReturn(credentials(null));
+        when(awsIamService.rotateCredentials("aws1")).thenThrow(new RuntimeException("CreateSession failed"));
+        
+        refresher.refreshDue();
+        refresher.refreshDue();
+        // Still inside the backoff window
+        refresher.refreshDue();
+        
+        verify(awsIamService, times(1)).rotateCredentials("aws1");
+        assertEquals(1.0, meterRegistry.get("aws.credentials.refresh").tag("outcome", "failure").counter().count());
+        assertEquals(1.0, meterRegistry.get("aws.credentials.refresh.consecutive.failures").gauge().value());
+    }
+    
+    private AwsCredentials credentials(Long expiration) {
+        return AwsCredentials.builder()
+                .accessKeyId("ASIAEXAMPLE")
+                .secretAccessKey("secret")
+                .sessionToken("token")
+                .expiration(expiration)
+                .build();
+    }
+}
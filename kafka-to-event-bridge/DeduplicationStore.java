@@ -0,0 +1,248 @@
+package com.empresa.connector.service;
+
+/**
+ * Service interface for the authoritative record of deliveries already made,
+ * used to skip records delivered again after a rebalance or a restart
+ */
+public interface DeduplicationStore {
+    
+    /**
+     * Records the key unless it is already present, as a single atomic step
+     *
+     * @param key Delivery key
+     * @return true if the key was absent and is now recorded
+     */
+    boolean markIfAbsent(String key);
+    
+    /**
+     * Records the key without waiting for the store to confirm it
+     *
+     * @param key Delivery key
+     */
+    void mark(String key);
+    
+    /**
+     * Forgets a key, so that a delivery that failed can be made again
+     *
+     * @param key Delivery key
+     */
+    void remove(String key);
+}
+
+package com.empresa.connector.service.impl;
+
+import com.empresa.connector.service.DeduplicationStore;
+import com.empresa.connector.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Deduplication store shared by every instance, on Redis keys with a TTL.
+ *
+ * If Redis does not answer the key is treated as absent: a duplicate delivery is
+ * preferred to losing a record.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "dedup", name = "store", havingValue = "redis", matchIfMissing = true)
+public class RedisDeduplicationStore implements DeduplicationStore {
+    
+    private static final String KEY_PREFIX = "dedup:";
+    private static final String MARKER = "1";
+    
+    private final RedisService redisService;
+    private final long ttlSeconds;
+    
+    public RedisDeduplicationStore(RedisService redisService,
+                                   @Value("${dedup.ttl-seconds:86400}") long ttlSeconds) {
+        this.redisService = redisService;
+        this.ttlSeconds = ttlSeconds;
+    }
+    
+    @Override
+    public boolean markIfAbsent(String key) {
+        Boolean written = redisService.setCacheIfAbsent(KEY_PREFIX + key, MARKER, ttlSeconds);
+        if (written == null) {
+            log.warn("Deduplication store unavailable, delivering {}", key);
+            return true;
+        }
+        return written;
+    }
+    
+    @Override
+    public void mark(String key) {
+        redisService.setCacheAsync(KEY_PREFIX + key, MARKER, ttlSeconds);
+    }
+    
+    @Override
+    public void remove(String key) {
+        redisService.deleteCache(KEY_PREFIX + key);
+    }
+}
+
+package com.empresa.connector.service.impl;
+
+import com.empresa.connector.service.DeduplicationStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
+
+/**
+ * Deduplication store held off-heap, for a single instance and for local runs.
+ *
+ * Keys are kept as 128-bit fingerprints with their expiry in a fixed open-addressing
+ * table in a direct buffer, sized from dedup.local.max-entries at 24 bytes per slot,
+ * so millions of keys neither grow the heap nor add to the GC work. Expired and
+ * removed slots are reused. A key that finds no free slot within its probe window
+ * replaces the entry there closest to expiry; evicted keys can be delivered again,
+ * so evictions are logged and counted in dedup.local.evictions.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "dedup", name = "store", havingValue = "local")
+public class LocalDeduplicationStore implements DeduplicationStore {
+    
+    private static final int SLOT_BYTES = 24;
+    private static final int EXPIRY_OFFSET = 16;
+    private static final int MAX_PROBES = 64;
+    // Expiry of a removed key: already past, but not the 0 of a slot never used
+    private static final long REMOVED = 1L;
+    
+    private final ByteBuffer table;
+    private final int mask;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Counter evictions;
+    private long evicted;
+    
+    public LocalDeduplicationStore(@Value("${dedup.ttl-seconds:86400}") long ttlSeconds,
+                                   @Value("${dedup.local.max-entries:1000000}") int maxEntries,
+                                   MeterRegistry meterRegistry) {
+        this(ttlSeconds, maxEntries, meterRegistry, System::currentTimeMillis);
+    }
+    
+    LocalDeduplicationStore(long ttlSeconds, int maxEntries, MeterRegistry meterRegistry, LongSupplier clock) {
+        // At most 3/4 full keeps the probe sequences short
+        long slots = Math.max(64, maxEntries * 4L / 3);
+        long capacity = Long.highestOneBit(slots - 1) << 1;
+        if (capacity * SLOT_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("dedup.local.max-entries too large: " + maxEntries);
+        }
+        this.table = ByteBuffer.allocateDirect((int) (capacity * SLOT_BYTES));
+        this.mask = (int) capacity - 1;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+        
+        this.evictions = Counter.builder("dedup.local.evictions").register(meterRegistry);
+        Gauge.builder("dedup.local.bytes", table, ByteBuffer::capacity).register(meterRegistry);
+        log.info("Local deduplication store of {} slots, {} bytes off-heap", capacity, table.capacity());
+    }
+    
+    @Override
+    public synchronized boolean markIfAbsent(String key) {
+        long now = clock.getAsLong();
+        long fingerprint1 = fingerprint1(key);
+        long fingerprint2 = fingerprint2(key);
+        
+        int free = -1;
+        int oldest = -1;
+        long oldestExpiry = Long.MAX_VALUE;
+        for (int i = 0, slot = (int) fingerprint1 & mask; i < MAX_PROBES; i++, slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_BYTES;
+            long expiry = table.getLong(offset + EXPIRY_OFFSET);
+            if (expiry == 0) {
+                // Never used: the key cannot be further along
+                if (free < 0) {
+                    free = offset;
+                }
+                break;
+            }
+            if (expiry == REMOVED || expiry <= now) {
+                if (free < 0) {
+                    free = offset;
+                }
+            } else if (table.getLong(offset) == fingerprint1 && table.getLong(offset + 8) == fingerprint2) {
+                return false;
+            } else if (expiry < oldestExpiry) {
+                oldestExpiry = expiry;
+                oldest = offset;
+            }
+        }
+        
+        if (free < 0) {
+            free = oldest;
+            evictions.increment();
+            if (evicted++ == 0) {
+                log.warn("Local deduplication store full, evicting keys before they expire; "
+                        + "raise dedup.local.max-entries");
+            }
+        }
+        table.putLong(free, fingerprint1);
+        table.putLong(free + 8, fingerprint2);
+        table.putLong(free + EXPIRY_OFFSET, now + ttlMillis);
+        return true;
+    }
+    
+    @Override
+    public void mark(String key) {
+        markIfAbsent(key);
+    }
+    
+    @Override
+    public synchronized void remove(String key) {
+        long fingerprint1 = fingerprint1(key);
+        long fingerprint2 = fingerprint2(key);
+        for (int i = 0, slot = (int) fingerprint1 & mask; i < MAX_PROBES; i++, slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_BYTES;
+            long expiry = table.getLong(offset + EXPIRY_OFFSET);
+            if (expiry == 0) {
+                return;
+            }
+            if (expiry > REMOVED && table.getLong(offset) == fingerprint1 && table.getLong(offset + 8) == fingerprint2) {
+                table.putLong(offset + EXPIRY_OFFSET, REMOVED);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer
+     */
+    private static long fingerprint1(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+    
+    /**
+     * Polynomial hash with the golden ratio multiplier, independent of fingerprint1
+     */
+    private static long fingerprint2(String key) {
+        long h = key.length();
+        for (int i = 0; i < key.length(); i++) {
+            h = h * 0x9e3779b97f4a7c15L + key.charAt(i);
+        }
+        return mix(h);
+    }
+    
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
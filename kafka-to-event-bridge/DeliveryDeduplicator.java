@@ -0,0 +1,151 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.util.RotatingBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Skips deliveries already made, keyed by operationId, revision and destination.
+ *
+ * The operationId names the order, not the modification: the MODIFY topic carries
+ * several records per operationId and each one is a delivery of its own. The revision
+ * (a hash of the record's state fields, see revision) tells them apart, while a
+ * replay or retry of the same record keeps its key.
+ *
+ * The DeduplicationStore is authoritative and shared by every instance. In front of
+ * it, an in-process Bloom filter remembers the keys this instance has handled during
+ * the TTL window. Its negative answers are exact, but they only cover this instance,
+ * so they are trusted only on partitions it has been consuming without interruption:
+ * nobody else could have delivered those records. There the key is recorded in the
+ * store without waiting, and no round trip is made.
+ *
+ * After a partition is assigned, the previous owner may have delivered records whose
+ * offsets were never committed. Until dedup.replay-window consecutive new records
+ * are seen on it, every key is checked against the store (SET NX), and so is every
+ * key the filter may have seen.
+ *
+ * Metrics: dedup.deliveries, by result (new, duplicate) and check (filter, store).
+ */
+@Slf4j
+@Component
+public class DeliveryDeduplicator {
+    
+    private final DeduplicationStore store;
+    private final RotatingBloomFilter filter;
+    private final int replayWindow;
+    
+    // Consecutive new records confirmed by the store, per partition, since its assignment
+    private final Map<String, AtomicInteger> confirmedStreaks = new ConcurrentHashMap<>();
+    
+    private final Counter newByFilter;
+    private final Counter newByStore;
+    private final Counter duplicates;
+    
+    public DeliveryDeduplicator(DeduplicationStore store,
+                                MeterRegistry meterRegistry,
+                                @Value("${dedup.ttl-seconds:86400}") long ttlSeconds,
+                                @Value("${dedup.expected-keys-per-day:5000000}") long expectedKeysPerDay,
+                                @Value("${dedup.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${dedup.replay-window:500}") int replayWindow) {
+        this.store = store;
+        this.replayWindow = replayWindow;
+        // Each generation covers one TTL, so it must fit the keys of one TTL
+        long expectedKeys = Math.max(1, expectedKeysPerDay * ttlSeconds / 86400);
+        this.filter = new RotatingBloomFilter(expectedKeys, falsePositiveRate, ttlSeconds * 1000);
+        
+        this.newByFilter = Counter.builder("dedup.deliveries").tag("result", "new").tag("check", "filter")
+                .register(meterRegistry);
+        this.newByStore = Counter.builder("dedup.deliveries").tag("result", "new").tag("check", "store")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("dedup.deliveries").tag("result", "duplicate").tag("check", "store")
+                .register(meterRegistry);
+        Gauge.builder("dedup.filter.bytes", filter, RotatingBloomFilter::memoryBytes).register(meterRegistry);
+        log.info("Delivery deduplication filter sized for {} keys per generation, {} bytes, {} hash functions",
+                expectedKeys, filter.memoryBytes(), filter.getHashFunctions());
+    }
+    
+    /**
+     * Claims the delivery of an operation to a destination
+     *
+     * @param operationId Operation identifier of the record
+     * @param revision Revision of the record, from revision(...)
+     * @param destination Destination name
+     * @param topic Topic the record was read from
+     * @param partition Partition the record was read from
+     * @return true if it has not been delivered yet and must be sent, false for a duplicate
+     */
+    public boolean tryAcquire(String operationId, String revision, String destination, String topic, int partition) {
+        String key = key(operationId, revision, destination);
+        AtomicInteger streak = confirmedStreaks.computeIfAbsent(topic + "-" + partition, p -> new AtomicInteger());
+        
+        if (streak.get() >= replayWindow && !filter.mightContain(key)) {
+            filter.put(key);
+            store.mark(key);
+            newByFilter.increment();
+            return true;
+        }
+        
+        boolean first = store.markIfAbsent(key);
+        filter.put(key);
+        if (!first) {
+            streak.set(0);
+            duplicates.increment();
+            log.info("Skipping duplicate delivery of {} revision {} to {}", operationId, revision, destination);
+            return false;
+        }
+        streak.incrementAndGet();
+        newByStore.increment();
+        return true;
+    }
+    
+    /**
+     * Gives back a delivery that failed, so a retry of the record sends it again
+     */
+    public void release(String operationId, String revision, String destination) {
+        store.remove(key(operationId, revision, destination));
+    }
+    
+    /**
+     * Revision of a record: 64-bit FNV-1a hash of its state fields, in hex. Equal
+     * records give equal revisions; null and empty fields hash differently.
+     */
+    public static String revision(CharSequence... fields) {
+        long hash = 0xcbf29ce484222325L;
+        for (CharSequence field : fields) {
+            if (field == null) {
+                hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+                continue;
+            }
+            for (int i = 0; i < field.length(); i++) {
+                hash = (hash ^ field.charAt(i)) * 0x100000001b3L;
+            }
+            // Separator, so that ("ab", "c") and ("a", "bc") differ
+            hash = (hash ^ 0x1F) * 0x100000001b3L;
+        }
+        return Long.toHexString(hash);
+    }
+    
+    /**
+     * Newly assigned partitions are checked against the store again, since their
+     * previous owner may have delivered records past the committed offset
+     */
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            confirmedStreaks.remove(partition.topic() + "-" + partition.partition());
+        }
+    }
+    
+    private static String key(String operationId, String revision, String destination) {
+        return operationId + ":" + revision + ":" + destination;
+    }
+}
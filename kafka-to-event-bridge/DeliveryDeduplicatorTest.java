@@ -0,0 +1,116 @@
+package com.empresa.connector.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DeliveryDeduplicator
+ */
+public class DeliveryDeduplicatorTest {
+    
+    private static final String TOPIC = "SBNA.00002517.MIP_INS_HIST_EJ.MODIFY.AVRO";
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DeduplicationStore store;
+    private DeliveryDeduplicator deduplicator;
+    
+    @BeforeEach
+    void setUp() {
+        store = mock(DeduplicationStore.class);
+        when(store.markIfAbsent(anyString())).thenReturn(true);
+        deduplicator = new DeliveryDeduplicator(store, meterRegistry, 86400, 10_000, 0.01, 2);
+    }
+    
+    @Test
+    void tryAcquire_duringReplayWindow_checksStore() {
+        assertTrue(deduplicator.tryAcquire("op-1", "r1", "aws1", TOPIC, 0));
+        
+        verify(store).markIfAbsent("op-1:r1:aws1");
+        verify(store, never()).mark(anyString());
+    }
+    
+    @Test
+    void tryAcquire_duplicateInStore_skipsDelivery() {
+        when(store.markIfAbsent("op-1:r1:aws1")).thenReturn(false);
+        
+        assertFalse(deduplicator.tryAcquire("op-1", "r1", "aws1", TOPIC, 0));
+        assertEquals(1.0, meterRegistry.get("dedup.deliveries").tag("result", "duplicate").counter().count());
+    }
+    
+    @Test
+    void tryAcquire_afterReplayWindow_newKeysSkipRoundTrip() {
+        deduplicator.tryAcquire("op-1", "r1", "aws1", TOPIC, 0);
+        deduplicator.tryAcquire("op-2", "r1", "aws1", TOPIC, 0);
+        
+        assertTrue(deduplicator.tryAcquire("op-3", "r1", "aws1", TOPIC, 0));
+        
+        verify(store, never()).markIfAbsent("op-3:r1:aws1");
+        verify(store).mark("op-3:r1:aws1");
+    }
+    
+    @Test
+    void tryAcquire_afterReplayWindow_keySeenByFilterCheckedInStore() {
+        deduplicator.tryAcquire("op-1", "r1", "aws1", TOPIC, 0);
+        deduplicator.tryAcquire("op-2", "r1", "aws1", TOPIC, 0);
+        when(store.markIfAbsent("op-1:r1:aws1")).thenReturn(false);
+        
+        assertFalse(deduplicator.tryAcquire("op-1", "r1", "aws1", TOPIC, 0));
+        
+        verify(store, times(2)).markIfAbsent("op-1:r1:aws1");
+    }
+    
+    @Test
+    void tryAcquire_afterReassignment_checksStoreAgain() {
+        deduplicator.tryAcquire("op-1", "r1", "aws1", TOPIC, 0);
+        deduplicator.tryAcquire("op-2", "r1", "aws1", TOPIC, 0);
+        
+        deduplicator.onPartitionsAssigned(Collections.singletonList(new TopicPartition(TOPIC, 0)));
+        deduplicator.tryAcquire("op-3", "r1", "aws1", TOPIC, 0);
+        
+        verify(store).markIfAbsent("op-3:r1:aws1");
+    }
+    
+    @Test
+    void tryAcquire_otherPartition_hasItsOwnReplayWindow() {
+        deduplicator.tryAcquire("op-1", "r1", "aws1", TOPIC, 0);
+        deduplicator.tryAcquire("op-2", "r1", "aws1", TOPIC, 0);
+        
+        deduplicator.tryAcquire("op-3", "r1", "aws1", TOPIC, 1);
+        
+        verify(store).markIfAbsent("op-3:r1:aws1");
+    }
+    
+    @Test
+    void release_removesKeyFromStore() {
+        deduplicator.release("op-1", "r1", "aws1");
+        
+        verify(store).remove("op-1:r1:aws1");
+    }
+    
+    @Test
+    void tryAcquire_laterModificationOfSameOperation_isDelivered() {
+        String first = DeliveryDeduplicator.revision("1234", "000123", "01", "2025-03-07", "13");
+        String second = DeliveryDeduplicator.revision("1234", "000123", "01", "2025-03-08", "13");
+        
+        assertTrue(deduplicator.tryAcquire("op-1", first, "aws1", TOPIC, 0));
+        assertTrue(deduplicator.tryAcquire("op-1", second, "aws1", TOPIC, 0));
+        
+        verify(store).markIfAbsent("op-1:" + first + ":aws1");
+        verify(store).markIfAbsent("op-1:" + second + ":aws1");
+    }
+    
+    @Test
+    void revision_dependsOnEveryField() {
+        assertEquals(DeliveryDeduplicator.revision("a", "bc"), DeliveryDeduplicator.revision("a", "bc"));
+        assertNotEquals(DeliveryDeduplicator.revision("a", "bc"), DeliveryDeduplicator.revision("ab", "c"));
+        assertNotEquals(DeliveryDeduplicator.revision("a", null), DeliveryDeduplicator.revision("a", ""));
+    }
+}
@@ -0,0 +1,265 @@
+package com.empresa.connector.destination;
+
+import com.empresa.connector.config.properties.EventBridgeProperties;
+import com.empresa.connector.model.AwsCredentials;
+import com.empresa.connector.util.AwsSigner;
+import com.empresa.connector.util.SigV4Template;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Resources owned by a single EventBridge destination: credential provider,
+ * signer and SigV4 template, connection pool, bulkhead executor and metrics. Nothing is shared with
+ * other destinations, so a slow or throttled bus only exhausts its own pool.
+ */
+@Slf4j
+@Getter
+public class EventBridgeDestination implements AutoCloseable {
+    
+    private final String name;
+    private final EventBridgeProperties.EventBridgeInstanceProperties properties;
+    private final Supplier<AwsCredentials> credentialsProvider;
+    private final AwsSigner signer;
+    private final SigV4Template sigV4Template;
+    private final RestTemplate restTemplate;
+    private final Timer sendTimer;
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter rejectedCounter;
+    
+    private final CloseableHttpClient httpClient;
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+    
+    EventBridgeDestination(String name,
+                           EventBridgeProperties.EventBridgeInstanceProperties properties,
+                           Supplier<AwsCredentials> credentialsProvider,
+                           SigV4Template sigV4Template,
+                           MeterRegistry meterRegistry) {
+        this.name = name;
+        this.properties = properties;
+        this.credentialsProvider = credentialsProvider;
+        this.sigV4Template = sigV4Template;
+        this.meterRegistry = meterRegistry;
+        this.signer = new AwsSigner();
+        
+        // Connection pool sized for this destination only
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConnections());
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(properties.getConnectTimeout())
+                        .setConnectionRequestTimeout(properties.getConnectTimeout())
+                        .setSocketTimeout(properties.getReadTimeout())
+                        .build())
+                .build();
+        // Signed bodies are already serialized, stream them instead of buffering a second copy
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setBufferRequestBody(false);
+        this.restTemplate = new RestTemplate(requestFactory);
+        
+        // Bulkhead: bounded workers and queue, overflow is rejected instead of blocking the caller
+        this.executor = new ThreadPoolExecutor(
+                properties.getMaxConcurrency(),
+                properties.getMaxConcurrency(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                threadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        
+        this.sendTimer = register(Timer.builder("eventbridge.put.events")
+                .tag("destination", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        this.successCounter = register(outcomeCounter("success"));
+        this.failureCounter = register(outcomeCounter("failure"));
+        this.rejectedCounter = register(outcomeCounter("rejected"));
+        register(Gauge.builder("eventbridge.destination.queue", executor, e -> e.getQueue().size())
+                .tag("destination", name)
+                .register(meterRegistry));
+        register(Gauge.builder("eventbridge.destination.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("destination", name)
+                .register(meterRegistry));
+    }
+    
+    /**
+     * Runs a task on this destination's executor
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("EventBridge destination {} saturated, request rejected", name);
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+    
+    public String getUrl() {
+        return properties.baseUrl();
+    }
+    
+    @Override
+    public void close() {
+        log.info("Closing EventBridge destination {}", name);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getReadTimeout(), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        try {
+            httpClient.close();
+        } catch (Exception e) {
+            log.warn("Error closing HTTP client of destination {}: {}", name, e.getMessage());
+        }
+        meters.forEach(meterRegistry::remove);
+    }
+    
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("eventbridge.put.events.result")
+                .tag("destination", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+    
+    private <M extends Meter> M register(M meter) {
+        meters.add(meter);
+        return meter;
+    }
+    
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "eventbridge-" + name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
+
+package com.empresa.connector.destination;
+
+import com.empresa.connector.config.properties.EventBridgeProperties;
+import com.empresa.connector.service.AwsIamService;
+import com.empresa.connector.util.SigV4Template;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of EventBridge destinations, built from aws.eventbridge.destinations.*
+ * (plus the legacy aws1/aws2 keys). Destinations can also be added and removed at
+ * runtime; replacing or removing one releases its pool and executor.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventBridgeDestinationRegistry {
+    
+    private final EventBridgeProperties eventBridgeProperties;
+    private final AwsIamService awsIamService;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<String, EventBridgeDestination> destinations = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        eventBridgeProperties.resolveDestinations().forEach(this::register);
+        log.info("EventBridge destinations registered: {}", destinations.keySet());
+    }
+    
+    /**
+     * Creates the resources of a destination, replacing any previous one with the same name
+     */
+    public EventBridgeDestination register(String name, EventBridgeProperties.EventBridgeInstanceProperties properties) {
+        EventBridgeDestination destination = new EventBridgeDestination(
+                name,
+                properties,
+                () -> awsIamService.getAwsCredentials(name),
+                // Host, target and signed headers are fixed per destination, sign them once
+                SigV4Template.post(
+                        eventBridgeProperties.getService(),
+                        properties.getRegion(),
+                        properties.signingHost(),
+                        eventBridgeProperties.getAmzTarget(),
+                        eventBridgeProperties.getContentType()),
+                meterRegistry);
+        
+        EventBridgeDestination previous = destinations.put(name, destination);
+        if (previous != null) {
+            previous.close();
+        }
+        return destination;
+    }
+    
+    /**
+     * Removes a destination and releases its resources
+     */
+    public void unregister(String name) {
+        EventBridgeDestination destination = destinations.remove(name);
+        if (destination != null) {
+            destination.close();
+        }
+    }
+    
+    public EventBridgeDestination get(String name) {
+        EventBridgeDestination destination = destinations.get(name);
+        if (destination == null) {
+            throw new IllegalArgumentException("Unknown EventBridge destination: " + name);
+        }
+        return destination;
+    }
+    
+    public boolean contains(String name) {
+        return destinations.containsKey(name);
+    }
+    
+    public Set<String> names() {
+        return Collections.unmodifiableSet(destinations.keySet());
+    }
+    
+    @PreDestroy
+    public void close() {
+        destinations.keySet().forEach(this::unregister);
+    }
+}
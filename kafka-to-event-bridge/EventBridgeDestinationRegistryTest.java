@@ -0,0 +1,114 @@
+package com.empresa.connector.destination;
+
+import com.empresa.connector.config.properties.EventBridgeProperties;
+import com.empresa.connector.service.AwsIamService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for EventBridgeDestinationRegistry
+ */
+public class EventBridgeDestinationRegistryTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private EventBridgeDestinationRegistry registry;
+    
+    @BeforeEach
+    void setUp() {
+        EventBridgeProperties properties = new EventBridgeProperties();
+        properties.setAws1(instance("events.us-east-1.amazonaws.com", 1, 1));
+        properties.getDestinations().put("aws3", instance("events.us-east-2.amazonaws.com", 2, 4));
+        
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new EventBridgeDestinationRegistry(properties, mock(AwsIamService.class), meterRegistry);
+        registry.init();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+    
+    @Test
+    void init_registersLegacyAndNamedDestinations() {
+        assertTrue(registry.names().containsAll(Set.of("aws1", "aws3")));
+        assertEquals("https://events.us-east-2.amazonaws.com", registry.get("aws3").getUrl());
+        assertNotSame(registry.get("aws1").getRestTemplate(), registry.get("aws3").getRestTemplate());
+    }
+    
+    @Test
+    void register_withEndpoint_sendsToItAndSignsItsHost() {
+        EventBridgeProperties.EventBridgeInstanceProperties instance = instance("events.us-east-1.amazonaws.com", 1, 1);
+        instance.setEndpoint("http://127.0.0.1:4566");
+        
+        EventBridgeDestination destination = registry.register("local", instance);
+        
+        assertEquals("http://127.0.0.1:4566", destination.getUrl());
+        assertEquals("127.0.0.1:4566", instance.signingHost());
+    }
+    
+    @Test
+    void get_withUnknownDestination_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> registry.get("aws9"));
+    }
+    
+    @Test
+    void unregister_releasesExecutorAndMeters() {
+        EventBridgeDestination destination = registry.get("aws3");
+        
+        registry.unregister("aws3");
+        
+        assertFalse(registry.contains("aws3"));
+        assertTrue(destination.getExecutor().isShutdown());
+        assertNull(meterRegistry.find("eventbridge.put.events").tag("destination", "aws3").timer());
+        assertNotNull(meterRegistry.find("eventbridge.put.events").tag("destination", "aws1").timer());
+    }
+    
+    @Test
+    void submit_whenSaturated_rejectsWithoutAffectingOtherDestinations() throws Exception {
+        EventBridgeDestination slow = registry.get("aws1");
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // One worker busy and one task queued fill the aws1 bulkhead
+        slow.submit(() -> await(release));
+        slow.submit(() -> await(release));
+        CompletableFuture<String> rejected = slow.submit(() -> "late");
+        
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(1.0, slow.getRejectedCounter().count());
+        assertEquals("OK", registry.get("aws3").submit(() -> "OK").join());
+        
+        release.countDown();
+    }
+    
+    private EventBridgeProperties.EventBridgeInstanceProperties instance(String host, int concurrency, int queue) {
+        EventBridgeProperties.EventBridgeInstanceProperties instance = new EventBridgeProperties.EventBridgeInstanceProperties();
+        instance.setHost(host);
+        instance.setRegion("us-east-1");
+        instance.setEventBusName("bus");
+        instance.setMaxConcurrency(concurrency);
+        instance.setQueueCapacity(queue);
+        return instance;
+    }
+    
+    private String await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "OK";
+    }
+}
@@ -0,0 +1,82 @@
+package com.empresa.connector.util;
+
+/**
+ * Incremental size accounting for a PutEvents entry.
+ *
+ * Follows the AWS rules for calculating the entry size: the UTF-8 length of Source,
+ * DetailType, Detail and every Resource (entries are sent without Time). Each
+ * field is added as the entry is built, so the running size is always known
+ * without serializing the request.
+ */
+public final class EventBridgeEntrySize {
+    
+    /**
+     * Maximum size PutEvents accepts for a single entry (and for a whole request)
+     */
+    public static final int MAX_ENTRY_SIZE = 256 * 1024;
+    
+    private int size;
+    
+    public EventBridgeEntrySize source(CharSequence source) {
+        size += utf8Length(source);
+        return this;
+    }
+    
+    public EventBridgeEntrySize detailType(CharSequence detailType) {
+        size += utf8Length(detailType);
+        return this;
+    }
+    
+    public EventBridgeEntrySize detail(CharSequence detail) {
+        size += utf8Length(detail);
+        return this;
+    }
+    
+    public EventBridgeEntrySize resource(CharSequence resource) {
+        size += utf8Length(resource);
+        return this;
+    }
+    
+    /**
+     * Removes a previously added detail, used when the detail is replaced by a claim-check reference
+     */
+    public EventBridgeEntrySize withoutDetail(CharSequence detail) {
+        size -= utf8Length(detail);
+        return this;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean exceeds(int limit) {
+        return size > limit;
+    }
+    
+    /**
+     * Number of bytes the value takes once encoded as UTF-8, computed without encoding it
+     */
+    public static int utf8Length(CharSequence value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // A surrogate pair is 2 chars and 4 bytes
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+}
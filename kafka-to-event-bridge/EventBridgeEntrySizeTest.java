@@ -0,0 +1,53 @@
+package com.empresa.connector.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventBridgeEntrySize
+ */
+public class EventBridgeEntrySizeTest {
+    
+    @Test
+    void utf8Length_matchesEncodedLength() {
+        String[] samples = {"", "openbank.payments", "Transferencia añadida", "€ 100", "emoji 😀 ok"};
+        
+        for (String sample : samples) {
+            assertEquals(sample.getBytes(StandardCharsets.UTF_8).length, EventBridgeEntrySize.utf8Length(sample));
+        }
+    }
+    
+    @Test
+    void size_addsFieldsIncrementally() {
+        EventBridgeEntrySize size = new EventBridgeEntrySize()
+                .source("openbank.payments")
+                .detailType("Transfer_KO")
+                .detail("{\"a\":1}");
+        
+        assertEquals(17 + 11 + 7, size.size());
+        assertFalse(size.exceeds(EventBridgeEntrySize.MAX_ENTRY_SIZE));
+    }
+    
+    @Test
+    void withoutDetail_removesDetailBytes() {
+        String detail = "{\"payload\":\"ñ\"}";
+        EventBridgeEntrySize size = new EventBridgeEntrySize().source("src").detail(detail);
+        
+        size.withoutDetail(detail);
+        
+        assertEquals(3, size.size());
+    }
+    
+    @Test
+    void exceeds_withDetailAboveLimit_returnsTrue() {
+        StringBuilder detail = new StringBuilder();
+        while (detail.length() <= EventBridgeEntrySize.MAX_ENTRY_SIZE) {
+            detail.append("0123456789");
+        }
+        
+        assertTrue(new EventBridgeEntrySize().detail(detail).exceeds(EventBridgeEntrySize.MAX_ENTRY_SIZE));
+    }
+}
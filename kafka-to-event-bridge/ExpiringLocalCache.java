@@ -0,0 +1,91 @@
+package com.empresa.connector.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process cache of values with an absolute expiry time.
+ *
+ * Meant for small, hot data such as parsed credentials: a hit is a single map
+ * lookup and a clock read. Expired entries are never returned and are dropped when
+ * read; there is no background eviction thread.
+ */
+public class ExpiringLocalCache<K, V> {
+    
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    
+    public ExpiringLocalCache() {
+        this(System::currentTimeMillis);
+    }
+    
+    /**
+     * @param clock Current time in epoch milliseconds
+     */
+    public ExpiringLocalCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+    
+    /**
+     * Returns the value, or null when absent or expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+    
+    /**
+     * Stores a value until the given instant; a value already expired is not stored
+     *
+     * @param expiresAt Expiry time in epoch milliseconds
+     */
+    public void put(K key, V value, long expiresAt) {
+        if (expiresAt <= clock.getAsLong()) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+    
+    /**
+     * Milliseconds until the entry expires, or -1 when absent or expired
+     */
+    public long millisToExpiry(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return -1;
+        }
+        long remaining = entry.expiresAt - clock.getAsLong();
+        return remaining > 0 ? remaining : -1;
+    }
+    
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+    
+    public void clear() {
+        entries.clear();
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.empresa.connector.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ExpiringLocalCache
+ */
+public class ExpiringLocalCacheTest {
+    
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final ExpiringLocalCache<String, String> cache = new ExpiringLocalCache<>(now::get);
+    
+    @Test
+    void get_beforeExpiry_returnsValue() {
+        cache.put("aws1", "credentials", now.get() + 1000);
+        
+        assertEquals("credentials", cache.get("aws1"));
+        assertEquals(1000, cache.millisToExpiry("aws1"));
+    }
+    
+    @Test
+    void get_afterExpiry_returnsNullAndEvicts() {
+        cache.put("aws1", "credentials", now.get() + 1000);
+        now.addAndGet(1000);
+        
+        assertNull(cache.get("aws1"));
+        assertEquals(0, cache.size());
+        assertEquals(-1, cache.millisToExpiry("aws1"));
+    }
+    
+    @Test
+    void put_alreadyExpired_removesPreviousValue() {
+        cache.put("aws1", "old", now.get() + 1000);
+        cache.put("aws1", "stale", now.get() - 1);
+        
+        assertNull(cache.get("aws1"));
+    }
+    
+    @Test
+    void invalidate_removesEntry() {
+        cache.put("aws1", "credentials", now.get() + 1000);
+        cache.invalidate("aws1");
+        
+        assertNull(cache.get("aws1"));
+    }
+}
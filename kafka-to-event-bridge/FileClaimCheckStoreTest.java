@@ -0,0 +1,43 @@
+package com.empresa.connector.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FileClaimCheckStore
+ */
+public class FileClaimCheckStoreTest {
+    
+    @Test
+    void storeAndRetrieve_roundTrips(@TempDir Path directory) {
+        FileClaimCheckStore store = new FileClaimCheckStore(directory.toString());
+        byte[] payload = "{\"large\":\"payload\"}".getBytes(StandardCharsets.UTF_8);
+        
+        String reference = store.store(payload);
+        
+        assertTrue(reference.startsWith("file:"));
+        assertEquals(reference, store.store(payload));
+        assertArrayEquals(payload, store.retrieve(reference));
+    }
+    
+    @Test
+    void retrieve_withForeignReference_throwsException(@TempDir Path directory) {
+        FileClaimCheckStore store = new FileClaimCheckStore(directory.toString());
+        
+        assertThrows(IllegalArgumentException.class, () -> store.retrieve("s3:bucket/key"));
+    }
+    
+    @Test
+    void retrieve_withPathOutsideDirectory_throwsException(@TempDir Path directory) {
+        FileClaimCheckStore store = new FileClaimCheckStore(directory.resolve("store").toString());
+        
+        assertThrows(IllegalArgumentException.class, () -> store.retrieve("file:../secret"));
+        assertThrows(IllegalArgumentException.class, () -> store.retrieve("file:/etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.retrieve("file:" + "A".repeat(64)));
+    }
+}
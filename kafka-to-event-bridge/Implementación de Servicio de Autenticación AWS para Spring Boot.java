@@ -13,6 +13,8 @@ package com.empresa.connector.service;
 import com.empresa.connector.config.properties.AwsProperties;
 import com.empresa.connector.model.AwsCredentials;
 import com.empresa.connector.util.AwsSigner;
+import com.empresa.connector.util.JsonCodecs;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
@@ -21,6 +23,8 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -35,6 +39,17 @@ public class AwsAuthService {
     private final AwsProperties awsProperties;
     private final AwsSigner awsSigner;
     private final RestTemplate restTemplate;
+    private final JsonCodecs jsonCodecs;
+    
+    // Formatos de fecha configurados, compilados una sola vez
+    private DateTimeFormatter datetimeFormatter;
+    private DateTimeFormatter dateFormatter;
+    
+    @PostConstruct
+    public void init() {
+        datetimeFormatter = DateTimeFormatter.ofPattern(awsProperties.getDatetimeFormat());
+        dateFormatter = DateTimeFormatter.ofPattern(awsProperties.getDateFormat());
+    }
     
     /**
      * Genera los encabezados de autenticación para AWS
@@ -50,8 +65,8 @@ public class AwsAuthService {
         try {
             // Obtener fecha actual en formato AWS
             ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
-            String awsDate = now.format(DateTimeFormatter.ofPattern(awsProperties.getDatetimeFormat()));
-            String dateStamp = now.format(DateTimeFormatter.ofPattern(awsProperties.getDateFormat()));
+            String awsDate = now.format(datetimeFormatter);
+            String dateStamp = now.format(dateFormatter);
             
             // Calcular hash del payload
             String payloadHash = awsSigner.hashContent(requestBody);
@@ -130,8 +145,9 @@ public class AwsAuthService {
                 requestBody,
                 credentials);
             
-            // Construir la entidad de la petición
-            HttpEntity<?> requestEntity = new HttpEntity<>(body, headers);
+            // Se envían los mismos bytes que se han firmado, sin que RestTemplate vuelva a serializar
+            HttpEntity<byte[]> requestEntity = new HttpEntity<>(
+                body != null ? requestBody.getBytes(StandardCharsets.UTF_8) : null, headers);
             
             // Hacer la petición
             return restTemplate.exchange(url, httpMethod, requestEntity, responseType);
@@ -166,14 +182,13 @@ public class AwsAuthService {
         }
     }
     
-    private String convertBodyToString(Object body) {
+    private String convertBodyToString(Object body) throws JsonProcessingException {
         if (body == null) {
             return "";
         } else if (body instanceof String) {
             return (String) body;
         } else {
-            // Aquí podrías usar ObjectMapper para convertir a JSON
-            return body.toString();
+            return jsonCodecs.writeAsString(body);
         }
     }
 }
@@ -192,7 +207,7 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Component
@@ -200,24 +215,74 @@ public class AwsSigner {
 
     // Constante para el algoritmo de firma
     private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
     private static final String EMPTY_STRING_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    // Límite de claves de firma en caché (una por access key, región y servicio y día)
+    private static final int MAX_CACHED_SIGNING_KEYS = 64;
+    // Por encima de este tamaño los buffers por hilo no se conservan
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    
+    /**
+     * Mac y MessageDigest no son thread-safe y getInstance recorre los proveedores en
+     * cada llamada: se mantiene una instancia por hilo. Los builders y el buffer UTF-8
+     * por hilo evitan reservar memoria al construir la petición canónica.
+     */
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(AwsSigner::newMac);
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(AwsSigner::newSha256);
+    private static final ThreadLocal<StringBuilder> CANONICAL_REQUEST = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+    private static final ThreadLocal<StringBuilder> STRING_TO_SIGN = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final ThreadLocal<byte[]> UTF8_BUFFER = ThreadLocal.withInitial(() -> new byte[2048]);
+    
+    private static final Comparator<String[]> BY_NAME_THEN_VALUE = (a, b) -> {
+        int byName = a[0].compareTo(b[0]);
+        return byName != 0 ? byName : a[1].compareTo(b[1]);
+    };
+    
+    /**
+     * Caché de claves de firma por "accessKeyId/dateStamp/region/service". La clave
+     * derivada solo cambia al cambiar el día UTC o las credenciales, así que cada
+     * petición se reduce a un único HMAC sobre la cadena de firma. Las credenciales
+     * rotadas traen otra access key: las entradas antiguas caen al cambiar el día o al
+     * llegar al límite, sin invalidación explícita.
+     */
+    private final Map<String, CachedSigningKey> signingKeys = new ConcurrentHashMap<>();
+    private final boolean signingKeyCacheEnabled;
+    private volatile String currentDateStamp;
+    
+    public AwsSigner() {
+        this(true);
+    }
+    
+    /**
+     * @param signingKeyCacheEnabled false para derivar la clave en cada petición (benchmarks)
+     */
+    public AwsSigner(boolean signingKeyCacheEnabled) {
+        this.signingKeyCacheEnabled = signingKeyCacheEnabled;
+    }
     
     /**
      * Calcula el hash SHA-256 de un contenido
      */
     public String hashContent(String content) {
-        try {
-            if (content == null || content.isEmpty()) {
-                return EMPTY_STRING_SHA256;
-            }
-            
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(content.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(digest).toLowerCase();
-        } catch (Exception e) {
-            log.error("Error calculando hash de contenido: {}", e.getMessage(), e);
-            throw new RuntimeException("Error calculando hash de contenido", e);
+        if (content == null || content.isEmpty()) {
+            return EMPTY_STRING_SHA256;
+        }
+        return sha256Hex(content);
+    }
+    
+    /**
+     * Calcula el hash SHA-256 de un cuerpo ya serializado, sin copiarlo
+     */
+    public String hashContent(byte[] content, int offset, int length) {
+        if (length == 0) {
+            return EMPTY_STRING_SHA256;
         }
+            
+        MessageDigest md = SHA256.get();
+        md.update(content, offset, length);
+        return toHex(md.digest());
     }
     
     /**
@@ -234,31 +299,70 @@ public class AwsSigner {
                                            Map<String, String> headers,
                                            String payloadHash,
                                            AwsCredentials credentials) {
+        // Encabezados en minúsculas y ordenados, una sola vez para la petición y la lista firmada
+        String[][] canonicalHeaders = canonicalHeaders(headers);
+        StringBuilder signedHeaders = new StringBuilder(canonicalHeaders.length * 16);
+        for (String[] header : canonicalHeaders) {
+            if (signedHeaders.length() > 0) {
+                signedHeaders.append(';');
+            }
+            signedHeaders.append(header[0]);
+        }
+        
+        // Paso 1: Crear la petición canónica
+        // HTTPRequestMethod \n CanonicalURI \n CanonicalQueryString \n CanonicalHeaders \n SignedHeaders \n HexEncode(Hash(RequestPayload))
+        StringBuilder canonicalRequest = canonicalBuilder();
+        canonicalRequest.append(method).append('\n');
+        canonicalRequest.append(uri == null || uri.isEmpty() ? "/" : uri).append('\n');
+        appendCanonicalQuery(canonicalRequest, queryString);
+        canonicalRequest.append('\n');
+        for (String[] header : canonicalHeaders) {
+            canonicalRequest.append(header[0]).append(':').append(header[1]).append('\n');
+        }
+        canonicalRequest.append('\n');
+        canonicalRequest.append(signedHeaders).append('\n');
+        canonicalRequest.append(payloadHash);
+        
+        // Pasos 2 a 4: cadena de firma, clave de firma y firma
+        return authorize(awsDate, dateStamp, region, service, canonicalRequest, signedHeaders.toString(), credentials);
+    }
+    
+    /**
+     * Firma una petición canónica ya construida y devuelve el encabezado de autorización.
+     * Lo usan computeAuthorizationHeader y las plantillas precalculadas (SigV4Template).
+     */
+    String authorize(String awsDate,
+                     String dateStamp,
+                     String region,
+                     String service,
+                     CharSequence canonicalRequest,
+                     String signedHeaders,
+                     AwsCredentials credentials) {
         try {
-            // Paso 1: Crear la petición canónica
-            String canonicalRequest = createCanonicalRequest(method, uri, queryString, headers, payloadHash);
-            
             // Paso 2: Crear la cadena de firma
-            String stringToSign = createStringToSign(awsDate, dateStamp, region, service, canonicalRequest);
+            // Algorithm \n RequestDateTime \n CredentialScope \n HashedCanonicalRequest
+            String hashedCanonicalRequest = sha256Hex(canonicalRequest);
+            StringBuilder stringToSign = STRING_TO_SIGN.get();
+            stringToSign.setLength(0);
+            stringToSign.append(ALGORITHM).append('\n')
+                    .append(awsDate).append('\n')
+                    .append(dateStamp).append('/').append(region).append('/').append(service).append("/aws4_request").append('\n')
+                    .append(hashedCanonicalRequest);
             
-            // Paso 3: Calcular la clave de firma
-            byte[] signingKey = getSignatureKey(credentials.getSecretAccessKey(), dateStamp, region, service);
+            // Paso 3: Obtener la clave de firma (de caché si ya se derivó hoy)
+            SecretKeySpec signingKey = getSigningKey(credentials, dateStamp, region, service);
             
             // Paso 4: Calcular la firma
-            byte[] signature = hmacSha256(signingKey, stringToSign);
-            String signatureHex = bytesToHex(signature).toLowerCase();
+            String signatureHex = toHex(hmacSha256(signingKey, stringToSign));
             
             // Construir el encabezado de autorización
-            return String.format(
-                "%s Credential=%s/%s/%s/%s/aws4_request, SignedHeaders=%s, Signature=%s",
-                "AWS4-HMAC-SHA256",
-                credentials.getAccessKeyId(),
-                dateStamp,
-                region,
-                service,
-                getSignedHeadersString(headers),
-                signatureHex
-            );
+            return new StringBuilder(160 + signedHeaders.length())
+                    .append(ALGORITHM)
+                    .append(" Credential=").append(credentials.getAccessKeyId())
+                    .append('/').append(dateStamp).append('/').append(region).append('/').append(service).append("/aws4_request")
+                    .append(", SignedHeaders=").append(signedHeaders)
+                    .append(", Signature=").append(signatureHex)
+                    .toString();
         } catch (Exception e) {
             log.error("Error computando encabezado de autorización: {}", e.getMessage(), e);
             throw new RuntimeException("Error computando encabezado de autorización", e);
@@ -266,55 +370,59 @@ public class AwsSigner {
     }
     
     /**
-     * Crea la petición canónica según el formato AWS
-     * Basado en la imagen 3
+     * Builder por hilo, vacío, para construir la petición canónica
+     */
+    static StringBuilder canonicalBuilder() {
+        StringBuilder builder = CANONICAL_REQUEST.get();
+        if (builder.capacity() > MAX_RETAINED_BUFFER) {
+            builder = new StringBuilder(1024);
+            CANONICAL_REQUEST.set(builder);
+        }
+        builder.setLength(0);
+        return builder;
+    }
+    
+    /**
+     * Devuelve la clave de firma de caché o la deriva y la guarda
      */
-    private String createCanonicalRequest(String method, 
-                                        String uri, 
-                                        String queryString, 
-                                        Map<String, String> headers,
-                                        String payloadHash) {
-        // Formato:
-        // HTTPRequestMethod + '\n' +
-        // CanonicalURI + '\n' +
-        // CanonicalQueryString + '\n' +
-        // CanonicalHeaders + '\n' +
-        // SignedHeaders + '\n' +
-        // HexEncode(Hash(RequestPayload))
+    private SecretKeySpec getSigningKey(AwsCredentials credentials, String dateStamp, String region, String service) {
+        String secretKey = credentials.getSecretAccessKey();
+        if (!signingKeyCacheEnabled) {
+            return new SecretKeySpec(getSignatureKey(secretKey, dateStamp, region, service), HMAC_SHA256);
+        }
         
-        StringBuilder canonicalRequest = new StringBuilder();
-        canonicalRequest.append(method).append('\n');
-        canonicalRequest.append(uri == null || uri.isEmpty() ? "/" : uri).append('\n');
-        canonicalRequest.append(canonicalQueryParameters(queryString)).append('\n');
-        canonicalRequest.append(canonicalHeaders(headers)).append('\n');
-        canonicalRequest.append(getSignedHeadersString(headers)).append('\n');
-        canonicalRequest.append(payloadHash);
+        String cacheKey = credentials.getAccessKeyId() + "/" + dateStamp + "/" + region + "/" + service;
+        CachedSigningKey cached = signingKeys.get(cacheKey);
+        // La misma access key con otro secreto indica credenciales rotadas
+        if (cached != null && cached.secretKey.equals(secretKey)) {
+            return cached.key;
+        }
+        
+        // Cambio de día UTC: las claves de otros días ya no sirven
+        if (!dateStamp.equals(currentDateStamp)) {
+            signingKeys.keySet().removeIf(key -> !key.contains("/" + dateStamp + "/"));
+            currentDateStamp = dateStamp;
+        }
+        if (signingKeys.size() >= MAX_CACHED_SIGNING_KEYS) {
+            signingKeys.clear();
+        }
         
-        return canonicalRequest.toString();
+        SecretKeySpec key = new SecretKeySpec(getSignatureKey(secretKey, dateStamp, region, service), HMAC_SHA256);
+        signingKeys.put(cacheKey, new CachedSigningKey(secretKey, key));
+        return key;
     }
     
     /**
-     * Crea la cadena de firma (StringToSign)
-     * Basado en la imagen 2
+     * Clave de firma derivada junto con el secreto del que procede
      */
-    private String createStringToSign(String awsDate, 
-                                    String dateStamp, 
-                                    String region, 
-                                    String service,
-                                    String canonicalRequest) {
-        // Formato:
-        // Algorithm + '\n' +
-        // RequestDateTime + '\n' +
-        // CredentialScope + '\n' +
-        // HashedCanonicalRequest
-        
-        String credentialScope = String.format("%s/%s/%s/aws4_request", dateStamp, region, service);
-        String hashedCanonicalRequest = hashContent(canonicalRequest);
+    private static final class CachedSigningKey {
+        private final String secretKey;
+        private final SecretKeySpec key;
         
-        return "AWS4-HMAC-SHA256" + '\n' + 
-               awsDate + '\n' + 
-               credentialScope + '\n' + 
-               hashedCanonicalRequest;
+        private CachedSigningKey(String secretKey, SecretKeySpec key) {
+            this.secretKey = secretKey;
+            this.key = key;
+        }
     }
     
     /**
@@ -324,10 +432,10 @@ public class AwsSigner {
     private byte[] getSignatureKey(String secretKey, String dateStamp, String region, String service) {
         try {
             String keyPrefix = "AWS4" + secretKey;
-            byte[] kDate = hmacSha256(keyPrefix.getBytes(StandardCharsets.UTF_8), dateStamp);
-            byte[] kRegion = hmacSha256(kDate, region);
-            byte[] kService = hmacSha256(kRegion, service);
-            return hmacSha256(kService, "aws4_request");
+            byte[] kDate = hmacSha256(new SecretKeySpec(keyPrefix.getBytes(StandardCharsets.UTF_8), HMAC_SHA256), dateStamp);
+            byte[] kRegion = hmacSha256(new SecretKeySpec(kDate, HMAC_SHA256), region);
+            byte[] kService = hmacSha256(new SecretKeySpec(kRegion, HMAC_SHA256), service);
+            return hmacSha256(new SecretKeySpec(kService, HMAC_SHA256), "aws4_request");
         } catch (Exception e) {
             log.error("Error obteniendo clave de firma: {}", e.getMessage(), e);
             throw new RuntimeException("Error obteniendo clave de firma", e);
@@ -335,13 +443,16 @@ public class AwsSigner {
     }
     
     /**
-     * Implementación de HMAC-SHA256
+     * Implementación de HMAC-SHA256 con el Mac del hilo
      */
-    private byte[] hmacSha256(byte[] key, String data) {
+    private static byte[] hmacSha256(SecretKeySpec key, CharSequence data) {
         try {
-            Mac mac = Mac.getInstance(HMAC_SHA256);
-            mac.init(new SecretKeySpec(key, HMAC_SHA256));
-            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            Mac mac = MAC.get();
+            mac.init(key);
+            int length = encodeUtf8(data);
+            mac.update(UTF8_BUFFER.get(), 0, length);
+            releaseLargeUtf8Buffer();
+            return mac.doFinal();
         } catch (Exception e) {
             log.error("Error calculando HMAC-SHA256: {}", e.getMessage(), e);
             throw new RuntimeException("Error calculando HMAC-SHA256", e);
@@ -349,102 +460,142 @@ public class AwsSigner {
     }
     
     /**
-     * Convierte un array de bytes a su representación hexadecimal
+     * SHA-256 en hexadecimal de un texto, codificado en UTF-8 sin crear un byte[] intermedio
      */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
+    private static String sha256Hex(CharSequence content) {
+        MessageDigest md = SHA256.get();
+        int length = encodeUtf8(content);
+        md.update(UTF8_BUFFER.get(), 0, length);
+        releaseLargeUtf8Buffer();
+        return toHex(md.digest());
     }
     
     /**
-     * Crea los encabezados canónicos
-     * Basado en la imagen 3
+     * Codifica el texto en UTF-8 sobre el buffer del hilo y devuelve los bytes escritos
      */
-    private String canonicalHeaders(Map<String, String> headers) {
-        // Convertir las claves a minúsculas y ordenarlas
-        List<String> sortedKeys = new ArrayList<>(headers.keySet());
-        sortedKeys.sort(String::compareToIgnoreCase);
-        
-        StringBuilder result = new StringBuilder();
-        for (String key : sortedKeys) {
-            result.append(key.toLowerCase().trim())
-                  .append(':')
-                  .append(headers.get(key).trim())
-                  .append('\n');
+    private static int encodeUtf8(CharSequence text) {
+        int length = text.length();
+        byte[] buffer = UTF8_BUFFER.get();
+        if (buffer.length < length * 3) {
+            buffer = new byte[length * 3];
+            UTF8_BUFFER.set(buffer);
         }
         
-        return result.toString();
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Surrogate sin pareja: mismo reemplazo que String.getBytes
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
     }
     
     /**
-     * Obtiene la cadena de encabezados firmados
+     * Descarta el buffer UTF-8 del hilo si creció por un texto grande
      */
-    private String getSignedHeadersString(Map<String, String> headers) {
-        return headers.keySet().stream()
-                .map(key -> key.toLowerCase().trim())
-                .sorted()
-                .collect(Collectors.joining(";"));
+    private static void releaseLargeUtf8Buffer() {
+        if (UTF8_BUFFER.get().length > MAX_RETAINED_BUFFER) {
+            UTF8_BUFFER.set(new byte[2048]);
+        }
     }
     
     /**
-     * Crea los parámetros de consulta canónicos
+     * Convierte un array de bytes a hexadecimal en minúsculas mediante tabla
      */
-    private String canonicalQueryParameters(String queryString) {
+    public static String toHex(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+            result[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+        }
+        return new String(result);
+    }
+    
+    /**
+     * Crea los encabezados canónicos: nombre en minúsculas y valor sin espacios, ordenados
+     * Basado en la imagen 3
+     */
+    private static String[][] canonicalHeaders(Map<String, String> headers) {
+        String[][] result = new String[headers.size()][];
+        int i = 0;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            result[i++] = new String[] {header.getKey().toLowerCase(Locale.ROOT).trim(), header.getValue().trim()};
+        }
+        Arrays.sort(result, BY_NAME_THEN_VALUE);
+        return result;
+    }
+    
+    /**
+     * Añade los parámetros de consulta canónicos, ordenados por nombre y valor
+     */
+    private static void appendCanonicalQuery(StringBuilder target, String queryString) {
         if (queryString == null || queryString.isEmpty()) {
-            return "";
+            return;
         }
         
         // Parsear los parámetros de consulta
         String[] pairs = queryString.split("&");
-        Map<String, List<String>> paramsMap = new TreeMap<>();
-        
-        for (String pair : pairs) {
+        String[][] params = new String[pairs.length][];
+        for (int i = 0; i < pairs.length; i++) {
+            String pair = pairs[i];
             int idx = pair.indexOf('=');
             String key = idx > 0 ? urlEncode(pair.substring(0, idx)) : urlEncode(pair);
             String value = idx > 0 && pair.length() > idx + 1 ? urlEncode(pair.substring(idx + 1)) : "";
-            
-            if (!paramsMap.containsKey(key)) {
-                paramsMap.put(key, new ArrayList<>());
-            }
-            paramsMap.get(key).add(value);
+            params[i] = new String[] {key, value};
         }
+        Arrays.sort(params, BY_NAME_THEN_VALUE);
         
         // Construir la cadena canónica de parámetros
-        StringBuilder result = new StringBuilder();
-        boolean first = true;
-        
-        for (Map.Entry<String, List<String>> param : paramsMap.entrySet()) {
-            List<String> values = param.getValue();
-            Collections.sort(values);
-            
-            for (String value : values) {
-                if (!first) {
-                    result.append('&');
-                }
-                result.append(param.getKey()).append('=').append(value);
-                first = false;
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                target.append('&');
             }
+            target.append(params[i][0]).append('=').append(params[i][1]);
         }
-        
-        return result.toString();
     }
     
     /**
      * Codifica una cadena para URL
      */
-    private String urlEncode(String value) {
+    private static String urlEncode(String value) {
+        // Solo codificar caracteres que AWS requiere codificar
+        return value
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~")
+                .replace("%2F", "/");
+    }
+    
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC_SHA256);
+        } catch (Exception e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+    
+    private static MessageDigest newSha256() {
         try {
-            // Solo codificar caracteres que AWS requiere codificar
-            return value
-                    .replace("+", "%20")
-                    .replace("*", "%2A")
-                    .replace("%7E", "~")
-                    .replace("%2F", "/");
+            return MessageDigest.getInstance("SHA-256");
         } catch (Exception e) {
-            return value;
+            throw new IllegalStateException("SHA-256 no disponible", e);
         }
     }
 }
@@ -547,7 +698,7 @@ import com.empresa.connector.config.properties.AwsProperties;
 import com.empresa.connector.model.AwsCredentials;
 import com.empresa.connector.model.EventBridgeResponse;
 import com.empresa.connector.model.eventbridge.EventBridgeMessage;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.empresa.connector.util.JsonCodecs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpMethod;
@@ -562,7 +713,7 @@ public class EventBridgeService {
     private final AwsProperties awsProperties;
     private final AwsIamService awsIamService;
     private final AwsAuthService awsAuthService;
-    private final ObjectMapper objectMapper;
+    private final JsonCodecs jsonCodecs;
     
     /**
      * Envía un mensaje a EventBridge usando AWS1
@@ -662,7 +813,7 @@ public class EventBridgeService {
     private EventBridgeMessage parseMessage(String message) {
         try {
             if (message instanceof String) {
-                return objectMapper.readValue(message, EventBridgeMessage.class);
+                return jsonCodecs.readEventBridgeMessage(message);
             } else {
                 return (EventBridgeMessage) message;
             }
@@ -733,7 +884,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class EventBridgeMessage {
@@ -761,38 +912,70 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
+import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class CertificateLoader {
 
+    /**
+     * Material ya parseado por ruta. Solo se vuelve a leer si cambia la fecha de
+     * modificación del fichero, así que las renovaciones de credenciales no repiten
+     * la lectura ni la decodificación; quien cachee objetos derivados puede comparar
+     * la instancia devuelta para saber si el material ha cambiado.
+     */
+    private final Map<String, Cached<X509Certificate[]>> certificateChains = new ConcurrentHashMap<>();
+    private final Map<String, Cached<PrivateKey>> privateKeys = new ConcurrentHashMap<>();
+    
     /**
      * Carga un certificado X509 desde un archivo
      */
     public X509Certificate loadCertificate(String certificatePath) {
+        return loadCertificateChain(certificatePath)[0];
+    }
+    
+    /**
+     * Carga la cadena de certificados X509 de un archivo, el certificado final primero
+     */
+    public X509Certificate[] loadCertificateChain(String certificatePath) {
         try {
-            // Intentar cargar desde el sistema de archivos
-            try {
-                InputStream is = Files.newInputStream(Paths.get(certificatePath));
-                CertificateFactory cf = CertificateFactory.getInstance("X.509");
-                return (X509Certificate) cf.generateCertificate(is);
-            } catch (Exception fsException) {
-                // Si falla, intentar cargar desde el classpath
-                InputStream is = new ClassPathResource(certificatePath).getInputStream();
+            long lastModified = lastModified(certificatePath);
+            Cached<X509Certificate[]> cached = certificateChains.get(certificatePath);
+            if (cached != null && cached.lastModified == lastModified) {
+                return cached.value;
+            }
+            
+            X509Certificate[] chain;
+            try (InputStream is = open(certificatePath)) {
                 CertificateFactory cf = CertificateFactory.getInstance("X.509");
-                return (X509Certificate) cf.generateCertificate(is);
+                Collection<? extends Certificate> certificates = cf.generateCertificates(is);
+                if (certificates.isEmpty()) {
+                    throw new IllegalArgumentException("No hay certificados en " + certificatePath);
+                }
+                chain = certificates.toArray(new X509Certificate[0]);
             }
+            
+            certificateChains.put(certificatePath, new Cached<>(chain, lastModified));
+            log.info("Certificado cargado desde {} ({} en la cadena)", certificatePath, chain.length);
+            return chain;
         } catch (Exception e) {
             log.error("Error cargando certificado: {}", e.getMessage(), e);
             throw new RuntimeException("Error cargando certificado", e);
@@ -800,22 +983,21 @@ public class CertificateLoader {
     }
     
     /**
-     * Carga una clave privada desde un archivo
+     * Carga una clave privada PKCS#8 (RSA o EC) desde un archivo
      */
     public PrivateKey loadPrivateKey(String keyPath) {
         try {
+            long lastModified = lastModified(keyPath);
+            Cached<PrivateKey> cached = privateKeys.get(keyPath);
+            if (cached != null && cached.lastModified == lastModified) {
+                return cached.value;
+            }
+            
             // Leer el contenido del archivo
             String privateKeyPEM;
-            
-            // Intentar cargar desde el sistema de archivos
-            try {
-                privateKeyPEM = Files.readString(Paths.get(keyPath));
-            } catch (Exception fsException) {
-                // Si falla, intentar cargar desde el classpath
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(new ClassPathResource(keyPath).getInputStream()))) {
-                    privateKeyPEM = reader.lines().collect(Collectors.joining("\n"));
-                }
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(open(keyPath), StandardCharsets.UTF_8))) {
+                privateKeyPEM = reader.lines().collect(Collectors.joining("\n"));
             }
             
             // Eliminar cabeceras y saltos de línea
@@ -828,14 +1010,55 @@ public class CertificateLoader {
             byte[] encoded = Base64.getDecoder().decode(privateKeyPEM);
             
             // Crear la clave privada
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(encoded);
-            return keyFactory.generatePrivate(keySpec);
+            PrivateKey privateKey = generatePrivateKey(encoded);
+            privateKeys.put(keyPath, new Cached<>(privateKey, lastModified));
+            return privateKey;
         } catch (Exception e) {
             log.error("Error cargando clave privada: {}", e.getMessage(), e);
             throw new RuntimeException("Error cargando clave privada", e);
         }
     }
+    
+    /**
+     * Abre la ruta en el sistema de archivos o, si no existe, en el classpath
+     */
+    private InputStream open(String path) throws IOException {
+        Path file = Paths.get(path);
+        if (Files.isRegularFile(file)) {
+            return Files.newInputStream(file);
+        }
+        return new ClassPathResource(path).getInputStream();
+    }
+    
+    /**
+     * Fecha de modificación del fichero; los recursos del classpath no cambian
+     */
+    private long lastModified(String path) throws IOException {
+        Path file = Paths.get(path);
+        return Files.isRegularFile(file) ? Files.getLastModifiedTime(file).toMillis() : -1L;
+    }
+    
+    private PrivateKey generatePrivateKey(byte[] encoded) throws Exception {
+        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(encoded);
+        try {
+            return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
+        } catch (InvalidKeySpecException e) {
+            return KeyFactory.getInstance("EC").generatePrivate(keySpec);
+        }
+    }
+    
+    /**
+     * Valor parseado junto con la fecha de modificación del fichero del que procede
+     */
+    private static final class Cached<T> {
+        private final T value;
+        private final long lastModified;
+        
+        private Cached(T value, long lastModified) {
+            this.value = value;
+            this.lastModified = lastModified;
+        }
+    }
 }
 
 /**
@@ -861,6 +1084,8 @@ public class RestTemplateConfig {
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
         factory.setConnectTimeout(30000); // 30 segundos
         factory.setReadTimeout(30000);    // 30 segundos
+        // El cuerpo firmado se escribe directamente en la conexión, sin buffer intermedio
+        factory.setBufferRequestBody(false);
         return factory;
     }
 }
\ No newline at end of file
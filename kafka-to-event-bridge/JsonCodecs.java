@@ -0,0 +1,120 @@
+package com.empresa.connector.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Optional Jackson modules. Spring Boot registers every Module bean in the shared
+ * ObjectMapper, so the readers and writers in JsonCodecs pick them up as well.
+ */
+@Configuration
+public class JsonConfig {
+    
+    /**
+     * Replaces reflective getter, setter and constructor calls with LambdaMetafactory
+     * generated accessors
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "json", name = "blackbird.enabled", havingValue = "true")
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
+
+package com.empresa.connector.util;
+
+import com.empresa.connector.model.EventBridgeResponse;
+import com.empresa.connector.model.eventbridge.EventBridgeMessage;
+import com.empresa.connector.model.kafka.KafkaPaymentMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Pre-built Jackson readers and writers for the payloads the connector handles.
+ *
+ * ObjectMapper.readValue(json, Class) and writeValueAsString look the root
+ * (de)serializer up on every call. The readers and writers here are created once
+ * from the application ObjectMapper, with their root (de)serializers fetched up
+ * front, and are immutable and thread-safe. Output goes through Jackson's own
+ * recycled buffers, or straight into the caller's stream with writeTo.
+ */
+@Component
+public class JsonCodecs {
+    
+    private final ObjectReader treeReader;
+    private final ObjectReader kafkaPaymentMessageReader;
+    private final ObjectReader eventBridgeMessageReader;
+    private final ObjectReader eventBridgeResponseReader;
+    private final ObjectWriter treeWriter;
+    private final ObjectWriter eventBridgeMessageWriter;
+    private final ObjectWriter writer;
+    
+    public JsonCodecs(ObjectMapper objectMapper) {
+        this.treeReader = objectMapper.readerFor(JsonNode.class);
+        this.kafkaPaymentMessageReader = objectMapper.readerFor(KafkaPaymentMessage.class);
+        this.eventBridgeMessageReader = objectMapper.readerFor(EventBridgeMessage.class);
+        this.eventBridgeResponseReader = objectMapper.readerFor(EventBridgeResponse.class);
+        this.treeWriter = objectMapper.writerFor(JsonNode.class);
+        this.eventBridgeMessageWriter = objectMapper.writerFor(EventBridgeMessage.class);
+        this.writer = objectMapper.writer();
+    }
+    
+    public JsonNode readTree(String json) throws JsonProcessingException {
+        return treeReader.readValue(json);
+    }
+    
+    public KafkaPaymentMessage readKafkaPaymentMessage(String json) throws JsonProcessingException {
+        return kafkaPaymentMessageReader.readValue(json);
+    }
+    
+    public EventBridgeMessage readEventBridgeMessage(String json) throws JsonProcessingException {
+        return eventBridgeMessageReader.readValue(json);
+    }
+    
+    public EventBridgeResponse readEventBridgeResponse(InputStream json) throws IOException {
+        return eventBridgeResponseReader.readValue(json);
+    }
+    
+    public String writeTree(JsonNode node) throws JsonProcessingException {
+        return treeWriter.writeValueAsString(node);
+    }
+    
+    public String writeEventBridgeMessage(EventBridgeMessage message) throws JsonProcessingException {
+        return eventBridgeMessageWriter.writeValueAsString(message);
+    }
+    
+    /**
+     * Any other value, serialized with the writer for its runtime type
+     */
+    public String writeAsString(Object value) throws JsonProcessingException {
+        if (value instanceof EventBridgeMessage) {
+            return writeEventBridgeMessage((EventBridgeMessage) value);
+        } else if (value instanceof JsonNode) {
+            return writeTree((JsonNode) value);
+        }
+        return writer.writeValueAsString(value);
+    }
+    
+    /**
+     * Streams the value into the output, without an intermediate String or array.
+     * Jackson closes the output when done.
+     */
+    public void writeTo(OutputStream out, Object value) throws IOException {
+        if (value instanceof EventBridgeMessage) {
+            eventBridgeMessageWriter.writeValue(out, value);
+        } else {
+            writer.writeValue(out, value);
+        }
+    }
+}
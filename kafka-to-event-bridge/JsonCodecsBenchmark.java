@@ -0,0 +1,93 @@
+package com.empresa.connector.util;
+
+import com.empresa.connector.model.eventbridge.EventBridgeMessage;
+import com.empresa.connector.model.kafka.KafkaPaymentMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the payment record and EventBridge message JSON round trips,
+ * through ObjectMapper.readValue/writeValueAsString versus the pre-built readers and
+ * writers of JsonCodecs, with and without the Blackbird module.
+ *
+ * Run with: mvn -P benchmark test-compile exec:java -Dexec.args="JsonCodecsBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecsBenchmark {
+    
+    private static final String KAFKA_MESSAGE = "{\"G6181_IDEMPR\":\"0049\",\"G6181_CCENCONT\":\"1234\","
+            + "\"G6181_TIPOPRD\":\"300\",\"G6181_CCONTRAT\":\"0000123456\",\"G6181_NUMORD\":\"000042\","
+            + "\"G6181_JNUMDET\":\"001\",\"G6181_FECHAEJE\":\"2025-01-01\",\"G6181_CODESTA2\":\"13\"}";
+    private static final String EVENT_BRIDGE_MESSAGE = "{\"detail-type\":\"Transfer_KO\",\"source\":\"openbank.payments\","
+            + "\"detail\":{\"payload\":{\"operationId\":\"1234000042001-01001-00000-2025-01-01\"}}}";
+    
+    private ObjectMapper objectMapper;
+    private JsonCodecs codecs;
+    private JsonCodecs blackbirdCodecs;
+    private EventBridgeMessage eventBridgeMessage;
+    
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        codecs = new JsonCodecs(objectMapper);
+        blackbirdCodecs = new JsonCodecs(new ObjectMapper().registerModule(new BlackbirdModule()));
+        eventBridgeMessage = objectMapper.readValue(EVENT_BRIDGE_MESSAGE, EventBridgeMessage.class);
+    }
+    
+    @Benchmark
+    public KafkaPaymentMessage readWithObjectMapper() throws Exception {
+        return objectMapper.readValue(KAFKA_MESSAGE, KafkaPaymentMessage.class);
+    }
+    
+    @Benchmark
+    public KafkaPaymentMessage readWithCodecs() throws Exception {
+        return codecs.readKafkaPaymentMessage(KAFKA_MESSAGE);
+    }
+    
+    @Benchmark
+    public KafkaPaymentMessage readWithBlackbird() throws Exception {
+        return blackbirdCodecs.readKafkaPaymentMessage(KAFKA_MESSAGE);
+    }
+    
+    @Benchmark
+    public String writeWithObjectMapper() throws Exception {
+        return objectMapper.writeValueAsString(eventBridgeMessage);
+    }
+    
+    @Benchmark
+    public String writeWithCodecs() throws Exception {
+        return codecs.writeEventBridgeMessage(eventBridgeMessage);
+    }
+    
+    @Benchmark
+    public String writeWithBlackbird() throws Exception {
+        return blackbirdCodecs.writeEventBridgeMessage(eventBridgeMessage);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : JsonCodecsBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,80 @@
+package com.empresa.connector.util;
+
+import com.empresa.connector.model.EventBridgeResponse;
+import com.empresa.connector.model.eventbridge.EventBridgeDetail;
+import com.empresa.connector.model.eventbridge.EventBridgeMessage;
+import com.empresa.connector.model.eventbridge.EventBridgePayload;
+import com.empresa.connector.model.kafka.KafkaPaymentMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JsonCodecs
+ */
+public class JsonCodecsTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonCodecs codecs = new JsonCodecs(objectMapper);
+    
+    @Test
+    void readKafkaPaymentMessage_mapsG6181Fields() throws IOException {
+        KafkaPaymentMessage message = codecs.readKafkaPaymentMessage(
+                "{\"G6181_CCENCONT\":\"1234\",\"G6181_NUMORD\":\"000042\",\"G6181_JNUMDET\":\"001\","
+                        + "\"G6181_FECHAEJE\":\"2025-01-01\",\"G6181_CODESTA2\":\"13\"}");
+        
+        assertEquals("13", message.getCodesta2());
+        assertEquals("1234000042001-01001-00000-2025-01-01", message.buildOperationId());
+    }
+    
+    @Test
+    void writeEventBridgeMessage_matchesObjectMapper() throws IOException {
+        EventBridgeMessage message = EventBridgeMessage.builder()
+                .detailType("Transfer_KO")
+                .source("openbank.payments")
+                .detail(EventBridgeDetail.builder()
+                        .payload(EventBridgePayload.builder().operationId("op-1").build())
+                        .build())
+                .build();
+        
+        String json = codecs.writeEventBridgeMessage(message);
+        
+        assertEquals(objectMapper.writeValueAsString(message), json);
+        assertEquals(message, codecs.readEventBridgeMessage(json));
+        assertEquals(json, codecs.writeAsString(message));
+    }
+    
+    @Test
+    void writeTree_roundTripsReadTree() throws IOException {
+        ObjectNode node = (ObjectNode) codecs.readTree("{\"a\":1}");
+        node.put("awsDestiny", "aws1");
+        
+        assertEquals("{\"a\":1,\"awsDestiny\":\"aws1\"}", codecs.writeTree(node));
+    }
+    
+    @Test
+    void readEventBridgeResponse_readsFailedEntries() throws IOException {
+        EventBridgeResponse response = codecs.readEventBridgeResponse(new ByteArrayInputStream(
+                "{\"Entries\":[{\"ErrorCode\":\"ThrottlingException\"}],\"FailedEntryCount\":1}"
+                        .getBytes(StandardCharsets.UTF_8)));
+        
+        assertEquals(1, response.getFailedEntryCount());
+        assertEquals("ThrottlingException", response.getEntries().get(0).getErrorCode());
+    }
+    
+    @Test
+    void writeTo_streamsSameBytesAsWriteAsString() throws IOException {
+        RequestBodyBuffer buffer = new RequestBodyBuffer();
+        codecs.writeTo(buffer, Collections.singletonMap("Detail", "pago ñ"));
+        
+        assertEquals(codecs.writeAsString(Collections.singletonMap("Detail", "pago ñ")),
+                new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,174 @@
+package com.empresa.connector.util;
+
+/**
+ * Finds the value of one field in a JSON document without parsing it.
+ *
+ * The text is walked once, character by character: strings are stepped over as a
+ * whole (so a field name quoted inside a value never matches), and the first key
+ * equal to the field name, at any depth, yields its value. Nothing is allocated
+ * until the value is returned, and not even then for values without escapes,
+ * which come back as a view over the original text.
+ *
+ * Not a validator: malformed input gives null or a best-effort value, never an
+ * exception, and the caller is expected to parse the document properly later.
+ */
+public final class JsonFieldScanner {
+    
+    private JsonFieldScanner() {
+    }
+    
+    /**
+     * Value of the first occurrence of the field
+     *
+     * @param json JSON text
+     * @param field Field name, without escapes
+     * @return Unescaped string value, the literal text of a number, true, false or
+     *         null, or null if the field is missing or its value is an object or array
+     */
+    public static CharSequence find(CharSequence json, String field) {
+        int start = valueStart(json, field);
+        if (start < 0) {
+            return null;
+        }
+        char first = json.charAt(start);
+        if (first == '"') {
+            int end = stringEnd(json, start);
+            if (end < 0) {
+                return null;
+            }
+            return hasEscapes(json, start + 1, end)
+                    ? unescape(json, start + 1, end)
+                    : json.subSequence(start + 1, end);
+        }
+        if (first == '{' || first == '[') {
+            return null;
+        }
+        return json.subSequence(start, literalEnd(json, start));
+    }
+    
+    /**
+     * Position just past the number or literal starting at start
+     */
+    public static int literalEnd(CharSequence json, int start) {
+        int end = start;
+        while (end < json.length() && ",}] \t\r\n".indexOf(json.charAt(end)) < 0) {
+            end++;
+        }
+        return end;
+    }
+    
+    /**
+     * Position of the first character of the field's value, or -1
+     */
+    private static int valueStart(CharSequence json, String field) {
+        int length = json.length();
+        int i = 0;
+        while (i < length) {
+            if (json.charAt(i) != '"') {
+                i++;
+                continue;
+            }
+            int end = stringEnd(json, i);
+            if (end < 0) {
+                return -1;
+            }
+            int next = skipWhitespace(json, end + 1);
+            if (next < length && json.charAt(next) == ':' && keyEquals(json, i + 1, end, field)) {
+                int value = skipWhitespace(json, next + 1);
+                return value < length ? value : -1;
+            }
+            i = end + 1;
+        }
+        return -1;
+    }
+    
+    /**
+     * Position of the closing quote of the string opened at start, or -1
+     */
+    public static int stringEnd(CharSequence json, int start) {
+        for (int i = start + 1; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    public static int skipWhitespace(CharSequence json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    private static boolean keyEquals(CharSequence json, int start, int end, String field) {
+        if (end - start != field.length()) {
+            return false;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            if (json.charAt(start + i) != field.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public static boolean hasEscapes(CharSequence json, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (json.charAt(i) == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String unescape(CharSequence json, int start, int end) {
+        return unescape(json, start, end, new StringBuilder(end - start)).toString();
+    }
+    
+    /**
+     * Appends the string contents between start and end with escapes resolved
+     */
+    public static StringBuilder unescape(CharSequence json, int start, int end, StringBuilder sb) {
+        for (int i = start; i < end; i++) {
+            char c = json.charAt(i);
+            if (c == '\\') {
+                c = escaped(json, i);
+                i += json.charAt(i + 1) == 'u' ? 5 : 1;
+            }
+            sb.append(c);
+        }
+        return sb;
+    }
+    
+    /**
+     * Character denoted by the escape sequence starting at the backslash
+     */
+    private static char escaped(CharSequence json, int backslash) {
+        char c = json.charAt(backslash + 1);
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = backslash + 2; i < backslash + 6 && i < json.length(); i++) {
+                    value = (value << 4) | Character.digit(json.charAt(i), 16);
+                }
+                return (char) value;
+            default:
+                // \" \\ \/
+                return c;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.empresa.connector.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JsonFieldScanner
+ */
+public class JsonFieldScannerTest {
+    
+    private static final String PAYMENT = "{\"G6181_IDEMPR\":\"0049\",\"G6181_CCENCONT\":\"1234\","
+            + "\"G6181_NUMORD\": 42 ,\"G6181_CODESTA2\" : \"13\",\"active\":true}";
+    
+    @Test
+    void find_stringValue_returnsValue() {
+        assertEquals("13", JsonFieldScanner.find(PAYMENT, "G6181_CODESTA2").toString());
+    }
+    
+    @Test
+    void find_literalValues_returnText() {
+        assertEquals("42", JsonFieldScanner.find(PAYMENT, "G6181_NUMORD").toString());
+        assertEquals("true", JsonFieldScanner.find(PAYMENT, "active").toString());
+    }
+    
+    @Test
+    void find_missingField_returnsNull() {
+        assertNull(JsonFieldScanner.find(PAYMENT, "G6181_FECHAEJE"));
+    }
+    
+    @Test
+    void find_fieldNameInsideValue_isNotAKey() {
+        String json = "{\"note\":\"\\\"G6181_CODESTA2\\\":\\\"13\\\"\",\"G6181_CODESTA2\":\"07\"}";
+        
+        assertEquals("07", JsonFieldScanner.find(json, "G6181_CODESTA2").toString());
+    }
+    
+    @Test
+    void find_nestedField_returnsFirstOccurrence() {
+        String json = "{\"data\":{\"G6181_CODESTA2\":\"13\"},\"G6181_CODESTA2\":\"07\"}";
+        
+        assertEquals("13", JsonFieldScanner.find(json, "G6181_CODESTA2").toString());
+    }
+    
+    @Test
+    void find_objectValue_returnsNull() {
+        assertNull(JsonFieldScanner.find("{\"data\":{\"a\":1}}", "data"));
+    }
+    
+    @Test
+    void find_escapedValue_isUnescaped() {
+        assertEquals("a\"b\nc\u00e9", JsonFieldScanner.find("{\"v\":\"a\\\"b\\nc\\u00e9\"}", "v").toString());
+    }
+    
+    @Test
+    void find_malformedJson_returnsNull() {
+        assertNull(JsonFieldScanner.find("{\"G6181_CODESTA2\":\"13", "G6181_CODESTA2"));
+    }
+    
+}
@@ -1,7 +1,9 @@
 package com.empresa.connector.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,9 +11,12 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
-import org.springframework.kafka.listener.DefaultErrorHandler;
-import org.springframework.util.backoff.FixedBackOff;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
 
 import java.util.HashMap;
 import java.util.List;
@@ -33,14 +38,33 @@ public class KafkaConfig {
     @Value("${kafka.consumer.group-id}")
     private String groupId;
     
+    @Value("${kafka.consumer.topic-pattern}")
+    private String topicPattern;
+    
     @Value("${kafka.consumer.max-polling-interval:6000}")
     private Integer maxPollingInterval;
     
-    @Value("${kafka.consumer.retry-backoff-timeout:100}")
-    private Integer retryBackoffTimeout;
+    // Retry topology: main -> retry-5000 -> retry-60000 -> retry-600000 -> dlt
+    @Value("${kafka.retry.attempts:4}")
+    private Integer retryAttempts;
+    
+    @Value("${kafka.retry.initial-interval:5000}")
+    private Long retryInitialInterval;
+    
+    @Value("${kafka.retry.multiplier:12}")
+    private Double retryMultiplier;
+    
+    @Value("${kafka.retry.max-interval:600000}")
+    private Long retryMaxInterval;
+    
+    @Value("${kafka.retry.auto-create-topics:false}")
+    private Boolean autoCreateRetryTopics;
     
-    @Value("${kafka.consumer.reconnection.attempts:2}")
-    private Integer reconnectionAttempts;
+    @Value("${kafka.retry.topic-partitions:1}")
+    private Integer retryTopicPartitions;
+    
+    @Value("${kafka.retry.topic-replication-factor:1}")
+    private Short retryTopicReplicationFactor;
     
     @Bean
     public ConsumerFactory<String, String> consumerFactory() {
@@ -50,34 +74,88 @@ public class KafkaConfig {
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, maxPollingInterval);
+        props.putAll(securityProperties());
         
-        // SASL Authentication configuration
-        if (username != null && !username.isEmpty() && password != null && !password.isEmpty()) {
-            String jaasConfig = "org.apache.kafka.common.security.plain.PlainLoginModule required "
-                    + "username=\"" + username + "\" "
-                    + "password=\"" + password + "\";";
-            props.put("sasl.jaas.config", jaasConfig);
-            props.put("security.protocol", "SASL_PLAINTEXT");
-            props.put("sasl.mechanism", "PLAIN");
-        }
-
         return new DefaultKafkaConsumerFactory<>(props);
     }
     
+    /**
+     * Producer used to forward failed records to the retry and dead-letter topics
+     */
+    @Bean
+    public ProducerFactory<String, String> producerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, String.join(",", bootstrapServers));
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.putAll(securityProperties());
+        
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+    
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+    
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory = 
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         
-        // Error handler with backoff strategy
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
-                new FixedBackOff(retryBackoffTimeout, reconnectionAttempts.longValue()));
-        factory.setCommonErrorHandler(errorHandler);
+        // No blocking error handler here: failed records are forwarded to the
+        // retry topics by the error handler installed by the retry topic configuration
         
         // Manual acknowledgment mode
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
         
         return factory;
     }
+    
+    /**
+     * Non-blocking retries: a failed record is published to the next retry topic
+     * and the offset on the source partition is committed, so the records behind it
+     * keep flowing. Retry topics are suffixed with their delay (-retry-5000,
+     * -retry-60000, -retry-600000) and exhausted records end up in the -dlt topic.
+     * Attempt count and original topic/partition/offset travel as record headers.
+     * Records that can never succeed (malformed JSON or Avro) go straight to the
+     * -dlt topic; the processing wraps them, so the whole cause chain is classified.
+     */
+    @Bean
+    public RetryTopicConfiguration paymentRetryTopicConfiguration(KafkaTemplate<String, String> kafkaTemplate) {
+        return RetryTopicConfigurationBuilder
+                .newInstance()
+                .includeTopic(topicPattern)
+                .maxAttempts(retryAttempts)
+                .exponentialBackoff(retryInitialInterval, retryMultiplier, retryMaxInterval)
+                .retryTopicSuffix("-retry")
+                .dltSuffix("-dlt")
+                .notRetryOn(List.of(
+                        IllegalArgumentException.class,
+                        com.fasterxml.jackson.core.JsonProcessingException.class))
+                .traversingCauses()
+                .autoCreateTopics(autoCreateRetryTopics, retryTopicPartitions, retryTopicReplicationFactor)
+                .listenerFactory("kafkaListenerContainerFactory")
+                .dltHandlerMethod("kafkaProcessingService", "handleDeadLetter")
+                .create(kafkaTemplate);
+    }
+    
+    /**
+     * SASL Authentication configuration shared by consumer and producer
+     */
+    private Map<String, Object> securityProperties() {
+        Map<String, Object> props = new HashMap<>();
+        if (username != null && !username.isEmpty() && password != null && !password.isEmpty()) {
+            String jaasConfig = "org.apache.kafka.common.security.plain.PlainLoginModule required "
+                    + "username=\"" + username + "\" "
+                    + "password=\"" + password + "\";";
+            props.put("sasl.jaas.config", jaasConfig);
+            props.put("security.protocol", "SASL_PLAINTEXT");
+            props.put("sasl.mechanism", "PLAIN");
+        }
+        return props;
+    }
 }
\ No newline at end of file
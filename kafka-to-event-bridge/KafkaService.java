@@ -25,51 +25,81 @@ public interface KafkaProcessingService {
      * @return true if valid, false otherwise
      */
     boolean isValidCodesta2(String codesta2);
-    
-    /**
-     * Determines if a message should be sent to AWS1
-     * 
-     * @param message The transformed message
-     * @return true if it should be sent to AWS1
-     */
-    boolean shouldSendToAws1(String message);
-    
-    /**
-     * Determines if a message should be sent to AWS2
-     * 
-     * @param message The transformed message
-     * @return true if it should be sent to AWS2
-     */
-    boolean shouldSendToAws2(String message);
 }
 
 
 package com.empresa.connector.service;
 
+import com.empresa.connector.config.properties.EventBridgeProperties;
+import com.empresa.connector.mapper.PaymentRecordMapper;
+import com.empresa.connector.model.avro.PaymentRecord;
 import com.empresa.connector.model.kafka.KafkaPaymentMessage;
+import com.empresa.connector.model.eventbridge.EventBridgeMessage;
+import com.empresa.connector.model.kafka.PaymentRecordView;
+import com.empresa.connector.transformer.MappingInput;
+import com.empresa.connector.transformer.MappingRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class KafkaProcessingService {
+public class KafkaProcessingService implements ConsumerSeekAware {
+    
+    // awsDestiny transformAwsDestiny gives the messages that do not name one
+    private static final String DEFAULT_AWS_DESTINY = "aws1";
 
     private final TransformationService transformationService;
     private final EventBridgeService eventBridgeService;
     private final RedisService redisService;
+    private final DeliveryDeduplicator deliveryDeduplicator;
+    private final EventBridgeProperties eventBridgeProperties;
+    private final RecordPreFilter recordPreFilter;
+    private final PaymentRecordReader paymentRecordReader;
+    private final PaymentRecordMapper paymentRecordMapper;
+    private final MappingRegistry mappingRegistry;
+    private final RecordCoalescer recordCoalescer;
     
     @Value("${validation.codesta2}")
     private String validCodesta2;
+    
+    @Value("${dedup.enabled:true}")
+    private boolean deduplicationEnabled;
+    
+    @Value("${kafka.consumer.typed-records.enabled:false}")
+    private boolean typedRecordsEnabled;
+    
+    // Views and operationId buffers reused by each listener and coalescer thread
+    private final ThreadLocal<PaymentRecordView> views = ThreadLocal.withInitial(PaymentRecordView::new);
+    private final ThreadLocal<StringBuilder> operationIds = ThreadLocal.withInitial(() -> new StringBuilder(48));
+    
+    @PostConstruct
+    public void init() {
+        // Records whose coalescing window closed go through the same processing
+        recordCoalescer.register(this::processKafkaEvent);
+    }
 
     @KafkaListener(
         topics = "${kafka.consumer.topic-pattern}",
@@ -83,36 +113,96 @@ public class KafkaProcessingService {
             @Header(KafkaHeaders.OFFSET) Long offset,
             Acknowledgment ack) {
         
+        // Offsets of coalesced topics are committed by the coalescer, up to its oldest held record
+        boolean coalesced = recordCoalescer.applies(topic);
+        
+        // Records the connector does not forward are dropped before any decoding
+        if (!recordPreFilter.accepts(payload)) {
+            boolean commit = recordPreFilter.onRejected(topic, partition);
+            if (coalesced) {
+                recordCoalescer.done(topic, partition, offset, ack, commit);
+            } else if (commit) {
+                ack.acknowledge();
+            }
+            return;
+        }
+        
+        // Bursts of modifications of one order are held, and only the latest is processed
+        String coalescingKey = coalesced ? recordCoalescer.key(payload) : null;
+        if (coalescingKey != null) {
+            log.debug("Message held for coalescing - Topic: {}, Partition: {}, Offset: {}, Key: {}",
+                    topic, partition, offset, coalescingKey);
+            recordCoalescer.offer(coalescingKey, payload, topic, partition, offset, ack);
+            return;
+        }
+        
         Instant startTime = Instant.now();
         
-        try {
-            // Log INPUT attributes
-            log.info("Message received - Topic: {}, Partition: {}, Offset: {}", 
-                    topic, partition, offset);
+        // Log INPUT attributes
+        log.info("Message received - Topic: {}, Partition: {}, Offset: {}",
+                topic, partition, offset);
             
-            // Log INPUT payload
-            log.info("Payload received: {}", payload);
+        // Log INPUT payload
+        log.info("Payload received: {}", payload);
             
-            // Process the event
+        // Process the event and acknowledge it
+        if (coalesced) {
+            try {
+                processKafkaEvent(payload, topic, partition, offset);
+            } catch (RuntimeException e) {
+                // Retried by the coalescer: the retry-topic error handler would commit
+                // this offset, past the records the coalescer still holds
+                recordCoalescer.offerFailed(payload, topic, partition, offset, ack, e);
+                return;
+            }
+            recordCoalescer.done(topic, partition, offset, ack, true);
+        } else {
+            // Failures propagate to the error handler, already logged by processKafkaEvent:
+            // it forwards the record to the next retry topic and commits its offset
             processKafkaEvent(payload, topic, partition, offset);
-            
-            // Acknowledge successful processing
             ack.acknowledge();
-            
-            // Log OUTPUT execution time
-            long executionTime = Instant.now().toEpochMilli() - startTime.toEpochMilli();
-            log.info("Total execution time: {} ms", executionTime);
-            
-        } catch (Exception e) {
-            log.error("Error processing Kafka message: {}", e.getMessage(), e);
-            // No acknowledgment to retry according to retry policy
         }
+        recordPreFilter.onCommitted(topic, partition);
+            
+        // Log OUTPUT execution time
+        long executionTime = Instant.now().toEpochMilli() - startTime.toEpochMilli();
+        log.info("Total execution time: {} ms", executionTime);
+    }
+    
+    /**
+     * Final destination of records that exhausted every retry topic
+     */
+    public void handleDeadLetter(ConsumerRecord<String, String> record, Acknowledgment ack) {
+        log.error("Message sent to DLT - Topic: {}, Original topic: {}, Original partition: {}, "
+                        + "Original offset: {}, Attempts: {}, Cause: {}",
+                record.topic(),
+                headerAsString(record, KafkaHeaders.DLT_ORIGINAL_TOPIC),
+                headerAsInt(record, KafkaHeaders.DLT_ORIGINAL_PARTITION),
+                headerAsLong(record, KafkaHeaders.DLT_ORIGINAL_OFFSET),
+                headerAsInt(record, RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS),
+                headerAsString(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+        ack.acknowledge();
+    }
+    
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        deliveryDeduplicator.onPartitionsAssigned(assignments.keySet());
+        recordCoalescer.discard(assignments.keySet());
+    }
+    
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        recordCoalescer.discard(partitions);
     }
     
     /**
      * Process a Kafka event from start to finish
      */
     private void processKafkaEvent(String payload, String topic, Integer partition, Long offset) {
+        if (typedRecordsEnabled) {
+            processPaymentRecord(payload, topic, partition, offset);
+            return;
+        }
         try {
             // Save original payload
             String originalPayload = payload;
@@ -121,8 +211,8 @@ public class KafkaProcessingService {
             String transformedMessage = transformationService.transformKafkaAttributes(payload, topic, offset);
             log.debug("Transformed message: {}", transformedMessage);
             
-            // Parse Kafka message
-            KafkaPaymentMessage kafkaMessage = transformationService.parseKafkaMessage(transformedMessage);
+            // Read the G6181_* fields in place instead of binding the whole message
+            PaymentRecordView kafkaMessage = views.get().wrap(transformedMessage);
             
             // Replace ID with AVRO schema
             String processedMessage = transformationService.replaceIdWithAvroSchema(transformedMessage);
@@ -132,36 +222,20 @@ public class KafkaProcessingService {
             log.debug("JSON payload: {}", jsonPayload);
             
             // Validate CODESTA2
-            if (isValidCodesta2(kafkaMessage)) {
+            if (isValidCodesta2(kafkaMessage.getCodesta2())) {
                 log.info("Valid CODESTA2: '{}'", validCodesta2);
                 
-                // Transform for EventBridge
-                String eventBridgeMessage = transformationService.transformKafkaToEventBridge(jsonPayload);
-                
-                // Apply AWS destiny transformation
-                String transformedEventBridgeMessage = transformationService.transformAwsDestiny(eventBridgeMessage);
-                
-                // Determine destinations
-                boolean sendToAws1 = shouldSendToAws1(transformedEventBridgeMessage);
-                boolean sendToAws2 = shouldSendToAws2(transformedEventBridgeMessage);
-                
-                // Send to AWS1 if needed
-                if (sendToAws1) {
-                    log.info("Sending to AWS1");
-                    String result = eventBridgeService.sendToEventBridgeWithAws1Config(transformedEventBridgeMessage);
-                    log.info("AWS1 sending result: {}", result);
-                } else {
-                    log.info("Not sending to AWS1");
-                }
+                // Transform for EventBridge, with the configured mapping or the fixed one
+                String eventBridgeMessage = mappingRegistry.isEnabled()
+                        ? mappingRegistry.get().apply(MappingInput.ofJson(jsonPayload, topic, partition, offset))
+                        : transformationService.transformAwsDestiny(
+                                transformationService.transformKafkaToEventBridge(jsonPayload));
                 
-                // Send to AWS2 if needed
-                if (sendToAws2) {
-                    log.info("Sending to AWS2");
-                    String result = eventBridgeService.sendToEventBridgeWithAws2Config(transformedEventBridgeMessage);
-                    log.info("AWS2 sending result: {}", result);
-                } else {
-                    log.info("Not sending to AWS2");
-                }
+                String revision = DeliveryDeduplicator.revision(kafkaMessage.getIdempr(), kafkaMessage.getCcencont(),
+                        kafkaMessage.getTipoprd(), kafkaMessage.getCcontrat(), kafkaMessage.getNumord(),
+                        kafkaMessage.getJnumdet(), kafkaMessage.getFechaeje(), kafkaMessage.getCodesta2());
+                forwardToEventBridge(eventBridgeMessage, kafkaMessage.appendOperationId(operationIdBuilder()).toString(),
+                        revision, topic, partition);
                 
             } else {
                 log.warn("Invalid CODESTA2: {}. Message will not be processed.", kafkaMessage.getCodesta2());
@@ -176,25 +250,129 @@ public class KafkaProcessingService {
         }
     }
     
+    /**
+     * Typed path: the record is decoded into the class generated from the schema
+     * snapshot and mapped straight to the EventBridge message, skipping the JSON
+     * attribute, Avro-id and parsing steps of processKafkaEvent
+     */
+    private void processPaymentRecord(String payload, String topic, Integer partition, Long offset) {
+        try {
+            PaymentRecord record = paymentRecordReader.read(payload);
+            
+            if (validCodesta2.equals(record.getG6181CODESTA2())) {
+                log.info("Valid CODESTA2: '{}'", validCodesta2);
+                String revision = DeliveryDeduplicator.revision(record.getG6181IDEMPR(), record.getG6181CCENCONT(),
+                        record.getG6181TIPOPRD(), record.getG6181CCONTRAT(), record.getG6181NUMORD(),
+                        record.getG6181JNUMDET(), record.getG6181FECHAEJE(), record.getG6181CODESTA2());
+                String operationId = KafkaPaymentMessage.appendOperationId(operationIdBuilder(),
+                        record.getG6181CCENCONT(), record.getG6181NUMORD(), record.getG6181JNUMDET(),
+                        record.getG6181FECHAEJE()).toString();
+                if (mappingRegistry.isEnabled()) {
+                    forwardToEventBridge(mappingRegistry.get().apply(MappingInput.ofRecord(record, topic, partition, offset)),
+                            operationId, revision, topic, partition);
+                } else {
+                    // The mapped message goes to the service as it is, never written out and parsed back
+                    EventBridgeMessage eventBridgeMessage = paymentRecordMapper.toEventBridgeMessage(record);
+                    forwardToEventBridge(DEFAULT_AWS_DESTINY,
+                            destinations -> eventBridgeService.sendToEventBridge(destinations, eventBridgeMessage),
+                            operationId, revision, topic, partition);
+                }
+            } else {
+                log.warn("Invalid CODESTA2: {}. Message will not be processed.", record.getG6181CODESTA2());
+            }
+            
+            // Send ACK message
+            eventBridgeService.sendAckMessage();
+        
+        } catch (Exception e) {
+            log.error("Error processing Kafka event: {}", e.getMessage(), e);
+            throw new RuntimeException("Error processing Kafka message", e);
+        }
+    }
+    
+    /**
+     * Sends the EventBridge message to its destinations, skipping the ones this
+     * revision of the operation was already delivered to
+     */
+    private void forwardToEventBridge(String eventBridgeMessage, String operationId, String revision,
+                                      String topic, Integer partition) {
+        // Destination named by awsDestiny: aws1, aws2 or any under aws.eventbridge.destinations
+        forwardToEventBridge(eventBridgeService.resolveDestination(eventBridgeMessage),
+                destinations -> eventBridgeService.sendToEventBridge(destinations, eventBridgeMessage),
+                operationId, revision, topic, partition);
+    }
+    
+    /**
+     * Sends with the given function to the destination, unless this revision of the
+     * operation was already delivered there
+     */
+    private void forwardToEventBridge(String destination, Function<List<String>, Map<String, String>> send,
+                                      String operationId, String revision, String topic, Integer partition) {
+        List<String> destinations = new ArrayList<>();
+        destinations.add(destination);
+        
+        // Skip destinations this operation was already delivered to, before signing anything
+        if (deduplicationEnabled) {
+            destinations.removeIf(destination ->
+                    !deliveryDeduplicator.tryAcquire(operationId, revision, destination, topic, partition));
+        }
+        
+        // Send to all destinations in parallel, each one on its own resources
+        log.info("Sending to {}", destinations);
+        Map<String, String> results = send.apply(destinations);
+        List<String> failed = new ArrayList<>();
+        results.forEach((destination, result) -> {
+            log.info("{} sending result: {}", destination, result);
+            if (!eventBridgeProperties.getResult().getCorrect().equals(result)) {
+                failed.add(destination);
+                if (deduplicationEnabled) {
+                    deliveryDeduplicator.release(operationId, revision, destination);
+                }
+            }
+        });
+        
+        // Fail the record so it goes to the retry topics; destinations that already
+        // took it are skipped by the deduplicator on the next attempt
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("EventBridge delivery failed for " + failed);
+        }
+    }
+    
     /**
      * Check if CODESTA2 is valid
      */
-    private boolean isValidCodesta2(KafkaPaymentMessage message) {
-        return message != null && validCodesta2.equals(message.getCodesta2());
+    private boolean isValidCodesta2(CharSequence codesta2) {
+        return codesta2 != null && validCodesta2.contentEquals(codesta2);
     }
     
     /**
-     * Determine if message should be sent to AWS1
+     * Empty operationId buffer of this thread
      */
-    private boolean shouldSendToAws1(String message) {
-        // Default to true unless explicitly specified for AWS2 only
-        return !message.contains("\"awsDestiny\":\"aws2\"") || message.contains("\"awsDestiny\":\"aws1\"");
+    private StringBuilder operationIdBuilder() {
+        StringBuilder builder = operationIds.get();
+        builder.setLength(0);
+        return builder;
     }
     
     /**
-     * Determine if message should be sent to AWS2
+     * Header helpers for the retry/DLT metadata added by the dead letter publisher
      */
-    private boolean shouldSendToAws2(String message) {
-        return message.contains("\"awsDestiny\":\"aws2\"");
+    private String headerAsString(ConsumerRecord<String, String> record, String name) {
+        org.apache.kafka.common.header.Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+    
+    private Integer headerAsInt(ConsumerRecord<String, String> record, String name) {
+        org.apache.kafka.common.header.Header header = record.headers().lastHeader(name);
+        if (header == null) {
+            return null;
+        }
+        byte[] value = header.value();
+        return value.length == Integer.BYTES ? ByteBuffer.wrap(value).getInt() : new BigInteger(value).intValue();
+    }
+    
+    private Long headerAsLong(ConsumerRecord<String, String> record, String name) {
+        org.apache.kafka.common.header.Header header = record.headers().lastHeader(name);
+        return header != null ? ByteBuffer.wrap(header.value()).getLong() : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.empresa.connector.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LocalDeduplicationStore
+ */
+public class LocalDeduplicationStoreTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    
+    @Test
+    void markIfAbsent_withRecordedKey_returnsFalseUntilExpired() {
+        LocalDeduplicationStore store = new LocalDeduplicationStore(60, 1000, meterRegistry, now::get);
+        
+        assertTrue(store.markIfAbsent("op-1|aws1"));
+        assertFalse(store.markIfAbsent("op-1|aws1"));
+        assertTrue(store.markIfAbsent("op-1|aws2"));
+        
+        now.addAndGet(60_000);
+        assertTrue(store.markIfAbsent("op-1|aws1"));
+    }
+    
+    @Test
+    void remove_allowsTheKeyAgain() {
+        LocalDeduplicationStore store = new LocalDeduplicationStore(60, 1000, meterRegistry, now::get);
+        store.mark("op-1|aws1");
+        
+        store.remove("op-1|aws1");
+        
+        assertTrue(store.markIfAbsent("op-1|aws1"));
+        assertFalse(store.markIfAbsent("op-1|aws1"));
+    }
+    
+    @Test
+    void markIfAbsent_beyondCapacity_evictsAndCountsIt() {
+        LocalDeduplicationStore store = new LocalDeduplicationStore(60, 48, meterRegistry, now::get);
+        
+        // 64 slots: every key after them needs to evict one
+        for (int i = 0; i < 100; i++) {
+            now.incrementAndGet();
+            assertTrue(store.markIfAbsent("op-" + i));
+        }
+        
+        assertFalse(store.markIfAbsent("op-99"));
+        assertTrue(meterRegistry.get("dedup.local.evictions").counter().count() >= 36);
+        assertEquals(64 * 24.0, meterRegistry.get("dedup.local.bytes").gauge().value());
+    }
+}
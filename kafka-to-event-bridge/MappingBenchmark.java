@@ -0,0 +1,85 @@
+package com.empresa.connector.transformer;
+
+import com.empresa.connector.model.kafka.KafkaPaymentMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the operationId expression of the payment mapping, evaluated
+ * through CompiledMapping (handle in an instance field), through the same handle
+ * held in a static final field (a constant the JIT can inline), and written as
+ * plain Java.
+ *
+ * Run with: mvn -P benchmark test-compile exec:java -Dexec.args="MappingBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    
+    private static final String OPERATION_ID = "detail.payload.operationId";
+    private static final String PAYMENT = "{\"G6181_IDEMPR\":\"0049\",\"G6181_CCENCONT\":\"1234\","
+            + "\"G6181_TIPOPRD\":\"300\",\"G6181_CCONTRAT\":\"0000123456\",\"G6181_NUMORD\":\"000042\","
+            + "\"G6181_JNUMDET\":\"001\",\"G6181_FECHAEJE\":\"2025-01-01\",\"G6181_CODESTA2\":\"13\"}";
+    private static final CompiledMapping MAPPING = new MappingCompiler().compile("payment-event.mapping",
+            "detail-type: \"Transfer_KO\"\n"
+            + "source: \"openbank.payments\"\n"
+            + OPERATION_ID + ": G6181_CCENCONT ++ G6181_NUMORD ++ G6181_JNUMDET ++ \"-01001-00000-\" ++ G6181_FECHAEJE\n"
+            + "awsDestiny: \"aws1\"\n");
+    private static final MethodHandle CONSTANT_HANDLE = MAPPING.handle(OPERATION_ID);
+    
+    private CompiledMapping mapping;
+    private MappingInput input;
+    
+    @Setup
+    public void setUp() {
+        mapping = MAPPING;
+        // Single-threaded benchmark: the input's view belongs to the thread that runs it
+        input = MappingInput.ofJson(PAYMENT, "topic-a", 0, 0L);
+    }
+    
+    @Benchmark
+    public CharSequence compiledMapping() {
+        return mapping.evaluate(OPERATION_ID, input);
+    }
+    
+    @Benchmark
+    public CharSequence constantHandle() throws Throwable {
+        return (CharSequence) CONSTANT_HANDLE.invokeExact(input);
+    }
+    
+    @Benchmark
+    public CharSequence plainJava() {
+        return KafkaPaymentMessage.appendOperationId(new StringBuilder(48), input.field("G6181_CCENCONT"),
+                input.field("G6181_NUMORD"), input.field("G6181_JNUMDET"), input.field("G6181_FECHAEJE"));
+    }
+    
+    @Benchmark
+    public String applyMapping() {
+        return mapping.apply(input);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : MappingBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
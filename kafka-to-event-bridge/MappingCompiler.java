@@ -0,0 +1,468 @@
+package com.empresa.connector.transformer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles mappings written in a small DataWeave-like language into MethodHandle trees.
+ *
+ * A mapping has one output field per line, as a dotted path into the JSON document
+ * it produces, followed by the expression of its value:
+ *
+ * <pre>
+ * # comment
+ * detail-type: "Transfer_KO"
+ * detail.payload.operationId: G6181_CCENCONT ++ G6181_NUMORD ++ "-" ++ (G6181_FECHAEJE default "")
+ * awsDestiny: if (G6181_TIPOPRD == "300" or attributes.partition == "0") "aws2" else "aws1"
+ * </pre>
+ *
+ * Expressions: "string" and number literals, null, record fields by name (optionally
+ * as payload.NAME), attributes.topic / partition / offset, ++ (concatenation, null
+ * counts as empty), == and != (text comparison), and, or, if (c) a else b,
+ * a default b (b when a is null or empty), and the functions upper, lower, trim and
+ * substring(value, from[, to]). Values are text; a comparison written as a value
+ * yields "true" or "false".
+ *
+ * Every expression is compiled once, when the mapping is loaded, into a single
+ * MethodHandle of type (MappingInput)CharSequence built from MethodHandles
+ * combinators, so evaluating a record walks no syntax tree and looks nothing up by
+ * name other than the record fields themselves. How far the JIT inlines those
+ * handles depends on the call site; see CompiledMapping and MappingBenchmark.
+ * Syntax errors fail the compilation with an IllegalArgumentException naming the
+ * line.
+ */
+public class MappingCompiler {
+    
+    private static final MethodType VALUE = MethodType.methodType(CharSequence.class, MappingInput.class);
+    
+    private static final MethodHandle FIELD;
+    private static final MethodHandle ATTRIBUTE;
+    private static final MethodHandle CONCAT;
+    private static final MethodHandle EQUALS;
+    private static final MethodHandle NOT;
+    private static final MethodHandle IS_PRESENT;
+    private static final MethodHandle TO_TEXT;
+    private static final MethodHandle UPPER;
+    private static final MethodHandle LOWER;
+    private static final MethodHandle TRIM;
+    private static final MethodHandle SUBSTRING;
+    private static final MethodHandle TRUE;
+    private static final MethodHandle FALSE;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            FIELD = lookup.findVirtual(MappingInput.class, "field",
+                    MethodType.methodType(CharSequence.class, String.class));
+            ATTRIBUTE = lookup.findVirtual(MappingInput.class, "attribute",
+                    MethodType.methodType(CharSequence.class, String.class));
+            CONCAT = lookup.findStatic(Functions.class, "concat",
+                    MethodType.methodType(CharSequence.class, CharSequence[].class));
+            EQUALS = lookup.findStatic(Functions.class, "equals",
+                    MethodType.methodType(boolean.class, CharSequence.class, CharSequence.class));
+            NOT = lookup.findStatic(Functions.class, "not", MethodType.methodType(boolean.class, boolean.class));
+            IS_PRESENT = lookup.findStatic(Functions.class, "isPresent",
+                    MethodType.methodType(boolean.class, CharSequence.class));
+            TO_TEXT = lookup.findStatic(Functions.class, "toText",
+                    MethodType.methodType(CharSequence.class, boolean.class));
+            UPPER = lookup.findStatic(Functions.class, "upper",
+                    MethodType.methodType(CharSequence.class, CharSequence.class));
+            LOWER = lookup.findStatic(Functions.class, "lower",
+                    MethodType.methodType(CharSequence.class, CharSequence.class));
+            TRIM = lookup.findStatic(Functions.class, "trim",
+                    MethodType.methodType(CharSequence.class, CharSequence.class));
+            SUBSTRING = lookup.findStatic(Functions.class, "substring",
+                    MethodType.methodType(CharSequence.class, CharSequence.class, int.class, int.class));
+            TRUE = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true), 0, MappingInput.class);
+            FALSE = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false), 0, MappingInput.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    /**
+     * @param name Name of the mapping, for logs and errors
+     * @param source Mapping text
+     * @throws IllegalArgumentException If the mapping is not valid
+     */
+    public CompiledMapping compile(String name, String source) {
+        Map<String, MethodHandle> outputs = new LinkedHashMap<>();
+        String[] lines = source.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw error(name, i + 1, "expected <output.path>: <expression>");
+            }
+            String path = line.substring(0, colon).trim();
+            if (!path.matches("[A-Za-z_][\\w-]*(\\.[A-Za-z_][\\w-]*)*")) {
+                throw error(name, i + 1, "invalid output path '" + path + "'");
+            }
+            if (outputs.containsKey(path)) {
+                throw error(name, i + 1, "output '" + path + "' already defined");
+            }
+            try {
+                outputs.put(path, new Parser(line.substring(colon + 1)).parse());
+            } catch (IllegalArgumentException e) {
+                throw error(name, i + 1, e.getMessage());
+            }
+        }
+        if (outputs.isEmpty()) {
+            throw new IllegalArgumentException("Mapping " + name + " has no outputs");
+        }
+        try {
+            return new CompiledMapping(name, outputs);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Mapping " + name + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private static IllegalArgumentException error(String name, int line, String message) {
+        return new IllegalArgumentException("Mapping " + name + ", line " + line + ": " + message);
+    }
+    
+    /**
+     * Recursive descent parser of one expression, emitting MethodHandles as it goes.
+     * Values are (MappingInput)CharSequence handles, conditions (MappingInput)boolean.
+     */
+    private static final class Parser {
+        
+        private final List<String> tokens;
+        private int position;
+        
+        private Parser(String expression) {
+            this.tokens = tokenize(expression);
+        }
+        
+        private MethodHandle parse() {
+            MethodHandle expression = asValue(parseExpression());
+            if (position < tokens.size()) {
+                throw new IllegalArgumentException("unexpected '" + tokens.get(position) + "'");
+            }
+            return expression;
+        }
+        
+        private MethodHandle parseExpression() {
+            if (accept("if")) {
+                expect("(");
+                MethodHandle condition = asCondition(parseExpression());
+                expect(")");
+                MethodHandle then = asValue(parseExpression());
+                expect("else");
+                MethodHandle otherwise = asValue(parseExpression());
+                return MethodHandles.guardWithTest(condition, then, otherwise);
+            }
+            return parseOr();
+        }
+        
+        private MethodHandle parseOr() {
+            MethodHandle left = parseAnd();
+            while (accept("or")) {
+                left = MethodHandles.guardWithTest(asCondition(left), TRUE, asCondition(parseAnd()));
+            }
+            return left;
+        }
+        
+        private MethodHandle parseAnd() {
+            MethodHandle left = parseComparison();
+            while (accept("and")) {
+                left = MethodHandles.guardWithTest(asCondition(left), asCondition(parseComparison()), FALSE);
+            }
+            return left;
+        }
+        
+        private MethodHandle parseComparison() {
+            MethodHandle left = parseConcat();
+            boolean equals = accept("==");
+            if (!equals && !accept("!=")) {
+                return left;
+            }
+            MethodHandle comparison = combine(EQUALS, asValue(left), asValue(parseConcat()));
+            return equals ? comparison : MethodHandles.filterReturnValue(comparison, NOT);
+        }
+        
+        private MethodHandle parseConcat() {
+            List<MethodHandle> parts = new ArrayList<>();
+            parts.add(parseDefault());
+            while (accept("++")) {
+                parts.add(parseDefault());
+            }
+            if (parts.size() == 1) {
+                return parts.get(0);
+            }
+            // One call builds the whole string: (MappingInput x n) -> concat(CharSequence[n])
+            MethodHandle concat = CONCAT.asCollector(CharSequence[].class, parts.size());
+            MethodHandle[] values = new MethodHandle[parts.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = asValue(parts.get(i));
+            }
+            return MethodHandles.permuteArguments(
+                    MethodHandles.filterArguments(concat, 0, values), VALUE, new int[values.length]);
+        }
+        
+        private MethodHandle parseDefault() {
+            MethodHandle value = parsePrimary();
+            while (accept("default")) {
+                value = orElse(asValue(value), asValue(parsePrimary()));
+            }
+            return value;
+        }
+        
+        private MethodHandle parsePrimary() {
+            String token = next();
+            if (token.startsWith("\"")) {
+                return constant(token.substring(1));
+            } else if (Character.isDigit(token.charAt(0)) || token.charAt(0) == '-') {
+                return constant(token);
+            } else if (token.equals("null")) {
+                return constant(null);
+            } else if (token.equals("(")) {
+                MethodHandle expression = parseExpression();
+                expect(")");
+                return expression;
+            } else if (!isIdentifier(token)) {
+                throw new IllegalArgumentException("unexpected '" + token + "'");
+            } else if (accept("(")) {
+                return parseFunction(token);
+            } else if (token.equals("attributes")) {
+                expect(".");
+                String attribute = next();
+                if (!attribute.equals("topic") && !attribute.equals("partition") && !attribute.equals("offset")) {
+                    throw new IllegalArgumentException("unknown attribute '" + attribute + "'");
+                }
+                return MethodHandles.insertArguments(ATTRIBUTE, 1, attribute);
+            } else if (token.equals("payload") && accept(".")) {
+                return field(next());
+            }
+            return field(token);
+        }
+        
+        private MethodHandle parseFunction(String function) {
+            MethodHandle argument = asValue(parseExpression());
+            switch (function) {
+                case "upper":
+                    expect(")");
+                    return MethodHandles.filterReturnValue(argument, UPPER);
+                case "lower":
+                    expect(")");
+                    return MethodHandles.filterReturnValue(argument, LOWER);
+                case "trim":
+                    expect(")");
+                    return MethodHandles.filterReturnValue(argument, TRIM);
+                case "substring":
+                    expect(",");
+                    int from = integer(next());
+                    int to = accept(",") ? integer(next()) : Integer.MAX_VALUE;
+                    expect(")");
+                    return MethodHandles.filterReturnValue(argument,
+                            MethodHandles.insertArguments(SUBSTRING, 1, from, to));
+                default:
+                    throw new IllegalArgumentException("unknown function '" + function + "'");
+            }
+        }
+        
+        private MethodHandle field(String name) {
+            if (!isIdentifier(name)) {
+                throw new IllegalArgumentException("invalid field name '" + name + "'");
+            }
+            return MethodHandles.insertArguments(FIELD, 1, name);
+        }
+        
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw new IllegalArgumentException("expected '" + token + "'"
+                        + (position < tokens.size() ? " before '" + tokens.get(position) + "'" : " at end of line"));
+            }
+        }
+        
+        private String next() {
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("unexpected end of line");
+            }
+            return tokens.get(position++);
+        }
+    }
+    
+    private static MethodHandle constant(String value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(CharSequence.class, value), 0, MappingInput.class);
+    }
+    
+    /**
+     * op(a(input), b(input)) as a handle of the input alone
+     */
+    private static MethodHandle combine(MethodHandle op, MethodHandle a, MethodHandle b) {
+        MethodHandle both = MethodHandles.filterArguments(op, 0, a, b);
+        return MethodHandles.permuteArguments(both,
+                MethodType.methodType(op.type().returnType(), MappingInput.class), 0, 0);
+    }
+    
+    /**
+     * value(input) unless null or empty, fallback(input) otherwise; value is evaluated once
+     */
+    private static MethodHandle orElse(MethodHandle value, MethodHandle fallback) {
+        MethodHandle test = MethodHandles.dropArguments(IS_PRESENT, 1, MappingInput.class);
+        MethodHandle keep = MethodHandles.dropArguments(MethodHandles.identity(CharSequence.class), 1, MappingInput.class);
+        MethodHandle replace = MethodHandles.dropArguments(fallback, 0, CharSequence.class);
+        return MethodHandles.foldArguments(MethodHandles.guardWithTest(test, keep, replace), value);
+    }
+    
+    private static MethodHandle asValue(MethodHandle expression) {
+        return expression.type().returnType() == boolean.class
+                ? MethodHandles.filterReturnValue(expression, TO_TEXT)
+                : expression;
+    }
+    
+    private static MethodHandle asCondition(MethodHandle expression) {
+        if (expression.type().returnType() != boolean.class) {
+            throw new IllegalArgumentException("condition expected, found a value");
+        }
+        return expression;
+    }
+    
+    private static int integer(String token) {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("integer expected, found '" + token + "'");
+        }
+    }
+    
+    private static boolean isIdentifier(String token) {
+        return Character.isLetter(token.charAt(0)) || token.charAt(0) == '_';
+    }
+    
+    /**
+     * Splits an expression into tokens. String literals keep their opening quote, to
+     * tell them from identifiers, and have their escapes resolved.
+     */
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        int length = expression.length();
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                StringBuilder literal = new StringBuilder("\"");
+                i++;
+                while (i < length && expression.charAt(i) != '"') {
+                    char ch = expression.charAt(i++);
+                    if (ch == '\\' && i < length) {
+                        char escaped = expression.charAt(i++);
+                        literal.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+                    } else {
+                        literal.append(ch);
+                    }
+                }
+                if (i >= length) {
+                    throw new IllegalArgumentException("unterminated string");
+                }
+                i++;
+                tokens.add(literal.toString());
+            } else if (Character.isLetterOrDigit(c) || c == '_' || (c == '-' && i + 1 < length
+                    && Character.isDigit(expression.charAt(i + 1)))) {
+                int start = i++;
+                while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(expression.substring(start, i));
+            } else if (expression.startsWith("++", i) || expression.startsWith("==", i) || expression.startsWith("!=", i)) {
+                tokens.add(expression.substring(i, i + 2));
+                i += 2;
+            } else if ("().,".indexOf(c) >= 0) {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else {
+                throw new IllegalArgumentException("unexpected character '" + c + "'");
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Runtime helpers the compiled handles call into. Null-safe: a null value stays
+     * null, except in concatenation where it counts as empty.
+     */
+    static final class Functions {
+        
+        private Functions() {
+        }
+        
+        static CharSequence concat(CharSequence[] parts) {
+            StringBuilder out = new StringBuilder(64);
+            for (CharSequence part : parts) {
+                if (part != null) {
+                    out.append(part);
+                }
+            }
+            return out.toString();
+        }
+        
+        static boolean equals(CharSequence a, CharSequence b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            int length = a.length();
+            if (length != b.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (a.charAt(i) != b.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        static boolean not(boolean value) {
+            return !value;
+        }
+        
+        static boolean isPresent(CharSequence value) {
+            return value != null && value.length() > 0;
+        }
+        
+        static CharSequence toText(boolean value) {
+            return value ? "true" : "false";
+        }
+        
+        static CharSequence upper(CharSequence value) {
+            return value == null ? null : value.toString().toUpperCase(Locale.ROOT);
+        }
+        
+        static CharSequence lower(CharSequence value) {
+            return value == null ? null : value.toString().toLowerCase(Locale.ROOT);
+        }
+        
+        static CharSequence trim(CharSequence value) {
+            return value == null ? null : value.toString().trim();
+        }
+        
+        static CharSequence substring(CharSequence value, int from, int to) {
+            if (value == null) {
+                return null;
+            }
+            int end = Math.min(to, value.length());
+            int start = Math.min(Math.max(from, 0), end);
+            return value.subSequence(start, end).toString();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.empresa.connector.transformer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MappingCompiler
+ */
+public class MappingCompilerTest {
+    
+    private static final String PAYMENT = "{\"G6181_IDEMPR\":\"0049\",\"G6181_CCENCONT\":\"1234\","
+            + "\"G6181_TIPOPRD\":\"300\",\"G6181_CCONTRAT\":\"7777\",\"G6181_NUMORD\":\"000123\","
+            + "\"G6181_JNUMDET\":\"01\",\"G6181_FECHAEJE\":\"2025-03-07\",\"G6181_CODESTA2\":\"13\","
+            + "\"G6181_EXTRA\":\"  x  \"}";
+    
+    private final MappingCompiler compiler = new MappingCompiler();
+    
+    private CharSequence evaluate(String expression) {
+        CompiledMapping mapping = compiler.compile("test", "value: " + expression);
+        return mapping.evaluate("value", MappingInput.ofJson(PAYMENT, "topic-a", 3, 42L));
+    }
+    
+    @Test
+    void compile_defaultMapping_buildsEventBridgeMessage() {
+        CompiledMapping mapping = compiler.compile("payment-event.mapping",
+                "# comment\n"
+                + "detail-type: \"Transfer_KO\"\n"
+                + "source: \"openbank.payments\"\n"
+                + "detail.payload.operationId: G6181_CCENCONT ++ G6181_NUMORD ++ G6181_JNUMDET"
+                + " ++ \"-01001-00000-\" ++ G6181_FECHAEJE\n"
+                + "awsDestiny: \"aws1\"\n");
+        
+        assertEquals("{\"detail-type\":\"Transfer_KO\",\"source\":\"openbank.payments\","
+                + "\"detail\":{\"payload\":{\"operationId\":\"123400012301-01001-00000-2025-03-07\"}},"
+                + "\"awsDestiny\":\"aws1\"}",
+                mapping.apply(MappingInput.ofJson(PAYMENT, "topic-a", 3, 42L)));
+    }
+    
+    @Test
+    void evaluate_fieldsAndAttributes() {
+        assertEquals("1234", evaluate("G6181_CCENCONT").toString());
+        assertEquals("1234", evaluate("payload.G6181_CCENCONT").toString());
+        assertEquals("  x  ", evaluate("G6181_EXTRA").toString());
+        assertEquals("topic-a/3/42",
+                evaluate("attributes.topic ++ \"/\" ++ attributes.partition ++ \"/\" ++ attributes.offset").toString());
+        assertNull(evaluate("G6181_MISSING"));
+        assertNull(evaluate("null"));
+    }
+    
+    @Test
+    void evaluate_conditionsAndDefaults() {
+        assertEquals("aws2", evaluate("if (G6181_TIPOPRD == \"300\") \"aws2\" else \"aws1\"").toString());
+        assertEquals("aws1", evaluate("if (G6181_TIPOPRD != \"300\") \"aws2\" else \"aws1\"").toString());
+        assertEquals("yes", evaluate("if (G6181_CODESTA2 == \"99\" or attributes.partition == \"3\") \"yes\" else \"no\"").toString());
+        assertEquals("no", evaluate("if (G6181_CODESTA2 == \"13\" and attributes.partition == \"0\") \"yes\" else \"no\"").toString());
+        assertEquals("true", evaluate("G6181_CODESTA2 == \"13\"").toString());
+        assertEquals("none", evaluate("G6181_MISSING default \"none\"").toString());
+        assertEquals("1234", evaluate("G6181_CCENCONT default \"none\"").toString());
+        assertEquals("-", evaluate("G6181_MISSING ++ \"-\"").toString());
+    }
+    
+    @Test
+    void evaluate_functions() {
+        assertEquals("X", evaluate("upper(trim(G6181_EXTRA))").toString());
+        assertEquals("openbank", evaluate("lower(\"OpenBank\")").toString());
+        assertEquals("2025", evaluate("substring(G6181_FECHAEJE, 0, 4)").toString());
+        assertEquals("03-07", evaluate("substring(G6181_FECHAEJE, 5)").toString());
+    }
+    
+    @Test
+    void evaluate_avroRecordAndJsonAgree() {
+        CompiledMapping mapping = compiler.compile("test", "id: G6181_CCENCONT ++ G6181_NUMORD");
+        Schema schema = SchemaBuilder.record("PaymentRecord").fields()
+                .optionalString("G6181_CCENCONT").optionalString("G6181_NUMORD").endRecord();
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("G6181_CCENCONT", "1234");
+        record.put("G6181_NUMORD", "000123");
+        
+        assertEquals(mapping.evaluate("id", MappingInput.ofJson(PAYMENT, null, -1, -1)).toString(),
+                mapping.evaluate("id", MappingInput.ofRecord(record, null, -1, -1)).toString());
+    }
+    
+    @Test
+    void compile_invalidMapping_namesTheLine() {
+        IllegalArgumentException noColon = assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile("bad", "# comment\nsource \"x\""));
+        assertTrue(noColon.getMessage().startsWith("Mapping bad, line 2:"), noColon.getMessage());
+        
+        IllegalArgumentException unclosed = assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile("bad", "source: upper(\"x\""));
+        assertTrue(unclosed.getMessage().startsWith("Mapping bad, line 1:"), unclosed.getMessage());
+        
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile("bad", "a: \"x\"\na: \"y\""));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile("bad", "a: \"x\"\na.b: \"y\""));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile("bad", "# only comments"));
+    }
+}
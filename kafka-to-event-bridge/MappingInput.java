@@ -0,0 +1,78 @@
+package com.empresa.connector.transformer;
+
+import com.empresa.connector.model.kafka.PaymentRecordView;
+import com.empresa.connector.util.JsonFieldScanner;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Record a compiled mapping is evaluated against: its fields, by name, and the Kafka
+ * attributes it was read with (topic, partition, offset).
+ *
+ * A JSON record is read through the thread's PaymentRecordView, so an input built
+ * with ofJson is only valid until the next ofJson on the same thread.
+ */
+public final class MappingInput {
+    
+    private static final ThreadLocal<PaymentRecordView> VIEWS = ThreadLocal.withInitial(PaymentRecordView::new);
+    
+    private final String json;
+    private final PaymentRecordView view;
+    private final GenericRecord record;
+    private final String topic;
+    private final int partition;
+    private final long offset;
+    
+    private MappingInput(String json, PaymentRecordView view, GenericRecord record,
+                         String topic, int partition, long offset) {
+        this.json = json;
+        this.view = view;
+        this.record = record;
+        this.topic = topic;
+        this.partition = partition;
+        this.offset = offset;
+    }
+    
+    /**
+     * @param partition Partition, or -1 if unknown
+     * @param offset Offset, or -1 if unknown
+     */
+    public static MappingInput ofJson(String json, String topic, int partition, long offset) {
+        return new MappingInput(json, VIEWS.get().wrap(json), null, topic, partition, offset);
+    }
+    
+    /**
+     * Avro record, generic or generated from the schema snapshots
+     */
+    public static MappingInput ofRecord(GenericRecord record, String topic, int partition, long offset) {
+        return new MappingInput(null, null, record, topic, partition, offset);
+    }
+    
+    /**
+     * Value of a top-level field of the record, or null if it is missing or null
+     */
+    public CharSequence field(String name) {
+        if (record != null) {
+            Schema.Field field = record.getSchema().getField(name);
+            Object value = field != null ? record.get(field.pos()) : null;
+            return value == null || value instanceof CharSequence ? (CharSequence) value : value.toString();
+        }
+        return PaymentRecordView.isIndexed(name) ? view.get(name) : JsonFieldScanner.find(json, name);
+    }
+    
+    /**
+     * Kafka attribute: topic, partition or offset
+     */
+    public CharSequence attribute(String name) {
+        switch (name) {
+            case "topic":
+                return topic;
+            case "partition":
+                return partition < 0 ? null : Integer.toString(partition);
+            case "offset":
+                return offset < 0 ? null : Long.toString(offset);
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.empresa.connector.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "mapping")
+public class MappingProperties {
+    
+    // Builds the EventBridge message from the compiled mapping instead of the fixed mapper
+    private boolean enabled = false;
+    
+    // Filesystem path, reloaded when the file changes, or classpath resource
+    private String location = "mappings/payment-event.mapping";
+    
+    // How often the file is checked for changes
+    private long reloadIntervalMs = 10000;
+}
+
+package com.empresa.connector.transformer;
+
+import com.empresa.connector.config.properties.MappingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Holds the compiled payment mapping and swaps it when its file changes.
+ *
+ * The file is compiled at startup, failing fast if it is invalid, and checked every
+ * mapping.reload-interval-ms afterwards. A changed file is compiled off the record
+ * path and published in one volatile write; records in flight finish with the
+ * mapping they started with. A file that does not compile is logged and ignored
+ * until it changes again, and the previous mapping stays in use. Classpath
+ * resources never change and are loaded once.
+ *
+ * Metrics: mapping.reloads, by outcome (success, failure).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MappingRegistry {
+    
+    private final MappingProperties properties;
+    private final MeterRegistry meterRegistry;
+    
+    private final MappingCompiler compiler = new MappingCompiler();
+    private volatile CompiledMapping current;
+    private long checkedModified;
+    private Counter reloaded;
+    private Counter failed;
+    
+    @PostConstruct
+    public void init() {
+        reloaded = Counter.builder("mapping.reloads").tag("outcome", "success").register(meterRegistry);
+        failed = Counter.builder("mapping.reloads").tag("outcome", "failure").register(meterRegistry);
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            checkedModified = lastModified();
+            current = load();
+            log.info("Mapping {} loaded from {}", current.getName(), properties.getLocation());
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Cannot load mapping " + properties.getLocation(), e);
+        }
+    }
+    
+    /**
+     * Current mapping
+     *
+     * @throws IllegalStateException If mappings are disabled
+     */
+    public CompiledMapping get() {
+        CompiledMapping mapping = current;
+        if (mapping == null) {
+            throw new IllegalStateException("Mapping not loaded, mapping.enabled is false");
+        }
+        return mapping;
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    @Scheduled(fixedDelayString = "${mapping.reload-interval-ms:10000}")
+    public synchronized void reloadIfChanged() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            long modified = lastModified();
+            if (modified == checkedModified) {
+                return;
+            }
+            checkedModified = modified;
+            current = load();
+            reloaded.increment();
+            log.info("Mapping {} reloaded from {}", current.getName(), properties.getLocation());
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.error("Mapping {} not reloaded, keeping the previous version: {}",
+                    properties.getLocation(), e.getMessage());
+        }
+    }
+    
+    private CompiledMapping load() throws IOException {
+        String location = properties.getLocation();
+        String source;
+        try (InputStream in = open(location)) {
+            source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String name = location.substring(location.lastIndexOf('/') + 1);
+        return compiler.compile(name, source);
+    }
+    
+    /**
+     * Opens the path on the filesystem or, if there is no such file, on the classpath
+     */
+    private InputStream open(String location) throws IOException {
+        Path file = Paths.get(location);
+        if (Files.isRegularFile(file)) {
+            return Files.newInputStream(file);
+        }
+        return new ClassPathResource(location).getInputStream();
+    }
+    
+    /**
+     * Modification time of the file; classpath resources do not change
+     */
+    private long lastModified() throws IOException {
+        Path file = Paths.get(properties.getLocation());
+        return Files.isRegularFile(file) ? Files.getLastModifiedTime(file).toMillis() : -1L;
+    }
+}
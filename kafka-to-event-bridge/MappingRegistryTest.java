@@ -0,0 +1,112 @@
+package com.empresa.connector.transformer;
+
+import com.empresa.connector.config.properties.MappingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MappingRegistry
+ */
+public class MappingRegistryTest {
+    
+    private static final String PAYMENT = "{\"G6181_CCENCONT\":\"1234\",\"G6181_TIPOPRD\":\"300\"}";
+    
+    @TempDir
+    Path directory;
+    
+    private Path file;
+    private MappingProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private MappingRegistry registry;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("payment-event.mapping");
+        write("awsDestiny: \"aws1\"", 1000L);
+        
+        properties = new MappingProperties();
+        properties.setEnabled(true);
+        properties.setLocation(file.toString());
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new MappingRegistry(properties, meterRegistry);
+        registry.init();
+    }
+    
+    @Test
+    void init_compilesTheFile() {
+        assertTrue(registry.isEnabled());
+        assertEquals("payment-event.mapping", registry.get().getName());
+        assertEquals("{\"awsDestiny\":\"aws1\"}", apply());
+    }
+    
+    @Test
+    void reloadIfChanged_swapsTheMappingWhenTheFileChanges() throws IOException {
+        registry.reloadIfChanged();
+        assertEquals(0.0, reloads("success"));
+        
+        write("awsDestiny: if (G6181_TIPOPRD == \"300\") \"aws2\" else \"aws1\"", 2000L);
+        registry.reloadIfChanged();
+        
+        assertEquals("{\"awsDestiny\":\"aws2\"}", apply());
+        assertEquals(1.0, reloads("success"));
+    }
+    
+    @Test
+    void reloadIfChanged_withInvalidFile_keepsThePreviousMapping() throws IOException {
+        CompiledMapping previous = registry.get();
+        
+        write("awsDestiny: upper(\"aws2\"", 2000L);
+        registry.reloadIfChanged();
+        registry.reloadIfChanged();
+        
+        assertSame(previous, registry.get());
+        assertEquals(1.0, reloads("failure"));
+        
+        write("awsDestiny: \"aws2\"", 3000L);
+        registry.reloadIfChanged();
+        assertEquals("{\"awsDestiny\":\"aws2\"}", apply());
+    }
+    
+    @Test
+    void init_withInvalidFile_failsFast() throws IOException {
+        write("awsDestiny \"aws1\"", 2000L);
+        
+        MappingRegistry invalid = new MappingRegistry(properties, meterRegistry);
+        assertThrows(IllegalStateException.class, invalid::init);
+    }
+    
+    @Test
+    void get_whenDisabled_throwsIllegalStateException() {
+        properties.setEnabled(false);
+        MappingRegistry disabled = new MappingRegistry(properties, new SimpleMeterRegistry());
+        disabled.init();
+        
+        assertFalse(disabled.isEnabled());
+        assertThrows(IllegalStateException.class, disabled::get);
+    }
+    
+    private String apply() {
+        return registry.get().apply(MappingInput.ofJson(PAYMENT, "topic", 0, 0L));
+    }
+    
+    private double reloads(String outcome) {
+        return meterRegistry.get("mapping.reloads").tag("outcome", outcome).counter().count();
+    }
+    
+    /**
+     * Writes the file with an explicit modification time, the check is time based
+     */
+    private void write(String mapping, long modified) throws IOException {
+        Files.writeString(file, mapping);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+}
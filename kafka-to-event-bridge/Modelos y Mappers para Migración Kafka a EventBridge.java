@@ -50,12 +50,19 @@ public class KafkaPaymentMessage {
     }
     
     public String buildOperationId() {
+        return appendOperationId(new StringBuilder(48), ccencont, numord, jnumdet, fechaeje).toString();
+    }
+    
+    /**
+     * Escribe el operationId en el buffer sin formatear ni crear cadenas intermedias;
+     * compartido con PaymentRecordView
+     */
+    public static StringBuilder appendOperationId(StringBuilder out, CharSequence ccencont, CharSequence numord,
+                                                  CharSequence jnumdet, CharSequence fechaeje) {
         // Ejemplo basado en la imagen 2
-        return String.format("%s-%s-%s-%s",
-                ccencont + numord + jnumdet,
-                "01001",
-                "00000",
-                fechaeje);
+        return out.append(ccencont).append(numord).append(jnumdet)
+                .append("-01001-00000-")
+                .append(fechaeje);
     }
 }
 
@@ -169,7 +176,7 @@ package com.empresa.connector.service;
 import com.empresa.connector.mapper.KafkaToEventBridgeMapper;
 import com.empresa.connector.model.kafka.KafkaPaymentMessage;
 import com.empresa.connector.model.eventbridge.EventBridgeMessage;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.empresa.connector.util.JsonCodecs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -180,14 +187,14 @@ import org.springframework.stereotype.Service;
 public class TransformationService {
     
     private final KafkaToEventBridgeMapper mapper;
-    private final ObjectMapper objectMapper;
+    private final JsonCodecs jsonCodecs;
     
     /**
      * Transforma un mensaje Kafka en formato JSON a un objeto KafkaPaymentMessage
      */
     public KafkaPaymentMessage parseKafkaMessage(String kafkaMessageJson) {
         try {
-            return objectMapper.readValue(kafkaMessageJson, KafkaPaymentMessage.class);
+            return jsonCodecs.readKafkaPaymentMessage(kafkaMessageJson);
         } catch (Exception e) {
             log.error("Error al parsear mensaje Kafka: {}", e.getMessage());
             throw new RuntimeException("Error al parsear mensaje Kafka", e);
@@ -206,7 +213,7 @@ public class TransformationService {
      */
     public String toEventBridgeJson(EventBridgeMessage eventBridgeMessage) {
         try {
-            return objectMapper.writeValueAsString(eventBridgeMessage);
+            return jsonCodecs.writeEventBridgeMessage(eventBridgeMessage);
         } catch (Exception e) {
             log.error("Error al convertir EventBridgeMessage a JSON: {}", e.getMessage());
             throw new RuntimeException("Error al convertir EventBridgeMessage a JSON", e);
@@ -0,0 +1,124 @@
+package com.empresa.connector.model.kafka;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Kafka record as published by the Mule flow: record metadata plus the key as a JSON
+ * int array and the binary Avro value as a string with one character per byte.
+ *
+ * Decoded by MuleEnvelopeCodec. Key and Message live in buffers owned by the
+ * envelope and reused when it is decoded into again, so an instance must not be
+ * shared between threads, and the buffers it returns are only valid until then.
+ */
+public class MuleEnvelope {
+    
+    private String timestamp;
+    private String topic;
+    private int partition = -1;
+    private long offset = -1;
+    private Integer schemaId;
+    private String schemaType;
+    
+    private byte[] key = new byte[64];
+    private int keyLength = -1;
+    
+    private byte[] message = new byte[1024];
+    private int messageLength = -1;
+    
+    public String getTimestamp() {
+        return timestamp;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public int getPartition() {
+        return partition;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public Integer getSchemaId() {
+        return schemaId;
+    }
+    
+    public String getSchemaType() {
+        return schemaType;
+    }
+    
+    /**
+     * Record key bytes, or null if the envelope has no key
+     */
+    public ByteBuffer getKey() {
+        return keyLength < 0 ? null : ByteBuffer.wrap(key, 0, keyLength);
+    }
+    
+    /**
+     * Binary Avro value, ready for the decoder, or null if the envelope has no message
+     */
+    public ByteBuffer getMessage() {
+        return messageLength < 0 ? null : ByteBuffer.wrap(message, 0, messageLength);
+    }
+    
+    void clear() {
+        timestamp = null;
+        topic = null;
+        partition = -1;
+        offset = -1;
+        schemaId = null;
+        schemaType = null;
+        keyLength = -1;
+        messageLength = -1;
+    }
+    
+    void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    void setTopic(String topic) {
+        this.topic = topic;
+    }
+    
+    void setPartition(int partition) {
+        this.partition = partition;
+    }
+    
+    void setOffset(long offset) {
+        this.offset = offset;
+    }
+    
+    void setSchemaId(Integer schemaId) {
+        this.schemaId = schemaId;
+    }
+    
+    void setSchemaType(String schemaType) {
+        this.schemaType = schemaType;
+    }
+    
+    void startKey() {
+        keyLength = 0;
+    }
+    
+    void appendKey(byte b) {
+        if (keyLength == key.length) {
+            byte[] grown = new byte[key.length * 2];
+            System.arraycopy(key, 0, grown, 0, keyLength);
+            key = grown;
+        }
+        key[keyLength++] = b;
+    }
+    
+    /**
+     * Buffer for a message of the given length; its contents are discarded
+     */
+    byte[] messageBuffer(int length) {
+        if (message.length < length) {
+            message = new byte[Math.max(length, message.length * 2)];
+        }
+        messageLength = length;
+        return message;
+    }
+}
@@ -0,0 +1,128 @@
+package com.empresa.connector.model.kafka;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming decoder of the Mule envelope.
+ *
+ * The envelope is read token by token, with no tree and no intermediate strings for
+ * its payload: each number of the Key array becomes one byte, and the characters of
+ * the Message string are narrowed to bytes straight from the parser's buffer, escapes
+ * already resolved. Unknown fields are skipped.
+ *
+ * Malformed envelopes fail with a JsonParseException. PaymentRecordReader wraps it in
+ * an IllegalArgumentException, and the processing wraps that again; the retry
+ * configuration classifies the whole cause chain, so the record goes to the dead
+ * letter topic without retrying. The pre-filter accepts the record instead.
+ */
+public class MuleEnvelopeCodec {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    public MuleEnvelope decode(String json) throws IOException {
+        return decode(json, new MuleEnvelope());
+    }
+    
+    /**
+     * Decodes into an envelope, reusing its buffers
+     *
+     * @param json Envelope text
+     * @param envelope Envelope to fill; everything it held is replaced
+     * @return The same envelope
+     */
+    public MuleEnvelope decode(String json, MuleEnvelope envelope) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, envelope);
+        }
+    }
+    
+    public MuleEnvelope decode(byte[] json, MuleEnvelope envelope) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, envelope);
+        }
+    }
+    
+    private MuleEnvelope read(JsonParser parser, MuleEnvelope envelope) throws IOException {
+        envelope.clear();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Mule envelope is not a JSON object");
+        }
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            boolean isNull = value == JsonToken.VALUE_NULL;
+            switch (field) {
+                case "Timestamp":
+                    envelope.setTimestamp(isNull ? null : parser.getText());
+                    break;
+                case "Topic":
+                    envelope.setTopic(isNull ? null : parser.getText());
+                    break;
+                case "Partition":
+                    envelope.setPartition(isNull ? -1 : parser.getIntValue());
+                    break;
+                case "Offset":
+                    envelope.setOffset(isNull ? -1 : parser.getLongValue());
+                    break;
+                case "SchemaId":
+                    envelope.setSchemaId(isNull ? null : parser.getValueAsInt());
+                    break;
+                case "SchemaType":
+                    envelope.setSchemaType(isNull ? null : parser.getText());
+                    break;
+                case "Key":
+                    if (!isNull) {
+                        readKey(parser, envelope);
+                    }
+                    break;
+                case "Message":
+                    if (!isNull) {
+                        readMessage(parser, envelope);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return envelope;
+    }
+    
+    private void readKey(JsonParser parser, MuleEnvelope envelope) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Mule envelope Key is not an array");
+        }
+        envelope.startKey();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            // Signed (Java) or unsigned (.NET) bytes, depending on the producer
+            int b = parser.currentToken() == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : Integer.MIN_VALUE;
+            if (b < Byte.MIN_VALUE || b > 0xFF) {
+                throw new JsonParseException(parser, "Mule envelope Key holds a value that is not a byte");
+            }
+            envelope.appendKey((byte) b);
+        }
+    }
+    
+    private void readMessage(JsonParser parser, MuleEnvelope envelope) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Mule envelope Message is not a string");
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        
+        byte[] bytes = envelope.messageBuffer(length);
+        for (int i = 0; i < length; i++) {
+            char c = chars[offset + i];
+            if (c > 0xFF) {
+                throw new JsonParseException(parser, "Mule envelope Message holds a character above 0xFF");
+            }
+            bytes[i] = (byte) c;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.empresa.connector.model.kafka;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MuleEnvelopeCodec
+ */
+public class MuleEnvelopeCodecTest {
+    
+    private static final String ENVELOPE = "{"
+            + "\"Timestamp\":\"2025-03-07T07:01:12.167+00:00\","
+            + "\"Topic\":\"SBNA.00002517.MIP_INS_HIST_E3.MODIFY.AVRO\","
+            + "\"Partition\":1,"
+            + "\"Offset\":39398,"
+            + "\"SchemaId\":null,"
+            + "\"SchemaType\":null,"
+            + "\"Key\":[0,0,0,2,96,48,51,255],"
+            + "\"Headers\":{\"trace\":[1,2]},"
+            + "\"Message\":\"\\u0000\\u0011\\u00161Forge\\u00ff\""
+            + "}";
+    
+    private final MuleEnvelopeCodec codec = new MuleEnvelopeCodec();
+    
+    @Test
+    void decode_sampleEnvelope_readsMetadata() throws Exception {
+        MuleEnvelope envelope = codec.decode(ENVELOPE);
+        
+        assertEquals("2025-03-07T07:01:12.167+00:00", envelope.getTimestamp());
+        assertEquals("SBNA.00002517.MIP_INS_HIST_E3.MODIFY.AVRO", envelope.getTopic());
+        assertEquals(1, envelope.getPartition());
+        assertEquals(39398L, envelope.getOffset());
+        assertNull(envelope.getSchemaId());
+        assertNull(envelope.getSchemaType());
+    }
+    
+    @Test
+    void decode_keyArray_decodedToBytes() throws Exception {
+        ByteBuffer key = codec.decode(ENVELOPE).getKey();
+        
+        assertArrayEquals(new byte[]{0, 0, 0, 2, 96, 48, 51, (byte) 0xFF}, toArray(key));
+    }
+    
+    @Test
+    void decode_message_oneBytePerCharacter() throws Exception {
+        ByteBuffer message = codec.decode(ENVELOPE).getMessage();
+        
+        assertArrayEquals(new byte[]{0, 0x11, 0x16, '1', 'F', 'o', 'r', 'g', 'e', (byte) 0xFF}, toArray(message));
+    }
+    
+    @Test
+    void decode_reusedEnvelope_replacesPreviousContent() throws Exception {
+        MuleEnvelope envelope = codec.decode(ENVELOPE);
+        
+        codec.decode("{\"Offset\":7,\"Message\":\"ab\"}", envelope);
+        
+        assertEquals(7L, envelope.getOffset());
+        assertNull(envelope.getTopic());
+        assertNull(envelope.getKey());
+        assertArrayEquals("ab".getBytes(StandardCharsets.ISO_8859_1), toArray(envelope.getMessage()));
+    }
+    
+    @Test
+    void decode_largeMessageAndKey_growBuffers() throws Exception {
+        byte[] expected = new byte[5000];
+        StringBuilder message = new StringBuilder();
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) i;
+            message.append(String.format("\\u%04x", i % 256));
+            key.append(i > 0 ? "," : "").append(i % 128);
+        }
+        
+        MuleEnvelope envelope = codec.decode("{\"Key\":[" + key + "],\"Message\":\"" + message + "\"}");
+        
+        assertEquals(5000, envelope.getKey().remaining());
+        assertArrayEquals(expected, toArray(envelope.getMessage()));
+    }
+    
+    @Test
+    void decode_utf8Bytes_sameResult() throws Exception {
+        MuleEnvelope envelope = codec.decode(ENVELOPE.getBytes(StandardCharsets.UTF_8), new MuleEnvelope());
+        
+        assertEquals(39398L, envelope.getOffset());
+        assertEquals(10, envelope.getMessage().remaining());
+    }
+    
+    @Test
+    void decode_messageAboveByteRange_fails() {
+        assertThrows(JsonParseException.class, () -> codec.decode("{\"Message\":\"\\u0100\"}"));
+    }
+    
+    @Test
+    void decode_keyValueNotAByte_fails() {
+        assertThrows(JsonParseException.class, () -> codec.decode("{\"Key\":[1,256]}"));
+    }
+    
+    @Test
+    void decode_notAnObject_fails() {
+        assertThrows(JsonParseException.class, () -> codec.decode("[1,2]"));
+    }
+    
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
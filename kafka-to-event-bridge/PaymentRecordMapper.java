@@ -0,0 +1,41 @@
+package com.empresa.connector.mapper;
+
+import com.empresa.connector.model.avro.PaymentRecord;
+import com.empresa.connector.model.eventbridge.EventBridgeDetail;
+import com.empresa.connector.model.eventbridge.EventBridgeMessage;
+import com.empresa.connector.model.eventbridge.EventBridgePayload;
+import com.empresa.connector.model.kafka.KafkaPaymentMessage;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+
+/**
+ * Maps the payment record generated from the registry schema snapshot straight to the
+ * EventBridge message; MapStruct generates the implementation at build time, so the
+ * mapping is plain getter and builder calls. Same output as KafkaToEventBridgeMapper.
+ */
+@Mapper(componentModel = "spring")
+public interface PaymentRecordMapper {
+    
+    @Mapping(target = "detailType", constant = "Transfer_KO")
+    @Mapping(target = "source", constant = "openbank.payments")
+    @Mapping(target = "detail", source = "record", qualifiedByName = "toEventBridgeDetail")
+    EventBridgeMessage toEventBridgeMessage(PaymentRecord record);
+    
+    @Named("toEventBridgeDetail")
+    default EventBridgeDetail toEventBridgeDetail(PaymentRecord record) {
+        return EventBridgeDetail.builder()
+                .payload(EventBridgePayload.builder()
+                        .operationId(operationId(record))
+                        .build())
+                .build();
+    }
+    
+    /**
+     * operationId of the record, as KafkaPaymentMessage.buildOperationId
+     */
+    static String operationId(PaymentRecord record) {
+        return KafkaPaymentMessage.appendOperationId(new StringBuilder(48), record.getG6181CCENCONT(),
+                record.getG6181NUMORD(), record.getG6181JNUMDET(), record.getG6181FECHAEJE()).toString();
+    }
+}
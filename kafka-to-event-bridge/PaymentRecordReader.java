@@ -0,0 +1,53 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.model.avro.PaymentRecord;
+import com.empresa.connector.model.kafka.MuleEnvelope;
+import com.empresa.connector.model.kafka.MuleEnvelopeCodec;
+import com.empresa.connector.util.SpecificRecordDecoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the typed payment record out of a Mule envelope: the envelope is decoded by
+ * MuleEnvelopeCodec and its binary Message by the class generated from
+ * avro/MIP_INS_HIST_EJ.avsc, with no GenericRecord or JSON tree in between.
+ *
+ * The snapshot must be the schema the records are written with; when the registry
+ * schema changes, refresh the snapshot (schema-snapshot profile) and rebuild.
+ */
+@Component
+public class PaymentRecordReader {
+    
+    private final MuleEnvelopeCodec envelopeCodec = new MuleEnvelopeCodec();
+    private final ThreadLocal<MuleEnvelope> envelopes = ThreadLocal.withInitial(MuleEnvelope::new);
+    private final SpecificRecordDecoder<PaymentRecord> decoder;
+    
+    public PaymentRecordReader(@Value("${kafka.consumer.typed-records.header-length:5}") int headerLength) {
+        this.decoder = new SpecificRecordDecoder<>(PaymentRecord.class, headerLength);
+    }
+    
+    /**
+     * @param payload Mule envelope as received from the topic
+     * @throws IllegalArgumentException If the envelope or the record cannot be read;
+     *                                  retrying would not change that
+     */
+    public PaymentRecord read(String payload) {
+        ByteBuffer message;
+        try {
+            message = envelopeCodec.decode(payload, envelopes.get()).getMessage();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable Mule envelope", e);
+        }
+        if (message == null) {
+            throw new IllegalArgumentException("Mule envelope without Message");
+        }
+        try {
+            return decoder.decode(message);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Payment record does not match the schema snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.mapper.PaymentRecordMapper;
+import com.empresa.connector.model.avro.PaymentRecord;
+import com.empresa.connector.model.eventbridge.EventBridgeMessage;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PaymentRecordReader and PaymentRecordMapper
+ */
+public class PaymentRecordReaderTest {
+    
+    private final PaymentRecordReader reader = new PaymentRecordReader(5);
+    private final PaymentRecordMapper mapper = Mappers.getMapper(PaymentRecordMapper.class);
+    
+    @Test
+    void read_envelopeWithConfluentFraming_decodesTypedRecord() throws IOException {
+        PaymentRecord record = reader.read(envelope(encode(record("13"))));
+        
+        assertEquals("1234", record.getG6181CCENCONT());
+        assertEquals("13", record.getG6181CODESTA2());
+        assertNull(record.getG6181TIPOPRD());
+    }
+    
+    @Test
+    void toEventBridgeMessage_buildsSameOperationIdAsJsonPath() throws IOException {
+        EventBridgeMessage message = mapper.toEventBridgeMessage(reader.read(envelope(encode(record("13")))));
+        
+        assertEquals("Transfer_KO", message.getDetailType());
+        assertEquals("openbank.payments", message.getSource());
+        assertEquals("1234000042001-01001-00000-2025-01-01", message.getDetail().getPayload().getOperationId());
+    }
+    
+    @Test
+    void read_envelopeWithoutMessage_isNotRetryable() {
+        assertThrows(IllegalArgumentException.class, () -> reader.read("{\"Topic\":\"t\",\"Message\":null}"));
+    }
+    
+    @Test
+    void read_truncatedRecord_isNotRetryable() throws IOException {
+        byte[] data = encode(record("13"));
+        byte[] truncated = new byte[data.length - 4];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        
+        assertThrows(IllegalArgumentException.class, () -> reader.read(envelope(truncated)));
+    }
+    
+    private static PaymentRecord record(String codesta2) {
+        return PaymentRecord.newBuilder()
+                .setG6181IDEMPR("0049")
+                .setG6181CCENCONT("1234")
+                .setG6181NUMORD("000042")
+                .setG6181JNUMDET("001")
+                .setG6181FECHAEJE("2025-01-01")
+                .setG6181CODESTA2(codesta2)
+                .build();
+    }
+    
+    /**
+     * Confluent wire format: magic byte, 4-byte schema id, binary record
+     */
+    private static byte[] encode(PaymentRecord record) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{0, 0, 0, 0, 42});
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new SpecificDatumWriter<>(PaymentRecord.class).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+    
+    /**
+     * Mule envelope carrying the bytes as a string, one character per byte
+     */
+    private static String envelope(byte[] message) {
+        StringBuilder json = new StringBuilder("{\"Topic\":\"SBNA.00002517.MIP_INS_HIST_EJ.MODIFY.AVRO\",\"Message\":\"");
+        for (byte b : message) {
+            json.append(String.format("\\u%04x", b & 0xFF));
+        }
+        return json.append("\"}").toString();
+    }
+}
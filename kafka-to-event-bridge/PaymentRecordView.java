@@ -0,0 +1,260 @@
+package com.empresa.connector.model.kafka;
+
+import com.empresa.connector.util.JsonFieldScanner;
+
+/**
+ * Flyweight read-only view of the G6181_* fields of a payment record, over the JSON
+ * text the record was decoded to.
+ *
+ * wrap indexes the eight fields in one pass over the text; each getter returns a
+ * CharSequence slice of that text, so nothing is copied and nothing is allocated once
+ * the view and its slices exist. Values with JSON escapes, which the upstream fields
+ * do not normally carry, are decoded into a buffer owned by the slice.
+ *
+ * A view and its slices are reused by every wrap: keep one per thread, and copy a
+ * value (toString) if it must outlive the next record.
+ */
+public class PaymentRecordView {
+    
+    private static final String PREFIX = "G6181_";
+    private static final String[] FIELDS = {
+            "G6181_IDEMPR", "G6181_CCENCONT", "G6181_TIPOPRD", "G6181_CCONTRAT",
+            "G6181_NUMORD", "G6181_JNUMDET", "G6181_FECHAEJE", "G6181_CODESTA2"
+    };
+    private static final int IDEMPR = 0;
+    private static final int CCENCONT = 1;
+    private static final int TIPOPRD = 2;
+    private static final int CCONTRAT = 3;
+    private static final int NUMORD = 4;
+    private static final int JNUMDET = 5;
+    private static final int FECHAEJE = 6;
+    private static final int CODESTA2 = 7;
+    
+    private final Slice[] slices = new Slice[FIELDS.length];
+    
+    public PaymentRecordView() {
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new Slice();
+        }
+    }
+    
+    /**
+     * Points the view at a record, replacing the previous one. The first occurrence of
+     * each field, at any depth, is used.
+     *
+     * @param json Record as JSON text
+     * @return This view
+     */
+    public PaymentRecordView wrap(CharSequence json) {
+        for (Slice slice : slices) {
+            slice.clear();
+        }
+        int found = 0;
+        int length = json.length();
+        int i = 0;
+        while (i < length && found < FIELDS.length) {
+            if (json.charAt(i) != '"') {
+                i++;
+                continue;
+            }
+            int end = JsonFieldScanner.stringEnd(json, i);
+            if (end < 0) {
+                break;
+            }
+            int colon = JsonFieldScanner.skipWhitespace(json, end + 1);
+            int field = colon < length && json.charAt(colon) == ':' ? fieldIndex(json, i + 1, end) : -1;
+            if (field < 0 || slices[field].present) {
+                i = end + 1;
+                continue;
+            }
+            
+            int value = JsonFieldScanner.skipWhitespace(json, colon + 1);
+            if (value >= length) {
+                break;
+            }
+            char first = json.charAt(value);
+            if (first == '"') {
+                int valueEnd = JsonFieldScanner.stringEnd(json, value);
+                if (valueEnd < 0) {
+                    break;
+                }
+                slices[field].set(json, value + 1, valueEnd);
+                i = valueEnd + 1;
+            } else if (first == '{' || first == '[') {
+                // Not a scalar: the field stays missing and its contents are scanned
+                i = value;
+                continue;
+            } else {
+                int valueEnd = JsonFieldScanner.literalEnd(json, value);
+                if (!isNullLiteral(json, value, valueEnd)) {
+                    slices[field].set(json, value, valueEnd);
+                }
+                i = valueEnd;
+            }
+            found++;
+        }
+        return this;
+    }
+    
+    public CharSequence getIdempr() {
+        return value(IDEMPR);
+    }
+    
+    public CharSequence getCcencont() {
+        return value(CCENCONT);
+    }
+    
+    public CharSequence getTipoprd() {
+        return value(TIPOPRD);
+    }
+    
+    public CharSequence getCcontrat() {
+        return value(CCONTRAT);
+    }
+    
+    public CharSequence getNumord() {
+        return value(NUMORD);
+    }
+    
+    public CharSequence getJnumdet() {
+        return value(JNUMDET);
+    }
+    
+    public CharSequence getFechaeje() {
+        return value(FECHAEJE);
+    }
+    
+    public CharSequence getCodesta2() {
+        return value(CODESTA2);
+    }
+    
+    /**
+     * Value of a field by its JSON name
+     *
+     * @return The value, or null if the field is missing or is not a G6181_* field
+     */
+    public CharSequence get(String field) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(field)) {
+                return value(i);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Whether get can answer for the field
+     */
+    public static boolean isIndexed(String field) {
+        for (String indexed : FIELDS) {
+            if (indexed.equals(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Appends the operationId of the record, as KafkaPaymentMessage.buildOperationId
+     */
+    public StringBuilder appendOperationId(StringBuilder out) {
+        return KafkaPaymentMessage.appendOperationId(out, getCcencont(), getNumord(), getJnumdet(), getFechaeje());
+    }
+    
+    private CharSequence value(int field) {
+        Slice slice = slices[field];
+        return slice.present ? slice : null;
+    }
+    
+    private static int fieldIndex(CharSequence json, int start, int end) {
+        int length = end - start;
+        if (length < PREFIX.length() + 1 || json.charAt(start) != 'G' || !startsWithPrefix(json, start)) {
+            return -1;
+        }
+        for (int f = 0; f < FIELDS.length; f++) {
+            String name = FIELDS[f];
+            if (name.length() == length && regionEquals(json, start, name)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+    
+    private static boolean isNullLiteral(CharSequence json, int start, int end) {
+        return end - start == 4 && json.charAt(start) == 'n' && json.charAt(start + 1) == 'u'
+                && json.charAt(start + 2) == 'l' && json.charAt(start + 3) == 'l';
+    }
+    
+    private static boolean startsWithPrefix(CharSequence json, int start) {
+        for (int i = 1; i < PREFIX.length(); i++) {
+            if (json.charAt(start + i) != PREFIX.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean regionEquals(CharSequence json, int start, String name) {
+        for (int i = PREFIX.length(); i < name.length(); i++) {
+            if (json.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Range of the record text, or the decoded value when the text holds escapes
+     */
+    private static final class Slice implements CharSequence {
+        
+        private final StringBuilder decoded = new StringBuilder(32);
+        private CharSequence source;
+        private int start;
+        private int end;
+        private boolean present;
+        
+        private void set(CharSequence json, int start, int end) {
+            present = true;
+            if (JsonFieldScanner.hasEscapes(json, start, end)) {
+                decoded.setLength(0);
+                JsonFieldScanner.unescape(json, start, end, decoded);
+                this.source = decoded;
+                this.start = 0;
+                this.end = decoded.length();
+            } else {
+                this.source = json;
+                this.start = start;
+                this.end = end;
+            }
+        }
+        
+        private void clear() {
+            present = false;
+            source = null;
+        }
+        
+        @Override
+        public int length() {
+            return end - start;
+        }
+        
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("index " + index + ", length " + (end - start));
+            }
+            return source.charAt(start + index);
+        }
+        
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return source.subSequence(start + from, start + to);
+        }
+        
+        @Override
+        public String toString() {
+            return source.subSequence(start, end).toString();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.empresa.connector.model.kafka;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for PaymentRecordView
+ */
+public class PaymentRecordViewTest {
+    
+    private static final String PAYMENT = "{\"G6181_IDEMPR\":\"0049\",\"G6181_CCENCONT\":\"1234\","
+            + "\"G6181_TIPOPRD\":\"300\",\"G6181_CCONTRAT\":\"7777\",\"G6181_NUMORD\":\"000123\","
+            + "\"G6181_JNUMDET\":\"01\",\"G6181_FECHAEJE\":\"2025-03-07\",\"G6181_CODESTA2\":\"13\"}";
+    
+    private final PaymentRecordView view = new PaymentRecordView();
+    
+    @Test
+    void wrap_exposesEveryField() {
+        view.wrap(PAYMENT);
+        
+        assertEquals("0049", view.getIdempr().toString());
+        assertEquals("1234", view.getCcencont().toString());
+        assertEquals("300", view.getTipoprd().toString());
+        assertEquals("7777", view.getCcontrat().toString());
+        assertEquals("000123", view.getNumord().toString());
+        assertEquals("01", view.getJnumdet().toString());
+        assertEquals("2025-03-07", view.getFechaeje().toString());
+        assertEquals("13", view.getCodesta2().toString());
+        assertEquals("13", view.get("G6181_CODESTA2").toString());
+    }
+    
+    @Test
+    void appendOperationId_matchesKafkaPaymentMessage() {
+        KafkaPaymentMessage message = KafkaPaymentMessage.builder()
+                .ccencont("1234").numord("000123").jnumdet("01").fechaeje("2025-03-07").build();
+        
+        String operationId = view.wrap(PAYMENT).appendOperationId(new StringBuilder()).toString();
+        
+        assertEquals(message.buildOperationId(), operationId);
+        assertEquals("123400012301-01001-00000-2025-03-07", operationId);
+    }
+    
+    @Test
+    void wrap_missingAndNullFields_returnNull() {
+        view.wrap("{\"G6181_CODESTA2\":null,\"G6181_NUMORD\":{\"nested\":1}}");
+        
+        assertNull(view.getCodesta2());
+        assertNull(view.getNumord());
+        assertNull(view.getIdempr());
+        assertNull(view.get("other"));
+    }
+    
+    @Test
+    void wrap_numbersAndEscapes_decoded() {
+        view.wrap("{\"G6181_NUMORD\": 123 ,\"G6181_CCONTRAT\":\"a\\\"b\"}");
+        
+        assertEquals("123", view.getNumord().toString());
+        assertEquals("a\"b", view.getCcontrat().toString());
+    }
+    
+    @Test
+    void wrap_nextRecord_replacesPreviousValues() {
+        view.wrap(PAYMENT);
+        
+        view.wrap("{\"G6181_CODESTA2\":\"07\"}");
+        
+        assertEquals("07", view.getCodesta2().toString());
+        assertNull(view.getCcencont());
+    }
+    
+    @Test
+    void wrapAndAppendOperationId_steadyState_allocateNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long thread = Thread.currentThread().getId();
+        StringBuilder operationId = new StringBuilder(64);
+        
+        // Warm-up, so that the measured loop runs compiled code with buffers already sized
+        long checksum = map(operationId, 20_000);
+        
+        long before = threads.getThreadAllocatedBytes(thread);
+        checksum += map(operationId, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        
+        assertTrue(checksum > 0);
+        // Well under one byte per record: the counter itself may allocate a little
+        assertTrue(allocated < 10_000, "Allocated " + allocated + " bytes for 100000 records");
+    }
+    
+    private long map(StringBuilder operationId, int records) {
+        long checksum = 0;
+        for (int i = 0; i < records; i++) {
+            operationId.setLength(0);
+            view.wrap(PAYMENT).appendOperationId(operationId);
+            checksum += operationId.length() + view.getCodesta2().charAt(1);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,148 @@
+package com.empresa.connector.util;
+
+import com.empresa.connector.model.PutEventsResult;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming parser for PutEvents responses.
+ *
+ * Reads the response straight from the input stream with a Jackson parser, whose
+ * read and text buffers are recycled per thread by the JsonFactory. No tree or bean
+ * is built: when FailedEntryCount is read before Entries and is zero the array is
+ * skipped whole; otherwise only the index and ErrorCode of failed entries are kept.
+ */
+@Component
+public class PutEventsResponseParser {
+    
+    private static final String FAILED_ENTRY_COUNT = "FailedEntryCount";
+    private static final String ENTRIES = "Entries";
+    private static final String ERROR_CODE = "ErrorCode";
+    
+    private final JsonFactory jsonFactory = new JsonFactory();
+    
+    /**
+     * Parses a PutEvents response body, closing the stream when done
+     *
+     * @param body Response body stream
+     * @return Failed entry count and the failed entries
+     */
+    public PutEventsResult parse(InputStream body) throws IOException {
+        PutEventsResult result = new PutEventsResult();
+        if (body == null) {
+            return result;
+        }
+        
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("PutEvents response is not a JSON object");
+            }
+            
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                
+                if (FAILED_ENTRY_COUNT.equals(field)) {
+                    result.setFailedEntryCount(parser.getIntValue());
+                } else if (ENTRIES.equals(field) && value == JsonToken.START_ARRAY) {
+                    if (result.isFailedEntryCountKnown() && result.getFailedEntryCount() == 0) {
+                        // Nothing failed, no need to look at the entries
+                        parser.skipChildren();
+                    } else {
+                        readEntries(parser, result);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Walks the Entries array, keeping the index and ErrorCode of the failed ones
+     */
+    private void readEntries(JsonParser parser, PutEventsResult result) throws IOException {
+        int index = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (ERROR_CODE.equals(field) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                    result.addFailedEntry(index, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            index++;
+        }
+    }
+}
+
+package com.empresa.connector.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of a PutEvents call: the failed entry count and, for each failed
+ * entry, its index in the request and its error code
+ */
+public class PutEventsResult {
+    
+    private static final int[] NO_INDICES = new int[0];
+    
+    @Getter
+    private int failedEntryCount;
+    @Getter
+    private boolean failedEntryCountKnown;
+    // Number of failed entries read from the Entries array
+    @Getter
+    private int failedEntries;
+    private int[] failedIndices = NO_INDICES;
+    private String[] errorCodes = new String[0];
+    
+    public void setFailedEntryCount(int failedEntryCount) {
+        this.failedEntryCount = failedEntryCount;
+        this.failedEntryCountKnown = true;
+    }
+    
+    public void addFailedEntry(int index, String errorCode) {
+        if (failedEntries == failedIndices.length) {
+            int capacity = Math.max(4, failedEntries * 2);
+            failedIndices = Arrays.copyOf(failedIndices, capacity);
+            errorCodes = Arrays.copyOf(errorCodes, capacity);
+        }
+        failedIndices[failedEntries] = index;
+        errorCodes[failedEntries] = errorCode;
+        failedEntries++;
+    }
+    
+    public boolean isSuccessful() {
+        return failedEntryCountKnown && failedEntryCount == 0;
+    }
+    
+    public int getFailedIndex(int i) {
+        return failedIndices[i];
+    }
+    
+    public String getErrorCode(int i) {
+        return errorCodes[i];
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PutEventsResult(failedEntryCount=").append(failedEntryCount);
+        for (int i = 0; i < failedEntries; i++) {
+            sb.append(i == 0 ? ", failed=[" : ", ").append(failedIndices[i]).append(':').append(errorCodes[i]);
+        }
+        return sb.append(failedEntries > 0 ? "])" : ")").toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.empresa.connector.util;
+
+import com.empresa.connector.model.PutEventsResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PutEventsResponseParser
+ */
+public class PutEventsResponseParserTest {
+    
+    private final PutEventsResponseParser parser = new PutEventsResponseParser();
+    
+    @Test
+    void parse_withNoFailures_isSuccessful() throws IOException {
+        PutEventsResult result = parser.parse(stream(
+                "{\"Entries\":[{\"EventId\":\"a\"},{\"EventId\":\"b\"}],\"FailedEntryCount\":0}"));
+        
+        assertTrue(result.isSuccessful());
+        assertEquals(0, result.getFailedEntries());
+    }
+    
+    @Test
+    void parse_withCountFirstAndZero_skipsEntries() throws IOException {
+        // Entries would be malformed for the entry reader, skipping proves they are not walked
+        PutEventsResult result = parser.parse(stream(
+                "{\"FailedEntryCount\":0,\"Entries\":[[{\"ErrorCode\":\"X\"}],{\"EventId\":{\"nested\":[1,2]}}]}"));
+        
+        assertTrue(result.isSuccessful());
+        assertEquals(0, result.getFailedEntries());
+    }
+    
+    @Test
+    void parse_withFailures_keepsIndicesAndErrorCodes() throws IOException {
+        PutEventsResult result = parser.parse(stream("{\"Entries\":["
+                + "{\"EventId\":\"a\"},"
+                + "{\"ErrorCode\":\"ThrottlingException\",\"ErrorMessage\":\"Rate exceeded\"},"
+                + "{\"EventId\":\"c\"},"
+                + "{\"ErrorMessage\":\"boom\",\"ErrorCode\":\"InternalFailure\"}"
+                + "],\"FailedEntryCount\":2}"));
+        
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getFailedEntryCount());
+        assertEquals(2, result.getFailedEntries());
+        assertEquals(1, result.getFailedIndex(0));
+        assertEquals("ThrottlingException", result.getErrorCode(0));
+        assertEquals(3, result.getFailedIndex(1));
+        assertEquals("InternalFailure", result.getErrorCode(1));
+    }
+    
+    @Test
+    void parse_withoutFailedEntryCount_isNotSuccessful() throws IOException {
+        assertFalse(parser.parse(stream("{\"Entries\":[]}")).isSuccessful());
+    }
+    
+    @Test
+    void parse_withNonObjectBody_throwsIOException() {
+        assertThrows(IOException.class, () -> parser.parse(stream("[]")));
+    }
+    
+    private InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
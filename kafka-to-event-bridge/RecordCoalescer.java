@@ -0,0 +1,489 @@
+package com.empresa.connector.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "coalesce")
+public class CoalesceProperties {
+    
+    private boolean enabled = false;
+    
+    // Only records of this topic are coalesced; retry topics are not
+    private String topic;
+    
+    // Records with the same values of these fields are modifications of the same order
+    private List<String> keyFields = new ArrayList<>(Arrays.asList("G6181_CCENCONT", "G6181_NUMORD", "G6181_JNUMDET"));
+    
+    // A key's window closes window-ms after its first record, or once it has received
+    // max-records-per-key records (0 for no limit)
+    private long windowMs = 200;
+    private int maxRecordsPerKey = 0;
+    
+    // Open windows per partition; past it the oldest one closes early
+    private int maxKeys = 10000;
+    
+    // How often the windows of partitions with no new records are checked
+    private long flushIntervalMs = 50;
+    
+    // Processing attempts of a held record before it is sent to the dead-letter topic
+    private int maxAttempts = 3;
+}
+
+package com.empresa.connector.service;
+
+import com.empresa.connector.config.properties.CoalesceProperties;
+import com.empresa.connector.model.kafka.PaymentRecordView;
+import com.empresa.connector.util.JsonFieldScanner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Forwards only the latest of a burst of modifications of the same order.
+ *
+ * MIP_INS_HIST_EJ.MODIFY often carries several modifications of one order (same
+ * G6181_CCENCONT, G6181_NUMORD and G6181_JNUMDET) within milliseconds, and downstream
+ * only needs its latest state. An accepted record opens a window for its key, or
+ * replaces the record held in the key's open window. The window closes
+ * coalesce.window-ms after its first record, or once it has received
+ * coalesce.max-records-per-key records, and its record is processed then. A key holds
+ * one record and a partition at most coalesce.max-keys open windows, the oldest one
+ * closing early past that, so memory is bounded by the number of active keys.
+ *
+ * A commit covers every offset before it, so the offsets of the coalesced topic are
+ * committed here: a partition is committed up to its oldest held record, superseded,
+ * processed and rejected records included. Held records are not committed and are
+ * read again after a restart or rebalance. A record whose processing fails is held
+ * again for another window, unless a newer one replaced it meanwhile, and after
+ * coalesce.max-attempts it is sent to the dead-letter topic. Records processed on
+ * their own (no key) that fail take the same path through offerFailed, instead of
+ * the retry topics, whose error handler would commit past the held records.
+ *
+ * Windows are closed on the listener thread as records arrive, and by flushExpired
+ * for partitions with no new records; each partition processes one window at a time.
+ *
+ * Metrics: coalesce.records, by result (emitted, superseded, failed); coalesce.windows.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecordCoalescer {
+    
+    private static final long DEAD_LETTER_TIMEOUT_SECONDS = 30;
+    
+    private final CoalesceProperties properties;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<TopicPartition, PartitionWindows> partitions = new ConcurrentHashMap<>();
+    private final ThreadLocal<PaymentRecordView> views = ThreadLocal.withInitial(PaymentRecordView::new);
+    private final AtomicInteger openWindows = new AtomicInteger();
+    
+    private volatile Emitter emitter;
+    private Counter emitted;
+    private Counter superseded;
+    private Counter failed;
+    
+    /**
+     * Processing of a record whose window closed
+     */
+    @FunctionalInterface
+    public interface Emitter {
+        void emit(String payload, String topic, int partition, long offset);
+    }
+    
+    @PostConstruct
+    public void init() {
+        emitted = Counter.builder("coalesce.records").tag("result", "emitted").register(meterRegistry);
+        superseded = Counter.builder("coalesce.records").tag("result", "superseded").register(meterRegistry);
+        failed = Counter.builder("coalesce.records").tag("result", "failed").register(meterRegistry);
+        Gauge.builder("coalesce.windows", openWindows, AtomicInteger::get).register(meterRegistry);
+        if (properties.isEnabled()) {
+            log.info("Record coalescing enabled on {}: key {}, window {} ms, {} records per key, {} keys",
+                    properties.getTopic(), properties.getKeyFields(), properties.getWindowMs(),
+                    properties.getMaxRecordsPerKey(), properties.getMaxKeys());
+        }
+    }
+    
+    public void register(Emitter emitter) {
+        this.emitter = emitter;
+    }
+    
+    /**
+     * Whether the records of the topic, and their offsets, go through the coalescer
+     */
+    public boolean applies(String topic) {
+        return properties.isEnabled() && topic.equals(properties.getTopic());
+    }
+    
+    /**
+     * Key of the record, or null if one of the key fields is missing and the record
+     * must be processed on its own
+     */
+    public String key(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        PaymentRecordView view = views.get().wrap(payload);
+        StringBuilder key = new StringBuilder(32);
+        for (String field : properties.getKeyFields()) {
+            CharSequence value = PaymentRecordView.isIndexed(field)
+                    ? view.get(field)
+                    : JsonFieldScanner.find(payload, field);
+            if (value == null) {
+                return null;
+            }
+            key.append(value).append('|');
+        }
+        return key.toString();
+    }
+    
+    /**
+     * Holds the record in its key's window, replacing the record held there, and
+     * processes the windows of the partition that closed
+     */
+    public void offer(String key, String payload, String topic, int partition, long offset, Acknowledgment ack) {
+        offer(key, payload, topic, partition, offset, ack, System.currentTimeMillis());
+    }
+    
+    void offer(String key, String payload, String topic, int partition, long offset, Acknowledgment ack, long now) {
+        PartitionWindows windows = partitions.computeIfAbsent(new TopicPartition(topic, partition), PartitionWindows::new);
+        windows.hold(key, payload, offset, ack, now);
+        drain(windows, now, true);
+    }
+    
+    /**
+     * A record of the topic that is not held: processed on its own or rejected
+     *
+     * @param commit Whether to commit now, as far as the held records allow
+     */
+    public void done(String topic, int partition, long offset, Acknowledgment ack, boolean commit) {
+        partitions.computeIfAbsent(new TopicPartition(topic, partition), PartitionWindows::new)
+                .done(offset, ack, commit);
+    }
+    
+    /**
+     * A record of the topic processed on its own whose processing failed. It is held
+     * and retried like a coalesced record, and sent to the dead-letter topic after
+     * coalesce.max-attempts, so no offset is committed past it or the records held
+     * before it
+     */
+    public void offerFailed(String payload, String topic, int partition, long offset, Acknowledgment ack,
+                            RuntimeException cause) {
+        offerFailed(payload, topic, partition, offset, ack, cause, System.currentTimeMillis());
+    }
+    
+    void offerFailed(String payload, String topic, int partition, long offset, Acknowledgment ack,
+                     RuntimeException cause, long now) {
+        PartitionWindows windows = partitions.computeIfAbsent(new TopicPartition(topic, partition), PartitionWindows::new);
+        Window window = windows.holdFailed(payload, offset, ack);
+        if (window == null) {
+            return;
+        }
+        windows.emitting.lock();
+        try {
+            onFailure(windows, window, now, cause);
+        } finally {
+            windows.emitting.unlock();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${coalesce.flush-interval-ms:50}")
+    public void flushExpired() {
+        flush(System.currentTimeMillis());
+    }
+    
+    void flush(long now) {
+        for (PartitionWindows windows : partitions.values()) {
+            drain(windows, now, false);
+        }
+    }
+    
+    /**
+     * Drops the held records of partitions this consumer no longer owns, or was just
+     * given again; they are read again from the committed offset
+     */
+    public void discard(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionWindows windows = partitions.remove(partition);
+            if (windows != null) {
+                windows.discard();
+            }
+        }
+    }
+    
+    /**
+     * Processes the closed windows of the partition
+     *
+     * @param wait Whether to wait for another thread processing the partition, or skip it
+     */
+    private void drain(PartitionWindows windows, long now, boolean wait) {
+        if (wait) {
+            windows.emitting.lock();
+        } else if (!windows.emitting.tryLock()) {
+            return;
+        }
+        try {
+            Window window;
+            while ((window = windows.poll(now)) != null) {
+                emit(windows, window, now);
+            }
+        } finally {
+            windows.emitting.unlock();
+        }
+    }
+    
+    private void emit(PartitionWindows windows, Window window, long now) {
+        TopicPartition partition = windows.partition;
+        try {
+            emitter.emit(window.payload, partition.topic(), partition.partition(), window.offset);
+            emitted.increment();
+            windows.release(window.offset);
+        } catch (RuntimeException e) {
+            onFailure(windows, window, now, e);
+        }
+    }
+    
+    /**
+     * Holds the failed record for another window, or sends it to the dead-letter topic
+     */
+    private void onFailure(PartitionWindows windows, Window window, long now, RuntimeException cause) {
+        failed.increment();
+        if (++window.attempts < properties.getMaxAttempts()) {
+            log.warn("Coalesced record {}@{} failed, attempt {} of {}: {}", windows.partition, window.offset,
+                    window.attempts, properties.getMaxAttempts(), cause.getMessage());
+            windows.retry(window, now + properties.getWindowMs());
+        } else {
+            sendToDeadLetter(windows, window, now, cause);
+        }
+    }
+    
+    private void sendToDeadLetter(PartitionWindows windows, Window window, long now, RuntimeException cause) {
+        String deadLetterTopic = windows.partition.topic() + "-dlt";
+        log.error("Coalesced record {}@{} failed {} times, sending it to {}: {}", windows.partition, window.offset,
+                window.attempts, deadLetterTopic, cause.getMessage(), cause);
+        try {
+            kafkaTemplate.send(deadLetterTopic, window.payload).get(DEAD_LETTER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            windows.release(window.offset);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Coalesced record {}@{} not sent to {}, holding it: {}", windows.partition, window.offset,
+                    deadLetterTopic, e.getMessage());
+            windows.retry(window, now + properties.getWindowMs());
+        }
+    }
+    
+    private static final class Window {
+        
+        private final String key;
+        private long deadline;
+        private String payload;
+        private long offset;
+        private int records;
+        private int attempts;
+        
+        private Window(String key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+    
+    private static final class Pending {
+        
+        private final Acknowledgment ack;
+        private boolean held;
+        
+        private Pending(Acknowledgment ack, boolean held) {
+            this.ack = ack;
+            this.held = held;
+        }
+    }
+    
+    /**
+     * Windows and uncommitted offsets of one partition. Records arrive in offset
+     * order; pending keeps every held record and, before each one, only the last
+     * record that is not held, whose acknowledgment commits up to it.
+     */
+    private final class PartitionWindows {
+        
+        private final TopicPartition partition;
+        private final Map<String, Window> open = new LinkedHashMap<>();
+        private final Deque<Window> closed = new ArrayDeque<>();
+        private final NavigableMap<Long, Pending> pending = new TreeMap<>();
+        private final ReentrantLock emitting = new ReentrantLock();
+        private boolean discarded;
+        
+        private PartitionWindows(TopicPartition partition) {
+            this.partition = partition;
+        }
+        
+        private synchronized void hold(String key, String payload, long offset, Acknowledgment ack, long now) {
+            if (discarded) {
+                return;
+            }
+            pending.put(offset, new Pending(ack, true));
+            Window window = open.get(key);
+            if (window == null) {
+                window = new Window(key, now + properties.getWindowMs());
+                open.put(key, window);
+                openWindows.incrementAndGet();
+            } else {
+                superseded.increment();
+                release(window.offset);
+                window.attempts = 0;
+            }
+            window.payload = payload;
+            window.offset = offset;
+            window.records++;
+            
+            if (properties.getMaxRecordsPerKey() > 0 && window.records >= properties.getMaxRecordsPerKey()) {
+                close(key);
+            }
+            if (open.size() > properties.getMaxKeys()) {
+                close(open.keySet().iterator().next());
+            }
+        }
+        
+        /**
+         * Holds a record processed on its own that failed, in a window of its own
+         *
+         * @return The window, or null if the partition was discarded
+         */
+        private synchronized Window holdFailed(String payload, long offset, Acknowledgment ack) {
+            if (discarded) {
+                return null;
+            }
+            pending.put(offset, new Pending(ack, true));
+            // Coalescing keys end with '|', so this key never matches one
+            Window window = new Window("#" + offset, 0);
+            window.payload = payload;
+            window.offset = offset;
+            window.records = 1;
+            return window;
+        }
+        
+        private synchronized void done(long offset, Acknowledgment ack, boolean commit) {
+            if (discarded) {
+                return;
+            }
+            Map.Entry<Long, Pending> last = pending.lastEntry();
+            if (last != null && !last.getValue().held) {
+                pending.remove(last.getKey());
+            }
+            pending.put(offset, new Pending(ack, false));
+            if (commit) {
+                commit();
+            }
+        }
+        
+        /**
+         * The held record was processed or superseded
+         */
+        private synchronized void release(long offset) {
+            Pending released = pending.get(offset);
+            if (released == null) {
+                return;
+            }
+            released.held = false;
+            Map.Entry<Long, Pending> lower = pending.lowerEntry(offset);
+            if (lower != null && !lower.getValue().held) {
+                pending.remove(lower.getKey());
+            }
+            Map.Entry<Long, Pending> higher = pending.higherEntry(offset);
+            if (higher != null && !higher.getValue().held) {
+                pending.remove(offset);
+            }
+            commit();
+        }
+        
+        /**
+         * Next window to process: closed early, or the oldest one once expired
+         */
+        private synchronized Window poll(long now) {
+            if (!closed.isEmpty()) {
+                return closed.poll();
+            }
+            Iterator<Window> oldest = open.values().iterator();
+            if (oldest.hasNext()) {
+                Window window = oldest.next();
+                if (window.deadline <= now) {
+                    oldest.remove();
+                    openWindows.decrementAndGet();
+                    return window;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Holds a failed record for another window, unless a newer one replaced it
+         */
+        private synchronized void retry(Window window, long deadline) {
+            if (discarded) {
+                return;
+            }
+            if (open.containsKey(window.key)) {
+                superseded.increment();
+                release(window.offset);
+                return;
+            }
+            window.deadline = deadline;
+            open.put(window.key, window);
+            openWindows.incrementAndGet();
+        }
+        
+        private synchronized void discard() {
+            discarded = true;
+            openWindows.addAndGet(-open.size());
+            open.clear();
+            closed.clear();
+            pending.clear();
+        }
+        
+        private void close(String key) {
+            closed.add(open.remove(key));
+            openWindows.decrementAndGet();
+        }
+        
+        /**
+         * Commits up to the oldest held record; at most one record before it is not held
+         */
+        private void commit() {
+            Map.Entry<Long, Pending> first = pending.firstEntry();
+            if (first != null && !first.getValue().held) {
+                pending.pollFirstEntry();
+                first.getValue().ack.acknowledge();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.config.properties.CoalesceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RecordCoalescer
+ */
+public class RecordCoalescerTest {
+    
+    private static final String TOPIC = "SBNA.00002517.MIP_INS_HIST_EJ.MODIFY.AVRO";
+    private static final long WINDOW_MS = 200;
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Long> emitted = new ArrayList<>();
+    private CoalesceProperties properties;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private RecordCoalescer coalescer;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new CoalesceProperties();
+        properties.setEnabled(true);
+        properties.setTopic(TOPIC);
+        properties.setWindowMs(WINDOW_MS);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        coalescer = new RecordCoalescer(properties, kafkaTemplate, meterRegistry);
+        coalescer.init();
+        coalescer.register((payload, topic, partition, offset) -> emitted.add(offset));
+    }
+    
+    @Test
+    void key_readsOrderFields() {
+        assertEquals("1234|000123|01|", coalescer.key(payment("1234", "000123", "01")));
+        assertNull(coalescer.key("{\"G6181_CCENCONT\":\"1234\",\"G6181_NUMORD\":\"000123\"}"));
+        assertTrue(coalescer.applies(TOPIC));
+        assertFalse(coalescer.applies(TOPIC + "-retry-5000"));
+    }
+    
+    @Test
+    void offer_sameKey_emitsLatestWhenWindowCloses() {
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+        Acknowledgment latest = mock(Acknowledgment.class);
+        
+        coalescer.offer("k1", "v1", TOPIC, 0, 10, first, 0);
+        coalescer.offer("k1", "v2", TOPIC, 0, 11, second, 50);
+        coalescer.offer("k1", "v3", TOPIC, 0, 12, latest, 100);
+        coalescer.flush(WINDOW_MS - 1);
+        
+        assertTrue(emitted.isEmpty());
+        verify(first).acknowledge();
+        verify(second).acknowledge();
+        verify(latest, never()).acknowledge();
+        
+        coalescer.flush(WINDOW_MS);
+        
+        assertEquals(Collections.singletonList(12L), emitted);
+        verify(latest).acknowledge();
+        assertEquals(2.0, meterRegistry.get("coalesce.records").tag("result", "superseded").counter().count());
+        assertEquals(1.0, meterRegistry.get("coalesce.records").tag("result", "emitted").counter().count());
+        assertEquals(0.0, meterRegistry.get("coalesce.windows").gauge().value());
+    }
+    
+    @Test
+    void done_afterHeldRecord_isNotCommittedUntilItIsEmitted() {
+        Acknowledgment held = mock(Acknowledgment.class);
+        Acknowledgment processed = mock(Acknowledgment.class);
+        Acknowledgment rejected = mock(Acknowledgment.class);
+        
+        coalescer.offer("k1", "v1", TOPIC, 0, 10, held, 0);
+        coalescer.done(TOPIC, 0, 11, processed, true);
+        coalescer.done(TOPIC, 0, 12, rejected, false);
+        
+        verifyNoInteractions(held, processed, rejected);
+        
+        coalescer.flush(WINDOW_MS);
+        
+        assertEquals(Collections.singletonList(10L), emitted);
+        verify(rejected).acknowledge();
+        verify(held, never()).acknowledge();
+        verify(processed, never()).acknowledge();
+    }
+    
+    @Test
+    void offer_maxRecordsPerKey_closesWindowEarly() {
+        properties.setMaxRecordsPerKey(2);
+        
+        coalescer.offer("k1", "v1", TOPIC, 0, 10, mock(Acknowledgment.class), 0);
+        coalescer.offer("k1", "v2", TOPIC, 0, 11, mock(Acknowledgment.class), 1);
+        
+        assertEquals(Collections.singletonList(11L), emitted);
+    }
+    
+    @Test
+    void offer_maxKeys_closesOldestWindow() {
+        properties.setMaxKeys(2);
+        
+        coalescer.offer("k1", "v1", TOPIC, 0, 10, mock(Acknowledgment.class), 0);
+        coalescer.offer("k2", "v2", TOPIC, 0, 11, mock(Acknowledgment.class), 1);
+        coalescer.offer("k3", "v3", TOPIC, 0, 12, mock(Acknowledgment.class), 2);
+        
+        assertEquals(Collections.singletonList(10L), emitted);
+        assertEquals(2.0, meterRegistry.get("coalesce.windows").gauge().value());
+    }
+    
+    @Test
+    void emit_failing_retriesThenSendsToDeadLetterTopic() {
+        properties.setMaxAttempts(2);
+        SettableListenableFuture<SendResult<String, String>> sent = new SettableListenableFuture<>();
+        sent.set(null);
+        when(kafkaTemplate.send(TOPIC + "-dlt", "v1")).thenReturn(sent);
+        coalescer.register((payload, topic, partition, offset) -> {
+            throw new IllegalStateException("EventBridge unavailable");
+        });
+        Acknowledgment ack = mock(Acknowledgment.class);
+        
+        coalescer.offer("k1", "v1", TOPIC, 0, 10, ack, 0);
+        coalescer.flush(WINDOW_MS);
+        
+        verify(ack, never()).acknowledge();
+        verifyNoInteractions(kafkaTemplate);
+        
+        coalescer.flush(2 * WINDOW_MS);
+        
+        verify(kafkaTemplate).send(TOPIC + "-dlt", "v1");
+        verify(ack).acknowledge();
+        assertEquals(2.0, meterRegistry.get("coalesce.records").tag("result", "failed").counter().count());
+    }
+    
+    @Test
+    void offerFailed_afterHeldRecord_retriesWithoutCommittingPastIt() {
+        Acknowledgment held = mock(Acknowledgment.class);
+        Acknowledgment failed = mock(Acknowledgment.class);
+        
+        coalescer.offer("k1", "v1", TOPIC, 0, 10, held, 0);
+        coalescer.offerFailed("v2", TOPIC, 0, 11, failed, new IllegalStateException("EventBridge unavailable"), 0);
+        
+        assertTrue(emitted.isEmpty());
+        verifyNoInteractions(held, failed);
+        
+        coalescer.flush(WINDOW_MS);
+        
+        assertEquals(List.of(10L, 11L), emitted);
+        verify(held).acknowledge();
+        verify(failed).acknowledge();
+        assertEquals(1.0, meterRegistry.get("coalesce.records").tag("result", "failed").counter().count());
+    }
+    
+    @Test
+    void discard_dropsHeldRecordsWithoutCommitting() {
+        Acknowledgment ack = mock(Acknowledgment.class);
+        coalescer.offer("k1", "v1", TOPIC, 0, 10, ack, 0);
+        
+        coalescer.discard(Collections.singletonList(new TopicPartition(TOPIC, 0)));
+        coalescer.flush(WINDOW_MS);
+        
+        assertTrue(emitted.isEmpty());
+        verify(ack, never()).acknowledge();
+        assertEquals(0.0, meterRegistry.get("coalesce.windows").gauge().value());
+    }
+    
+    private static String payment(String ccencont, String numord, String jnumdet) {
+        return "{\"G6181_IDEMPR\":\"0049\",\"G6181_CCENCONT\":\"" + ccencont + "\",\"G6181_TIPOPRD\":\"300\","
+                + "\"G6181_CCONTRAT\":\"7777\",\"G6181_NUMORD\":\"" + numord + "\",\"G6181_JNUMDET\":\"" + jnumdet
+                + "\",\"G6181_FECHAEJE\":\"2025-03-07\",\"G6181_CODESTA2\":\"13\"}";
+    }
+}
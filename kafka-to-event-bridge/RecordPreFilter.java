@@ -0,0 +1,263 @@
+package com.empresa.connector.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "prefilter")
+public class PreFilterProperties {
+    
+    private boolean enabled = true;
+    
+    // json: fields read from the payload text; avro: from the binary record in the Mule envelope
+    private String format = "json";
+    private String avroSchema = "classpath:avro/MIP_INS_HIST_EJ.avsc";
+    // 5 for the Confluent wire format (magic byte and schema id), 0 for plain Avro
+    private int avroHeaderLength = 5;
+    
+    // Rejected records are committed every ack-every records or ack-interval-ms, per partition
+    private int ackEvery = 500;
+    private long ackIntervalMs = 5000;
+    
+    // Every rule must match for a record to be processed; none means CODESTA2 = validation.codesta2
+    private List<Rule> rules = new ArrayList<>();
+    
+    @Data
+    public static class Rule {
+        private String field;
+        private List<String> values = new ArrayList<>();
+        // Match when the value is not one of the values
+        private boolean negate;
+    }
+}
+
+package com.empresa.connector.service;
+
+import com.empresa.connector.config.properties.PreFilterProperties;
+import com.empresa.connector.model.kafka.MuleEnvelope;
+import com.empresa.connector.model.kafka.MuleEnvelopeCodec;
+import com.empresa.connector.model.kafka.PaymentRecordView;
+import com.empresa.connector.util.AvroFieldReader;
+import com.empresa.connector.util.JsonFieldScanner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejects records before they are decoded, reading only the fields the rules need.
+ *
+ * Most of the topic carries a CODESTA2 the connector does not forward. Those records
+ * used to go through every transformation, the schema registry included, before
+ * being dropped. Here a JSON payload is scanned once for the G6181_* fields (other
+ * fields are looked up on their own) and an Avro one is read with the writer schema,
+ * skipping the fields before it; no Jackson, registry or AWS call is made for a
+ * rejected record.
+ *
+ * Rejected records are not committed one by one. Offsets are cumulative, so the next
+ * commit on the partition covers them; meanwhile they are committed every
+ * prefilter.ack-every rejections or prefilter.ack-interval-ms. Rejected records
+ * still uncommitted at a restart are read and rejected again.
+ *
+ * Metrics: prefilter.records, by result (accepted, rejected).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecordPreFilter {
+    
+    private final PreFilterProperties properties;
+    private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${validation.codesta2}")
+    private String validCodesta2;
+    
+    private final Map<String, PendingAcks> pendingAcks = new ConcurrentHashMap<>();
+    private final MuleEnvelopeCodec envelopeCodec = new MuleEnvelopeCodec();
+    private final ThreadLocal<MuleEnvelope> envelopes = ThreadLocal.withInitial(MuleEnvelope::new);
+    private final ThreadLocal<PaymentRecordView> views = ThreadLocal.withInitial(PaymentRecordView::new);
+    
+    private List<CompiledRule> rules;
+    private boolean avro;
+    private Counter accepted;
+    private Counter rejected;
+    
+    @PostConstruct
+    public void init() {
+        accepted = Counter.builder("prefilter.records").tag("result", "accepted").register(meterRegistry);
+        rejected = Counter.builder("prefilter.records").tag("result", "rejected").register(meterRegistry);
+        
+        List<PreFilterProperties.Rule> configured = properties.getRules();
+        if (configured.isEmpty()) {
+            PreFilterProperties.Rule codesta2 = new PreFilterProperties.Rule();
+            codesta2.setField("G6181_CODESTA2");
+            codesta2.setValues(Collections.singletonList(validCodesta2));
+            configured = Collections.singletonList(codesta2);
+        }
+        
+        avro = "avro".equalsIgnoreCase(properties.getFormat());
+        Schema schema = avro ? loadSchema() : null;
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (PreFilterProperties.Rule rule : configured) {
+            AvroFieldReader reader = avro
+                    ? new AvroFieldReader(schema, rule.getField(), properties.getAvroHeaderLength())
+                    : null;
+            compiled.add(new CompiledRule(rule.getField(), rule.getValues(), rule.isNegate(), reader));
+        }
+        rules = compiled;
+        log.info("Record pre-filter {} on {} payloads with rules {}",
+                properties.isEnabled() ? "enabled" : "disabled", properties.getFormat(), configured);
+    }
+    
+    /**
+     * Whether the record must go through the full processing. Records the filter
+     * cannot read, or that lack a rule field, are accepted, so that the full
+     * processing decides on them; only a value that fails a rule rejects a record.
+     *
+     * @param payload Raw record value
+     */
+    public boolean accepts(String payload) {
+        if (!properties.isEnabled() || payload == null) {
+            return true;
+        }
+        
+        ByteBuffer record = null;
+        PaymentRecordView view = null;
+        if (avro) {
+            try {
+                record = envelopeCodec.decode(payload, envelopes.get()).getMessage();
+            } catch (IOException e) {
+                log.debug("Pre-filter could not read the envelope, record accepted: {}", e.getMessage());
+                return true;
+            }
+            if (record == null) {
+                return true;
+            }
+        } else {
+            view = views.get().wrap(payload);
+        }
+        
+        for (CompiledRule rule : rules) {
+            CharSequence value;
+            try {
+                if (avro) {
+                    value = rule.reader.read(record);
+                } else {
+                    value = PaymentRecordView.isIndexed(rule.field)
+                            ? view.get(rule.field)
+                            : JsonFieldScanner.find(payload, rule.field);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Pre-filter could not read {}, record accepted: {}", rule.field, e.getMessage());
+                return true;
+            }
+            if (value == null) {
+                // Missing field or a payload of another format: the full processing decides
+                log.debug("Pre-filter found no {}, record accepted", rule.field);
+                return true;
+            }
+            if (!rule.matches(value)) {
+                rejected.increment();
+                log.debug("Record rejected by pre-filter: {} = {}", rule.field, value);
+                return false;
+            }
+        }
+        accepted.increment();
+        return true;
+    }
+    
+    /**
+     * Counts a rejected record of the partition
+     *
+     * @return true if the pending rejections must be committed now
+     */
+    public boolean onRejected(String topic, int partition) {
+        PendingAcks pending = pendingAcks.computeIfAbsent(topic + "-" + partition, p -> new PendingAcks());
+        return pending.add(System.currentTimeMillis(), properties.getAckEvery(), properties.getAckIntervalMs());
+    }
+    
+    /**
+     * An offset of the partition was committed, covering every rejection before it
+     */
+    public void onCommitted(String topic, int partition) {
+        PendingAcks pending = pendingAcks.get(topic + "-" + partition);
+        if (pending != null) {
+            pending.clear();
+        }
+    }
+    
+    private Schema loadSchema() {
+        try (InputStream in = resourceLoader.getResource(properties.getAvroSchema()).getInputStream()) {
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load pre-filter Avro schema " + properties.getAvroSchema(), e);
+        }
+    }
+    
+    private static final class CompiledRule {
+        
+        private final String field;
+        private final List<String> values;
+        private final boolean negate;
+        private final AvroFieldReader reader;
+        
+        private CompiledRule(String field, List<String> values, boolean negate, AvroFieldReader reader) {
+            this.field = field;
+            this.values = values;
+            this.negate = negate;
+            this.reader = reader;
+        }
+        
+        private boolean matches(CharSequence value) {
+            boolean listed = false;
+            for (String candidate : values) {
+                if (candidate.contentEquals(value)) {
+                    listed = true;
+                    break;
+                }
+            }
+            return listed != negate;
+        }
+    }
+    
+    private static final class PendingAcks {
+        
+        private int count;
+        private long since;
+        
+        private synchronized boolean add(long now, int ackEvery, long ackIntervalMs) {
+            if (count++ == 0) {
+                since = now;
+            }
+            if (count >= ackEvery || now - since >= ackIntervalMs) {
+                count = 0;
+                return true;
+            }
+            return false;
+        }
+        
+        private synchronized void clear() {
+            count = 0;
+        }
+    }
+}
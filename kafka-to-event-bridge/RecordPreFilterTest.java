@@ -0,0 +1,127 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.config.properties.PreFilterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RecordPreFilter
+ */
+public class RecordPreFilterTest {
+    
+    private static final String TOPIC = "SBNA.00002517.MIP_INS_HIST_EJ.MODIFY.AVRO";
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PreFilterProperties properties;
+    private RecordPreFilter preFilter;
+    
+    @BeforeEach
+    void setUp() {
+        properties = new PreFilterProperties();
+        properties.setAckEvery(3);
+        properties.setAckIntervalMs(60_000);
+        preFilter = new RecordPreFilter(properties, new DefaultResourceLoader(), meterRegistry);
+        ReflectionTestUtils.setField(preFilter, "validCodesta2", "13");
+    }
+    
+    @Test
+    void accepts_defaultRule_filtersOnCodesta2() {
+        preFilter.init();
+        
+        assertTrue(preFilter.accepts(payment("13", "1234")));
+        assertFalse(preFilter.accepts(payment("07", "1234")));
+        assertEquals(1.0, meterRegistry.get("prefilter.records").tag("result", "accepted").counter().count());
+        assertEquals(1.0, meterRegistry.get("prefilter.records").tag("result", "rejected").counter().count());
+    }
+    
+    @Test
+    void accepts_missingField_leavesDecisionToFullProcessing() {
+        preFilter.init();
+        
+        assertTrue(preFilter.accepts("{\"G6181_CCENCONT\":\"1234\"}"));
+        assertTrue(preFilter.accepts("{\"Message\":\"AAIGMTM=\",\"Key\":\"k\"}"));
+        assertEquals(0.0, meterRegistry.get("prefilter.records").tag("result", "rejected").counter().count());
+    }
+    
+    @Test
+    void accepts_everyRuleMustMatch() {
+        properties.setRules(Arrays.asList(
+                rule("G6181_CODESTA2", false, "13", "14"),
+                rule("G6181_CCENCONT", true, "9999")));
+        preFilter.init();
+        
+        assertTrue(preFilter.accepts(payment("14", "1234")));
+        assertFalse(preFilter.accepts(payment("14", "9999")));
+    }
+    
+    @Test
+    void accepts_disabled_acceptsEverything() {
+        properties.setEnabled(false);
+        preFilter.init();
+        
+        assertTrue(preFilter.accepts(payment("07", "1234")));
+    }
+    
+    @Test
+    void init_avroWithMissingSchema_failsFast() {
+        properties.setFormat("avro");
+        properties.setAvroSchema("classpath:missing.avsc");
+        
+        assertThrows(IllegalStateException.class, () -> preFilter.init());
+    }
+    
+    @Test
+    void onRejected_commitsEveryAckEveryRejections() {
+        assertFalse(preFilter.onRejected(TOPIC, 0));
+        assertFalse(preFilter.onRejected(TOPIC, 0));
+        assertTrue(preFilter.onRejected(TOPIC, 0));
+        assertFalse(preFilter.onRejected(TOPIC, 0));
+    }
+    
+    @Test
+    void onCommitted_resetsPendingRejections() {
+        preFilter.onRejected(TOPIC, 0);
+        preFilter.onRejected(TOPIC, 0);
+        
+        preFilter.onCommitted(TOPIC, 0);
+        
+        assertFalse(preFilter.onRejected(TOPIC, 0));
+        assertFalse(preFilter.onRejected(TOPIC, 0));
+        assertTrue(preFilter.onRejected(TOPIC, 0));
+    }
+    
+    @Test
+    void onRejected_partitionsCountedSeparately() {
+        preFilter.onRejected(TOPIC, 0);
+        preFilter.onRejected(TOPIC, 0);
+        
+        assertFalse(preFilter.onRejected(TOPIC, 1));
+    }
+    
+    @Test
+    void onRejected_afterAckInterval_commits() {
+        properties.setAckIntervalMs(0);
+        
+        assertTrue(preFilter.onRejected(TOPIC, 0));
+    }
+    
+    private static String payment(String codesta2, String ccencont) {
+        return "{\"G6181_IDEMPR\":\"0049\",\"G6181_CCENCONT\":\"" + ccencont + "\",\"G6181_NUMORD\":\"42\","
+                + "\"G6181_CODESTA2\":\"" + codesta2 + "\"}";
+    }
+    
+    private static PreFilterProperties.Rule rule(String field, boolean negate, String... values) {
+        PreFilterProperties.Rule rule = new PreFilterProperties.Rule();
+        rule.setField(field);
+        rule.setNegate(negate);
+        rule.setValues(Arrays.asList(values));
+        return rule;
+    }
+}
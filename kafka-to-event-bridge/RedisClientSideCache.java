@@ -0,0 +1,268 @@
+package com.empresa.connector.service;
+
+import com.empresa.connector.util.ExpiringLocalCache;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.support.caching.CacheAccessor;
+import io.lettuce.core.support.caching.ClientSideCaching;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process cache of hot Redis keys kept coherent by the server.
+ *
+ * Reads go through a dedicated Lettuce connection with client tracking (RESP3,
+ * CLIENT TRACKING ON): Redis remembers which keys this connection read and pushes
+ * an invalidation when one of them changes, so repeated reads of a key cost no round
+ * trip until it is written. Tracked entries are still dropped after
+ * client-cache.max-staleness-ms, which bounds staleness if a push is lost.
+ *
+ * Servers without tracking (Redis before 6, some proxies) fall back to caching each
+ * value for client-cache.fallback-ttl-ms, with no push. Values are raw bytes;
+ * callers decode them with their own serializer.
+ *
+ * Settings are read under spring.data.redis, the namespace of the Redis client
+ * that uses this cache, falling back to the legacy redis prefix of the connector
+ * configuration.
+ *
+ * Metrics: redis.client.cache, by result (hit, miss).
+ *
+ * Disabled with client-cache.enabled=false; callers then read Redis directly.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${spring.data.redis.client-cache.enabled:${redis.client-cache.enabled:true}}")
+@RequiredArgsConstructor
+public class RedisClientSideCache {
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${spring.data.redis.host:${redis.host}}")
+    private String redisHost;
+    
+    @Value("${spring.data.redis.port:${redis.port}}")
+    private int redisPort;
+    
+    @Value("${spring.data.redis.password:${redis.password:}}")
+    private String redisPassword;
+    
+    @Value("${spring.data.redis.command-timeout-ms:${redis.command-timeout-ms:500}}")
+    private long commandTimeout;
+    
+    @Value("${spring.data.redis.client-cache.tracking:${redis.client-cache.tracking:true}}")
+    private boolean trackingEnabled;
+    
+    @Value("${spring.data.redis.client-cache.max-staleness-ms:${redis.client-cache.max-staleness-ms:60000}}")
+    private long maxStaleness;
+    
+    @Value("${spring.data.redis.client-cache.fallback-ttl-ms:${redis.client-cache.fallback-ttl-ms:1000}}")
+    private long fallbackTtl;
+    
+    private final ExpiringLocalCache<String, byte[]> entries = new ExpiringLocalCache<>();
+    private final List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
+    
+    private RedisClient client;
+    private volatile StatefulRedisConnection<String, byte[]> connection;
+    // Whether the server pushes invalidations for the keys read on the connection
+    private volatile boolean tracking;
+    
+    private Counter hits;
+    private Counter misses;
+    
+    @PostConstruct
+    public void start() {
+        hits = Counter.builder("redis.client.cache").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("redis.client.cache").tag("result", "miss").register(meterRegistry);
+        
+        RedisURI.Builder uriBuilder = RedisURI.builder()
+                .withHost(redisHost)
+                .withPort(redisPort)
+                .withTimeout(Duration.ofMillis(commandTimeout));
+        // No AUTH without a password
+        if (!redisPassword.isEmpty()) {
+            uriBuilder.withPassword(redisPassword.toCharArray());
+        }
+        RedisURI uri = uriBuilder.build();
+        client = RedisClient.create(uri);
+        // Protocol left to negotiation: RESP3 where the server supports HELLO, RESP2 otherwise
+        client.setOptions(ClientOptions.builder()
+                .timeoutOptions(TimeoutOptions.enabled(Duration.ofMillis(commandTimeout)))
+                .build());
+        client.addListener(new TrackingRestorer());
+        
+        try {
+            connection = client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+        } catch (Exception e) {
+            log.warn("Redis client-side cache unavailable, reads go to Redis: {}", e.getMessage());
+            return;
+        }
+        
+        if (trackingEnabled) {
+            try {
+                ClientSideCaching<String, byte[]> caching = (ClientSideCaching<String, byte[]>)
+                        ClientSideCaching.enable(new TrackedEntries(), connection, TrackingArgs.Builder.enabled());
+                caching.addInvalidationListener(this::onInvalidated);
+                tracking = true;
+                log.info("Redis client-side cache with server-assisted invalidation enabled");
+            } catch (Exception e) {
+                log.warn("Redis does not support client tracking, caching reads for {} ms: {}", fallbackTtl, e.getMessage());
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (connection != null) {
+            connection.close();
+        }
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+    
+    /**
+     * Whether reads can be served by this cache; otherwise callers read Redis themselves
+     */
+    public boolean isAvailable() {
+        return connection != null && connection.isOpen();
+    }
+    
+    /**
+     * Whether cached values are invalidated by the server
+     */
+    public boolean isTracking() {
+        return tracking;
+    }
+    
+    /**
+     * Value of a key, from memory when cached. Missing keys are not cached.
+     *
+     * @return Raw value, or null if the key does not exist
+     */
+    public byte[] get(String key) {
+        byte[] value = entries.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        
+        misses.increment();
+        // With tracking on, this read is what makes the server track the key
+        value = connection.sync().get(key);
+        if (value != null) {
+            entries.put(key, value, System.currentTimeMillis() + (tracking ? maxStaleness : fallbackTtl));
+        }
+        return value;
+    }
+    
+    /**
+     * Value of a key decoded as UTF-8
+     */
+    public String getString(String key) {
+        byte[] value = get(key);
+        return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+    
+    /**
+     * Registers a callback for keys changed in Redis. Only called with tracking; a
+     * null key means every key was invalidated (flush or reconnection).
+     */
+    public void onInvalidation(Consumer<String> listener) {
+        invalidationListeners.add(listener);
+    }
+    
+    private void onInvalidated(String key) {
+        if (key == null) {
+            entries.clear();
+        }
+        for (Consumer<String> listener : invalidationListeners) {
+            try {
+                listener.accept(key);
+            } catch (RuntimeException e) {
+                log.warn("Error handling invalidation of {}: {}", key, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Storage used by Lettuce for the tracked entries; the pushed invalidations evict from it
+     */
+    private final class TrackedEntries implements CacheAccessor<String, byte[]> {
+        
+        @Override
+        public byte[] get(String key) {
+            return entries.get(key);
+        }
+        
+        @Override
+        public void put(String key, byte[] value) {
+            entries.put(key, value, System.currentTimeMillis() + maxStaleness);
+        }
+        
+        @Override
+        public void evict(String key) {
+            if (key != null) {
+                entries.invalidate(key);
+            }
+        }
+    }
+    
+    /**
+     * Tracking is per connection: after a reconnection the server no longer knows what
+     * was read and invalidations sent meanwhile were lost, so everything cached is
+     * dropped and tracking is switched on again
+     */
+    private final class TrackingRestorer implements RedisConnectionStateListener {
+        
+        private volatile boolean disconnected;
+        
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> channel) {
+            disconnected = true;
+        }
+        
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> channel, SocketAddress socketAddress) {
+            if (!disconnected || !tracking) {
+                return;
+            }
+            disconnected = false;
+            onInvalidated(null);
+            connection.async().clientTracking(TrackingArgs.Builder.enabled())
+                    .exceptionally(e -> {
+                        log.warn("Could not re-enable Redis client tracking, caching reads for {} ms: {}",
+                                fallbackTtl, e.getMessage());
+                        tracking = false;
+                        return null;
+                    });
+        }
+        
+        @Override
+        public void onRedisExceptionCaught(RedisChannelHandler<?, ?> channel, Throwable cause) {
+            // Failures surface on the commands themselves
+        }
+    }
+}
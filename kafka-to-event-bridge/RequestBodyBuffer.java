@@ -0,0 +1,80 @@
+package com.empresa.connector.util;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Serialized request body. Exposes its internal array so the payload can be hashed
+ * and written to the connection without copying it; writeTo streams the same bytes.
+ *
+ * Every write is also fed to SHA-256, so the x-amz-content-sha256 value is ready as
+ * soon as the serializer finishes, without a second pass over the body.
+ */
+public class RequestBodyBuffer extends ByteArrayOutputStream {
+    
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final MessageDigest SHA256_PROTOTYPE = newSha256();
+    
+    private final MessageDigest digest = newDigest();
+    private String payloadHash;
+    
+    public RequestBodyBuffer() {
+        super(INITIAL_CAPACITY);
+    }
+    
+    @Override
+    public synchronized void write(int b) {
+        checkOpenForWrites();
+        super.write(b);
+        digest.update((byte) b);
+    }
+    
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        checkOpenForWrites();
+        super.write(b, off, len);
+        digest.update(b, off, len);
+    }
+    
+    /**
+     * Hex SHA-256 of the bytes written so far. Ends the digest: no more bytes can be
+     * written afterwards.
+     */
+    public synchronized String payloadHash() {
+        if (payloadHash == null) {
+            payloadHash = AwsSigner.toHex(digest.digest());
+        }
+        return payloadHash;
+    }
+    
+    /**
+     * Internal array, only the first size() bytes are valid
+     */
+    public byte[] array() {
+        return buf;
+    }
+    
+    private void checkOpenForWrites() {
+        if (payloadHash != null) {
+            throw new IllegalStateException("Request body already hashed");
+        }
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            // Cloning skips the provider lookup of getInstance
+            return (MessageDigest) SHA256_PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            return newSha256();
+        }
+    }
+    
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
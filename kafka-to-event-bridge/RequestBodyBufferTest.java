@@ -0,0 +1,43 @@
+package com.empresa.connector.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RequestBodyBuffer
+ */
+public class RequestBodyBufferTest {
+    
+    private final AwsSigner signer = new AwsSigner();
+    
+    @Test
+    void payloadHash_afterJacksonSerialization_matchesHashOfWrittenBytes() throws IOException {
+        RequestBodyBuffer buffer = new RequestBodyBuffer();
+        // Larger than the initial capacity so the buffer grows while it is being digested
+        String detail = String.join("", Collections.nCopies(5000, "pago ñ "));
+        new ObjectMapper().writeValue(buffer, Collections.singletonMap("Detail", detail));
+        
+        byte[] written = buffer.toByteArray();
+        assertEquals(signer.hashContent(written, 0, written.length), buffer.payloadHash());
+    }
+    
+    @Test
+    void payloadHash_withEmptyBody_isEmptyStringHash() {
+        assertEquals(signer.hashContent(""), new RequestBodyBuffer().payloadHash());
+    }
+    
+    @Test
+    void write_afterPayloadHash_throwsIllegalStateException() {
+        RequestBodyBuffer buffer = new RequestBodyBuffer();
+        buffer.writeBytes("{}".getBytes(StandardCharsets.UTF_8));
+        buffer.payloadHash();
+        
+        assertThrows(IllegalStateException.class, () -> buffer.write('x'));
+    }
+}
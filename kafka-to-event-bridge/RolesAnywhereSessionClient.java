@@ -0,0 +1,370 @@
+package com.empresa.connector.client;
+
+import com.empresa.connector.config.properties.AwsIamProperties;
+import com.empresa.connector.model.AwsCredentials;
+import com.empresa.connector.util.CertificateLoader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IAM Roles Anywhere CreateSession client.
+ *
+ * The certificate chain and private key are parsed once per destination, together
+ * with the X.509 request signer and an mTLS SSLContext and connection pool built
+ * from them. They are rebuilt only when CertificateLoader reports new material, so
+ * a credential refresh costs a single signed POST to /sessions.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RolesAnywhereSessionClient {
+    
+    private static final String DEFAULT_URI = "/sessions";
+    
+    private final AwsIamProperties iamProperties;
+    private final CertificateLoader certificateLoader;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${aws.iam.connect-timeout:5000}")
+    private int connectTimeout;
+    
+    @Value("${aws.iam.read-timeout:10000}")
+    private int readTimeout;
+    
+    private final Map<String, SessionClient> clients = new ConcurrentHashMap<>();
+    
+    /**
+     * Creates a Roles Anywhere session and returns its temporary credentials
+     *
+     * @param destination Destination name, used to cache its certificate material
+     * @param properties IAM settings of the destination
+     * @return Temporary AWS credentials
+     */
+    public AwsCredentials createSession(String destination, AwsIamProperties.AwsInstanceProperties properties) {
+        try {
+            SessionClient client = client(destination, properties);
+            
+            String uri = iamProperties.getUri() == null || iamProperties.getUri().isEmpty()
+                    ? DEFAULT_URI : iamProperties.getUri();
+            byte[] body = objectMapper.writeValueAsBytes(requestBody(properties));
+            HttpHeaders headers = client.signer.sign(properties.signingHost(), uri, properties.getRegion(), body);
+            
+            ResponseEntity<byte[]> response = client.restTemplate.exchange(
+                    properties.baseUrl() + uri,
+                    HttpMethod.POST,
+                    new HttpEntity<>(body, headers),
+                    byte[].class);
+            
+            return toCredentials(response.getBody(), properties.getRegion());
+        } catch (Exception e) {
+            log.error("Error creating Roles Anywhere session for {}: {}", destination, e.getMessage(), e);
+            throw new RuntimeException("Error creating Roles Anywhere session", e);
+        }
+    }
+    
+    /**
+     * Drops the cached material of a destination, forcing it to be loaded again
+     */
+    public synchronized void invalidate(String destination) {
+        SessionClient client = clients.remove(destination);
+        if (client != null) {
+            client.close();
+        }
+    }
+    
+    @PreDestroy
+    public synchronized void close() {
+        clients.values().forEach(SessionClient::close);
+        clients.clear();
+    }
+    
+    /**
+     * Returns the cached client of a destination, rebuilding it if the loader
+     * parsed a new certificate or key
+     */
+    private synchronized SessionClient client(String destination, AwsIamProperties.AwsInstanceProperties properties)
+            throws GeneralSecurityException, IOException {
+        X509Certificate[] chain = certificateLoader.loadCertificateChain(properties.getCertificate());
+        PrivateKey privateKey = certificateLoader.loadPrivateKey(properties.getKey());
+        
+        SessionClient current = clients.get(destination);
+        if (current != null && current.chain == chain && current.privateKey == privateKey) {
+            return current;
+        }
+        
+        log.info("Loading Roles Anywhere certificate material for {}", destination);
+        SessionClient created = new SessionClient(chain, privateKey, sslContext(chain, privateKey),
+                connectTimeout, readTimeout);
+        clients.put(destination, created);
+        if (current != null) {
+            current.close();
+        }
+        return created;
+    }
+    
+    private Map<String, Object> requestBody(AwsIamProperties.AwsInstanceProperties properties) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("durationSeconds", iamProperties.getDurationSeconds());
+        body.put("profileArn", properties.getProfileArn());
+        body.put("roleArn", properties.getRoleArn());
+        body.put("trustAnchorArn", properties.getTrustAnchorArn());
+        if (iamProperties.getSessionName() != null && !iamProperties.getSessionName().isEmpty()) {
+            body.put("sessionName", iamProperties.getSessionName());
+        }
+        return body;
+    }
+    
+    private AwsCredentials toCredentials(byte[] responseBody, String region) throws IOException {
+        JsonNode credentials = objectMapper.readTree(responseBody)
+                .path("credentialSet").path(0).path("credentials");
+        if (credentials.isMissingNode()) {
+            throw new IOException("CreateSession response without credentials");
+        }
+        
+        String expiration = credentials.path("expiration").asText(null);
+        return AwsCredentials.builder()
+                .accessKeyId(credentials.path("accessKeyId").asText())
+                .secretAccessKey(credentials.path("secretAccessKey").asText())
+                .sessionToken(credentials.path("sessionToken").asText(null))
+                .region(region)
+                .expiration(expiration != null ? Instant.parse(expiration).toEpochMilli() : null)
+                .build();
+    }
+    
+    /**
+     * SSLContext presenting the certificate chain as client certificate
+     */
+    private static SSLContext sslContext(X509Certificate[] chain, PrivateKey privateKey)
+            throws GeneralSecurityException, IOException {
+        // In-memory key store only, the password never leaves this method
+        char[] password = UUID.randomUUID().toString().toCharArray();
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("rolesanywhere", privateKey, password, chain);
+        
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, password);
+        
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        return sslContext;
+    }
+    
+    /**
+     * Certificate material of a destination and the signer and HTTP client built from it
+     */
+    private static final class SessionClient implements AutoCloseable {
+        
+        private final X509Certificate[] chain;
+        private final PrivateKey privateKey;
+        private final X509RequestSigner signer;
+        private final CloseableHttpClient httpClient;
+        private final RestTemplate restTemplate;
+        
+        private SessionClient(X509Certificate[] chain, PrivateKey privateKey, SSLContext sslContext,
+                              int connectTimeout, int readTimeout) {
+            this.chain = chain;
+            this.privateKey = privateKey;
+            this.signer = new X509RequestSigner(chain, privateKey);
+            // Refreshes are rare, a couple of pooled connections is enough
+            this.httpClient = HttpClients.custom()
+                    .setSSLContext(sslContext)
+                    .setMaxConnTotal(2)
+                    .setMaxConnPerRoute(2)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(connectTimeout)
+                            .setConnectionRequestTimeout(connectTimeout)
+                            .setSocketTimeout(readTimeout)
+                            .build())
+                    .build();
+            this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        }
+        
+        @Override
+        public void close() {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Error closing Roles Anywhere HTTP client: {}", e.getMessage());
+            }
+        }
+    }
+}
+
+package com.empresa.connector.client;
+
+import com.empresa.connector.util.AmzDateClock;
+import com.empresa.connector.util.AwsSigner;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+/**
+ * Request signing for IAM Roles Anywhere (AWS4-X509-RSA-SHA256 and
+ * AWS4-X509-ECDSA-SHA256). The certificate headers, serial number and signed
+ * header list are derived once from the chain; Signature instances are kept per
+ * thread instead of being looked up on every request.
+ */
+public class X509RequestSigner {
+    
+    public static final String SERVICE = "rolesanywhere";
+    public static final String CONTENT_TYPE = "application/json";
+    
+    private static final ThreadLocal<Signature> RSA_SIGNATURE =
+            ThreadLocal.withInitial(() -> newSignature("SHA256withRSA"));
+    private static final ThreadLocal<Signature> ECDSA_SIGNATURE =
+            ThreadLocal.withInitial(() -> newSignature("SHA256withECDSA"));
+    
+    private final PrivateKey privateKey;
+    private final String algorithm;
+    private final ThreadLocal<Signature> signatures;
+    private final String serialNumber;
+    private final String certificateHeader;
+    private final String chainHeader;
+    private final String signedHeaders;
+    private final AwsSigner awsSigner = new AwsSigner();
+    
+    public X509RequestSigner(X509Certificate[] chain, PrivateKey privateKey) {
+        if (chain == null || chain.length == 0) {
+            throw new IllegalArgumentException("Certificate chain cannot be empty");
+        }
+        
+        this.privateKey = privateKey;
+        if ("RSA".equals(privateKey.getAlgorithm())) {
+            this.algorithm = "AWS4-X509-RSA-SHA256";
+            this.signatures = RSA_SIGNATURE;
+        } else if ("EC".equals(privateKey.getAlgorithm())) {
+            this.algorithm = "AWS4-X509-ECDSA-SHA256";
+            this.signatures = ECDSA_SIGNATURE;
+        } else {
+            throw new IllegalArgumentException("Unsupported key algorithm: " + privateKey.getAlgorithm());
+        }
+        
+        this.serialNumber = chain[0].getSerialNumber().toString();
+        this.certificateHeader = encode(chain[0]);
+        if (chain.length > 1) {
+            StringBuilder intermediates = new StringBuilder();
+            for (int i = 1; i < chain.length; i++) {
+                if (i > 1) {
+                    intermediates.append(',');
+                }
+                intermediates.append(encode(chain[i]));
+            }
+            this.chainHeader = intermediates.toString();
+        } else {
+            this.chainHeader = null;
+        }
+        this.signedHeaders = "content-type;host;x-amz-date;x-amz-x509"
+                + (chainHeader != null ? ";x-amz-x509-chain" : "");
+    }
+    
+    /**
+     * Signs a POST with a JSON body at the current time
+     */
+    public HttpHeaders sign(String host, String uri, String region, byte[] body) {
+        AmzDateClock.Stamp stamp = AmzDateClock.now();
+        return sign(stamp.getAmzDate(), stamp.getDateStamp(), host, uri, region, body);
+    }
+    
+    HttpHeaders sign(String amzDate, String dateStamp, String host, String uri, String region, byte[] body) {
+        String credentialScope = dateStamp + "/" + region + "/" + SERVICE + "/aws4_request";
+        String stringToSign = stringToSign(amzDate, credentialScope, host, uri, body);
+        
+        try {
+            Signature signature = signatures.get();
+            signature.initSign(privateKey);
+            signature.update(stringToSign.getBytes(StandardCharsets.UTF_8));
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Content-Type", CONTENT_TYPE);
+            headers.set("host", host);
+            headers.set("X-Amz-Date", amzDate);
+            headers.set("X-Amz-X509", certificateHeader);
+            if (chainHeader != null) {
+                headers.set("X-Amz-X509-Chain", chainHeader);
+            }
+            headers.set("Authorization", algorithm
+                    + " Credential=" + serialNumber + "/" + credentialScope
+                    + ", SignedHeaders=" + signedHeaders
+                    + ", Signature=" + AwsSigner.toHex(signature.sign()));
+            return headers;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error signing Roles Anywhere request", e);
+        }
+    }
+    
+    /**
+     * Algorithm, date, scope and the hash of the canonical request
+     */
+    String stringToSign(String amzDate, String credentialScope, String host, String uri, byte[] body) {
+        StringBuilder canonicalRequest = new StringBuilder(256 + certificateHeader.length()
+                + (chainHeader != null ? chainHeader.length() : 0))
+                .append("POST").append('\n')
+                .append(uri).append('\n')
+                .append('\n')
+                .append("content-type:").append(CONTENT_TYPE).append('\n')
+                .append("host:").append(host).append('\n')
+                .append("x-amz-date:").append(amzDate).append('\n')
+                .append("x-amz-x509:").append(certificateHeader).append('\n');
+        if (chainHeader != null) {
+            canonicalRequest.append("x-amz-x509-chain:").append(chainHeader).append('\n');
+        }
+        canonicalRequest.append('\n')
+                .append(signedHeaders).append('\n')
+                .append(awsSigner.hashContent(body, 0, body.length));
+        
+        return algorithm + '\n'
+                + amzDate + '\n'
+                + credentialScope + '\n'
+                + awsSigner.hashContent(canonicalRequest.toString());
+    }
+    
+    private static String encode(X509Certificate certificate) {
+        try {
+            return Base64.getEncoder().encodeToString(certificate.getEncoded());
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("Invalid certificate", e);
+        }
+    }
+    
+    private static Signature newSignature(String algorithm) {
+        try {
+            return Signature.getInstance(algorithm);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.empresa.connector.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Bloom filter over a sliding time window, with bounded memory.
+ *
+ * Keys are added to the current generation; every rotation period the current one
+ * becomes the previous one and the oldest is discarded, so a key is remembered for
+ * at least one period and at most two. Each generation is sized for the expected
+ * insertions per period at the given false positive rate (about 9.6 bits per key
+ * at 1%). A negative answer is exact; a positive one may be false.
+ *
+ * Lock-free for readers and writers, except for the rotation itself.
+ */
+public class RotatingBloomFilter {
+    
+    private final long bitsPerGeneration;
+    private final int hashFunctions;
+    private final long rotationMillis;
+    private final LongSupplier clock;
+    
+    private volatile Generation current;
+    private volatile Generation previous;
+    private volatile long rotateAt;
+    
+    public RotatingBloomFilter(long expectedInsertions, double falsePositiveRate, long rotationMillis) {
+        this(expectedInsertions, falsePositiveRate, rotationMillis, System::currentTimeMillis);
+    }
+    
+    public RotatingBloomFilter(long expectedInsertions, double falsePositiveRate, long rotationMillis,
+                               LongSupplier clock) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter sizing: " + expectedInsertions
+                    + " insertions at " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        // Whole 64-bit words
+        this.bitsPerGeneration = Math.max(64, (bits + 63) & ~63L);
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitsPerGeneration / expectedInsertions * ln2));
+        this.rotationMillis = rotationMillis;
+        this.clock = clock;
+        
+        this.current = new Generation(bitsPerGeneration);
+        this.previous = new Generation(bitsPerGeneration);
+        this.rotateAt = clock.getAsLong() + rotationMillis;
+    }
+    
+    /**
+     * Whether the key may have been added within the window; false is definitive
+     */
+    public boolean mightContain(String key) {
+        rotateIfDue();
+        long hash = hash(key);
+        return current.mightContain(hash, hashFunctions) || previous.mightContain(hash, hashFunctions);
+    }
+    
+    public void put(String key) {
+        rotateIfDue();
+        current.put(hash(key), hashFunctions);
+    }
+    
+    /**
+     * Memory held by the bit arrays of both generations
+     */
+    public long memoryBytes() {
+        return 2 * bitsPerGeneration / 8;
+    }
+    
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+    
+    private void rotateIfDue() {
+        if (clock.getAsLong() < rotateAt) {
+            return;
+        }
+        synchronized (this) {
+            long now = clock.getAsLong();
+            if (now < rotateAt) {
+                return;
+            }
+            // More than a whole period without rotating: both generations are too old
+            previous = now - rotateAt >= rotationMillis ? new Generation(bitsPerGeneration) : current;
+            current = new Generation(bitsPerGeneration);
+            rotateAt = now + rotationMillis;
+        }
+    }
+    
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+    
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    /**
+     * One bit array. Bit positions come from two halves of the hash combined
+     * (Kirsch-Mitzenmacher), so a single hash serves every function.
+     */
+    private static final class Generation {
+        
+        private final AtomicLongArray words;
+        private final long bits;
+        
+        private Generation(long bits) {
+            this.bits = bits;
+            this.words = new AtomicLongArray((int) (bits >>> 6));
+        }
+        
+        private boolean mightContain(long hash, int hashFunctions) {
+            long h1 = hash;
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private void put(long hash, int hashFunctions) {
+            long h1 = hash;
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+    }
+}
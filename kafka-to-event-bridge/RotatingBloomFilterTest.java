@@ -0,0 +1,69 @@
+package com.empresa.connector.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RotatingBloomFilter
+ */
+public class RotatingBloomFilterTest {
+    
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01, 1000, now::get);
+    
+    @Test
+    void mightContain_addedKeys_neverFalseNegative() {
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("operation-" + i + ":aws1");
+        }
+        
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("operation-" + i + ":aws1"));
+        }
+    }
+    
+    @Test
+    void mightContain_unknownKeys_falsePositiveRateWithinBound() {
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("operation-" + i + ":aws1");
+        }
+        
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("operation-" + i + ":aws2")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2000, "False positives: " + falsePositives);
+    }
+    
+    @Test
+    void mightContain_keptForOneRotationAndForgottenAfterTwo() {
+        filter.put("operation-1:aws1");
+        
+        now.addAndGet(1000);
+        assertTrue(filter.mightContain("operation-1:aws1"));
+        
+        now.addAndGet(1000);
+        assertFalse(filter.mightContain("operation-1:aws1"));
+    }
+    
+    @Test
+    void mightContain_afterLongIdle_forgetsEverything() {
+        filter.put("operation-1:aws1");
+        
+        now.addAndGet(5000);
+        
+        assertFalse(filter.mightContain("operation-1:aws1"));
+    }
+    
+    @Test
+    void memoryBytes_sizedFromExpectedInsertions() {
+        // About 9.6 bits per key at 1%, two generations
+        assertEquals(2 * 95_872 / 8, filter.memoryBytes());
+        assertEquals(7, filter.getHashFunctions());
+    }
+}
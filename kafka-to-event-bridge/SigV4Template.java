@@ -0,0 +1,184 @@
+package com.empresa.connector.util;
+
+import com.empresa.connector.model.AwsCredentials;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Precomputed SigV4 request shape for one destination: method, URI, host, target and
+ * content type are fixed, so the sorted signed-header list and the constant part of
+ * the canonical request are built once. Signing a request only appends the date,
+ * payload hash and session token to a thread-local builder.
+ *
+ * Signed headers, in canonical order: content-type, host, x-amz-content-sha256,
+ * x-amz-date, x-amz-security-token (when present), x-amz-target (when set).
+ */
+public final class SigV4Template {
+    
+    private final String service;
+    private final String region;
+    private final String host;
+    private final String target;
+    private final String contentType;
+    
+    private final String canonicalPrefix;
+    private final String signedHeaders;
+    private final String signedHeadersWithToken;
+    
+    public SigV4Template(String method, String uri, String query, String service, String region,
+                         String host, String target, String contentType) {
+        this.service = service;
+        this.region = region;
+        this.host = host;
+        this.target = target == null || target.isEmpty() ? null : target;
+        this.contentType = contentType;
+        
+        this.canonicalPrefix = method + '\n'
+                + (uri == null || uri.isEmpty() ? "/" : uri) + '\n'
+                + (query == null ? "" : query) + '\n'
+                + "content-type:" + contentType + '\n'
+                + "host:" + host + '\n';
+        String base = "content-type;host;x-amz-content-sha256;x-amz-date";
+        this.signedHeaders = base + (this.target != null ? ";x-amz-target" : "");
+        this.signedHeadersWithToken = base + ";x-amz-security-token" + (this.target != null ? ";x-amz-target" : "");
+    }
+    
+    /**
+     * Template for a PutEvents-style JSON POST to the root path
+     */
+    public static SigV4Template post(String service, String region, String host, String target, String contentType) {
+        return new SigV4Template("POST", "/", "", service, region, host, target, contentType);
+    }
+    
+    /**
+     * Signs a request with the given payload hash at the current (per-second cached) time
+     */
+    public SignedRequest sign(AwsSigner signer, AwsCredentials credentials, String payloadHash) {
+        AmzDateClock.Stamp stamp = AmzDateClock.now();
+        String sessionToken = credentials.getSessionToken();
+        boolean hasToken = sessionToken != null && !sessionToken.isEmpty();
+        
+        StringBuilder canonical = AwsSigner.canonicalBuilder();
+        canonical.append(canonicalPrefix)
+                .append("x-amz-content-sha256:").append(payloadHash).append('\n')
+                .append("x-amz-date:").append(stamp.getAmzDate()).append('\n');
+        if (hasToken) {
+            canonical.append("x-amz-security-token:").append(sessionToken).append('\n');
+        }
+        if (target != null) {
+            canonical.append("x-amz-target:").append(target).append('\n');
+        }
+        String headerList = hasToken ? signedHeadersWithToken : signedHeaders;
+        canonical.append('\n').append(headerList).append('\n').append(payloadHash);
+        
+        String authorization = signer.authorize(stamp.getAmzDate(), stamp.getDateStamp(), region, service,
+                canonical, headerList, credentials);
+        return new SignedRequest(this, stamp.getAmzDate(), payloadHash, hasToken ? sessionToken : null, authorization);
+    }
+    
+    /**
+     * Result of signing: the values to send as headers
+     */
+    public static final class SignedRequest {
+        
+        private final SigV4Template template;
+        private final String amzDate;
+        private final String payloadHash;
+        private final String sessionToken;
+        private final String authorization;
+        
+        private SignedRequest(SigV4Template template, String amzDate, String payloadHash,
+                              String sessionToken, String authorization) {
+            this.template = template;
+            this.amzDate = amzDate;
+            this.payloadHash = payloadHash;
+            this.sessionToken = sessionToken;
+            this.authorization = authorization;
+        }
+        
+        public String getAmzDate() {
+            return amzDate;
+        }
+        
+        public String getAuthorization() {
+            return authorization;
+        }
+        
+        /**
+         * Adds the signed headers, exactly as they were signed
+         */
+        public HttpHeaders applyTo(HttpHeaders headers) {
+            headers.set("Authorization", authorization);
+            headers.set("Content-Type", template.contentType);
+            headers.set("host", template.host);
+            headers.set("x-amz-content-sha256", payloadHash);
+            headers.set("x-amz-date", amzDate);
+            if (sessionToken != null) {
+                headers.set("x-amz-security-token", sessionToken);
+            }
+            if (template.target != null) {
+                headers.set("x-amz-target", template.target);
+            }
+            return headers;
+        }
+    }
+}
+
+package com.empresa.connector.util;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * SigV4 timestamps (yyyyMMdd'T'HHmmss'Z' and yyyyMMdd) formatted once per second
+ * and shared by every request signed within that second
+ */
+public final class AmzDateClock {
+    
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    
+    private static volatile Stamp current = format(System.currentTimeMillis() / 1000);
+    
+    private AmzDateClock() {
+    }
+    
+    public static Stamp now() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        Stamp stamp = current;
+        if (stamp.epochSecond != epochSecond) {
+            stamp = format(epochSecond);
+            current = stamp;
+        }
+        return stamp;
+    }
+    
+    private static Stamp format(long epochSecond) {
+        Instant instant = Instant.ofEpochSecond(epochSecond);
+        return new Stamp(epochSecond, AMZ_DATE.format(instant), DATE_STAMP.format(instant));
+    }
+    
+    /**
+     * Formatted timestamp of one second
+     */
+    public static final class Stamp {
+        
+        private final long epochSecond;
+        private final String amzDate;
+        private final String dateStamp;
+        
+        private Stamp(long epochSecond, String amzDate, String dateStamp) {
+            this.epochSecond = epochSecond;
+            this.amzDate = amzDate;
+            this.dateStamp = dateStamp;
+        }
+        
+        public String getAmzDate() {
+            return amzDate;
+        }
+        
+        public String getDateStamp() {
+            return dateStamp;
+        }
+    }
+}
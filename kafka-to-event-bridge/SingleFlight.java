@@ -0,0 +1,65 @@
+package com.empresa.connector.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader and
+ * every caller arriving while it runs waits for that result instead of starting its
+ * own. Nothing is cached, the next call after the load finishes runs the loader again.
+ */
+public class SingleFlight<K, V> {
+    
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * Runs the loader, or joins the load of the same key already running
+     *
+     * @param key Key of the load
+     * @param loader Called only by the caller that starts the flight
+     * @return Value returned by the loader of the flight
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return join(running);
+        }
+        
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Waiters fail with the same exception as the caller that ran the load
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+    
+    /**
+     * Whether a load of the key is running
+     */
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+    
+    private V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.empresa.connector.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SingleFlight
+ */
+public class SingleFlightTest {
+    
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    
+    @Test
+    void execute_concurrentCallers_runLoaderOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.execute("aws1", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "credentials";
+            })));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("aws1", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            
+            // Give the waiters time to join the flight before it completes
+            Thread.sleep(100);
+            release.countDown();
+            
+            for (Future<String> result : results) {
+                assertEquals("credentials", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertFalse(singleFlight.isInFlight("aws1"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void execute_afterFlightCompleted_runsLoaderAgain() {
+        assertEquals("first", singleFlight.execute("aws1", () -> "first"));
+        assertEquals("second", singleFlight.execute("aws1", () -> "second"));
+    }
+    
+    @Test
+    void execute_differentKeys_doNotShareFlights() {
+        String result = singleFlight.execute("aws1", () -> singleFlight.execute("aws2", () -> "aws2"));
+        
+        assertEquals("aws2", result);
+    }
+    
+    @Test
+    void execute_whenLoaderFails_rethrowsAndClearsFlight() {
+        IllegalStateException failure = new IllegalStateException("IAM unavailable");
+        
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("aws1", () -> {
+                    throw failure;
+                }));
+        
+        assertSame(failure, thrown);
+        assertFalse(singleFlight.isInFlight("aws1"));
+        assertEquals("retried", singleFlight.execute("aws1", () -> "retried"));
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.empresa.connector.util;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes binary Avro straight into a class generated by the avro-maven-plugin.
+ *
+ * Fields are set through the generated put(int, Object), with no reflection, no
+ * GenericRecord and no JSON in between. The reader is built once; when the data was
+ * written with a schema other than the generated one, pass it and Avro resolves the
+ * differences once per schema pair.
+ *
+ * Thread-safe; each thread reuses its own decoder.
+ */
+public class SpecificRecordDecoder<T extends SpecificRecord> {
+    
+    private static final ThreadLocal<BinaryDecoder> DECODERS = new ThreadLocal<>();
+    
+    private final SpecificDatumReader<T> reader;
+    private final int headerLength;
+    
+    /**
+     * @param type Generated record class, also used as the writer schema
+     * @param headerLength Bytes before the record, 5 for the Confluent wire format
+     *                     (magic byte and schema id), 0 for plain Avro
+     */
+    public SpecificRecordDecoder(Class<T> type, int headerLength) {
+        this.reader = new SpecificDatumReader<>(type);
+        this.headerLength = headerLength;
+    }
+    
+    public SpecificRecordDecoder(Class<T> type, Schema writerSchema, int headerLength) {
+        this.reader = new SpecificDatumReader<>(writerSchema, SpecificData.get().getSchema(type));
+        this.headerLength = headerLength;
+    }
+    
+    /**
+     * @throws IOException If the data is truncated or does not match the writer schema
+     */
+    public T decode(byte[] data, int offset, int length) throws IOException {
+        if (length < headerLength) {
+            throw new IOException("Record shorter than its " + headerLength + " byte header");
+        }
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(
+                data, offset + headerLength, length - headerLength, DECODERS.get());
+        DECODERS.set(decoder);
+        return reader.read(null, decoder);
+    }
+    
+    /**
+     * Record in the remaining bytes of an array-backed buffer
+     */
+    public T decode(ByteBuffer data) throws IOException {
+        return decode(data.array(), data.arrayOffset() + data.position(), data.remaining());
+    }
+}
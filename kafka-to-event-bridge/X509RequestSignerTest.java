@@ -0,0 +1,93 @@
+package com.empresa.connector.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for X509RequestSigner
+ */
+public class X509RequestSignerTest {
+    
+    private static final String HOST = "rolesanywhere.us-east-1.amazonaws.com";
+    private static final String AMZ_DATE = "20250101T120000Z";
+    private static final String DATE_STAMP = "20250101";
+    private static final byte[] BODY = "{\"durationSeconds\":3600}".getBytes(StandardCharsets.UTF_8);
+    
+    private KeyPair keyPair;
+    private X509Certificate leaf;
+    private X509Certificate intermediate;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        
+        leaf = certificate(new byte[] {1, 2, 3}, BigInteger.valueOf(123456789L));
+        intermediate = certificate(new byte[] {4, 5, 6}, BigInteger.ONE);
+    }
+    
+    @Test
+    void sign_withRsaKey_producesVerifiableSignature() throws Exception {
+        X509RequestSigner signer = new X509RequestSigner(new X509Certificate[] {leaf}, keyPair.getPrivate());
+        
+        HttpHeaders headers = signer.sign(AMZ_DATE, DATE_STAMP, HOST, "/sessions", "us-east-1", BODY);
+        
+        String authorization = headers.getFirst("Authorization");
+        assertTrue(authorization.startsWith("AWS4-X509-RSA-SHA256 Credential=123456789/20250101/us-east-1/rolesanywhere/aws4_request, "));
+        assertTrue(authorization.contains("SignedHeaders=content-type;host;x-amz-date;x-amz-x509, "));
+        assertEquals(Base64.getEncoder().encodeToString(new byte[] {1, 2, 3}), headers.getFirst("X-Amz-X509"));
+        assertNull(headers.getFirst("X-Amz-X509-Chain"));
+        
+        String stringToSign = signer.stringToSign(AMZ_DATE, "20250101/us-east-1/rolesanywhere/aws4_request",
+                HOST, "/sessions", BODY);
+        assertTrue(verify(stringToSign, authorization.substring(authorization.indexOf("Signature=") + 10)));
+    }
+    
+    @Test
+    void sign_withIntermediates_signsChainHeader() {
+        X509RequestSigner signer = new X509RequestSigner(new X509Certificate[] {leaf, intermediate}, keyPair.getPrivate());
+        
+        HttpHeaders headers = signer.sign(AMZ_DATE, DATE_STAMP, HOST, "/sessions", "us-east-1", BODY);
+        
+        assertEquals(Base64.getEncoder().encodeToString(new byte[] {4, 5, 6}), headers.getFirst("X-Amz-X509-Chain"));
+        assertTrue(headers.getFirst("Authorization").contains("SignedHeaders=content-type;host;x-amz-date;x-amz-x509;x-amz-x509-chain, "));
+    }
+    
+    @Test
+    void constructor_withEmptyChain_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new X509RequestSigner(new X509Certificate[0], keyPair.getPrivate()));
+    }
+    
+    private boolean verify(String stringToSign, String signatureHex) throws Exception {
+        byte[] signatureBytes = new byte[signatureHex.length() / 2];
+        for (int i = 0; i < signatureBytes.length; i++) {
+            signatureBytes[i] = (byte) Integer.parseInt(signatureHex.substring(i * 2, i * 2 + 2), 16);
+        }
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(keyPair.getPublic());
+        signature.update(stringToSign.getBytes(StandardCharsets.UTF_8));
+        return signature.verify(signatureBytes);
+    }
+    
+    private X509Certificate certificate(byte[] encoded, BigInteger serialNumber) throws Exception {
+        X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn(encoded);
+        when(certificate.getSerialNumber()).thenReturn(serialNumber);
+        return certificate;
+    }
+}
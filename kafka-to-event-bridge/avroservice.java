@@ -1,5 +1,7 @@
 package com.empresa.connector.service;
 
+import java.nio.ByteBuffer;
+
 /**
  * Service interface for Avro Schema operations
  */
@@ -48,13 +50,23 @@ public interface AvroService {
      * @return The deserialized object
      */
     Object deserializeWithSchema(byte[] bytes, String schemaStr);
+    
+    /**
+     * Deserializes Avro data in the Confluent wire format straight from a buffer,
+     * such as the Message of a Mule envelope, without copying it
+     *
+     * @param buffer The serialized data, between position and limit
+     * @param schemaStr The schema string
+     * @return The deserialized object
+     */
+    Object deserializeWithSchema(ByteBuffer buffer, String schemaStr);
 }
 
 package com.empresa.connector.service.impl;
 
 import com.empresa.connector.service.AvroService;
+import com.empresa.connector.util.JsonCodecs;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
 import io.confluent.kafka.schemaregistry.client.SchemaMetadata;
@@ -70,7 +82,6 @@ import org.apache.avro.io.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Base64;
@@ -82,7 +93,7 @@ import java.util.Map;
 public class AvroServiceImpl implements AvroService {
 
     private final SchemaRegistryClient schemaRegistryClient;
-    private final ObjectMapper objectMapper;
+    private final JsonCodecs jsonCodecs;
     
     @Value("${kafka.schema-registry.base-url}")
     private String schemaRegistryUrl;
@@ -93,8 +104,8 @@ public class AvroServiceImpl implements AvroService {
     @Value("${kafka.schema-registry.password}")
     private String password;
 
-    public AvroServiceImpl(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public AvroServiceImpl(JsonCodecs jsonCodecs) {
+        this.jsonCodecs = jsonCodecs;
         
         // Configure Schema Registry Client
         Map<String, Object> configs = new HashMap<>();
@@ -108,7 +119,7 @@ public class AvroServiceImpl implements AvroService {
     public String transformAttributes(String payload, String topic, Long offset) {
         try {
             // Parse the original payload
-            JsonNode rootNode = objectMapper.readTree(payload);
+            JsonNode rootNode = jsonCodecs.readTree(payload);
             
             // This would be the place to add or modify attributes based on the topic and offset
             // In a real implementation, you would transform the message according to business rules
@@ -121,7 +132,7 @@ public class AvroServiceImpl implements AvroService {
                 objNode.put("_processing_timestamp", System.currentTimeMillis());
             }
             
-            return objectMapper.writeValueAsString(rootNode);
+            return jsonCodecs.writeTree(rootNode);
         } catch (Exception e) {
             log.error("Error transforming Avro attributes: {}", e.getMessage(), e);
             return payload; // Return original payload on error
@@ -132,7 +143,7 @@ public class AvroServiceImpl implements AvroService {
     public String replaceIdWithAvroSchema(String message) {
         try {
             // Parse the original message
-            JsonNode rootNode = objectMapper.readTree(message);
+            JsonNode rootNode = jsonCodecs.readTree(message);
             
             // Check if ID field exists
             if (rootNode.has("id")) {
@@ -159,7 +170,7 @@ public class AvroServiceImpl implements AvroService {
                     modifiedNode.remove("id");
                     modifiedNode.put("avroData", avroBase64);
                     
-                    return objectMapper.writeValueAsString(modifiedNode);
+                    return jsonCodecs.writeTree(modifiedNode);
                 }
             }
             
@@ -217,15 +228,18 @@ public class AvroServiceImpl implements AvroService {
 
     @Override
     public Object deserializeWithSchema(byte[] bytes, String schemaStr) {
+        return deserializeWithSchema(ByteBuffer.wrap(bytes), schemaStr);
+    }
+    
+    @Override
+    public Object deserializeWithSchema(ByteBuffer buffer, String schemaStr) {
         try {
-            // Skip Confluent Schema Registry magic byte and schema ID
-            bytes = ByteBuffer.wrap(bytes).position(5).array();
-            
             Schema schema = new Schema.Parser().parse(schemaStr);
             GenericDatumReader<Object> reader = new GenericDatumReader<>(schema);
             
-            BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(
-                    new ByteArrayInputStream(bytes), null);
+            // Skip Confluent Schema Registry magic byte and schema ID
+            BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(buffer.array(),
+                    buffer.arrayOffset() + buffer.position() + 5, buffer.remaining() - 5, null);
             
             return reader.read(null, decoder);
         } catch (Exception e) {
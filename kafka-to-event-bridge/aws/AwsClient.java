@@ -1,38 +1,48 @@
 package com.santander.sov.epppaym.sovepppaym01pymt0028v1gms.infra.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.empresa.connector.util.ExpiringLocalCache;
+import com.empresa.connector.util.SingleFlight;
 import com.santander.sov.epppaym.sovepppaym01pymt0028v1gms.util.AwsIamAuthGenerate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Client for AWS services including IAM and EventBridge
  */
 @Component
-public class AwsClient {
+public class AwsClient implements MessageListener {
     
     private static final Logger logger = LoggerFactory.getLogger(AwsClient.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     
     private final RedisClient redisClient;
     private final AwsIamAuthGenerate awsIamAuthGenerate;
     private final RestTemplate restTemplate;
     
-    @Value("${aws.iam.certificate}")
-    private String base64Certificate;
-    
-    @Value("${aws.iam.key}")
-    private String base64Key;
-    
     @Value("${aws.iam.session-name}")
     private String sessionName;
     
@@ -74,7 +84,34 @@ public class AwsClient {
     @Value("${aws.aws2.iam.event-bridge.host}")
     private String eventBridgeHostAws2;
     
+    // Lease taken in Redis by the instance that generates new credentials
+    @Value("${aws.credentials.lease.ttl-ms:15000}")
+    private long leaseTtlMs;
+    
+    @Value("${aws.credentials.lease.wait-ms:10000}")
+    private long leaseWaitMs;
+    
+    @Value("${aws.credentials.lease.poll-interval-ms:100}")
+    private long leasePollIntervalMs;
+    
     private static final String AWS_CREDENTIALS_KEY = "aws-credentials";
+    private static final String AWS_CREDENTIALS_LEASE_KEY = "aws-credentials-lease";
+    // Credentials are renewed when less than this is left before they expire
+    private static final long CREDENTIALS_VALIDITY_MARGIN_MS = 5 * 60 * 1000;
+    // Credentials inside the renewal margin are only reused while this much is left
+    private static final long STALE_CREDENTIALS_MARGIN_MS = 30 * 1000;
+    
+    // In-process tier in front of Redis, entries expire when they stop being valid
+    private final ExpiringLocalCache<String, Map<String, Object>> localCredentials = new ExpiringLocalCache<>();
+    
+    // One Redis read or IAM call per destination at a time, concurrent callers share it
+    private final SingleFlight<String, Map<String, Object>> credentialLoads = new SingleFlight<>();
+    
+    // Last credentials seen per destination, still usable while another instance renews them
+    private final Map<String, Map<String, Object>> lastKnownCredentials = new ConcurrentHashMap<>();
+    
+    // Destinations by name, built from the properties on first use
+    private volatile Map<String, Destination> destinations;
     
     /**
      * Constructor with explicit dependency injection
@@ -86,6 +123,50 @@ public class AwsClient {
         this.restTemplate = restTemplate;
     }
     
+    /**
+     * Drops the local copy of credentials changed in Redis, when the server pushes
+     * invalidations to the client-side cache
+     */
+    @PostConstruct
+    public void subscribeToKeyInvalidations() {
+        redisClient.addInvalidationListener(redisKey -> {
+            for (Destination destination : destinations().values()) {
+                if (redisKey == null
+                        || redisClient.isCredentialsKey(redisKey, AWS_CREDENTIALS_KEY, destination.primaryPartition)) {
+                    localCredentials.invalidate(destination.name);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Subscribes to the credential invalidations published by other instances
+     */
+    @Autowired(required = false)
+    public void setListenerContainer(RedisMessageListenerContainer listenerContainer) {
+        listenerContainer.addMessageListener(this, new ChannelTopic(redisClient.getInvalidationChannel()));
+    }
+    
+    /**
+     * Credentials deleted by another instance: drops the local copy and loads the
+     * current ones in the background
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String redisKey = redisClient.readInvalidation(message);
+        for (Destination destination : destinations().values()) {
+            if (redisClient.isCredentialsKey(redisKey, AWS_CREDENTIALS_KEY, destination.primaryPartition)) {
+                logger.info("Credentials for {} invalidated by another instance", destination.name);
+                dropLocalCredentials(destination);
+                CompletableFuture.runAsync(() -> getValidAwsCredentials(destination))
+                        .exceptionally(e -> {
+                            logger.warn("Background refresh of credentials for {} failed: {}", destination.name, e.getMessage());
+                            return null;
+                        });
+            }
+        }
+    }
+    
     /**
      * Sends an event to AWS EventBridge using AWS1
      * 
@@ -93,23 +174,7 @@ public class AwsClient {
      * @return true if the sending was successful, false otherwise
      */
     public boolean sendEventToAws1(Object event) {
-        try {
-            logger.info("Initiating event sending to AWS1 EventBridge");
-            
-            // Get valid credentials for AWS1
-            Map<String, Object> credentials = getValidAwsCredentials(true);
-            
-            // Send the event using the credentials
-            return sendEventToEventBridge(
-                    event, 
-                    credentials, 
-                    eventBridgeHostAws1, 
-                    regionAws1);
-            
-        } catch (Exception e) {
-            logger.error("Error sending event to AWS1: {}", e.getMessage(), e);
-            return false;
-        }
+        return sendEvent("aws1", event);
     }
     
     /**
@@ -119,21 +184,44 @@ public class AwsClient {
      * @return true if the sending was successful, false otherwise
      */
     public boolean sendEventToAws2(Object event) {
+        return sendEvent("aws2", event);
+    }
+    
+    /**
+     * Sends an event to the EventBridge of a named destination
+     *
+     * @param destinationName Destination name (aws1, aws2)
+     * @param event Object representing the event to send
+     * @return true if the sending was successful, false otherwise
+     */
+    public boolean sendEvent(String destinationName, Object event) {
         try {
-            logger.info("Initiating event sending to AWS2 EventBridge");
+            Destination destination = getDestination(destinationName);
+            logger.info("Initiating event sending to {} EventBridge", destination.name);
             
-            // Get valid credentials for AWS2
-            Map<String, Object> credentials = getValidAwsCredentials(false);
+            // Get valid credentials for the destination
+            Map<String, Object> credentials = getValidAwsCredentials(destination);
             
             // Send the event using the credentials
-            return sendEventToEventBridge(
-                    event, 
-                    credentials, 
-                    eventBridgeHostAws2, 
-                    regionAws2);
+            try {
+                return sendEventToEventBridge(
+                        event,
+                        credentials,
+                        destination.eventBridgeHost,
+                        destination.region);
+            } catch (HttpClientErrorException.Forbidden e) {
+                // Revoked session or changed role: replace the credentials and retry once
+                logger.warn("{} EventBridge rejected the credentials, refreshing them and retrying", destination.name);
+                invalidateRejectedCredentials(destination, credentials);
+                return sendEventToEventBridge(
+                        event,
+                        getValidAwsCredentials(destination),
+                        destination.eventBridgeHost,
+                        destination.region);
+            }
             
         } catch (Exception e) {
-            logger.error("Error sending event to AWS2: {}", e.getMessage(), e);
+            logger.error("Error sending event to {}: {}", destinationName, e.getMessage(), e);
             return false;
         }
     }
@@ -142,32 +230,166 @@ public class AwsClient {
      * Gets valid AWS credentials, checking first in Redis
      * and generating new ones through IAM if necessary
      * 
-     * @param isAws1 true for AWS1, false for AWS2
+     * @param destination Destination to get the credentials for
      * @return Map with valid credentials
      */
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> getValidAwsCredentials(boolean isAws1) {
-        logger.debug("Checking AWS credentials in Redis for {}", isAws1 ? "AWS1" : "AWS2");
+    private Map<String, Object> getValidAwsCredentials(Destination destination) {
+        // 0. Check the in-process tier, no Redis round trip
+        Map<String, Object> localCredentials = this.localCredentials.get(destination.name);
+        if (localCredentials != null) {
+            return localCredentials;
+        }
         
-        // 1. Check if credentials exist in Redis
-        Map<String, Object> cachedCredentials = redisClient.getAwsCredentials(AWS_CREDENTIALS_KEY, isAws1);
+        return credentialLoads.execute(destination.name, () -> loadAwsCredentials(destination));
+    }
+    
+    /**
+     * Loads the credentials of a destination from Redis, or generates them under the
+     * destination's Redis lease so only one instance calls IAM at a time
+     */
+    private Map<String, Object> loadAwsCredentials(Destination destination) {
+        // The load that just finished may have filled the in-process tier
+        Map<String, Object> localCredentials = this.localCredentials.get(destination.name);
+        if (localCredentials != null) {
+            return localCredentials;
+        }
         
-        // 2. Check if credentials are valid (exist and not expired)
-        if (areCredentialsValid(cachedCredentials)) {
-            logger.debug("Valid credentials found in Redis");
+        // 1-2. Check if valid credentials exist in Redis
+        Map<String, Object> cachedCredentials = getCachedCredentials(destination);
+        if (cachedCredentials != null) {
             return cachedCredentials;
         }
         
-        logger.info("No valid credentials found in Redis, generating new ones for {}", 
-                isAws1 ? "AWS1" : "AWS2");
+        logger.info("No valid credentials found in Redis, generating new ones for {}", destination.name);
         
-        // 3. Generate new credentials through IAM
-        Map<String, Object> newCredentials = generateAwsCredentialsFromIam(isAws1);
+        long token = redisClient.tryAcquireLease(AWS_CREDENTIALS_LEASE_KEY, destination.primaryPartition, leaseTtlMs);
+        if (token == 0) {
+            // Another instance holds the lease: keep the current credentials while still unexpired
+            Map<String, Object> lastKnown = lastKnownCredentials.get(destination.name);
+            if (isUnexpired(lastKnown)) {
+                logger.info("Credentials for {} are being renewed by another instance, using the current ones", destination.name);
+                return lastKnown;
+            }
+            
+            Map<String, Object> published = awaitCachedCredentials(destination);
+            if (published != null) {
+                return published;
+            }
+            logger.warn("Timed out waiting for credentials of {} from another instance", destination.name);
+        }
         
-        // 4. Store the new credentials in Redis
-        redisClient.storeAwsCredentials(AWS_CREDENTIALS_KEY, newCredentials, isAws1);
+        try {
+            if (token > 0) {
+                // Another instance may have stored them between our Redis miss and the lease
+                cachedCredentials = getCachedCredentials(destination);
+                if (cachedCredentials != null) {
+                    return cachedCredentials;
+                }
+            }
+            
+            // 3. Generate new credentials through IAM
+            Map<String, Object> newCredentials = generateAwsCredentialsFromIam(destination);
+            
+            // 4. Store the new credentials in Redis, fenced by the lease when we hold it
+            if (token > 0) {
+                if (!redisClient.storeAwsCredentials(AWS_CREDENTIALS_KEY, newCredentials, destination.primaryPartition,
+                        AWS_CREDENTIALS_LEASE_KEY, token)) {
+                    logger.warn("Lease for {} lost before storing, credentials only kept locally", destination.name);
+                }
+            } else {
+                redisClient.storeAwsCredentials(AWS_CREDENTIALS_KEY, newCredentials, destination.primaryPartition);
+            }
+            cacheLocally(destination, newCredentials);
+            
+            return newCredentials;
+        } finally {
+            redisClient.releaseLease(AWS_CREDENTIALS_LEASE_KEY, destination.primaryPartition, token);
+        }
+    }
+    
+    /**
+     * Gets the credentials cached in Redis if they are valid, keeping them locally
+     *
+     * @return Valid credentials, or null
+     */
+    private Map<String, Object> getCachedCredentials(Destination destination) {
+        logger.debug("Checking AWS credentials in Redis for {}", destination.name);
         
-        return newCredentials;
+        Map<String, Object> cachedCredentials = redisClient.getAwsCredentials(AWS_CREDENTIALS_KEY, destination.primaryPartition);
+        if (areCredentialsValid(cachedCredentials)) {
+            logger.debug("Valid credentials found in Redis");
+            cacheLocally(destination, cachedCredentials);
+            return cachedCredentials;
+        }
+        return null;
+    }
+        
+    /**
+     * Polls Redis until the lease holder stores valid credentials
+     *
+     * @return Valid credentials, or null if none were stored within the wait
+     */
+    private Map<String, Object> awaitCachedCredentials(Destination destination) {
+        long deadline = System.currentTimeMillis() + leaseWaitMs;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(leasePollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Map<String, Object> cachedCredentials = getCachedCredentials(destination);
+            if (cachedCredentials != null) {
+                return cachedCredentials;
+            }
+        }
+        return null;
+    }
+        
+    /**
+     * Whether the credentials can still sign a request, even inside the renewal margin
+     */
+    private boolean isUnexpired(Map<String, Object> credentials) {
+        if (credentials == null || credentials.get("expiration") == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(credentials.get("expiration").toString()) - Instant.now().toEpochMilli()
+                    > STALE_CREDENTIALS_MARGIN_MS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Deletes credentials AWS rejected from Redis, which tells the other instances to
+     * drop them too, unless they were already replaced
+     */
+    private void invalidateRejectedCredentials(Destination destination, Map<String, Object> rejected) {
+        Map<String, Object> cachedCredentials = redisClient.getAwsCredentials(AWS_CREDENTIALS_KEY, destination.primaryPartition);
+        if (cachedCredentials == null
+                || Objects.equals(cachedCredentials.get("accessKey"), rejected.get("accessKey"))) {
+            redisClient.deleteCredentials(AWS_CREDENTIALS_KEY, destination.primaryPartition);
+        }
+        dropLocalCredentials(destination);
+    }
+    
+    private void dropLocalCredentials(Destination destination) {
+        localCredentials.invalidate(destination.name);
+        lastKnownCredentials.remove(destination.name);
+    }
+    
+    /**
+     * Keeps the credentials in process for as long as areCredentialsValid would accept them
+     */
+    private void cacheLocally(Destination destination, Map<String, Object> credentials) {
+        try {
+            long expirationTime = Long.parseLong(credentials.get("expiration").toString());
+            localCredentials.put(destination.name, credentials, expirationTime - CREDENTIALS_VALIDITY_MARGIN_MS);
+            lastKnownCredentials.put(destination.name, credentials);
+        } catch (RuntimeException e) {
+            logger.warn("Credentials without a valid expiration are not cached locally");
+        }
     }
     
     /**
@@ -194,7 +416,7 @@ public class AwsClient {
             long currentTime = Instant.now().toEpochMilli();
             
             // Consider valid if more than 5 minutes until expiration
-            return (expirationTime - currentTime) > (5 * 60 * 1000);
+            return (expirationTime - currentTime) > CREDENTIALS_VALIDITY_MARGIN_MS;
         } catch (NumberFormatException e) {
             logger.warn("Invalid expiration time format in stored credentials");
             return false;
@@ -204,35 +426,23 @@ public class AwsClient {
     /**
      * Generates new AWS credentials by calling IAM with certificate and key
      * 
-     * @param isAws1 true for AWS1, false for AWS2
+     * @param destination Destination to generate the credentials for
      * @return Map with new credentials
      */
-    private Map<String, Object> generateAwsCredentialsFromIam(boolean isAws1) {
+    private Map<String, Object> generateAwsCredentialsFromIam(Destination destination) {
         try {
             logger.info("Generating new AWS credentials through IAM");
             
-            // Configure specific parameters based on environment (AWS1 or AWS2)
-            String iamHost = isAws1 ? iamHostAws1 : iamHostAws2;
-            String trustAnchorArn = isAws1 ? trustAnchorArnAws1 : trustAnchorArnAws2;
-            String profileArn = isAws1 ? profileArnAws1 : profileArnAws2;
-            String roleArn = isAws1 ? roleArnAws1 : roleArnAws2;
-            
             // 1. Prepare request body for IAM
             Map<String, Object> requestBody = awsIamAuthGenerate.createIamRequestBody(
-                    trustAnchorArn,
-                    profileArn,
-                    roleArn,
+                    destination.trustAnchorArn,
+                    destination.profileArn,
+                    destination.roleArn,
                     sessionName);
             
-            // 2. Decode certificate and key
-            byte[] certificateBytes = awsIamAuthGenerate.decodeBase64(base64Certificate);
-            byte[] keyBytes = awsIamAuthGenerate.decodeBase64(base64Key);
-            
-            // In a real implementation, these would be used to configure SSL
-            
-            // 3. Make the call to IAM using shared RestTemplate
+            // 2. Make the call to IAM using shared RestTemplate
             Map<String, Object> credentials = awsIamAuthGenerate.getAwsCredentialsFromIam(
-                    iamHost,
+                    destination.iamHost,
                     requestBody,
                     this.restTemplate);
             
@@ -243,7 +453,7 @@ public class AwsClient {
             logger.error("Error generating AWS credentials: {}", e.getMessage(), e);
             
             // For development only - REMOVE IN PRODUCTION
-            return createMockCredentials(isAws1);
+            return createMockCredentials(destination);
         }
     }
     
@@ -251,13 +461,13 @@ public class AwsClient {
      * Creates mock credentials for development/testing
      * FOR DEVELOPMENT ONLY - REMOVE IN PRODUCTION
      */
-    private Map<String, Object> createMockCredentials(boolean isAws1) {
+    private Map<String, Object> createMockCredentials(Destination destination) {
         logger.warn("Creating mock AWS credentials (DEVELOPMENT ONLY)");
         
         Map<String, Object> credentials = new HashMap<>();
-        credentials.put("accessKey", isAws1 ? "mock-access-key-aws1" : "mock-access-key-aws2");
-        credentials.put("secretKey", isAws1 ? "mock-secret-key-aws1" : "mock-secret-key-aws2");
-        credentials.put("sessionToken", isAws1 ? "mock-session-token-aws1" : "mock-session-token-aws2");
+        credentials.put("accessKey", "mock-access-key-" + destination.name);
+        credentials.put("secretKey", "mock-secret-key-" + destination.name);
+        credentials.put("sessionToken", "mock-session-token-" + destination.name);
         
         // Expiration in 1 hour from now
         long expirationTime = Instant.now().plusSeconds(3600).toEpochMilli();
@@ -266,6 +476,33 @@ public class AwsClient {
         return credentials;
     }
     
+    /**
+     * Looks up a destination by name
+     */
+    private Destination getDestination(String name) {
+        Destination destination = destinations().get(name);
+        if (destination == null) {
+            throw new IllegalArgumentException("Unknown AWS destination: " + name);
+        }
+        return destination;
+    }
+    
+    /**
+     * Builds the destinations from the injected properties on first use
+     */
+    private Map<String, Destination> destinations() {
+        Map<String, Destination> result = destinations;
+        if (result == null) {
+            result = new LinkedHashMap<>();
+            result.put("aws1", new Destination("aws1", true, iamHostAws1, trustAnchorArnAws1,
+                    profileArnAws1, roleArnAws1, regionAws1, eventBridgeHostAws1));
+            result.put("aws2", new Destination("aws2", false, iamHostAws2, trustAnchorArnAws2,
+                    profileArnAws2, roleArnAws2, regionAws2, eventBridgeHostAws2));
+            destinations = result;
+        }
+        return result;
+    }
+    
     /**
      * Sends an event to AWS EventBridge
      * 
@@ -290,15 +527,20 @@ public class AwsClient {
             String sessionToken = credentials.containsKey("sessionToken") ? 
                     credentials.get("sessionToken").toString() : null;
             
+            // Serialize once, the signature covers exactly these bytes
+            byte[] body = serializeEvent(event);
+            
             // Create headers for EventBridge
             HttpHeaders headers = awsIamAuthGenerate.createEventBridgeHeaders(
                     accessKey,
                     secretKey,
                     sessionToken,
-                    region);
+                    region,
+                    eventBridgeHost,
+                    body);
             
             // Create HTTP entity
-            HttpEntity<Object> requestEntity = new HttpEntity<>(event, headers);
+            HttpEntity<byte[]> requestEntity = new HttpEntity<>(body, headers);
             
             // URL for EventBridge
             String eventBridgeUrl = "https://" + eventBridgeHost;
@@ -311,12 +553,27 @@ public class AwsClient {
             logger.info("Event successfully sent to EventBridge");
             return true;
             
+        } catch (HttpClientErrorException.Forbidden e) {
+            logger.error("EventBridge rejected the credentials: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.error("Error sending event to EventBridge: {}", e.getMessage(), e);
             return false;
         }
     }
     
+    /**
+     * Serializes the event to the JSON bytes that are signed and sent
+     */
+    private byte[] serializeEvent(Object event) throws Exception {
+        if (event instanceof byte[]) {
+            return (byte[]) event;
+        } else if (event instanceof String) {
+            return ((String) event).getBytes(StandardCharsets.UTF_8);
+        }
+        return OBJECT_MAPPER.writeValueAsBytes(event);
+    }
+    
     /**
      * Provides a shared RestTemplate bean 
      * This ensures the same instance is used throughout the application
@@ -325,4 +582,32 @@ public class AwsClient {
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
+    
+    /**
+     * IAM and EventBridge settings of one destination
+     */
+    private static final class Destination {
+        
+        private final String name;
+        // Redis partition the credentials are cached in
+        private final boolean primaryPartition;
+        private final String iamHost;
+        private final String trustAnchorArn;
+        private final String profileArn;
+        private final String roleArn;
+        private final String region;
+        private final String eventBridgeHost;
+        
+        private Destination(String name, boolean primaryPartition, String iamHost, String trustAnchorArn,
+                            String profileArn, String roleArn, String region, String eventBridgeHost) {
+            this.name = name;
+            this.primaryPartition = primaryPartition;
+            this.iamHost = iamHost;
+            this.trustAnchorArn = trustAnchorArn;
+            this.profileArn = profileArn;
+            this.roleArn = roleArn;
+            this.region = region;
+            this.eventBridgeHost = eventBridgeHost;
+        }
+    }
 }
\ No newline at end of file
@@ -8,8 +8,10 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.quality.Strictness;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.Instant;
@@ -68,7 +70,7 @@ public class AwsClientTest {
         validCredentials.put("expiration", String.valueOf(Instant.now().plusSeconds(3600).toEpochMilli()));
         
         when(redisClient.getAwsCredentials(any(), eq(true))).thenReturn(validCredentials);
-        when(awsIamAuthGenerate.createEventBridgeHeaders(any(), any(), any(), any())).thenReturn(new HttpHeaders());
+        when(awsIamAuthGenerate.createEventBridgeHeaders(any(), any(), any(), any(), any(), any())).thenReturn(new HttpHeaders());
         when(restTemplate.postForEntity(any(), any(), any())).thenReturn(ResponseEntity.ok("success"));
         
         // 2. Act
@@ -87,7 +89,7 @@ public class AwsClientTest {
         validCredentials.put("expiration", String.valueOf(Instant.now().plusSeconds(3600).toEpochMilli()));
         
         when(redisClient.getAwsCredentials(any(), eq(true))).thenReturn(validCredentials);
-        when(awsIamAuthGenerate.createEventBridgeHeaders(any(), any(), any(), any())).thenReturn(new HttpHeaders());
+        when(awsIamAuthGenerate.createEventBridgeHeaders(any(), any(), any(), any(), any(), any())).thenReturn(new HttpHeaders());
         when(restTemplate.postForEntity(any(), any(), any())).thenThrow(new RuntimeException("Test exception"));
         
         // 2. Act
@@ -97,6 +99,33 @@ public class AwsClientTest {
         assertFalse(result);
     }
     
+    @Test
+    void sendEventToAws1_withForbidden_invalidatesCredentialsAndRetriesOnce() {
+        // 1. Rejected credentials are replaced in Redis after the invalidation
+        Map<String, Object> rejectedCredentials = new HashMap<>();
+        rejectedCredentials.put("accessKey", "revokedAccessKey");
+        rejectedCredentials.put("secretKey", "testSecretKey");
+        rejectedCredentials.put("expiration", String.valueOf(Instant.now().plusSeconds(3600).toEpochMilli()));
+        Map<String, Object> newCredentials = new HashMap<>(rejectedCredentials);
+        newCredentials.put("accessKey", "newAccessKey");
+        
+        when(redisClient.getAwsCredentials(any(), eq(true)))
+                .thenReturn(rejectedCredentials, rejectedCredentials, newCredentials);
+        when(awsIamAuthGenerate.createEventBridgeHeaders(any(), any(), any(), any(), any(), any())).thenReturn(new HttpHeaders());
+        when(restTemplate.postForEntity(any(), any(), any()))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.FORBIDDEN, "Forbidden", new HttpHeaders(), null, null))
+                .thenReturn(ResponseEntity.ok("success"));
+        
+        // 2. Act
+        boolean result = awsClient.sendEventToAws1(new HashMap<>());
+        
+        // 3. Assert
+        assertTrue(result);
+        verify(redisClient).deleteCredentials(any(), eq(true));
+        verify(awsIamAuthGenerate).createEventBridgeHeaders(eq("newAccessKey"), any(), any(), any(), any(), any());
+        verify(restTemplate, times(2)).postForEntity(any(), any(), any());
+    }
+    
     @Test
     void sendEventToAws2_withValidCachedCredentials_returnsTrue() {
         // 1. Setup only the minimal required mocks
@@ -106,7 +135,7 @@ public class AwsClientTest {
         validCredentials.put("expiration", String.valueOf(Instant.now().plusSeconds(3600).toEpochMilli()));
         
         when(redisClient.getAwsCredentials(any(), eq(false))).thenReturn(validCredentials);
-        when(awsIamAuthGenerate.createEventBridgeHeaders(any(), any(), any(), any())).thenReturn(new HttpHeaders());
+        when(awsIamAuthGenerate.createEventBridgeHeaders(any(), any(), any(), any(), any(), any())).thenReturn(new HttpHeaders());
         when(restTemplate.postForEntity(any(), any(), any())).thenReturn(ResponseEntity.ok("success"));
         
         // 2. Act
@@ -1,5 +1,8 @@
 package com.santander.sov.epppaym.sovepppaym01pymt0028v1gms.util;
 
+import com.empresa.connector.model.AwsCredentials;
+import com.empresa.connector.util.AwsSigner;
+import com.empresa.connector.util.SigV4Template;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
@@ -14,6 +17,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for handling AWS IAM authentication,
@@ -32,12 +36,23 @@ public class AwsIamAuthGenerate {
     private static final String KEY_FOOTER_PART1 = "-----" + "END ";
     private static final String KEY_FOOTER_PART2 = "PRIVATE KEY" + "-----";
     
+    private static final String EVENT_BRIDGE_SERVICE = "events";
+    private static final String EVENT_BRIDGE_TARGET = "AWSEvents.PutEvents";
+    private static final String EVENT_BRIDGE_CONTENT_TYPE = "application/x-amz-json-1.1";
+    
+    // Shared SigV4 engine: per-thread Mac/digest and cached signing keys
+    private final AwsSigner awsSigner;
+    
+    // Precomputed signing template per EventBridge host
+    private final Map<String, SigV4Template> eventBridgeTemplates = new ConcurrentHashMap<>();
+    
     // IMPORTANTE: RestTemplate se inyecta aquí, no se crea internamente
     private final RestTemplate restTemplate;
     
-    // Constructor que acepta RestTemplate por inyección de dependencias
-    public AwsIamAuthGenerate(RestTemplate restTemplate) {
+    // Constructor que acepta RestTemplate y el firmante por inyección de dependencias
+    public AwsIamAuthGenerate(RestTemplate restTemplate, AwsSigner awsSigner) {
         this.restTemplate = restTemplate;
+        this.awsSigner = awsSigner;
     }
     
     /**
@@ -127,58 +142,58 @@ public class AwsIamAuthGenerate {
     }
     
     /**
-     * Creates headers for authentication with AWS EventBridge
+     * Creates SigV4 signed headers for a PutEvents request with the given body,
+     * on the regional endpoint
      * 
      * @param accessKey AWS access key
      * @param secretKey AWS secret key
      * @param sessionToken AWS session token
      * @param region AWS region
+     * @param body Serialized request body, sent exactly as signed
      * @return HttpHeaders configured for AWS EventBridge
      */
     public HttpHeaders createEventBridgeHeaders(
             String accessKey,
             String secretKey,
             String sessionToken,
-            String region) {
-        
-        HttpHeaders headers = new HttpHeaders();
-        
-        // Configure basic headers
-        headers.set("Content-Type", "application/x-amz-json-1.1");
-        headers.set("X-Amz-Target", "AWSEvents.PutEvents");
-        
-        // Generate ISO 8601 date format
-        String amzDate = ZonedDateTime.now().format(DateTimeFormatter.ISO_INSTANT);
-        headers.set("X-Amz-Date", amzDate);
-        
-        // Add session token if available
-        if (sessionToken != null && !sessionToken.isEmpty()) {
-            headers.set("X-Amz-Security-Token", sessionToken);
-        }
-        
-        // Date format for credential
-        String dateStamp = amzDate.substring(0, 10).replace("-", "");
-        
-        // Create signed headers string
-        String signedHeaders = "content-type;host;x-amz-date;x-amz-target";
-        if (sessionToken != null && !sessionToken.isEmpty()) {
-            signedHeaders += ";x-amz-security-token";
-        }
+            String region,
+            byte[] body) {
+        return createEventBridgeHeaders(accessKey, secretKey, sessionToken, region,
+                EVENT_BRIDGE_SERVICE + "." + region + ".amazonaws.com", body);
+    }
         
-        // In a real implementation, we would calculate the HMAC-SHA256 signature
-        // For this implementation, we use a dummy signature value
-        String signature = "calculatedSignatureWouldGoHere";
+    /**
+     * Creates SigV4 signed headers for a PutEvents request with the given body
+     *
+     * @param accessKey AWS access key
+     * @param secretKey AWS secret key
+     * @param sessionToken AWS session token
+     * @param region AWS region
+     * @param host EventBridge host the request is sent to
+     * @param body Serialized request body, sent exactly as signed
+     * @return HttpHeaders configured for AWS EventBridge
+     */
+    public HttpHeaders createEventBridgeHeaders(
+            String accessKey,
+            String secretKey,
+            String sessionToken,
+            String region,
+            String host,
+            byte[] body) {
         
-        // Form authorization header
-        String credential = accessKey + "/" + dateStamp + "/" + region + "/events/aws4_request";
-        String authHeader = "AWS4-HMAC-SHA256 " +
-                "Credential=" + credential + ", " +
-                "SignedHeaders=" + signedHeaders + ", " +
-                "Signature=" + signature;
+        // Host, target and signed header list are fixed per host, only built once
+        SigV4Template template = eventBridgeTemplates.computeIfAbsent(host, h -> SigV4Template.post(
+                EVENT_BRIDGE_SERVICE, region, h, EVENT_BRIDGE_TARGET, EVENT_BRIDGE_CONTENT_TYPE));
         
-        headers.set("Authorization", authHeader);
+        AwsCredentials credentials = AwsCredentials.builder()
+                .accessKeyId(accessKey)
+                .secretAccessKey(secretKey)
+                .sessionToken(sessionToken)
+                .region(region)
+                .build();
         
-        return headers;
+        String payloadHash = awsSigner.hashContent(body, 0, body.length);
+        return template.sign(awsSigner, credentials, payloadHash).applyTo(new HttpHeaders());
     }
     
     /**
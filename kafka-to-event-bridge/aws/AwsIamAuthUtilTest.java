@@ -1,5 +1,6 @@
 package com.santander.sov.epppaym.sovepppaym01pymt0028v1gms.util;
 
+import com.empresa.connector.util.AwsSigner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +12,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
@@ -39,7 +41,7 @@ public class AwsIamAuthGenerateTest {
     @BeforeEach
     void setUp() {
         // Inicializar la clase bajo prueba manualmente con el mock
-        awsIamAuthGenerate = new AwsIamAuthGenerate(restTemplate);
+        awsIamAuthGenerate = new AwsIamAuthGenerate(restTemplate, new AwsSigner());
         
         // Prepare test data
         String sampleCertificate = "Sample certificate content";
@@ -141,10 +143,11 @@ public class AwsIamAuthGenerateTest {
         String secretKey = "testSecretKey";
         String sessionToken = "testSessionToken";
         String region = "us-east-1";
+        byte[] body = "{\"Entries\":[]}".getBytes(StandardCharsets.UTF_8);
         
         // Act
         HttpHeaders headers = awsIamAuthGenerate.createEventBridgeHeaders(
-                accessKey, secretKey, sessionToken, region);
+                accessKey, secretKey, sessionToken, region, body);
         
         // Assert - Check required headers
         assertEquals("application/x-amz-json-1.1", headers.getFirst("Content-Type"));
@@ -160,10 +163,11 @@ public class AwsIamAuthGenerateTest {
         String accessKey = "testAccessKey";
         String secretKey = "testSecretKey";
         String region = "us-east-1";
+        byte[] body = "{\"Entries\":[]}".getBytes(StandardCharsets.UTF_8);
         
         // Act
         HttpHeaders headers = awsIamAuthGenerate.createEventBridgeHeaders(
-                accessKey, secretKey, null, region);
+                accessKey, secretKey, null, region, body);
         
         // Assert - Check required headers
         assertEquals("application/x-amz-json-1.1", headers.getFirst("Content-Type"));
@@ -1,19 +1,48 @@
 package com.santander.sov.epppaym.sovepppaym01pymt0028v1gms.infra.client;
 
+import com.empresa.connector.service.RedisClientSideCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Component
 public class RedisClient {
+    
+    // Borra el lease solo si sigue siendo del token; el token se serializa igual que al guardarlo
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+    
+    // Guarda las credenciales solo si el lease sigue siendo del token (fencing)
+    private static final RedisScript<Long> SET_IF_LEASE_HELD = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3]) return 1 end return 0",
+            Long.class);
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    // Caché en memoria invalidada por el servidor; sin ella las lecturas van siempre a Redis
+    @Autowired(required = false)
+    private RedisClientSideCache clientSideCache;
+    
     @Value("${spring.data.redis.expiration-time}")
     private long expirationTime;
     
@@ -23,21 +52,84 @@ public class RedisClient {
     @Value("${spring.data.redis.partition.identifier.AWS1}")
     private String partitionIdentifierAWS1;
 
+    @Value("${spring.data.redis.invalidation.channel:aws-credentials-invalidation}")
+    private String invalidationChannel;
+    
+    @Value("${spring.data.redis.command-timeout-ms:500}")
+    private long commandTimeout;
+    
+    // Cliente no bloqueante, con la misma serialización que redisTemplate; null sin conexión reactiva
+    private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    
+    // Método para crear el cliente no bloqueante sobre la conexión (Lettuce) de Spring
+    @Autowired(required = false)
+    @SuppressWarnings("unchecked")
+    public void setReactiveConnectionFactory(ReactiveRedisConnectionFactory connectionFactory) {
+        RedisSerializationContext<String, Object> serializationContext = RedisSerializationContext
+                .<String, Object>newSerializationContext((RedisSerializer<Object>) redisTemplate.getValueSerializer())
+                .key((RedisSerializer<String>) redisTemplate.getKeySerializer())
+                .value((RedisSerializer<Object>) redisTemplate.getValueSerializer())
+                .build();
+        this.reactiveRedisTemplate = new ReactiveRedisTemplate<>(connectionFactory, serializationContext);
+    }
+    
     // Método para almacenar credenciales de AWS en Redis
     public void storeAwsCredentials(String key, Map<String, Object> credentials, boolean isAws1) {
         String redisKey = createRedisKey(key, isAws1);
-        redisTemplate.opsForValue().set(redisKey, credentials);
-        redisTemplate.expire(redisKey, expirationTime, TimeUnit.SECONDS);
+        // SET EX: la clave nunca queda sin caducidad
+        redisTemplate.opsForValue().set(redisKey, credentials, expirationTime, TimeUnit.SECONDS);
+    }
+    
+    // Método para almacenar credenciales solo si el lease sigue siendo del token; un proceso cuyo
+    // lease caducó mientras las generaba no pisa las que haya guardado el siguiente
+    @SuppressWarnings("unchecked")
+    public boolean storeAwsCredentials(String key, Map<String, Object> credentials, boolean isAws1,
+                                       String leaseKey, long token) {
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        // Token y credenciales con el serializador de valores, como al guardarlos; la caducidad en texto para EX
+        Long written = redisTemplate.execute(SET_IF_LEASE_HELD, RedisSerializer.byteArray(), null,
+                Arrays.asList(createRedisKey(leaseKey, isAws1), createRedisKey(key, isAws1)),
+                valueSerializer.serialize(token), valueSerializer.serialize(credentials),
+                String.valueOf(expirationTime).getBytes(StandardCharsets.UTF_8));
+        return written != null && written == 1;
     }
 
     // Método para recuperar credenciales de AWS de Redis
     @SuppressWarnings("unchecked")
     public Map<String, Object> getAwsCredentials(String key, boolean isAws1) {
         String redisKey = createRedisKey(key, isAws1);
-        Object credentials = redisTemplate.opsForValue().get(redisKey);
+        Object credentials = clientSideCache != null && clientSideCache.isAvailable()
+                ? deserialize(clientSideCache.get(redisKey))
+                : redisTemplate.opsForValue().get(redisKey);
         return credentials != null ? (Map<String, Object>) credentials : null;
     }
     
+    // Método para avisar de claves de credenciales modificadas en Redis (solo con client tracking)
+    public void addInvalidationListener(Consumer<String> listener) {
+        if (clientSideCache != null) {
+            clientSideCache.onInvalidation(listener);
+        }
+    }
+    
+    private Object deserialize(byte[] value) {
+        return value != null ? redisTemplate.getValueSerializer().deserialize(value) : null;
+    }
+    
+    // Método para recuperar credenciales sin bloquear; se completa con null si no hay o si falla
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<String, Object>> getAwsCredentialsAsync(String key, boolean isAws1) {
+        if (reactiveRedisTemplate == null) {
+            // Sin conexión reactiva se resuelve con el cliente bloqueante
+            return CompletableFuture.supplyAsync(() -> getAwsCredentials(key, isAws1));
+        }
+        String redisKey = createRedisKey(key, isAws1);
+        return reactiveRedisTemplate.opsForValue().get(redisKey)
+                .timeout(Duration.ofMillis(commandTimeout))
+                .map(credentials -> (Map<String, Object>) credentials)
+                .toFuture()
+                .exceptionally(e -> null);
+    }
+    
     // Método para crear la clave de Redis basada en el identificador de partición
     private String createRedisKey(String key, boolean isAws1) {
         return isAws1 ? 
@@ -51,9 +143,46 @@ public class RedisClient {
         return Boolean.TRUE.equals(redisTemplate.hasKey(redisKey));
     }
     
-    // Método para eliminar credenciales
+    // Método para eliminar credenciales; se avisa a las demás instancias para que descarten su copia local
     public void deleteCredentials(String key, boolean isAws1) {
         String redisKey = createRedisKey(key, isAws1);
         redisTemplate.delete(redisKey);
+        redisTemplate.convertAndSend(invalidationChannel, redisKey);
+    }
+    
+    // Canal pub/sub de invalidación de credenciales
+    public String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+    
+    // Método para leer la clave invalidada de un mensaje del canal
+    public String readInvalidation(Message message) {
+        Object redisKey = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        return redisKey != null ? redisKey.toString() : null;
+    }
+    
+    // Método para verificar si una clave de Redis es la de las credenciales indicadas
+    public boolean isCredentialsKey(String redisKey, String key, boolean isAws1) {
+        return createRedisKey(key, isAws1).equals(redisKey);
+    }
+    
+    // Método para adquirir un lease corto (SET NX PX); devuelve el token de fencing o 0 si lo tiene otro
+    public long tryAcquireLease(String key, boolean isAws1, long ttlMillis) {
+        String redisKey = createRedisKey(key, isAws1);
+        Long token = redisTemplate.opsForValue().increment(redisKey + ":fence");
+        if (token == null) {
+            return 0;
+        }
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(redisKey, token, ttlMillis, TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(acquired) ? token : 0;
+    }
+    
+    // Método para liberar el lease si sigue siendo del token
+    public void releaseLease(String key, boolean isAws1, long token) {
+        if (token <= 0) {
+            return;
+        }
+        String redisKey = createRedisKey(key, isAws1);
+        redisTemplate.execute(RELEASE_LEASE, Collections.singletonList(redisKey), token);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.santander.sov.epppaym.sovepppaym01pymt0028v1gms.infra.client;
 
+import com.empresa.connector.service.RedisClientSideCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,8 +9,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +35,9 @@ public class RedisClientTest {
     @Mock
     private ValueOperations<String, Object> valueOperations;
     
+    @Mock
+    private RedisClientSideCache clientSideCache;
+    
     @InjectMocks
     private RedisClient redisClient;
     
@@ -44,6 +52,7 @@ public class RedisClientTest {
         ReflectionTestUtils.setField(redisClient, "expirationTime", expirationTime);
         ReflectionTestUtils.setField(redisClient, "partitionIdentifier", partitionIdentifier);
         ReflectionTestUtils.setField(redisClient, "partitionIdentifierAWS1", partitionIdentifierAWS1);
+        ReflectionTestUtils.setField(redisClient, "invalidationChannel", "aws-credentials-invalidation");
         
         // No configuramos redisTemplate.opsForValue() aquí para evitar stubbings innecesarios
     }
@@ -64,8 +73,8 @@ public class RedisClientTest {
         redisClient.storeAwsCredentials(testKey, credentials, true);
         
         // Assert
-        verify(valueOperations).set(eq(expectedRedisKey), eq(credentials));
-        verify(redisTemplate).expire(eq(expectedRedisKey), eq(expirationTime), eq(TimeUnit.SECONDS));
+        verify(valueOperations).set(eq(expectedRedisKey), eq(credentials), eq(expirationTime), eq(TimeUnit.SECONDS));
+        verify(redisTemplate, never()).expire(any(), anyLong(), any(TimeUnit.class));
     }
     
     @Test
@@ -84,8 +93,8 @@ public class RedisClientTest {
         redisClient.storeAwsCredentials(testKey, credentials, false);
         
         // Assert
-        verify(valueOperations).set(eq(expectedRedisKey), eq(credentials));
-        verify(redisTemplate).expire(eq(expectedRedisKey), eq(expirationTime), eq(TimeUnit.SECONDS));
+        verify(valueOperations).set(eq(expectedRedisKey), eq(credentials), eq(expirationTime), eq(TimeUnit.SECONDS));
+        verify(redisTemplate, never()).expire(any(), anyLong(), any(TimeUnit.class));
     }
     
     @Test
@@ -130,6 +139,44 @@ public class RedisClientTest {
         assertEquals(expectedCredentials, result);
     }
     
+    @Test
+    void getAwsCredentialsAsync_withoutReactiveConnection_usesBlockingClient() throws Exception {
+        // Arrange
+        Map<String, Object> expectedCredentials = new HashMap<>();
+        expectedCredentials.put("accessKey", "testAccessKey");
+        
+        String expectedRedisKey = partitionIdentifierAWS1 + ":" + testKey;
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(eq(expectedRedisKey))).thenReturn(expectedCredentials);
+        
+        // Act
+        Map<String, Object> result = redisClient.getAwsCredentialsAsync(testKey, true).get(5, TimeUnit.SECONDS);
+        
+        // Assert
+        assertEquals(expectedCredentials, result);
+    }
+    
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void getAwsCredentials_withClientSideCache_decodesCachedValue() {
+        // Arrange
+        HashMap<String, Object> expectedCredentials = new HashMap<>();
+        expectedCredentials.put("accessKey", "testAccessKey");
+        
+        String expectedRedisKey = partitionIdentifierAWS1 + ":" + testKey;
+        JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer();
+        when(clientSideCache.isAvailable()).thenReturn(true);
+        when(clientSideCache.get(eq(expectedRedisKey))).thenReturn(serializer.serialize(expectedCredentials));
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) serializer);
+        
+        // Act
+        Map<String, Object> result = redisClient.getAwsCredentials(testKey, true);
+        
+        // Assert
+        assertEquals(expectedCredentials, result);
+        verify(redisTemplate, never()).opsForValue();
+    }
+    
     @Test
     void getAwsCredentials_whenKeyNotFound_returnsNull() {
         // Arrange
@@ -199,6 +246,7 @@ public class RedisClientTest {
         
         // Assert
         verify(redisTemplate).delete(eq(expectedRedisKey));
+        verify(redisTemplate).convertAndSend(eq("aws-credentials-invalidation"), eq(expectedRedisKey));
     }
     
     @Test
@@ -212,4 +260,66 @@ public class RedisClientTest {
         // Assert
         verify(redisTemplate).delete(eq(expectedRedisKey));
     }
+    
+    @Test
+    void tryAcquireLease_whenFree_returnsFencingToken() {
+        // Arrange
+        String expectedRedisKey = partitionIdentifierAWS1 + ":" + testKey;
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(eq(expectedRedisKey + ":fence"))).thenReturn(7L);
+        when(valueOperations.setIfAbsent(eq(expectedRedisKey), eq(7L), eq(15000L), eq(TimeUnit.MILLISECONDS)))
+                .thenReturn(Boolean.TRUE);
+        
+        // Act
+        long token = redisClient.tryAcquireLease(testKey, true, 15000);
+        
+        // Assert
+        assertEquals(7L, token);
+    }
+    
+    @Test
+    void tryAcquireLease_whenHeldByOther_returnsZero() {
+        // Arrange
+        String expectedRedisKey = partitionIdentifier + ":" + testKey;
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(eq(expectedRedisKey + ":fence"))).thenReturn(8L);
+        when(valueOperations.setIfAbsent(eq(expectedRedisKey), eq(8L), eq(15000L), eq(TimeUnit.MILLISECONDS)))
+                .thenReturn(Boolean.FALSE);
+        
+        // Act
+        long token = redisClient.tryAcquireLease(testKey, false, 15000);
+        
+        // Assert
+        assertEquals(0L, token);
+    }
+    
+    @Test
+    void releaseLease_withoutToken_doesNotTouchRedis() {
+        // Act
+        redisClient.releaseLease(testKey, true, 0);
+        
+        // Assert
+        verifyNoInteractions(redisTemplate);
+    }
+    
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void storeAwsCredentials_withLostLease_returnsFalse() {
+        // Arrange
+        Map<String, Object> credentials = new HashMap<>();
+        credentials.put("accessKey", "testAccessKey");
+        
+        String leaseKey = partitionIdentifierAWS1 + ":" + testKey + "-lease";
+        String expectedRedisKey = partitionIdentifierAWS1 + ":" + testKey;
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) new JdkSerializationRedisSerializer());
+        when(redisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), (RedisSerializer<Long>) isNull(),
+                eq(Arrays.asList(leaseKey, expectedRedisKey)), any(), any(), any())).thenReturn(0L);
+        
+        // Act
+        boolean written = redisClient.storeAwsCredentials(testKey, credentials, true, testKey + "-lease", 7L);
+        
+        // Assert
+        assertFalse(written);
+        verify(redisTemplate, never()).opsForValue();
+    }
 }
\ No newline at end of file
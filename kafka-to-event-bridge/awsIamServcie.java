@@ -2,11 +2,22 @@ package com.empresa.connector.service;
 
 import com.empresa.connector.model.AwsCredentials;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Service interface for AWS IAM operations
  */
 public interface AwsIamService {
     
+    /**
+     * Gets AWS credentials for a named destination
+     *
+     * @param destination The destination name (aws.iam.destinations key, or aws1/aws2)
+     * @return AWS credentials for the destination
+     */
+    AwsCredentials getAwsCredentials(String destination);
+    
     /**
      * Gets AWS credentials for AWS1
      * 
@@ -29,6 +40,44 @@ public interface AwsIamService {
      */
     boolean hasCredentialsExpired(String awsKey);
     
+    /**
+     * Remaining lifetime of the shared credentials of several destinations, read in
+     * one round trip
+     *
+     * @param destinations The destination names
+     * @return Seconds left per destination; destinations without credentials are absent
+     */
+    Map<String, Long> getCredentialsTimeToLive(Collection<String> destinations);
+    
+    /**
+     * Drops the credentials of a destination from Redis and the local cache, and tells
+     * the other instances to drop theirs
+     *
+     * @param destination The destination name
+     */
+    void invalidateCredentials(String destination);
+    
+    /**
+     * Invalidates credentials that AWS rejected, unless they were already replaced
+     * (several in-flight sends are usually rejected with the same credentials)
+     *
+     * @param destination The destination name
+     * @param rejected The credentials that were rejected
+     */
+    void invalidateRejectedCredentials(String destination, AwsCredentials rejected);
+    
+    /**
+     * Credentials replacing rejected ones, waiting for them at most the given time.
+     * A load that does not finish in time keeps going in the background, so later
+     * sends find the new credentials cached.
+     *
+     * @param destination The destination name
+     * @param rejected The credentials that were rejected
+     * @param maxWaitMillis Longest time to wait for the new credentials
+     * @return The new credentials, or null if they were not available in time
+     */
+    AwsCredentials awaitReplacementCredentials(String destination, AwsCredentials rejected, long maxWaitMillis);
+    
     /**
      * Refreshes expired credentials
      * 
@@ -36,25 +85,49 @@ public interface AwsIamService {
      * @return New AWS credentials
      */
     AwsCredentials refreshCredentials(String awsKey);
+    
+    /**
+     * Creates new credentials for a destination, even if the cached ones are still
+     * valid, and publishes them to the local and Redis caches. Runs under the
+     * destination's Redis lease; if another instance already replaced the
+     * credentials this one knew, those are returned instead.
+     *
+     * @param destination The destination name
+     * @return New AWS credentials
+     */
+    AwsCredentials rotateCredentials(String destination);
 }
 
 package com.empresa.connector.service.impl;
 
+import com.empresa.connector.client.RolesAnywhereSessionClient;
 import com.empresa.connector.config.properties.AwsIamProperties;
 import com.empresa.connector.model.AwsCredentials;
 import com.empresa.connector.service.AwsIamService;
+import com.empresa.connector.service.CredentialInvalidationBus;
+import com.empresa.connector.service.RedisClientSideCache;
 import com.empresa.connector.service.RedisService;
-import com.empresa.connector.util.CertificateLoader;
+import com.empresa.connector.util.ExpiringLocalCache;
+import com.empresa.connector.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.security.PrivateKey;
-import java.security.cert.X509Certificate;
-import java.util.HashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
@@ -63,95 +136,425 @@ public class AwsIamServiceImpl implements AwsIamService {
 
     private final AwsIamProperties iamProperties;
     private final RedisService redisService;
-    private final CertificateLoader certificateLoader;
+    private final RolesAnywhereSessionClient rolesAnywhereSessionClient;
+    private final CredentialInvalidationBus invalidationBus;
+    
+    // Server-invalidated in-process cache; without it every read goes to Redis
+    @Autowired(required = false)
+    private RedisClientSideCache clientSideCache;
     
     @Value("${redis.expiration-time:3500}")
     private long credentialsExpirationTime;
 
+    // Local entries are dropped this long before the credentials expire
+    @Value("${aws.credentials.local.expiry-skew-seconds:60}")
+    private long localExpirySkew;
+    
+    // Lifetime of a local entry whose expiration is unknown (cached by an older version)
+    @Value("${aws.credentials.local.default-ttl-seconds:300}")
+    private long localDefaultTtl;
+    
+    // Lifetime of the Redis lease taken by the instance that creates the credentials
+    @Value("${aws.credentials.lease.ttl-ms:15000}")
+    private long leaseTtl;
+    
+    // How long other instances wait for the lease holder to publish its credentials
+    @Value("${aws.credentials.lease.wait-ms:10000}")
+    private long leaseWait;
+    
+    @Value("${aws.credentials.lease.poll-interval-ms:100}")
+    private long leasePollInterval;
+    
+    // Last known credentials are only served while at least this much is left
+    @Value("${aws.credentials.lease.stale-margin-seconds:10}")
+    private long staleMargin;
+    
+    /**
+     * First tier: parsed credentials per destination, in process. Redis stays the
+     * shared tier, so the send path only goes to the network on a local miss.
+     */
+    private final ExpiringLocalCache<String, AwsCredentials> localCredentials = new ExpiringLocalCache<>();
+    
+    /**
+     * One load per destination in this JVM: threads missing the local tier together
+     * share the Redis read or the CreateSession call of the first one
+     */
+    private final SingleFlight<String, AwsCredentials> credentialLoads = new SingleFlight<>();
+    
+    /**
+     * Credentials last published per destination. The local tier drops them a little
+     * before they expire; until then they can still sign while another instance
+     * renews them.
+     */
+    private final Map<String, AwsCredentials> lastKnownCredentials = new ConcurrentHashMap<>();
+    
+    // Reloads invalidated or rejected credentials off the send path
+    private final ExecutorService backgroundRefresh = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "aws-credentials-invalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PostConstruct
+    public void subscribeToInvalidations() {
+        invalidationBus.onInvalidation(this::onRemoteInvalidation);
+        if (clientSideCache != null) {
+            clientSideCache.onInvalidation(this::onSharedCredentialsChanged);
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        backgroundRefresh.shutdownNow();
+    }
+    
+    @Override
+    public AwsCredentials getAwsCredentials(String destination) {
+        AwsCredentials local = localCredentials.get(destination);
+        if (local != null) {
+            return local;
+        }
+        return getAwsCredentials(destination, instanceProperties(destination));
+    }
+    
     @Override
     public AwsCredentials getAwsCredentialsForAws1() {
-        return getAwsCredentials("aws1", iamProperties.getAws1());
+        return getAwsCredentials("aws1");
     }
     
     @Override
     public AwsCredentials getAwsCredentialsForAws2() {
-        return getAwsCredentials("aws2", iamProperties.getAws2());
+        return getAwsCredentials("aws2");
     }
     
     @Override
     public boolean hasCredentialsExpired(String awsKey) {
-        String cacheKey = String.format("aws:credentials:%s", awsKey);
-        return !redisService.hasKey(cacheKey) || redisService.getExpire(cacheKey) < 60; // Consider expired if less than 60 seconds left
+        // Value and TTL in one atomic read
+        RedisService.CachedValue cached = redisService.getWithTtl(String.format("aws:credentials:%s", awsKey));
+        return cached == null || cached.getTtlMillis() < 60_000; // Consider expired if less than 60 seconds left
+    }
+    
+    @Override
+    public Map<String, Long> getCredentialsTimeToLive(Collection<String> destinations) {
+        Map<String, String> cacheKeys = new LinkedHashMap<>();
+        for (String destination : destinations) {
+            cacheKeys.put(String.format("aws:credentials:%s", destination), destination);
+        }
+        
+        Map<String, Long> ttl = new LinkedHashMap<>();
+        redisService.getWithTtl(cacheKeys.keySet()).forEach((cacheKey, cached) ->
+                ttl.put(cacheKeys.get(cacheKey), cached.getTtlMillis() < 0 ? -1 : cached.getTtlMillis() / 1000));
+        return ttl;
+    }
+    
+    @Override
+    public void invalidateCredentials(String destination) {
+        log.info("Invalidating credentials for {}", destination);
+        redisService.deleteCache(String.format("aws:credentials:%s", destination));
+        dropLocal(destination);
+        invalidationBus.publish(destination);
+    }
+    
+    @Override
+    public void invalidateRejectedCredentials(String destination, AwsCredentials rejected) {
+        AwsCredentials current = lastKnownCredentials.get(destination);
+        if (current != null && !Objects.equals(current.getAccessKeyId(), rejected.getAccessKeyId())) {
+            log.info("Rejected credentials for {} were already replaced", destination);
+            return;
+        }
+        
+        String shared = redisService.getCache(String.format("aws:credentials:%s", destination));
+        if (shared != null && !shared.isEmpty()) {
+            try {
+                if (!Objects.equals(AwsCredentials.fromJson(shared).getAccessKeyId(), rejected.getAccessKeyId())) {
+                    // Another instance already replaced them in Redis, only the local copy is stale
+                    dropLocal(destination);
+                    return;
+                }
+            } catch (Exception e) {
+                log.warn("Error deserializing credentials from Redis: {}", e.getMessage());
+            }
+        }
+        invalidateCredentials(destination);
+    }
+    
+    @Override
+    public AwsCredentials awaitReplacementCredentials(String destination, AwsCredentials rejected,
+                                                      long maxWaitMillis) {
+        AwsCredentials local = localCredentials.get(destination);
+        if (local != null && !Objects.equals(local.getAccessKeyId(), rejected.getAccessKeyId())) {
+            return local;
+        }
+        
+        // Without last known credentials the load may wait up to lease.wait-ms for
+        // another instance, so it runs off the send path and is only waited for briefly
+        CompletableFuture<AwsCredentials> load = CompletableFuture.supplyAsync(
+                () -> getAwsCredentials(destination), backgroundRefresh);
+        try {
+            AwsCredentials replacement = load.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            return Objects.equals(replacement.getAccessKeyId(), rejected.getAccessKeyId()) ? null : replacement;
+        } catch (TimeoutException e) {
+            log.warn("New credentials for {} not available after {} ms, still loading", destination, maxWaitMillis);
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Error loading new credentials for {}: {}", destination, e.getCause().getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
     }
     
     @Override
     public AwsCredentials refreshCredentials(String awsKey) {
-        if ("aws1".equals(awsKey)) {
-            return getAwsCredentialsForAws1();
-        } else if ("aws2".equals(awsKey)) {
-            return getAwsCredentialsForAws2();
-        } else {
-            throw new IllegalArgumentException("Invalid AWS key: " + awsKey);
+        localCredentials.invalidate(awsKey);
+        return getAwsCredentials(awsKey);
+    }
+    
+    @Override
+    public AwsCredentials rotateCredentials(String destination) {
+        AwsIamProperties.AwsInstanceProperties properties = instanceProperties(destination);
+        // Own flight key: joining a plain load in flight would return the old credentials
+        return credentialLoads.execute("rotate:" + destination, () -> {
+            log.info("Rotating credentials for {}", destination);
+            return createCredentials(destination, properties, true);
+        });
+    }
+    
+    /**
+     * Another instance revoked or replaced the credentials: drop the local copy and
+     * load the current ones in the background, so senders find them cached
+     */
+    private void onRemoteInvalidation(String destination) {
+        if (!iamProperties.resolveDestinations().containsKey(destination)) {
+            return;
+        }
+        dropLocal(destination);
+        backgroundRefresh.execute(() -> {
+            try {
+                getAwsCredentials(destination);
+            } catch (Exception e) {
+                log.warn("Background refresh of credentials for {} failed: {}", destination, e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * A credentials key changed in Redis (server-assisted invalidation): the parsed
+     * local copy is dropped so the next read takes the new value
+     */
+    private void onSharedCredentialsChanged(String cacheKey) {
+        if (cacheKey == null) {
+            localCredentials.clear();
+        } else if (cacheKey.startsWith("aws:credentials:")) {
+            localCredentials.invalidate(cacheKey.substring("aws:credentials:".length()));
         }
     }
     
+    private void dropLocal(String destination) {
+        localCredentials.invalidate(destination);
+        lastKnownCredentials.remove(destination);
+    }
+    
     /**
      * Gets AWS credentials for the specified AWS instance
      */
     private AwsCredentials getAwsCredentials(String awsKey, AwsIamProperties.AwsInstanceProperties properties) {
-        // Check Redis cache first
+        return credentialLoads.execute(awsKey, () -> {
+            // The flight that just finished may have filled the local tier
+            AwsCredentials local = localCredentials.get(awsKey);
+            if (local != null) {
+                return local;
+            }
+            
+            AwsCredentials shared = readShared(awsKey);
+            if (shared != null) {
+                return shared;
+            }
+            return createCredentials(awsKey, properties, false);
+        });
+    }
+    
+    /**
+     * Creates credentials under the destination's Redis lease, so only one instance
+     * calls CreateSession at a time. Instances that do not get the lease keep signing
+     * with the last known credentials while they are still valid, or wait for the
+     * holder to publish new ones.
+     *
+     * @param rotate Whether the credentials in Redis must be replaced even if valid
+     */
+    private AwsCredentials createCredentials(String awsKey, AwsIamProperties.AwsInstanceProperties properties,
+                                             boolean rotate) {
+        String leaseKey = String.format("aws:credentials:lease:%s", awsKey);
+        long token = redisService.tryAcquireLease(leaseKey, leaseTtl);
+        
+        if (token == RedisService.LEASE_NOT_ACQUIRED) {
+            AwsCredentials lastKnown = lastKnownCredentials.get(awsKey);
+            if (!rotate && isStillValid(lastKnown)) {
+                log.info("Credentials for {} are being renewed by another instance, using the current ones", awsKey);
+                return lastKnown;
+            }
+            
+            AwsCredentials published = awaitShared(awsKey, lastKnown);
+            if (published != null) {
+                return published;
+            }
+            if (rotate && isStillValid(lastKnown)) {
+                return lastKnown;
+            }
+            log.warn("Timed out waiting for credentials of {} from another instance, creating them", awsKey);
+        }
+        
+        try {
+            if (token > 0 && rotate) {
+                // One rotation across instances: Redis holding other credentials than the
+                // ones this instance knew means another instance rotated them meanwhile
+                AwsCredentials known = lastKnownCredentials.get(awsKey);
+                AwsCredentials shared = readShared(awsKey);
+                if (known != null && shared != null && isStillValid(shared)
+                        && !Objects.equals(shared.getAccessKeyId(), known.getAccessKeyId())) {
+                    log.info("Credentials for {} already rotated by another instance", awsKey);
+                    return shared;
+                }
+            }
+            if (token > 0 && !rotate) {
+                // Another instance may have published them between our Redis miss and the lease
+                AwsCredentials shared = readShared(awsKey);
+                if (shared != null) {
+                    return shared;
+                }
+            }
+            
+            log.info("Generating new credentials for {}", awsKey);
+            
+            // Signed CreateSession call; certificate, key and TLS context are cached per destination
+            AwsCredentials credentials = rolesAnywhereSessionClient.createSession(awsKey, properties);
+            publish(awsKey, credentials, leaseKey, token);
+            if (rotate) {
+                // Other instances drop the previous credentials and pick these up from Redis
+                invalidationBus.publish(awsKey);
+            }
+            
+            return credentials;
+        } catch (Exception e) {
+            log.error("Error obtaining AWS credentials for {}: {}", awsKey, e.getMessage(), e);
+            throw new RuntimeException("Error obtaining AWS credentials", e);
+        } finally {
+            redisService.releaseLease(leaseKey, token);
+        }
+    }
+    
+    /**
+     * Reads the credentials from Redis and keeps them locally
+     *
+     * @return The credentials, or null if Redis has none
+     */
+    private AwsCredentials readShared(String awsKey) {
         String cacheKey = String.format("aws:credentials:%s", awsKey);
-        String cachedCredentials = redisService.getCache(cacheKey);
+        String cachedCredentials = readTracked(cacheKey);
         
         if (cachedCredentials != null && !cachedCredentials.isEmpty()) {
             log.info("Retrieving credentials from Redis for {}", awsKey);
             try {
-                return AwsCredentials.fromJson(cachedCredentials);
+                AwsCredentials credentials = AwsCredentials.fromJson(cachedCredentials);
+                cacheLocally(awsKey, credentials);
+                return credentials;
             } catch (Exception e) {
                 log.warn("Error deserializing credentials from Redis: {}", e.getMessage());
                 // Continue with getting new credentials
             }
         }
-        
-        try {
-            log.info("Generating new credentials for {}", awsKey);
-            
-            // In a real implementation, load certificates and make API call to AWS IAM RolesAnywhere
-            // X509Certificate certificate = certificateLoader.loadCertificate(properties.getCertificate());
-            // PrivateKey privateKey = certificateLoader.loadPrivateKey(properties.getKey());
-            
-            // For this example, generate dummy credentials
-            AwsCredentials credentials = AwsCredentials.builder()
-                    .accessKeyId("ASIA" + generateRandomString(16))
-                    .secretAccessKey(generateRandomString(40))
-                    .sessionToken(UUID.randomUUID().toString().replace("-", ""))
-                    .region(properties.getRegion())
-                    .build();
-            
-            // Store in Redis
+        return null;
+    }
+    
+    /**
+     * Reads through the client-side cache, so the key is tracked by the server;
+     * straight from Redis when the cache is unavailable
+     */
+    private String readTracked(String cacheKey) {
+        if (clientSideCache != null && clientSideCache.isAvailable()) {
             try {
-                redisService.setCache(cacheKey, credentials.toJson(), credentialsExpirationTime);
+                return clientSideCache.getString(cacheKey);
             } catch (Exception e) {
-                log.warn("Error caching credentials in Redis: {}", e.getMessage());
+                log.warn("Error reading {} through the client-side cache: {}", cacheKey, e.getMessage());
+            }
+        }
+        return redisService.getCache(cacheKey);
+    }
+        
+    /**
+     * Polls Redis until the lease holder publishes credentials other than the given ones
+     *
+     * @return The published credentials, or null if none appeared within the wait
+     */
+    private AwsCredentials awaitShared(String awsKey, AwsCredentials current) {
+        long deadline = System.currentTimeMillis() + leaseWait;
+        while (System.currentTimeMillis() < deadline) {
+            AwsCredentials shared = readShared(awsKey);
+            if (shared != null && (current == null || !Objects.equals(shared.getAccessKeyId(), current.getAccessKeyId()))) {
+                return shared;
             }
+            try {
+                Thread.sleep(leasePollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
             
-            return credentials;
-        } catch (Exception e) {
-            log.error("Error obtaining AWS credentials for {}: {}", awsKey, e.getMessage(), e);
-            throw new RuntimeException("Error obtaining AWS credentials", e);
+    private boolean isStillValid(AwsCredentials credentials) {
+        return credentials != null && credentials.getExpiration() != null
+                && credentials.getExpiration() - System.currentTimeMillis() > staleMargin * 1000;
+    }
+    
+    private AwsIamProperties.AwsInstanceProperties instanceProperties(String destination) {
+        AwsIamProperties.AwsInstanceProperties properties = iamProperties.resolveDestinations().get(destination);
+        if (properties == null) {
+            throw new IllegalArgumentException("Invalid AWS key: " + destination);
         }
+        return properties;
     }
     
     /**
-     * Generates a random string for demo purposes
+     * Stores new credentials in Redis and then locally; each tier swaps the whole
+     * entry, so readers see either the old or the new credentials, never a mix.
+     * With a lease token the Redis write is fenced: it is skipped if the lease
+     * expired and another instance took it meanwhile.
      */
-    private String generateRandomString(int length) {
-        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            int index = (int) (chars.length() * Math.random());
-            sb.append(chars.charAt(index));
+    private void publish(String awsKey, AwsCredentials credentials, String leaseKey, long token) {
+        String cacheKey = String.format("aws:credentials:%s", awsKey);
+        long ttl = credentialsExpirationTime;
+        if (credentials.getExpiration() != null) {
+            ttl = Math.min(ttl, (credentials.getExpiration() - System.currentTimeMillis()) / 1000);
+        }
+        try {
+            if (ttl > 0) {
+                if (token > 0) {
+                    if (!redisService.setCacheIfLeaseHeld(leaseKey, token, cacheKey, credentials.toJson(), ttl)) {
+                        log.warn("Lease for {} lost before publishing, credentials only kept locally", awsKey);
+                    }
+                } else {
+                    redisService.setCache(cacheKey, credentials.toJson(), ttl);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Error caching credentials in Redis: {}", e.getMessage());
         }
-        return sb.toString();
+        cacheLocally(awsKey, credentials);
+    }
+    
+    /**
+     * Keeps the credentials locally until shortly before they expire, never longer
+     * than the Redis entry they came from
+     */
+    private void cacheLocally(String awsKey, AwsCredentials credentials) {
+        long now = System.currentTimeMillis();
+        long expiresAt = credentials.getExpiration() != null
+                ? credentials.getExpiration() - localExpirySkew * 1000
+                : now + localDefaultTtl * 1000;
+        localCredentials.put(awsKey, credentials, Math.min(expiresAt, now + credentialsExpirationTime * 1000));
+        lastKnownCredentials.put(awsKey, credentials);
     }
 }
\ No newline at end of file
@@ -1,5 +1,10 @@
 package com.empresa.connector.service;
 
+import com.empresa.connector.model.eventbridge.EventBridgeMessage;
+
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Service interface for AWS EventBridge operations
  */
@@ -21,6 +26,43 @@ public interface EventBridgeService {
      */
     String sendToEventBridgeWithAws2Config(String message);
     
+    /**
+     * Sends a message to a named EventBridge destination
+     *
+     * @param destination The destination name
+     * @param message The message to send
+     * @return Result status ("OK" or "KO")
+     */
+    String sendToEventBridge(String destination, String message);
+    
+    /**
+     * Sends a message to several destinations in parallel, each one on its own resources
+     *
+     * @param destinations The destination names
+     * @param message The message to send
+     * @return Result status ("OK" or "KO") by destination
+     */
+    Map<String, String> sendToEventBridge(Collection<String> destinations, String message);
+    
+    /**
+     * Sends an already built message to several destinations in parallel, without
+     * serializing and parsing it again
+     *
+     * @param destinations The destination names
+     * @param message The EventBridge message, not modified
+     * @return Result status ("OK" or "KO") by destination
+     */
+    Map<String, String> sendToEventBridge(Collection<String> destinations, EventBridgeMessage message);
+    
+    /**
+     * Destination named in the awsDestiny field of the message, any of those in the
+     * destination registry, or the default one
+     *
+     * @param message The EventBridge message
+     * @return The destination name
+     */
+    String resolveDestination(String message);
+    
     /**
      * Sends a message to EventBridge based on the target in the message
      * 
@@ -37,35 +79,50 @@ public interface EventBridgeService {
 package com.empresa.connector.service.impl;
 
 import com.empresa.connector.config.properties.EventBridgeProperties;
+import com.empresa.connector.destination.EventBridgeDestination;
+import com.empresa.connector.destination.EventBridgeDestinationRegistry;
 import com.empresa.connector.model.AwsCredentials;
-import com.empresa.connector.model.EventBridgeResponse;
+import com.empresa.connector.model.PutEventsResult;
+import com.empresa.connector.model.eventbridge.ClaimCheckDetail;
 import com.empresa.connector.model.eventbridge.EventBridgeMessage;
 import com.empresa.connector.service.AwsAuthService;
 import com.empresa.connector.service.AwsIamService;
+import com.empresa.connector.service.ClaimCheckStore;
 import com.empresa.connector.service.EventBridgeService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.empresa.connector.util.EventBridgeEntrySize;
+import com.empresa.connector.util.JsonCodecs;
+import com.empresa.connector.util.PutEventsResponseParser;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.eventbridge.EventBridgeClient;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsRequest;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsRequestEntry;
-import software.amazon.awssdk.services.eventbridge.model.PutEventsResponse;
+import org.springframework.web.client.HttpClientErrorException;
 
-import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EventBridgeServiceImpl implements EventBridgeService {
 
+    private static final Pattern AWS_DESTINY = Pattern.compile("\"awsDestiny\"\\s*:\\s*\"([^\"]+)\"");
+    
     private final EventBridgeProperties eventBridgeProperties;
-    private final AwsIamService awsIamService;
+    private final EventBridgeDestinationRegistry destinationRegistry;
     private final AwsAuthService awsAuthService;
-    private final ObjectMapper objectMapper;
+    private final AwsIamService awsIamService;
+    private final JsonCodecs jsonCodecs;
+    private final ClaimCheckStore claimCheckStore;
+    private final PutEventsResponseParser putEventsResponseParser;
     
     @Value("${topics.output.source:openbank.payments}")
     private String eventSource;
@@ -73,130 +130,260 @@ public class EventBridgeServiceImpl implements EventBridgeService {
     @Value("${topics.output.detail-type:Transfer_KO}")
     private String detailType;
     
-    @Value("${aws.eventbridge.aws1.event-bus-name}")
-    private String eventBusNameAws1;
+    @Value("${aws.default:aws1}")
+    private String defaultDestination;
     
-    @Value("${aws.eventbridge.aws2.event-bus-name}")
-    private String eventBusNameAws2;
+    // How long a send rejected with 403 waits for new credentials before failing the record
+    @Value("${aws.credentials.rejected.wait-ms:1000}")
+    private long rejectedCredentialsWait;
     
-    @Resource(name = "eventBridgeClientAws1")
-    private EventBridgeClient eventBridgeClientAws1;
-    
-    @Resource(name = "eventBridgeClientAws2")
-    private EventBridgeClient eventBridgeClientAws2;
+    // Entries above this size get their detail offloaded to the claim-check store
+    @Value("${aws.eventbridge.claim-check.threshold:" + EventBridgeEntrySize.MAX_ENTRY_SIZE + "}")
+    private int claimCheckThreshold;
     
     @Override
     public String sendToEventBridgeWithAws1Config(String message) {
+        return sendToEventBridge("aws1", message);
+    }
+    
+    @Override
+    public String sendToEventBridgeWithAws2Config(String message) {
+        return sendToEventBridge("aws2", message);
+    }
+    
+    @Override
+    public String sendToEventBridge(String destination, String message) {
         try {
-            log.info("Sending to AWS1 EventBridge");
-            
-            // Get credentials
-            AwsCredentials credentials = awsIamService.getAwsCredentialsForAws1();
-            
-            // Get AWS1 EventBridge properties
-            EventBridgeProperties.EventBridgeInstanceProperties aws1Props = eventBridgeProperties.getAws1();
-            
-            // Parse message to check if it's valid
-            EventBridgeMessage eventBridgeMessage = parseMessage(message);
-            
-            // Construct URL
-            String url = String.format("https://%s", aws1Props.getHost());
-            
-            // Send authenticated request
-            ResponseEntity<EventBridgeResponse> response = awsAuthService.sendAuthenticatedRequest(
-                url,
-                HttpMethod.POST,
-                eventBridgeMessage,
-                EventBridgeResponse.class,
-                credentials,
-                aws1Props.getRegion(),
-                eventBridgeProperties.getService(),
-                eventBridgeProperties.getAmzTarget()
-            );
+            return submit(destination, buildEntry(parseMessage(message))).join();
+        } catch (Exception e) {
+            log.error("Error sending to {} EventBridge: {}", destination, e.getMessage(), e);
+            return eventBridgeProperties.getResult().getIncorrect();
+        }
+    }
+    
+    @Override
+    public Map<String, String> sendToEventBridge(Collection<String> destinations, String message) {
+        return sendToEventBridge(destinations, parseMessage(message));
+    }
+    
+    @Override
+    public Map<String, String> sendToEventBridge(Collection<String> destinations, EventBridgeMessage message) {
+        Map<String, String> results = new LinkedHashMap<>();
+        
+        // Built once for all destinations, so an oversized detail is offloaded a single time
+        EventBridgeMessage entry;
+        try {
+            entry = buildEntry(message);
+        } catch (Exception e) {
+            log.error("Error building EventBridge entry: {}", e.getMessage(), e);
+            destinations.forEach(destination -> results.put(destination, eventBridgeProperties.getResult().getIncorrect()));
+            return results;
+        }
+        
+        // Submit to every destination first so the sends run in parallel
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        for (String destination : destinations) {
+            pending.put(destination, submit(destination, entry));
+        }
             
-            // Check response
-            if (response.getStatusCode().is2xxSuccessful() && 
-                response.getBody() != null && 
-                response.getBody().getFailedEntryCount() == 0) {
-                log.info("Events successfully sent to AWS1 EventBridge");
-                return eventBridgeProperties.getResult().getCorrect();
-            } else {
-                log.error("Error sending events to AWS1 EventBridge: {}", response.getBody());
-                return eventBridgeProperties.getResult().getIncorrect();
+        pending.forEach((destination, future) -> {
+            try {
+                results.put(destination, future.join());
+            } catch (Exception e) {
+                log.error("Error sending to {} EventBridge: {}", destination, e.getMessage(), e);
+                results.put(destination, eventBridgeProperties.getResult().getIncorrect());
             }
-            
+        });
+        return results;
+    }
+    
+    @Override
+    public void sendToEventBridge(String message) {
+        try {
+            // Determine target AWS
+            sendToEventBridge(resolveDestination(message), message);
         } catch (Exception e) {
-            log.error("Error sending to AWS1 EventBridge: {}", e.getMessage(), e);
-            return eventBridgeProperties.getResult().getIncorrect();
+            log.error("Error sending to EventBridge: {}", e.getMessage(), e);
+            throw new RuntimeException("Error sending to EventBridge", e);
         }
     }
     
     @Override
-    public String sendToEventBridgeWithAws2Config(String message) {
+    public void sendAckMessage() {
+        log.info("Sending ACK message");
+        // Implementation for sending acknowledgment message
+        // This would depend on the specific requirements
+    }
+    
+    /**
+     * Runs the send on the destination's own executor
+     */
+    private CompletableFuture<String> submit(String destinationName, EventBridgeMessage entry) {
+        try {
+            EventBridgeDestination destination = destinationRegistry.get(destinationName);
+            return destination.submit(() -> send(destination, entry));
+        } catch (Exception e) {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+    
+    /**
+     * Sends an entry using the resources of a single destination. The entry may be
+     * shared with other destinations and is not modified.
+     */
+    private String send(EventBridgeDestination destination, EventBridgeMessage entry) {
+        Timer.Sample sample = Timer.start();
         try {
-            log.info("Sending to AWS2 EventBridge");
+            log.info("Sending to {} EventBridge", destination.getName());
             
             // Get credentials
-            AwsCredentials credentials = awsIamService.getAwsCredentialsForAws2();
-            
-            // Get AWS2 EventBridge properties
-            EventBridgeProperties.EventBridgeInstanceProperties aws2Props = eventBridgeProperties.getAws2();
+            AwsCredentials credentials = destination.getCredentialsProvider().get();
             
-            // Parse message to check if it's valid
-            EventBridgeMessage eventBridgeMessage = parseMessage(message);
+            EventBridgeMessage eventBridgeMessage = entry.getEventBusName() != null ? entry
+                : entry.toBuilder().eventBusName(destination.getProperties().getEventBusName()).build();
             
-            // Construct URL
-            String url = String.format("https://%s", aws2Props.getHost());
-            
-            // Send authenticated request
-            ResponseEntity<EventBridgeResponse> response = awsAuthService.sendAuthenticatedRequest(
-                url,
-                HttpMethod.POST,
-                eventBridgeMessage,
-                EventBridgeResponse.class,
-                credentials,
-                aws2Props.getRegion(),
-                eventBridgeProperties.getService(),
-                eventBridgeProperties.getAmzTarget()
-            );
+            PutEventsResult result;
+            try {
+                result = putEvents(destination, eventBridgeMessage, credentials);
+            } catch (RuntimeException e) {
+                if (!isForbidden(e)) {
+                    throw e;
+                }
+                // Revoked session or changed role: replace the credentials on every instance and retry once
+                log.warn("{} EventBridge rejected the credentials, refreshing them and retrying", destination.getName());
+                awsIamService.invalidateRejectedCredentials(destination.getName(), credentials);
+                AwsCredentials replacement = awsIamService.awaitReplacementCredentials(
+                    destination.getName(), credentials, rejectedCredentialsWait);
+                if (replacement == null) {
+                    // The record goes to the retry topics; the reload goes on in the background
+                    throw e;
+                }
+                result = putEvents(destination, eventBridgeMessage, replacement);
+            }
             
-            // Check response
-            if (response.getStatusCode().is2xxSuccessful() && 
-                response.getBody() != null && 
-                response.getBody().getFailedEntryCount() == 0) {
-                log.info("Events successfully sent to AWS2 EventBridge");
+            // Check response, non-2xx statuses are raised by the RestTemplate error handler
+            if (result != null && result.isSuccessful()) {
+                log.info("Events successfully sent to {} EventBridge", destination.getName());
+                destination.getSuccessCounter().increment();
                 return eventBridgeProperties.getResult().getCorrect();
             } else {
-                log.error("Error sending events to AWS2 EventBridge: {}", response.getBody());
+                log.error("Error sending events to {} EventBridge: {}", destination.getName(), result);
+                destination.getFailureCounter().increment();
                 return eventBridgeProperties.getResult().getIncorrect();
             }
-            
+        
         } catch (Exception e) {
-            log.error("Error sending to AWS2 EventBridge: {}", e.getMessage(), e);
+            log.error("Error sending to {} EventBridge: {}", destination.getName(), e.getMessage(), e);
+            destination.getFailureCounter().increment();
             return eventBridgeProperties.getResult().getIncorrect();
+        } finally {
+            sample.stop(destination.getSendTimer());
         }
     }
     
-    @Override
-    public void sendToEventBridge(String message) {
-        try {
-            // Determine target AWS
-            if (message.contains("\"awsDestiny\":\"aws2\"")) {
-                sendToEventBridgeWithAws2Config(message);
-            } else {
-                sendToEventBridgeWithAws1Config(message);
+    /**
+     * Sends the entry with a request signed with the destination's template,
+     * streaming the response through the PutEvents parser
+     */
+    private PutEventsResult putEvents(EventBridgeDestination destination, EventBridgeMessage entry,
+                                      AwsCredentials credentials) {
+        return awsAuthService.executeAuthenticatedRequest(
+            destination.getRestTemplate(),
+            destination.getSigner(),
+            destination.getSigV4Template(),
+            destination.getUrl(),
+            entry,
+            credentials,
+            response -> putEventsResponseParser.parse(response.getBody())
+        );
+    }
+    
+    /**
+     * Whether the failure is a 403 from AWS, possibly wrapped by the auth service
+     */
+    private boolean isForbidden(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpClientErrorException
+                    && ((HttpClientErrorException) cause).getStatusCode() == HttpStatus.FORBIDDEN) {
+                return true;
             }
-        } catch (Exception e) {
-            log.error("Error sending to EventBridge: {}", e.getMessage(), e);
-            throw new RuntimeException("Error sending to EventBridge", e);
         }
+        return false;
     }
     
     @Override
-    public void sendAckMessage() {
-        log.info("Sending ACK message");
-        // Implementation for sending acknowledgment message
-        // This would depend on the specific requirements
+    public String resolveDestination(String message) {
+        Matcher matcher = AWS_DESTINY.matcher(message);
+        if (!matcher.find()) {
+            return defaultDestination;
+        }
+        String destination = matcher.group(1);
+        if (!destinationRegistry.contains(destination)) {
+            log.warn("Unknown awsDestiny {}, sending to {}", destination, defaultDestination);
+            return defaultDestination;
+        }
+        return destination;
+    }
+    
+    /**
+     * Builds the EventBridge entry, accounting its size and offloading
+     * the detail to the claim-check store when it is too large
+     */
+    private EventBridgeMessage buildEntry(EventBridgeMessage message) {
+        // The detail is replaced below, work on a copy of the caller's message
+        EventBridgeMessage eventBridgeMessage = message.toBuilder().build();
+        
+        String detail = detailAsString(eventBridgeMessage.getDetail());
+        EventBridgeEntrySize entrySize = new EventBridgeEntrySize()
+            .source(eventBridgeMessage.getSource())
+            .detailType(eventBridgeMessage.getDetailType())
+            .detail(detail);
+        
+        if (entrySize.exceeds(claimCheckThreshold)) {
+            byte[] payload = detail.getBytes(StandardCharsets.UTF_8);
+            String reference = claimCheckStore.store(payload);
+            
+            ClaimCheckDetail claimCheckDetail = ClaimCheckDetail.builder()
+                .claimCheck(ClaimCheckDetail.Reference.builder()
+                    .store(claimCheckStore.type())
+                    .ref(reference)
+                    .size(payload.length)
+                    .build())
+                .build();
+            eventBridgeMessage.setDetail(claimCheckDetail);
+            String claimCheck = detailAsString(claimCheckDetail);
+            entrySize.withoutDetail(detail).detail(claimCheck);
+            detail = claimCheck;
+            
+            log.info("Detail of {} bytes offloaded to claim-check {}", payload.length, reference);
+        }
+        
+        // The request carries the detail exactly as measured, instead of serializing it again
+        Object value = eventBridgeMessage.getDetail();
+        if (value != null && !(value instanceof String)) {
+            eventBridgeMessage.setDetail(new RawValue(detail));
+        }
+        
+        log.debug("EventBridge entry size: {} bytes", entrySize.size());
+        return eventBridgeMessage;
+    }
+    
+    /**
+     * Detail as sent to EventBridge: strings as they are, objects as JSON
+     */
+    private String detailAsString(Object detail) {
+        if (detail == null) {
+            return "";
+        } else if (detail instanceof String) {
+            return (String) detail;
+        }
+        try {
+            return jsonCodecs.writeAsString(detail);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error serializing EventBridge detail", e);
+        }
     }
     
     /**
@@ -205,7 +392,7 @@ public class EventBridgeServiceImpl implements EventBridgeService {
     private EventBridgeMessage parseMessage(String message) {
         try {
             if (message instanceof String) {
-                return objectMapper.readValue(message, EventBridgeMessage.class);
+                return jsonCodecs.readEventBridgeMessage(message);
             } else {
                 return (EventBridgeMessage) message;
             }
@@ -12,6 +12,11 @@ kafka:
   consumer:
     group-id: HZ.PAYMENTSGDC.AVRO.CONSUMERTest13
     topic-pattern: SBNA.00002517.MIP_INS_HIST_EJ.MODIFY.AVRO
+  retry:
+    attempts: 4
+    initial-interval: 5000
+    multiplier: 12
+    max-interval: 600000
 
 # Configuración de validación
 validation:
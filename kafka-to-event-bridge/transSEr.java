@@ -56,8 +56,8 @@ import com.empresa.connector.model.kafka.KafkaPaymentMessage;
 import com.empresa.connector.model.eventbridge.EventBridgeMessage;
 import com.empresa.connector.service.TransformationService;
 import com.empresa.connector.transformer.AvroSchemaTransformer;
+import com.empresa.connector.util.JsonCodecs;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -70,7 +70,7 @@ import org.springframework.stereotype.Service;
 public class TransformationServiceImpl implements TransformationService {
     
     private final KafkaToEventBridgeMapper mapper;
-    private final ObjectMapper objectMapper;
+    private final JsonCodecs jsonCodecs;
     private final AvroSchemaTransformer avroSchemaTransformer;
     
     @Value("${validation.codesta2}")
@@ -100,14 +100,14 @@ public class TransformationServiceImpl implements TransformationService {
     public String transformToJson(String message) {
         try {
             // Check if already valid JSON
-            objectMapper.readTree(message);
+            jsonCodecs.readTree(message);
             return message;
         } catch (Exception e) {
             log.warn("Message is not valid JSON, attempting to convert: {}", e.getMessage());
             try {
                 // Try to convert to JSON
                 Object obj = message;
-                return objectMapper.writeValueAsString(obj);
+                return jsonCodecs.writeAsString(obj);
             } catch (Exception ex) {
                 log.error("Error transforming to JSON: {}", ex.getMessage(), ex);
                 return message; // Return original message on error
@@ -119,7 +119,7 @@ public class TransformationServiceImpl implements TransformationService {
     public String transformAwsDestiny(String message) {
         try {
             // Parse message to JSON
-            JsonNode rootNode = objectMapper.readTree(message);
+            JsonNode rootNode = jsonCodecs.readTree(message);
             
             // Check if awsDestiny is already set
             if (rootNode.has("awsDestiny")) {
@@ -130,7 +130,7 @@ public class TransformationServiceImpl implements TransformationService {
             ((ObjectNode) rootNode).put("awsDestiny", "aws1");
             
             // Convert back to string
-            return objectMapper.writeValueAsString(rootNode);
+            return jsonCodecs.writeTree(rootNode);
         } catch (Exception e) {
             log.error("Error transforming AWS destiny: {}", e.getMessage(), e);
             return message; // Return original message on error
@@ -140,7 +140,7 @@ public class TransformationServiceImpl implements TransformationService {
     @Override
     public KafkaPaymentMessage parseKafkaMessage(String kafkaMessageJson) {
         try {
-            return objectMapper.readValue(kafkaMessageJson, KafkaPaymentMessage.class);
+            return jsonCodecs.readKafkaPaymentMessage(kafkaMessageJson);
         } catch (Exception e) {
             log.error("Error parsing Kafka message: {}", e.getMessage(), e);
             throw new RuntimeException("Error parsing Kafka message", e);
@@ -155,7 +155,7 @@ public class TransformationServiceImpl implements TransformationService {
     @Override
     public String toEventBridgeJson(EventBridgeMessage eventBridgeMessage) {
         try {
-            return objectMapper.writeValueAsString(eventBridgeMessage);
+            return jsonCodecs.writeEventBridgeMessage(eventBridgeMessage);
         } catch (Exception e) {
             log.error("Error converting EventBridgeMessage to JSON: {}", e.getMessage(), e);
             throw new RuntimeException("Error converting EventBridgeMessage to JSON", e);